@@ -0,0 +1,506 @@
+package com.redhat.cloud.policies.api.model.condition.expression;
+
+import com.redhat.cloud.policies.api.model.condition.expression.parser.ExpressionParser;
+import org.hawkular.alerts.api.model.event.Event;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import static com.redhat.cloud.policies.api.model.condition.expression.ExprParser.ExprVisitor.arrayContains;
+import static com.redhat.cloud.policies.api.model.condition.expression.ExprParser.cleanString;
+import static com.redhat.cloud.policies.api.model.condition.expression.ExprParser.convertToBigDecimal;
+
+/**
+ * An expression parsed once into an immutable evaluation tree.
+ *
+ * The tree is built from the same parse tree used by {@link ExprParser#evaluate(Event, String)} and evaluates with the
+ * same semantics, but literals are parsed, key paths are split and operators are resolved at compile time, so
+ * evaluating it against an {@link Event} does no parsing. Instances are immutable and safe to share between threads.
+ *
+ * Use {@link ExprParser#compile(String)} to build one, or {@link ExpressionCache#get(String)} to reuse them.
+ */
+public final class CompiledExpression {
+
+    private static final Pattern KEY_REGEXP = Pattern.compile("(?<!\\\\)\\.");
+
+    private static final Logger log = Logger.getLogger("ExpParser");
+
+    private final String expression;
+    private final Node root;
+    private final Set<String> factKeys;
+
+    private CompiledExpression(String expression, Node root, Set<String> factKeys) {
+        this.expression = expression;
+        this.root = root;
+        this.factKeys = Collections.unmodifiableSet(factKeys);
+    }
+
+    static CompiledExpression compile(String expression, ExpressionParser.ExpressionContext ctx) {
+        if (ctx.object() == null) {
+            throw new IllegalArgumentException("Invalid expression: " + expression);
+        }
+        Set<String> factKeys = new HashSet<>();
+        return new CompiledExpression(expression, compileObject(ctx.object(), factKeys), factKeys);
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return the top level keys of the {@link Event#getFacts()} read by this expression, lower case
+     */
+    public Set<String> getFactKeys() {
+        return factKeys;
+    }
+
+    public boolean evaluate(Event value) {
+        return root.evaluate(value);
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledExpression{" +
+                "expression='" + expression + '\'' +
+                '}';
+    }
+
+    // Compilation, mirrors ExprParser.ExprVisitor
+
+    private static Node compileObject(ExpressionParser.ObjectContext ctx, Set<String> factKeys) {
+        if (ctx.expr() != null) {
+            Node expr = compileExpr(ctx.expr(), factKeys);
+            return ctx.negative_expr() != null ? new Not(expr) : expr;
+        }
+
+        if (ctx.logical_operator() != null) {
+            ExpressionParser.Logical_operatorContext op = ctx.logical_operator();
+            if (op.AND() != null) {
+                return new And(compileObject(ctx.object(0), factKeys), compileObject(ctx.object(1), factKeys));
+            } else if (op.OR() != null) {
+                return new Or(compileObject(ctx.object(0), factKeys), compileObject(ctx.object(1), factKeys));
+            }
+            return Constant.FALSE;
+        }
+
+        if (ctx.object() != null && ctx.object().size() == 1) {
+            Node object = compileObject(ctx.object(0), factKeys);
+            return ctx.negative_expr() != null ? new Not(object) : object;
+        }
+        return Constant.FALSE;
+    }
+
+    private static Node compileExpr(ExpressionParser.ExprContext ctx, Set<String> factKeys) {
+        if (ctx.key() == null) {
+            return Constant.FALSE;
+        }
+        String key = null;
+        if (ctx.key().SIMPLETEXT() != null) {
+            key = ctx.key().SIMPLETEXT().getSymbol().getText();
+        } else if (ctx.key().STRING() != null) {
+            key = cleanString(ctx.key().STRING().getSymbol().getText());
+        }
+        KeyAccessor accessor = compileKey(key, factKeys);
+
+        String strValue = null;
+        BigDecimal decimalValue = null;
+        String number = null;
+        ExpressionParser.ValueContext valueCtx = ctx.value();
+        if (valueCtx != null) {
+            strValue = ExprParser.valueToString(valueCtx);
+            if (valueCtx.NUMBER() != null) {
+                number = valueCtx.NUMBER().getSymbol().getText();
+            } else if (valueCtx.QUOTED_NUMBER() != null) {
+                number = valueCtx.QUOTED_NUMBER().getSymbol().getText();
+            }
+        } else if (ctx.numerical_value() != null) {
+            if (ctx.numerical_value().NUMBER() != null) {
+                number = ctx.numerical_value().NUMBER().getSymbol().getText();
+            } else {
+                number = ctx.numerical_value().QUOTED_NUMBER().getSymbol().getText();
+            }
+        }
+        if (number != null) {
+            try {
+                decimalValue = new BigDecimal(cleanString(number));
+                strValue = cleanString(decimalValue.toString());
+            } catch (NumberFormatException e) {
+                log.warning("Failed to parse value into a number " + e.getMessage());
+                // The interpreter fails the comparison for any event with a defined key
+                return new Comparison(accessor, Constant.FALSE);
+            }
+        }
+
+        if (ctx.boolean_operator() != null) {
+            ExpressionParser.Boolean_operatorContext op = ctx.boolean_operator();
+            if (op.EQUAL() != null) {
+                return new Comparison(accessor, new Equal(strValue, decimalValue, false));
+            } else if (op.NOTEQUAL() != null) {
+                return new Comparison(accessor, new Equal(strValue, decimalValue, true));
+            }
+            return new Comparison(accessor, Constant.FALSE);
+        }
+
+        if (ctx.numeric_compare_operator() != null) {
+            return new Comparison(accessor,
+                    new NumericCompare(decimalValue, NumericOperator.of(ctx.numeric_compare_operator())));
+        }
+
+        if (ctx.string_compare_operator() != null) {
+            if (ctx.value() != null && ctx.string_compare_operator().CONTAINS() != null) {
+                return new Comparison(accessor, new Contains(strValue, decimalValue));
+            }
+            if (ctx.array() != null) {
+                return new Comparison(accessor, new ContainsAll(arrayValues(ctx.array())));
+            }
+            return new Comparison(accessor, Constant.FALSE);
+        }
+
+        if (ctx.array_operator() != null && ctx.array() != null && ctx.array_operator().IN() != null) {
+            return new Comparison(accessor, new In(arrayValues(ctx.array())));
+        }
+
+        // The define only check
+        return new Comparison(accessor, Constant.TRUE);
+    }
+
+    private static String[] arrayValues(ExpressionParser.ArrayContext ctx) {
+        List<ExpressionParser.ValueContext> values = ctx.value();
+        String[] arrayValues = new String[values.size()];
+        for (int i = 0; i < arrayValues.length; i++) {
+            arrayValues[i] = ExprParser.valueToString(values.get(i));
+        }
+        return arrayValues;
+    }
+
+    private static KeyAccessor compileKey(String eventField, Set<String> factKeys) {
+        eventField = eventField.toLowerCase();
+        switch (eventField) {
+            case "id":
+                return Event::getId;
+            case "ctime":
+                return Event::getCtime;
+            case "text":
+                return Event::getText;
+            case "category":
+                return Event::getCategory;
+            default:
+                break;
+        }
+        if (eventField.startsWith("tags.")) {
+            return new TagKey(eventField.substring(5));
+        }
+        if (eventField.startsWith("facts.")) {
+            // Split the key the same way the interpreter walks it, one escaped dot aware segment at a time
+            List<String> path = new ArrayList<>();
+            String[] subMap = KEY_REGEXP.split(eventField.substring(6), 2);
+            path.add(subMap[0].replace("\\.", ".").toLowerCase());
+            while (subMap.length > 1) {
+                subMap = KEY_REGEXP.split(subMap[1], 2);
+                path.add(subMap[0].replace("\\.", "."));
+            }
+            factKeys.add(path.get(0));
+            return new FactKey(path.toArray(new String[0]));
+        }
+        return value -> null;
+    }
+
+    private static String targetToString(Object targetValue, BigDecimal decimalValue) {
+        if (decimalValue != null) {
+            BigDecimal targetValueDecimal = convertToBigDecimal(targetValue);
+            if (targetValueDecimal != null) {
+                return cleanString(targetValueDecimal.toString());
+            }
+        }
+        return cleanString(targetValue.toString());
+    }
+
+    // Evaluation tree
+
+    private interface Node {
+        boolean evaluate(Event value);
+    }
+
+    private interface KeyAccessor {
+        Object get(Event value);
+    }
+
+    private interface Operation {
+        boolean apply(Object targetValue);
+    }
+
+    private enum Constant implements Node, Operation {
+        TRUE, FALSE;
+
+        @Override
+        public boolean evaluate(Event value) {
+            return this == TRUE;
+        }
+
+        @Override
+        public boolean apply(Object targetValue) {
+            return this == TRUE;
+        }
+    }
+
+    private static final class Not implements Node {
+        private final Node node;
+
+        Not(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean evaluate(Event value) {
+            return !node.evaluate(value);
+        }
+    }
+
+    private static final class And implements Node {
+        private final Node left;
+        private final Node right;
+
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean evaluate(Event value) {
+            return left.evaluate(value) && right.evaluate(value);
+        }
+    }
+
+    private static final class Or implements Node {
+        private final Node left;
+        private final Node right;
+
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean evaluate(Event value) {
+            return left.evaluate(value) || right.evaluate(value);
+        }
+    }
+
+    private static final class Comparison implements Node {
+        private final KeyAccessor accessor;
+        private final Operation operation;
+
+        Comparison(KeyAccessor accessor, Operation operation) {
+            this.accessor = accessor;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean evaluate(Event value) {
+            Object targetValue = accessor.get(value);
+            if (targetValue == null) {
+                // Doesn't matter if the key exists or not - the value will not match
+                return false;
+            }
+            return operation.apply(targetValue);
+        }
+    }
+
+    private static final class TagKey implements KeyAccessor {
+        private final String key;
+
+        TagKey(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object get(Event value) {
+            Collection<String> tagValues = value.getTags().get(key);
+            if (tagValues.size() == 1) {
+                return tagValues.iterator().next();
+            }
+            if (!value.getTags().containsKey(key)) {
+                return null;
+            }
+            return tagValues;
+        }
+    }
+
+    private static final class FactKey implements KeyAccessor {
+        private final String[] path;
+
+        FactKey(String[] path) {
+            this.path = path;
+        }
+
+        @Override
+        public Object get(Event value) {
+            if (value.getFacts() == null) {
+                return null;
+            }
+            Object innerValue = value.getFacts().get(path[0]);
+            for (int i = 1; i < path.length && innerValue instanceof Map; i++) {
+                innerValue = ((Map<?, ?>) innerValue).get(path[i]);
+            }
+            return innerValue;
+        }
+    }
+
+    private static final class Equal implements Operation {
+        private final String strValue;
+        private final BigDecimal decimalValue;
+        private final boolean negate;
+
+        Equal(String strValue, BigDecimal decimalValue, boolean negate) {
+            this.strValue = strValue;
+            this.decimalValue = decimalValue;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean apply(Object targetValue) {
+            boolean compareResult = false;
+            if (targetValue instanceof Iterable) {
+                compareResult = arrayContains((Iterable<?>) targetValue, strValue);
+            } else {
+                BigDecimal targetValueDecimal = decimalValue != null ? convertToBigDecimal(targetValue) : null;
+                if (targetValueDecimal != null) {
+                    compareResult = decimalValue.compareTo(targetValueDecimal) == 0;
+                } else if (strValue != null) {
+                    compareResult = cleanString(targetValue.toString()).equals(strValue);
+                }
+            }
+            return negate != compareResult;
+        }
+    }
+
+    private enum NumericOperator {
+        GT, GTE, LT, LTE, NONE;
+
+        static NumericOperator of(ExpressionParser.Numeric_compare_operatorContext op) {
+            if (op.GT() != null) {
+                return GT;
+            } else if (op.GTE() != null) {
+                return GTE;
+            } else if (op.LT() != null) {
+                return LT;
+            } else if (op.LTE() != null) {
+                return LTE;
+            }
+            return NONE;
+        }
+
+        // The expression value is on the left side, hence the reversed comparisons
+        boolean compare(BigDecimal decimalValue, BigDecimal targetValueDecimal) {
+            switch (this) {
+                case GT:
+                    return decimalValue.compareTo(targetValueDecimal) < 0;
+                case GTE:
+                    return decimalValue.compareTo(targetValueDecimal) <= 0;
+                case LT:
+                    return decimalValue.compareTo(targetValueDecimal) > 0;
+                case LTE:
+                    return decimalValue.compareTo(targetValueDecimal) >= 0;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static final class NumericCompare implements Operation {
+        private final BigDecimal decimalValue;
+        private final NumericOperator op;
+
+        NumericCompare(BigDecimal decimalValue, NumericOperator op) {
+            this.decimalValue = decimalValue;
+            this.op = op;
+        }
+
+        @Override
+        public boolean apply(Object targetValue) {
+            if (targetValue instanceof Iterable) {
+                boolean anyMatch = false;
+                for (Object o : (Iterable<?>) targetValue) {
+                    BigDecimal targetValueDecimal = convertToBigDecimal(o);
+                    if (targetValueDecimal != null) {
+                        anyMatch |= op.compare(decimalValue, targetValueDecimal);
+                    }
+                }
+                return anyMatch;
+            }
+            BigDecimal targetValueDecimal = convertToBigDecimal(targetValue);
+            if (targetValueDecimal == null) {
+                return false;
+            }
+            return op.compare(decimalValue, targetValueDecimal);
+        }
+    }
+
+    private static final class Contains implements Operation {
+        private final String strValue;
+        private final BigDecimal decimalValue;
+
+        Contains(String strValue, BigDecimal decimalValue) {
+            this.strValue = strValue;
+            this.decimalValue = decimalValue;
+        }
+
+        @Override
+        public boolean apply(Object targetValue) {
+            if (targetValue instanceof Iterable) {
+                return arrayContains((Iterable<?>) targetValue, strValue);
+            }
+            return targetToString(targetValue, decimalValue).contains(strValue);
+        }
+    }
+
+    private static final class ContainsAll implements Operation {
+        private final String[] values;
+
+        ContainsAll(String[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean apply(Object targetValue) {
+            String targetValueStr = cleanString(targetValue.toString());
+            boolean validForAll = true;
+            for (String val : values) {
+                validForAll &= targetValueStr.contains(val);
+            }
+            return validForAll;
+        }
+    }
+
+    private static final class In implements Operation {
+        private final String[] values;
+
+        In(String[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean apply(Object targetValue) {
+            boolean validForAny = false;
+            if (targetValue instanceof Iterable) {
+                for (String val : values) {
+                    validForAny |= arrayContains((Iterable<?>) targetValue, val);
+                }
+            } else {
+                String targetValueStr = cleanString(targetValue.toString());
+                for (String val : values) {
+                    validForAny |= targetValueStr.equals(val);
+                }
+            }
+            return validForAny;
+        }
+    }
+}
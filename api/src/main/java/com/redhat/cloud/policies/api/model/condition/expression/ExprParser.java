@@ -63,6 +63,20 @@ public class ExprParser extends ExpressionBaseVisitor<Boolean> {
         return visitor.visit(parseTree);
     }
 
+    /**
+     * Parse the expression once into an immutable {@link CompiledExpression} which can be evaluated against any
+     * number of events. Prefer {@link ExpressionCache#get(String)} to share compiled expressions.
+     *
+     * @param expression the expression to compile
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static CompiledExpression compile(String expression) {
+        ThrowingErrorHandler errorListener = new ThrowingErrorHandler();
+        ParseTree parseTree = createParserTree(expression, errorListener);
+        return CompiledExpression.compile(expression, (ExpressionParser.ExpressionContext) parseTree);
+    }
+
     private static class ThrowingErrorHandler implements ANTLRErrorListener {
 
         @Override
@@ -0,0 +1,51 @@
+package com.redhat.cloud.policies.api.model.condition.expression;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache of {@link CompiledExpression} keyed by the expression string.
+ *
+ * Compiled expressions are immutable, so a cached entry is never stale for its key. Entries are invalidated when the
+ * conditions holding them are replaced or removed, and the least recently used ones are evicted once the cache
+ * reaches {@link #MAXIMUM_SIZE}.
+ */
+public final class ExpressionCache {
+
+    public static final long MAXIMUM_SIZE = 10_000;
+
+    private static final Cache<String, CompiledExpression> cache = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    private ExpressionCache() {
+    }
+
+    /**
+     * @param expression the expression to look up
+     * @return the cached compiled expression, compiling and caching it if needed
+     * @throws IllegalArgumentException if the expression is not valid, invalid expressions are not cached
+     */
+    public static CompiledExpression get(String expression) {
+        CompiledExpression compiled = cache.getIfPresent(expression);
+        if (compiled == null) {
+            compiled = ExprParser.compile(expression);
+            cache.put(expression, compiled);
+        }
+        return compiled;
+    }
+
+    public static void invalidate(String expression) {
+        if (expression != null) {
+            cache.invalidate(expression);
+        }
+    }
+
+    public static void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public static long size() {
+        return cache.size();
+    }
+}
@@ -2,6 +2,7 @@ package org.hawkular.alerts.api.model.condition;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.redhat.cloud.policies.api.model.condition.expression.ExprParser;
+import com.redhat.cloud.policies.api.model.condition.expression.ExpressionCache;
 import org.hawkular.alerts.api.doc.DocModel;
 import org.hawkular.alerts.api.doc.DocModelProperty;
 import org.hawkular.alerts.api.model.event.Event;
@@ -123,7 +124,7 @@ public class EventCondition extends Condition {
             return true;
         }
 
-        return ExprParser.evaluate(value, expression);
+        return ExpressionCache.get(expression).evaluate(value);
     }
 
     @Override
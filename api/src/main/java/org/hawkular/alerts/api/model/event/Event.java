@@ -274,8 +274,7 @@ public class Event implements Comparable<Event>, Serializable {
 
     public Event(String tenantId, Trigger trigger, Dampening dampening, List<Set<ConditionEval>> evalSets) {
         this.tenantId = tenantId;
-        this.trigger = new Trigger(trigger);
-        this.trigger.getLifecycle().clear(); // This isn't relevant to event's lifecycle
+        this.trigger = new Trigger(trigger, false); // The trigger lifecycle isn't relevant to event's lifecycle
         this.dampening = dampening;
         this.evalSets = evalSets;
         this.eventType = EventType.EVENT.name();
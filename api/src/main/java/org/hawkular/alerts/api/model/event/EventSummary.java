@@ -0,0 +1,197 @@
+package org.hawkular.alerts.api.model.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
+import org.hawkular.alerts.api.doc.DocModel;
+import org.hawkular.alerts.api.doc.DocModelProperty;
+import org.hawkular.alerts.api.json.MultimapDeserializer;
+import org.hawkular.alerts.api.json.MultimapSerializer;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The listed properties of an Event or an Alert, read from the index without loading the stored event.
+ */
+@DocModel(description = "Summary of an Event or an Alert for list views. + \n" +
+        "Lifecycle status, status time and severity are only present for Alerts.")
+public class EventSummary implements Serializable {
+
+    @DocModelProperty(description = "Indicate if this object summarizes an EVENT or an ALERT.",
+            position = 0,
+            allowableValues = "EVENT, ALERT")
+    @JsonInclude
+    private String eventType;
+
+    @DocModelProperty(description = "Tenant id owner of the event.",
+            position = 1)
+    @JsonInclude
+    private String tenantId;
+
+    @DocModelProperty(description = "Unique identifier of the event.",
+            position = 2)
+    @JsonInclude
+    private String id;
+
+    @DocModelProperty(description = "Creation time of the event.",
+            position = 3,
+            allowableValues = "Timestamp in milliseconds since epoch.")
+    @JsonInclude
+    private long ctime;
+
+    @DocModelProperty(description = "Category of the event.",
+            position = 4)
+    @JsonInclude(Include.NON_EMPTY)
+    private String category;
+
+    @DocModelProperty(description = "Trigger that created the event. Null for API-generated Events.",
+            position = 5)
+    @JsonInclude(Include.NON_EMPTY)
+    private String triggerId;
+
+    @DocModelProperty(description = "Tags of the event.",
+            position = 6)
+    @JsonInclude(Include.NON_EMPTY)
+    @JsonDeserialize(using = MultimapDeserializer.class)
+    @JsonSerialize(using = MultimapSerializer.class)
+    private Multimap<String, String> tags;
+
+    @DocModelProperty(description = "Current lifecycle status of the alert.",
+            position = 7,
+            allowableValues = "OPEN, ACKNOWLEDGED, RESOLVED")
+    @JsonInclude(Include.NON_EMPTY)
+    private String status;
+
+    @DocModelProperty(description = "Time of the current lifecycle status of the alert.",
+            position = 8,
+            allowableValues = "Timestamp in milliseconds since epoch.")
+    @JsonInclude(Include.NON_DEFAULT)
+    private long stime;
+
+    @DocModelProperty(description = "Severity of the alert.",
+            position = 9,
+            allowableValues = "LOW, MEDIUM, HIGH, CRITICAL")
+    @JsonInclude(Include.NON_EMPTY)
+    private String severity;
+
+    public EventSummary() {
+        // for json assembly
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getCtime() {
+        return ctime;
+    }
+
+    public void setCtime(long ctime) {
+        this.ctime = ctime;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getTriggerId() {
+        return triggerId;
+    }
+
+    public void setTriggerId(String triggerId) {
+        this.triggerId = triggerId;
+    }
+
+    public Multimap<String, String> getTags() {
+        if (null == tags) {
+            tags = MultimapBuilder.hashKeys().hashSetValues().build();
+        }
+        return tags;
+    }
+
+    public void setTags(Multimap<String, String> tags) {
+        this.tags = tags;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getStime() {
+        return stime;
+    }
+
+    public void setStime(long stime) {
+        this.stime = stime;
+    }
+
+    public String getSeverity() {
+        return severity;
+    }
+
+    public void setSeverity(String severity) {
+        this.severity = severity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EventSummary that = (EventSummary) o;
+        return Objects.equals(tenantId, that.tenantId) &&
+                Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tenantId, id);
+    }
+
+    @Override
+    public String toString() {
+        return "EventSummary{" +
+                "eventType='" + eventType + '\'' +
+                ", tenantId='" + tenantId + '\'' +
+                ", id='" + id + '\'' +
+                ", ctime=" + ctime +
+                ", category='" + category + '\'' +
+                ", triggerId='" + triggerId + '\'' +
+                ", tags=" + tags +
+                ", status='" + status + '\'' +
+                ", stime=" + stime +
+                ", severity='" + severity + '\'' +
+                '}';
+    }
+}
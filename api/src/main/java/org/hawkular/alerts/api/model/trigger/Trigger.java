@@ -169,11 +169,21 @@ public class Trigger implements Serializable {
     @JsonInclude
     String source;
 
-    @DocModelProperty(description = "List of lifecycle events this trigger has generated.",
+    /** Number of latest lifecycle events kept in the trigger, the whole history is kept apart by the backend. */
+    public static final int LIFECYCLE_SIZE = 20;
+
+    @DocModelProperty(description = "Latest lifecycle events this trigger has generated, up to 20. The full history " +
+            "is available per time range.",
             position = 22)
     @JsonInclude(Include.NON_EMPTY)
     List<Lifecycle> lifecycle = new ArrayList<>();
 
+    /** Null for triggers stored before the counts existed, their whole history was kept in lifecycle. */
+    @DocModelProperty(description = "Number of lifecycle events this trigger has generated, per event type.",
+            position = 23)
+    @JsonInclude(Include.NON_EMPTY)
+    Map<String, Long> lifecycleCounts = new HashMap<>();
+
     /** Used internally by the rules engine. Indicates current mode of a trigger: FIRING or AUTORESOLVE. */
     @JsonIgnore
     private Mode mode;
@@ -219,6 +229,14 @@ public class Trigger implements Serializable {
     }
 
     public Trigger(Trigger trigger) {
+        this(trigger, true);
+    }
+
+    /**
+     * @param trigger the trigger to copy
+     * @param withLifecycle false to leave out the lifecycle events and counts, as a lightweight view of the trigger
+     */
+    public Trigger(Trigger trigger, boolean withLifecycle) {
         if (trigger == null) {
             throw new IllegalArgumentException("trigger must be not null");
         }
@@ -248,9 +266,15 @@ public class Trigger implements Serializable {
         this.type = trigger.getType();
         this.source = trigger.getSource();
         this.severity = trigger.getSeverity();
-        lifecycle = new ArrayList<>(trigger.getLifecycle().size());
-        for (int i = 0; i < trigger.getLifecycle().size(); i++) {
-            lifecycle.add(new Lifecycle(trigger.getLifecycle().get(i)));
+        if (withLifecycle) {
+            lifecycle = new ArrayList<>(trigger.getLifecycle().size());
+            for (int i = 0; i < trigger.getLifecycle().size(); i++) {
+                lifecycle.add(new Lifecycle(trigger.getLifecycle().get(i)));
+            }
+            lifecycleCounts = trigger.getLifecycleCounts() != null ? new HashMap<>(trigger.getLifecycleCounts()) : null;
+        } else {
+            lifecycle = new ArrayList<>();
+            lifecycleCounts = new HashMap<>();
         }
 
         this.mode = trigger.getMode() != null ? trigger.getMode() : Mode.FIRING;
@@ -579,14 +603,23 @@ public class Trigger implements Serializable {
         this.lifecycle = lifecycle;
     }
 
+    public Map<String, Long> getLifecycleCounts() {
+        return lifecycleCounts;
+    }
+
+    public void setLifecycleCounts(Map<String, Long> lifecycleCounts) {
+        this.lifecycleCounts = lifecycleCounts;
+    }
+
     /**
-     * Adds a lifecycle event to the trigger
+     * Adds a lifecycle event to the trigger. Only the latest {@link #LIFECYCLE_SIZE} events are kept.
      *
      * @param event Lifecycle event which happened
      * @param stime Lifecycle time. If set to 0, it is autoset.
      * @param note Additional note
+     * @return the lifecycle event added
      */
-    public void addLifecycle(TriggerLifecycle event, long stime, Note note) {
+    public Lifecycle addLifecycle(TriggerLifecycle event, long stime, Note note) {
         if(stime == 0) {
             stime = System.currentTimeMillis();
         }
@@ -594,7 +627,35 @@ public class Trigger implements Serializable {
         if(note != null) {
             lifecycle.addNote(note);
         }
+        addLifecycle(lifecycle);
+        return lifecycle;
+    }
+
+    /**
+     * Adds a lifecycle event to the trigger. Only the latest {@link #LIFECYCLE_SIZE} events are kept.
+     *
+     * @param lifecycle Lifecycle event which happened
+     */
+    public void addLifecycle(Lifecycle lifecycle) {
+        if (lifecycleCounts == null) {
+            lifecycleCounts = countLifecycle(getLifecycle());
+        }
+        lifecycleCounts.merge(lifecycle.getStatus(), 1L, Long::sum);
         getLifecycle().add(lifecycle);
+        if (getLifecycle().size() > LIFECYCLE_SIZE) {
+            getLifecycle().subList(0, getLifecycle().size() - LIFECYCLE_SIZE).clear();
+        }
+    }
+
+    /**
+     * @return the number of lifecycle events per event type
+     */
+    public static Map<String, Long> countLifecycle(List<Lifecycle> lifecycle) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Lifecycle item : lifecycle) {
+            counts.merge(item.getStatus(), 1L, Long::sum);
+        }
+        return counts;
     }
 
     @JsonIgnore
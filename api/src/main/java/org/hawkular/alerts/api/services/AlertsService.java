@@ -10,6 +10,7 @@ import org.hawkular.alerts.api.model.condition.ConditionEval;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.event.EventSummary;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
 
@@ -156,6 +157,27 @@ public interface AlertsService {
      */
     Page<Event> getEvents(Set<String> tenantIds, EventsCriteria criteria, Pager pager) throws Exception;
 
+    /**
+     * Summaries of the alerts matching the criteria, read from the index without loading the stored alerts.
+     * @param tenantId Tenant where alerts are stored
+     * @param criteria If null returns all alerts (not recommended)
+     * @param pager Paging requirement for fetching alerts. Optional. Return all if null. Only ordered by alertId or
+     *              ctime.
+     * @return NotNull, can be empty.
+     * @throws Exception any problem
+     */
+    Page<EventSummary> getAlertSummaries(String tenantId, AlertsCriteria criteria, Pager pager) throws Exception;
+
+    /**
+     * Summaries of the events matching the criteria, read from the index without loading the stored events.
+     * @param tenantId Tenant where events are stored
+     * @param criteria If null returns all events (not recommended)
+     * @param pager Paging requirement for fetching events. Optional. Return all if null. Only ordered by id or ctime.
+     * @return NotNull, can be empty.
+     * @throws Exception any problem
+     */
+    Page<EventSummary> getEventSummaries(String tenantId, EventsCriteria criteria, Pager pager) throws Exception;
+
     /**
      * Remove the provided tags from the specified alerts.
      * @param tenantId Tenant where alerts are stored
@@ -27,6 +27,7 @@ public class DefinitionsEvent {
         ACTION_DEFINITION_CREATE,
         ACTION_DEFINITION_REMOVE,
         ACTION_DEFINITION_UPDATE,
+        ACTION_PLUGIN_CHANGE,
         DAMPENING_CHANGE,
         TRIGGER_CONDITION_CHANGE,
         TRIGGER_CREATE,
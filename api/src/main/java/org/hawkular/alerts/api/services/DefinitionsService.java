@@ -1,11 +1,13 @@
 package org.hawkular.alerts.api.services;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.Multimap;
 import org.hawkular.alerts.api.exception.NotFoundException;
+import org.hawkular.alerts.api.model.Lifecycle;
 import org.hawkular.alerts.api.model.Note;
 import org.hawkular.alerts.api.model.action.ActionDefinition;
 import org.hawkular.alerts.api.model.condition.Condition;
@@ -17,6 +19,7 @@ import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.model.trigger.TriggerKey;
 import org.hawkular.alerts.api.services.DefinitionsEvent.Type;
 
 /**
@@ -85,6 +88,30 @@ public interface DefinitionsService {
      */
     void addLifecycleToTrigger(String tenantId, String triggerId, Trigger.TriggerLifecycle lifecycle) throws Exception;
 
+    /**
+     * Add lifecycle events to several existing triggers, reading and writing each trigger once. This will not reload
+     * the triggers. Triggers not found are skipped.
+     *
+     * @param lifecycleTimes Times of the lifecycle events to add, per trigger
+     * @param lifecycle Lifecycle event to be added
+     * @throws Exception In case of any error
+     */
+    void addLifecycleToTriggers(Map<TriggerKey, List<Long>> lifecycleTimes, Trigger.TriggerLifecycle lifecycle)
+            throws Exception;
+
+    /**
+     * The Trigger only keeps its latest lifecycle events, the whole history is kept apart for the configured
+     * retention time.
+     *
+     * @param tenantId Trigger's tenant
+     * @param triggerId Trigger's unique identifier
+     * @param start Start of the time range, in milliseconds
+     * @param end End of the time range, in milliseconds
+     * @return The lifecycle events of the trigger within the time range, oldest first
+     * @throws Exception In case of any error
+     */
+    List<Lifecycle> getTriggerLifecycle(String tenantId, String triggerId, long start, long end) throws Exception;
+
     /**
      * <p>
      * <code>createFullTrigger(String, Trigger)</code> is the preferred way to create a trigger.
@@ -408,6 +435,15 @@ public interface DefinitionsService {
      */
     Collection<Dampening> getDampenings(String tenantId) throws Exception;
 
+    /**
+     * Loads the dampenings of all the triggers of a tenant at once, instead of one lookup per trigger.
+     *
+     * @param tenantId Tenant where dampenings are stored
+     * @return The existing dampenings stored under a tenant per triggerId, FIRING mode first. Not null.
+     * @throws Exception on any problem
+     */
+    Map<String, List<Dampening>> getDampeningsByTrigger(String tenantId) throws Exception;
+
     /*
         CRUD interface for Condition
      */
@@ -525,6 +561,15 @@ public interface DefinitionsService {
 
     Collection<Condition> getConditions(String tenantId) throws Exception;
 
+    /**
+     * Loads the conditions of all the triggers of a tenant at once, instead of one lookup per trigger.
+     *
+     * @param tenantId Tenant where conditions are stored
+     * @return The existing conditions stored under a tenant per triggerId, FIRING mode first. Not null.
+     * @throws Exception on any problem
+     */
+    Map<String, List<Condition>> getConditionsByTrigger(String tenantId) throws Exception;
+
     /**
      * @return returns all conditions for all tenants. Be careful.
      * @throws Exception on any problem
@@ -542,6 +587,15 @@ public interface DefinitionsService {
      */
     void updateConditions(String tenantId, String triggerId, Set<Condition> conditions);
 
+    /**
+     * Updates the lastEvaluation of existing conditions in one batch. Does not do alertsEngine reload. Conditions
+     * not found, or already stored with a later lastEvaluation, are skipped.
+     *
+     * @param lastEvaluations lastEvaluation per conditionId
+     * @throws Exception In case of any error
+     */
+    void updateConditionsLastEvaluation(Map<String, Long> lastEvaluations) throws Exception;
+
     /*
         An action plugin is a representation of an action capability.
         i.e. email, snmp or sms.
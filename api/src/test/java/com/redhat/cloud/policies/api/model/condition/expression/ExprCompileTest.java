@@ -0,0 +1,162 @@
+package com.redhat.cloud.policies.api.model.condition.expression;
+
+import org.hawkular.alerts.api.model.event.Event;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExprCompileTest {
+
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+            "facts.a = 'b'",
+            "facts.A = 'B'",
+            "facts.a != 'c'",
+            "facts.b = '3'",
+            "facts.b = 3",
+            "facts.b = 3.00",
+            "facts.b = \"3\"",
+            "facts.b != 4",
+            "facts.c = ''",
+            "facts.c != ' '",
+            "facts.d = 4.1",
+            "facts.d > 4",
+            "facts.d >= 4.1",
+            "facts.d < 5",
+            "facts.d <= 4.0",
+            "facts.d > '4'",
+            "facts.a > 3",
+            "facts.a contains 'b'",
+            "facts.a contains 4",
+            "facts.b contains 3",
+            "facts.a contains ['b']",
+            "facts.a contains ['b', 'c']",
+            "facts.a contains []",
+            "facts.a matches 'b'",
+            "facts.a IN ['b', 'c']",
+            "facts.a IN ['c']",
+            "facts.a IN []",
+            "facts.list = 'x'",
+            "facts.list contains 'y'",
+            "facts.list IN ['z', 'y']",
+            "facts.list > 2",
+            "facts.numbers > 2",
+            "facts.numbers <= 1",
+            "facts.numbers = 3",
+            "facts.numbers contains 3",
+            "facts.nested.inner = 'value'",
+            "facts.nested.Inner = 'value'",
+            "facts.nested.deep.level = 5",
+            "facts.nested.missing",
+            "facts.a.b = 'b'",
+            "facts.log\\.category = 'b'",
+            "facts.log.category = 'b'",
+            "facts.nested.",
+            "facts.missing",
+            "facts.missing != 'b'",
+            "facts.a",
+            "tags.a = 'b'",
+            "tags.a contains 'b'",
+            "tags.multi = 'c'",
+            "tags.multi contains 'd'",
+            "tags.multi IN ['d', 'x']",
+            "tags.missing",
+            "'tags.Cost Center' = '12345'",
+            "id = 'event-id'",
+            "ctime > 100",
+            "ctime = 12345",
+            "text contains 'some'",
+            "category = 'timeless'",
+            "unknown = 'b'",
+            "unknown",
+            "NOT facts.a = 'b'",
+            "!(facts.a = 'b')",
+            "not (facts.missing = 'b')",
+            "facts.a = 'b' AND facts.b = 3",
+            "facts.a = 'c' OR facts.b = 3",
+            "(facts.a = 'b' AND facts.b > 2) OR NOT (facts.c = '' AND facts.b < 3)",
+            "(((facts.a = 'b') AND NOT (facts.b = 2)) OR (facts.c = '' AND facts.b >= 3))"
+    );
+
+    private static Event createEvent() {
+        Event event = new Event("tenant", "event-id", 12345L, "dataId", "timeless", "Some Text");
+        Map<String, Object> facts = new HashMap<>();
+        facts.put("a", "b");
+        facts.put("b", 3);
+        facts.put("c", "");
+        facts.put("d", 4.1);
+        facts.put("log.category", "b");
+        facts.put("list", Arrays.asList("x", "y"));
+        facts.put("numbers", Arrays.asList(1, 2L, "3", "four"));
+        Map<String, Object> deep = new HashMap<>();
+        deep.put("level", 5);
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("inner", "value");
+        nested.put("deep", deep);
+        nested.put("", "empty");
+        facts.put("nested", nested);
+        event.setFacts(facts);
+        event.addTag("a", "b");
+        event.addTag("multi", "c");
+        event.addTag("multi", "d");
+        event.addTag("cost center", "12345");
+        return event;
+    }
+
+    @Test
+    public void testCompiledMatchesInterpreted() {
+        Event event = createEvent();
+        Event emptyEvent = new Event();
+        for (String expr : EXPRESSIONS) {
+            CompiledExpression compiled = ExprParser.compile(expr);
+            assertEquals(expr, ExprParser.evaluate(event, expr), compiled.evaluate(event));
+            assertEquals(expr, ExprParser.evaluate(emptyEvent, expr), compiled.evaluate(emptyEvent));
+        }
+    }
+
+    @Test
+    public void testInvalidExpression() {
+        try {
+            ExprParser.compile("facts.a = 'b' OR");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            ExpressionCache.get("AND c = 'd'");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testFactKeys() {
+        CompiledExpression compiled = ExprParser.compile("(facts.Arch = 'x86_64' AND facts.network_interfaces.eth0.mtu > 0)"
+                + " OR NOT facts.log\\.category = 'b' OR tags.arch = 'x' OR text contains 'facts.other'");
+        assertEquals(new HashSet<>(Arrays.asList("arch", "network_interfaces", "log.category")), compiled.getFactKeys());
+        assertTrue(ExprParser.compile("tags.a = 'b'").getFactKeys().isEmpty());
+    }
+
+    @Test
+    public void testCache() {
+        String expr = "facts.a = 'cached'";
+        ExpressionCache.invalidate(expr);
+
+        CompiledExpression compiled = ExpressionCache.get(expr);
+        assertSame(compiled, ExpressionCache.get(expr));
+        assertEquals(expr, compiled.getExpression());
+
+        ExpressionCache.invalidate(expr);
+        assertNotSame(compiled, ExpressionCache.get(expr));
+    }
+}
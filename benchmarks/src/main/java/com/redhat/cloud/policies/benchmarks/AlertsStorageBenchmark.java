@@ -0,0 +1,88 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.EventConditionEval;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.ispn.IspnAlertsServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage of the alerts of a firing cycle with {@link IspnAlertsServiceImpl#addAlerts(java.util.Collection)} in the
+ * in-memory backend cache: marshalling, indexing and the batch they are written in. Each alert carries the host
+ * Event that matched its policy, as the alerts of the engine do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlertsStorageBenchmark {
+
+    private static final String DATA_ID = "platform.inventory.host-egress";
+
+    @Param({"1", "100"})
+    public int alertsPerCycle;
+
+    private IspnAlertsServiceImpl alertsService;
+    private List<Alert> alerts;
+    private long alertId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        EmbeddedInfinispan.start();
+        alertsService = new IspnAlertsServiceImpl();
+        alertsService.init();
+    }
+
+    @Setup(Level.Invocation)
+    public void createAlerts() {
+        alerts = new ArrayList<>(alertsPerCycle);
+        for (int i = 0; i < alertsPerCycle; i++) {
+            long id = alertId++;
+            String tenantId = "tenant-" + (id % 1000);
+            Trigger trigger = new Trigger(tenantId, "policy-" + id, "Policy " + id);
+            EventCondition condition = new EventCondition(tenantId, trigger.getId(), DATA_ID,
+                    "facts.arch = 'x86_64' AND facts.number_of_cpus >= 4");
+            Event host = new Event(tenantId, "event-" + id, DATA_ID, "insight_report", "host-" + id);
+            host.setFacts(RulesFireBenchmark.createFacts(id));
+            host.addTag("display_name", "host-" + id);
+            Set<ConditionEval> evalSet = new HashSet<>();
+            evalSet.add(new EventConditionEval(condition, host));
+            alerts.add(new Alert(tenantId, trigger, Collections.singletonList(evalSet)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedInfinispan.stop();
+    }
+
+    @Benchmark
+    public List<Alert> addAlerts() throws Exception {
+        alertsService.addAlerts(alerts);
+        return alerts;
+    }
+}
@@ -0,0 +1,98 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.EventConditionEval;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.ispn.model.IspnEvent;
+import org.hawkular.alerts.engine.impl.ispn.model.IspnExternalizers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of a stored alert, the IspnEvent written to the backend cache on put and read back on get: the Java
+ * serialization of its object graph against the {@link IspnExternalizers} registered in the cache container. The
+ * size of the encoded alert, the bytes stored per alert, is printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BackendEncodingBenchmark {
+
+    private static final String DATA_ID = "platform.inventory.host-egress";
+
+    @Param({"java", "externalizer"})
+    public String encoding;
+
+    private final IspnExternalizers.IspnEventExternalizer externalizer = new IspnExternalizers.IspnEventExternalizer();
+    private IspnEvent alert;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Trigger trigger = new Trigger("tenant", "policy", "Policy");
+        EventCondition condition = new EventCondition("tenant", trigger.getId(), DATA_ID,
+                "facts.arch = 'x86_64' AND facts.number_of_cpus >= 4");
+        Event host = new Event("tenant", "event", DATA_ID, "insight_report", "host");
+        host.setFacts(RulesFireBenchmark.createFacts(0));
+        host.addTag("display_name", "host");
+        Set<ConditionEval> evalSet = new HashSet<>();
+        evalSet.add(new EventConditionEval(condition, host));
+        alert = new IspnEvent(new Alert("tenant", trigger, Collections.singletonList(evalSet)));
+        encoded = put();
+    }
+
+    @TearDown(Level.Trial)
+    public void printSize() {
+        System.out.printf("%n%s encoding: %d bytes per alert%n", encoding, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] put() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            if ("java".equals(encoding)) {
+                output.writeObject(alert);
+            } else {
+                externalizer.writeObject(output, alert);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public IspnEvent get() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(encoded))) {
+            if ("java".equals(encoding)) {
+                return (IspnEvent) input.readObject();
+            }
+            return externalizer.readObject(input);
+        }
+    }
+}
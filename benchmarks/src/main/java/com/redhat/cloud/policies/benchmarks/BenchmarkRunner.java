@@ -0,0 +1,31 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. It takes the usual JMH command line options and adds the gc profiler when it is
+ * not already requested, so the allocation rate of every suite is reported next to its time.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp() || cmdOptions.shouldList() || cmdOptions.shouldListWithParams()
+                || cmdOptions.shouldListProfilers() || cmdOptions.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        boolean gcProfiled = cmdOptions.getProfilers().stream()
+                .anyMatch(p -> "gc".equals(p.getKlass()) || GCProfiler.class.getName().equals(p.getKlass()));
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmdOptions);
+        if (!gcProfiled) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
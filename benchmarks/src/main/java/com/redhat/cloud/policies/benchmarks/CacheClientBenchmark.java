@@ -0,0 +1,82 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.filter.CacheClient;
+import org.hawkular.alerts.filter.CacheKey;
+import org.infinispan.Cache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Front-line filtering of a batch of incoming Events against the published (tenantId, dataId) keys of the
+ * in-memory publish cache, as copied locally by the {@link CacheClient}. Only the tenants with policies have their
+ * key published, the Events of the others are dropped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheClientBenchmark {
+
+    private static final String DATA_ID = "platform.inventory.host-egress";
+
+    @Param("10000")
+    public int tenants;
+
+    @Param({"0.1", "0.5"})
+    public double publishedRatio;
+
+    @Param("500")
+    public int batchSize;
+
+    private CacheClient cacheClient;
+    private List<Event> events;
+
+    @Setup
+    public void setup() {
+        Cache<CacheKey, Set<String>> publish = EmbeddedInfinispan.start().getCache("publish");
+        cacheClient = new CacheClient();
+        cacheClient.setCache(publish);
+
+        int published = (int) (tenants * publishedRatio);
+        for (int i = 0; i < published; i++) {
+            cacheClient.addTestKey(new CacheKey("tenant-" + i, DATA_ID), Collections.singleton("trigger-" + i));
+        }
+
+        events = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            // Spread over all the tenants, published or not
+            String tenantId = "tenant-" + ((i * 7919) % tenants);
+            events.add(new Event(tenantId, "event-" + i, DATA_ID, "insight_report", "host-" + i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        EmbeddedInfinispan.stop();
+    }
+
+    @Benchmark
+    public Collection<Event> filterEvents() {
+        return cacheClient.filterEvents(events);
+    }
+}
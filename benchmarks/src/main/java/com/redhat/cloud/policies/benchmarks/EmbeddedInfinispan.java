@@ -0,0 +1,40 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.engine.cache.IspnCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Starts the {@link IspnCacheManager} with the in-memory ispn-benchmarks.xml instead of the RocksDB backed
+ * configuration of the engine jar.
+ */
+public final class EmbeddedInfinispan {
+
+    private EmbeddedInfinispan() {
+    }
+
+    public static EmbeddedCacheManager start() {
+        try {
+            // IspnCacheManager reads ispn-alerting-local.xml from the hawkular.configuration directory first
+            Path configDir = Files.createTempDirectory("policies-benchmarks");
+            try (InputStream is = EmbeddedInfinispan.class.getResourceAsStream("/ispn-benchmarks.xml")) {
+                Files.copy(is, configDir.resolve("ispn-alerting-local.xml"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            System.setProperty("hawkular.configuration", configDir.toString());
+            System.setProperty("hawkular.data", configDir.toString());
+            return IspnCacheManager.getCacheManager();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void stop() {
+        IspnCacheManager.stop();
+    }
+}
@@ -0,0 +1,128 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.DroolsRulesEngineImpl;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.hawkular.alerts.log.MsgLogging;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One rules engine firing over a batch of host-egress Events, with the EventConditions joined by the rules in the
+ * working memory (indexed = false) or evaluated from the EventConditionIndex (indexed = true).
+ *
+ * Every trigger has a single EventCondition on the host-egress dataId, as the policies do. The Events of a tenant
+ * share that dataId, so the engine processes them in as many rounds as the tenant has Events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    private static final String DATA_ID = "platform.inventory.host-egress";
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    @Param("10000")
+    public int triggers;
+
+    @Param("50000")
+    public int events;
+
+    @Param("1000")
+    public int tenants;
+
+    private RulesEngine rules;
+    private TreeSet<Event> input;
+
+    private final List<Alert> alerts = new ArrayList<>();
+    private final List<Event> outputEvents = new ArrayList<>();
+    private final Set<Dampening> pendingTimeouts = new HashSet<>();
+    private final Map<Trigger, List<Set<ConditionEval>>> autoResolvedTriggers = new HashMap<>();
+    private final Set<Condition> evaluatedConditions = new HashSet<>();
+    private final Set<Trigger> disabledTriggers = new HashSet<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rules = new DroolsRulesEngineImpl(indexed);
+        rules.addGlobal("log", MsgLogging.getMsgLogger(EventDispatchBenchmark.class));
+        rules.addGlobal("alerts", alerts);
+        rules.addGlobal("events", outputEvents);
+        rules.addGlobal("pendingTimeouts", pendingTimeouts);
+        rules.addGlobal("autoResolvedTriggers", autoResolvedTriggers);
+        rules.addGlobal("evaluatedConditions", evaluatedConditions);
+        rules.addGlobal("disabledTriggers", disabledTriggers);
+
+        for (int i = 0; i < triggers; i++) {
+            String tenantId = "tenant-" + (i % tenants);
+            String triggerId = "trigger-" + i;
+            Trigger trigger = new Trigger(tenantId, triggerId, "Policy " + i);
+            trigger.setEnabled(true);
+            rules.addFact(trigger);
+            // About one event in eight matches each policy
+            rules.addFact(new EventCondition(tenantId, triggerId, DATA_ID,
+                    "facts.number_of_cpus = " + (i % 8) + " AND facts.arch = 'x86_64'"));
+        }
+
+        input = new TreeSet<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < events; i++) {
+            Event event = new Event("tenant-" + (i % tenants), "event-" + i, now + i, DATA_ID, "insight_report",
+                    "host-" + i);
+            Map<String, Object> facts = new HashMap<>();
+            facts.put("arch", "x86_64");
+            facts.put("number_of_cpus", (i / tenants) % 8);
+            event.setFacts(facts);
+            input.add(event);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearOutputs() {
+        alerts.clear();
+        outputEvents.clear();
+        evaluatedConditions.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rules.reset();
+    }
+
+    @Benchmark
+    public int fire() {
+        rules.addEvents(input);
+        rules.fire();
+        return alerts.size();
+    }
+}
@@ -0,0 +1,86 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import com.redhat.cloud.policies.api.model.condition.expression.CompiledExpression;
+import com.redhat.cloud.policies.api.model.condition.expression.ExprParser;
+import com.redhat.cloud.policies.api.model.condition.expression.ExpressionCache;
+import org.hawkular.alerts.api.model.event.Event;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per event cost of the interpreted {@link ExprParser#evaluate(Event, String)} path, which parses the
+ * expression on every call, with the compiled and cached expressions used by EventCondition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExprBenchmark {
+
+    @Param({
+            "facts.arch = 'x86_64'",
+            "facts.number_of_cpus >= 4 AND facts.os_release > 7.5",
+            "(facts.arch = 'x86_64' AND facts.cpu_flags contains 'avx2') AND NOT(facts.cloud_provider contains 'gce')",
+            "facts.cloud_provider IN ['azure_north', 'azure_west'] OR tags.owner contains 'jerome'",
+            "facts.network_interfaces.enp0s3.ipv4_addresses contains '10.0.2.15'"
+    })
+    public String expression;
+
+    private Event event;
+    private CompiledExpression compiled;
+
+    @Setup
+    public void setup() {
+        event = createEvent();
+        compiled = ExprParser.compile(expression);
+    }
+
+    @Benchmark
+    public boolean interpreted() {
+        return ExprParser.evaluate(event, expression);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return compiled.evaluate(event);
+    }
+
+    @Benchmark
+    public boolean cached() {
+        return ExpressionCache.get(expression).evaluate(event);
+    }
+
+    static Event createEvent() {
+        Event event = new Event("tenant", "event-id", "host-egress", "host-egress", "Some host");
+        Map<String, Object> facts = new HashMap<>();
+        facts.put("arch", "x86_64");
+        facts.put("number_of_cpus", 8);
+        facts.put("os_release", "7.9");
+        facts.put("cloud_provider", "azure_west");
+        facts.put("cpu_flags", Arrays.asList("fpu", "vme", "sse2", "avx", "avx2"));
+        Map<String, Object> enp0s3 = new HashMap<>();
+        enp0s3.put("ipv4_addresses", Arrays.asList("10.0.2.15"));
+        Map<String, Object> interfaces = new HashMap<>();
+        interfaces.put("enp0s3", enp0s3);
+        facts.put("network_interfaces", interfaces);
+        event.setFacts(facts);
+        event.addTag("owner", "Jerome Marc");
+        return event;
+    }
+}
@@ -0,0 +1,93 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.EventConditionEval;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.paging.Order;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.engine.impl.ispn.IspnAlertsServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of the alerts of a tenant read with {@link IspnAlertsServiceImpl#getAlerts(String, AlertsCriteria, Pager)}
+ * from the in-memory backend cache, full and thin. The bytes allocated per page are the gc.alloc.rate.norm of the
+ * gc profiler that {@link BenchmarkRunner} adds to every run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetAlertsBenchmark {
+
+    private static final String TENANT = "tenant";
+    private static final String DATA_ID = "platform.inventory.host-egress";
+
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    @Param({"false", "true"})
+    public boolean thin;
+
+    private IspnAlertsServiceImpl alertsService;
+    private Pager pager;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        EmbeddedInfinispan.start();
+        alertsService = new IspnAlertsServiceImpl();
+        alertsService.init();
+
+        List<Alert> alerts = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Trigger trigger = new Trigger(TENANT, "policy-" + i, "Policy " + i);
+            EventCondition condition = new EventCondition(TENANT, trigger.getId(), DATA_ID,
+                    "facts.arch = 'x86_64' AND facts.number_of_cpus >= 4");
+            Event host = new Event(TENANT, "event-" + i, DATA_ID, "insight_report", "host-" + i);
+            host.setFacts(RulesFireBenchmark.createFacts(i));
+            host.addTag("display_name", "host-" + i);
+            Set<ConditionEval> evalSet = new HashSet<>();
+            evalSet.add(new EventConditionEval(condition, host));
+            alerts.add(new Alert(TENANT, trigger, Collections.singletonList(evalSet)));
+        }
+        alertsService.addAlerts(alerts);
+        pager = new Pager(0, pageSize, Order.by("ctime", Order.Direction.DESCENDING));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedInfinispan.stop();
+    }
+
+    @Benchmark
+    public Page<Alert> getAlerts() throws Exception {
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setThin(thin);
+        return alertsService.getAlerts(TENANT, criteria, pager);
+    }
+}
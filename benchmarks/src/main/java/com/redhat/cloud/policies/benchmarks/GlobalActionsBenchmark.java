@@ -0,0 +1,112 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.action.ActionDefinition;
+import org.hawkular.alerts.engine.cache.ActionsCacheManager;
+import org.hawkular.alerts.engine.cache.ActionsCacheManager.ActionKey;
+import org.hawkular.alerts.engine.impl.AlertsContext;
+import org.hawkular.alerts.engine.impl.ispn.IspnDefinitionsServiceImpl;
+import org.infinispan.Cache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of the global actions of the tenants of a batch of fired triggers, as done by
+ * IspnActionsServiceImpl.send(Trigger, Event), from the tenant index of the {@link ActionsCacheManager} (indexed)
+ * or by scanning the keys of the globalActions cache (cacheScan).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlobalActionsBenchmark {
+
+    private static final String ACTION_PLUGIN = "email";
+
+    @Param("10000")
+    public int tenants;
+
+    @Param("100")
+    public int batchSize;
+
+    private ActionsCacheManager actionsCacheManager;
+    private Cache<ActionKey, ActionDefinition> globalActionsCache;
+    private List<String> firedTenants;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        globalActionsCache = EmbeddedInfinispan.start().getCache("globalActions");
+
+        AlertsContext alertsContext = new AlertsContext();
+        IspnDefinitionsServiceImpl definitions = new IspnDefinitionsServiceImpl();
+        definitions.setAlertsContext(alertsContext);
+        definitions.init();
+        alertsContext.init();
+        definitions.addActionPlugin(ACTION_PLUGIN, Collections.singleton("to"));
+
+        actionsCacheManager = new ActionsCacheManager();
+        actionsCacheManager.setDefinitions(definitions);
+        actionsCacheManager.setGlobalActionsCache(globalActionsCache);
+        actionsCacheManager.init();
+
+        for (int i = 0; i < tenants; i++) {
+            ActionDefinition actionDefinition = new ActionDefinition("tenant-" + i, ACTION_PLUGIN, "global");
+            actionDefinition.setGlobal(true);
+            actionDefinition.getProperties().put("to", "admin@tenant-" + i);
+            definitions.addActionDefinition(actionDefinition.getTenantId(), actionDefinition);
+        }
+
+        firedTenants = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            firedTenants.add("tenant-" + (i * 97 % tenants));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedInfinispan.stop();
+    }
+
+    @Benchmark
+    public int indexed() {
+        int found = 0;
+        for (String tenantId : firedTenants) {
+            if (actionsCacheManager.hasGlobalActions()) {
+                found += actionsCacheManager.getGlobalActions(tenantId).size();
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int cacheScan() {
+        int found = 0;
+        for (String tenantId : firedTenants) {
+            List<ActionDefinition> globalActions = new ArrayList<>();
+            for (ActionKey key : globalActionsCache.keySet()) {
+                if (key.getTenantId().equals(tenantId)) {
+                    globalActions.add(globalActionsCache.get(key));
+                }
+            }
+            found += globalActions.size();
+        }
+        return found;
+    }
+}
@@ -0,0 +1,57 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.engine.impl.IdleShard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One firing of a rules shard with no Data nor Events pending, over triggers with a one hour MissingCondition that
+ * is not due during the run. This is the cost paid on every engine cycle when nothing arrives, it should stay flat
+ * as the number of triggers grows.
+ *
+ * The shard is built by the {@link IdleShard} fixture of the engine test-jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdleCycleBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int triggers;
+
+    private IdleShard shard;
+    private long start;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        start = System.currentTimeMillis();
+        shard = new IdleShard(triggers, start);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        shard.clear();
+    }
+
+    @Benchmark
+    public boolean fire() {
+        // Within the hour of the MissingConditions, whatever the length of the run
+        return shard.fire(Math.min(System.currentTimeMillis(), start + TimeUnit.MINUTES.toMillis(30)));
+    }
+}
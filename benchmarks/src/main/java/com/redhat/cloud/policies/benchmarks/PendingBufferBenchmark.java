@@ -0,0 +1,177 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.engine.util.StripedBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ingestion contention on the pending events of a rules engine shard: 8, 16 or 32 producer threads, as the
+ * Kafka receivers and the distributed listeners, add events while a single thread drains them, as the engine
+ * firing does.
+ *
+ * The locked groups replay the former synchronized TreeSet queue, the striped groups use the {@link StripedBuffer}
+ * now used by the shards. Compare the producer throughput of both.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PendingBufferBenchmark {
+
+    private static final int EVENTS_PER_PRODUCER = 8192;
+
+    @State(Scope.Group)
+    public static class LockedTreeSet {
+        private final Object sync = new Object();
+        private TreeSet<Event> pending = new TreeSet<>();
+
+        void addAll(Set<Event> events) {
+            synchronized (sync) {
+                pending.addAll(events);
+            }
+        }
+
+        TreeSet<Event> drain() {
+            TreeSet<Event> result;
+            synchronized (sync) {
+                result = pending;
+                pending = new TreeSet<>();
+            }
+            return result;
+        }
+    }
+
+    @State(Scope.Group)
+    public static class Striped {
+        final StripedBuffer<Event> pending = new StripedBuffer<>();
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        private static final AtomicInteger PRODUCERS = new AtomicInteger();
+
+        private Set<Event>[] events;
+        private int next;
+
+        @SuppressWarnings("unchecked")
+        @Setup
+        public void setup() {
+            String tenantId = "tenant-" + PRODUCERS.incrementAndGet();
+            events = new Set[EVENTS_PER_PRODUCER];
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                // One event per message, as handed off by the receiver
+                events[i] = Collections.singleton(new Event(tenantId, "event-" + i, now + i, "policies",
+                        "host-" + (i % 64), "system profile"));
+            }
+        }
+
+        Set<Event> next() {
+            Set<Event> result = events[next];
+            next = (next + 1) % EVENTS_PER_PRODUCER;
+            return result;
+        }
+    }
+
+    @Benchmark
+    @Group("locked8")
+    @GroupThreads(8)
+    public void locked8Producers(LockedTreeSet buffer, Producer producer) {
+        buffer.addAll(producer.next());
+    }
+
+    @Benchmark
+    @Group("locked8")
+    @GroupThreads(1)
+    public int locked8Drain(LockedTreeSet buffer) {
+        return buffer.drain().size();
+    }
+
+    @Benchmark
+    @Group("striped8")
+    @GroupThreads(8)
+    public void striped8Producers(Striped buffer, Producer producer) {
+        buffer.pending.addAll(producer.next());
+    }
+
+    @Benchmark
+    @Group("striped8")
+    @GroupThreads(1)
+    public int striped8Drain(Striped buffer) {
+        return buffer.pending.drain().size();
+    }
+
+    @Benchmark
+    @Group("locked16")
+    @GroupThreads(16)
+    public void locked16Producers(LockedTreeSet buffer, Producer producer) {
+        buffer.addAll(producer.next());
+    }
+
+    @Benchmark
+    @Group("locked16")
+    @GroupThreads(1)
+    public int locked16Drain(LockedTreeSet buffer) {
+        return buffer.drain().size();
+    }
+
+    @Benchmark
+    @Group("striped16")
+    @GroupThreads(16)
+    public void striped16Producers(Striped buffer, Producer producer) {
+        buffer.pending.addAll(producer.next());
+    }
+
+    @Benchmark
+    @Group("striped16")
+    @GroupThreads(1)
+    public int striped16Drain(Striped buffer) {
+        return buffer.pending.drain().size();
+    }
+
+    @Benchmark
+    @Group("locked32")
+    @GroupThreads(32)
+    public void locked32Producers(LockedTreeSet buffer, Producer producer) {
+        buffer.addAll(producer.next());
+    }
+
+    @Benchmark
+    @Group("locked32")
+    @GroupThreads(1)
+    public int locked32Drain(LockedTreeSet buffer) {
+        return buffer.drain().size();
+    }
+
+    @Benchmark
+    @Group("striped32")
+    @GroupThreads(32)
+    public void striped32Producers(Striped buffer, Producer producer) {
+        buffer.pending.addAll(producer.next());
+    }
+
+    @Benchmark
+    @Group("striped32")
+    @GroupThreads(1)
+    public int striped32Drain(Striped buffer) {
+        return buffer.pending.drain().size();
+    }
+}
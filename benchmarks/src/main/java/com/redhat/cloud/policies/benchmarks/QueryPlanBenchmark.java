@@ -0,0 +1,88 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.paging.Order;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.engine.impl.ispn.IspnAlertsServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same criteria shape, with changing values, sent to
+ * {@link IspnAlertsServiceImpl#getAlerts(String, AlertsCriteria, Pager)} without (0) and with a query plan cache.
+ * The backend holds a few alerts only, so the time is mostly the building of the query rather than the search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryPlanBenchmark {
+
+    private static final String TENANT = "tenant";
+    private static final int TRIGGERS = 10;
+
+    @Param({"0", "1000"})
+    public String queryPlanCacheSize;
+
+    private IspnAlertsServiceImpl alertsService;
+    private Pager pager;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // Read by init(), each trial runs in its own fork
+        System.setProperty("engine.backend.ispn.query-plan-cache-size", queryPlanCacheSize);
+        EmbeddedInfinispan.start();
+        alertsService = new IspnAlertsServiceImpl();
+        alertsService.init();
+
+        List<Alert> alerts = new ArrayList<>(TRIGGERS);
+        for (int i = 0; i < TRIGGERS; i++) {
+            Trigger trigger = new Trigger(TENANT, "policy-" + i, "Policy " + i);
+            Alert alert = new Alert(TENANT, trigger, null);
+            alert.addTag("display_name", "host-" + i);
+            alerts.add(alert);
+        }
+        alertsService.addAlerts(alerts);
+        pager = new Pager(0, TRIGGERS, Order.by("ctime", Order.Direction.DESCENDING));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedInfinispan.stop();
+    }
+
+    @Benchmark
+    public Page<Alert> getAlerts() throws Exception {
+        int i = next++ % TRIGGERS;
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setTriggerIds(Arrays.asList("policy-" + i, "policy-" + (i + 1) % TRIGGERS));
+        criteria.setStatusSet(EnumSet.of(Alert.Status.OPEN, Alert.Status.ACKNOWLEDGED));
+        criteria.setSeverities(EnumSet.of(Severity.MEDIUM, Severity.HIGH));
+        criteria.setTagQuery("tags.display_name = 'host-" + i + "'");
+        return alertsService.getAlerts(TENANT, criteria, pager);
+    }
+}
@@ -0,0 +1,161 @@
+package com.redhat.cloud.policies.benchmarks;
+
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.DroolsRulesEngineImpl;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.hawkular.alerts.log.MsgLogging;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link DroolsRulesEngineImpl#fire()} over a batch of host-egress Events, with the engine configured as in
+ * production and policies shaped like the ones users write: a mix of fact comparisons, list lookups, nested facts
+ * and tags, most of them not matching the host.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RulesFireBenchmark {
+
+    private static final String DATA_ID = "platform.inventory.host-egress";
+
+    private static final String[] POLICIES = {
+            "facts.arch = 'x86_64'",
+            "facts.number_of_cpus >= 16 AND facts.os_release > 7.5",
+            "(facts.arch = 'x86_64' AND facts.cpu_flags contains 'avx512f') AND NOT(facts.cloud_provider contains 'gce')",
+            "facts.cloud_provider IN ['azure_north', 'aws'] OR tags.owner contains 'jerome'",
+            "facts.network_interfaces.enp0s3.ipv4_addresses contains '10.0.2.16'",
+            "facts.os_release < 7 OR facts.installed_packages contains 'telnet-server'",
+            "facts.enabled_services contains 'sshd' AND facts.number_of_sockets > 2",
+            "tags.environment = 'production' AND facts.system_memory_bytes < 4294967296"
+    };
+
+    @Param("1000")
+    public int tenants;
+
+    @Param({"1", "10"})
+    public int policiesPerTenant;
+
+    @Param("1000")
+    public int batchSize;
+
+    private RulesEngine rules;
+    private TreeSet<Event> input;
+
+    private final List<Alert> alerts = new ArrayList<>();
+    private final List<Event> outputEvents = new ArrayList<>();
+    private final Set<Dampening> pendingTimeouts = new HashSet<>();
+    private final Map<Trigger, List<Set<ConditionEval>>> autoResolvedTriggers = new HashMap<>();
+    private final Set<Condition> evaluatedConditions = new HashSet<>();
+    private final Set<Trigger> disabledTriggers = new HashSet<>();
+
+    private long eventId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rules = new DroolsRulesEngineImpl();
+        rules.addGlobal("log", MsgLogging.getMsgLogger(RulesFireBenchmark.class));
+        rules.addGlobal("alerts", alerts);
+        rules.addGlobal("events", outputEvents);
+        rules.addGlobal("pendingTimeouts", pendingTimeouts);
+        rules.addGlobal("autoResolvedTriggers", autoResolvedTriggers);
+        rules.addGlobal("evaluatedConditions", evaluatedConditions);
+        rules.addGlobal("disabledTriggers", disabledTriggers);
+
+        int policy = 0;
+        for (int t = 0; t < tenants; t++) {
+            String tenantId = "tenant-" + t;
+            for (int p = 0; p < policiesPerTenant; p++) {
+                String triggerId = "policy-" + t + "-" + p;
+                Trigger trigger = new Trigger(tenantId, triggerId, "Policy " + p);
+                trigger.setEnabled(true);
+                rules.addFact(trigger);
+                rules.addFact(new EventCondition(tenantId, triggerId, DATA_ID, POLICIES[policy++ % POLICIES.length]));
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createBatch() {
+        input = new TreeSet<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batchSize; i++) {
+            long id = eventId++;
+            Event event = new Event("tenant-" + (id % tenants), "event-" + id, now + i, DATA_ID, "insight_report",
+                    "host-" + id);
+            event.setFacts(createFacts(id));
+            event.addTag("owner", "Jerome Marc");
+            event.addTag("environment", id % 3 == 0 ? "production" : "staging");
+            input.add(event);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearOutputs() {
+        alerts.clear();
+        outputEvents.clear();
+        evaluatedConditions.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rules.reset();
+    }
+
+    @Benchmark
+    public int fire() {
+        rules.addEvents(input);
+        rules.fire();
+        return alerts.size();
+    }
+
+    static Map<String, Object> createFacts(long id) {
+        Map<String, Object> facts = new HashMap<>();
+        facts.put("arch", id % 5 == 0 ? "aarch64" : "x86_64");
+        facts.put("number_of_cpus", (int) (1 << (id % 6)));
+        facts.put("number_of_sockets", (int) (id % 4) + 1);
+        facts.put("os_release", id % 2 == 0 ? "7.9" : "8.4");
+        facts.put("system_memory_bytes", 1073741824L * ((id % 16) + 1));
+        facts.put("cloud_provider", id % 4 == 0 ? "aws" : "azure_west");
+        facts.put("cpu_flags", Arrays.asList("fpu", "vme", "sse2", "avx", "avx2"));
+        facts.put("enabled_services", Arrays.asList("auditd", "chronyd", "crond", "sshd", "tuned"));
+        facts.put("installed_packages", Arrays.asList("bash-4.4.20-1.el8_4.x86_64", "kernel-4.18.0-305.el8.x86_64",
+                "openssh-server-8.0p1-5.el8.x86_64", "python3-3.6.8-37.el8.x86_64"));
+        Map<String, Object> enp0s3 = new HashMap<>();
+        enp0s3.put("ipv4_addresses", Arrays.asList("10.0.2.15"));
+        Map<String, Object> interfaces = new HashMap<>();
+        interfaces.put("enp0s3", enp0s3);
+        facts.put("network_interfaces", interfaces);
+        return facts;
+    }
+}
@@ -0,0 +1,132 @@
+package com.redhat.cloud.policies.engine.actions.plugins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.cloud.policies.engine.process.Receiver;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.hawkular.alerts.actions.api.ActionMessage;
+import org.hawkular.alerts.actions.api.model.StandaloneActionMessage;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.EventConditionEval;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation and Avro JSON encoding of the notification of a host by {@link NotificationActionPluginListener}: the
+ * actions of the policies that triggered on the host are processed, then flushed as a single notification with one
+ * event per policy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationFlushBenchmark {
+
+    private static final String TENANT_ID = "tenant";
+    private static final String INVENTORY_ID = "ba11a21a-8b22-431b-9b4b-b06006472d54";
+
+    @Param({"1", "10"})
+    public int policies;
+
+    private NotificationActionPluginListener listener;
+    private List<ActionMessage> messages;
+    private Object sent;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        listener = new NotificationActionPluginListener();
+        listener.objectMapper = new ObjectMapper();
+        listener.channel = stub(Emitter.class);
+        listener.messagesCount = stub(Counter.class);
+        listener.messagesAggregated = stub(Counter.class);
+
+        Event host = new Event(TENANT_ID, "event", Receiver.INSIGHTS_REPORT_DATA_ID, Receiver.CATEGORY_NAME,
+                "host-egress report");
+        host.addTag(Receiver.DISPLAY_NAME_FIELD, "host.example.com");
+        host.addTag(Receiver.INVENTORY_ID_FIELD, INVENTORY_ID);
+        host.addTag("owner", "Jerome Marc");
+        host.addTag("owner", "Thomas Segismont");
+        Map<String, String> context = new HashMap<>();
+        context.put(Receiver.INVENTORY_ID_FIELD, INVENTORY_ID);
+        context.put("check_in", "2021-03-01T10:00:00.000000+00:00");
+        host.setContext(context);
+        Map<String, Object> facts = new HashMap<>();
+        facts.put("os_release", "7.9");
+        facts.put("cloud_provider", "aws");
+        host.setFacts(facts);
+
+        messages = new ArrayList<>(policies);
+        for (int i = 0; i < policies; i++) {
+            Trigger trigger = new Trigger("policy-" + i, "Policy " + i);
+            trigger.setTenantId(TENANT_ID);
+            trigger.setDescription("Hosts running an outdated release in the cloud");
+            EventCondition condition = new EventCondition(TENANT_ID, trigger.getId(),
+                    Receiver.INSIGHTS_REPORT_DATA_ID, "facts.os_release < 8 AND facts.cloud_provider = 'aws'");
+            List<Set<ConditionEval>> evalSets =
+                    Collections.singletonList(Collections.singleton(new EventConditionEval(condition, host)));
+            Alert alert = new Alert(TENANT_ID, trigger, evalSets);
+            alert.setTags(host.getTags());
+            Action action = new Action(TENANT_ID, "notification", "notification", alert);
+            action.setCtime(System.currentTimeMillis());
+            messages.add(new StandaloneActionMessage(action));
+        }
+    }
+
+    @Benchmark
+    public Object processAndFlush() throws Exception {
+        for (ActionMessage message : messages) {
+            listener.process(message);
+        }
+        listener.flush();
+        return sent;
+    }
+
+    /*
+        Stand-in for the injected Emitter and Counters, the payload sent is kept for the benchmark to return it.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (method.getName().equals("send")) {
+                sent = args[0];
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == CompletionStage.class) {
+                return CompletableFuture.completedFuture(null);
+            } else if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == long.class) {
+                return 0L;
+            }
+            return null;
+        });
+    }
+}
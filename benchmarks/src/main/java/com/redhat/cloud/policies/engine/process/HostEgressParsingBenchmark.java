@@ -0,0 +1,81 @@
+package com.redhat.cloud.policies.engine.process;
+
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per message cost of turning a host-egress payload into facts: the Vert.x JsonObject decoding followed by
+ * {@link SystemProfileFacts#parseSystemProfile(JsonObject)}, against the streaming {@link HostEgressParser} keeping
+ * all the system profile or only the keys referenced by the policies.
+ *
+ * host.json is a small profile, thomas-host.json a large one with many packages and repositories. Both are the
+ * inputs of the external module tests, read from its test-jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HostEgressParsingBenchmark {
+
+    @Param({"host.json", "thomas-host.json"})
+    public String input;
+
+    private String payload;
+    private HostEgressParser parser;
+    private Set<String> factKeys;
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream is = getClass().getResourceAsStream("/input/" + input)) {
+            payload = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        parser = new HostEgressParser(new HashSet<>(Arrays.asList("created", "updated")),
+                new HashSet<>(Arrays.asList("puptoo", "ingress")));
+        factKeys = new HashSet<>(Arrays.asList("arch", "os_release", "number_of_cpus", "cloud_provider",
+                "network_interfaces"));
+    }
+
+    @Benchmark
+    public Map<String, Object> jsonObject() {
+        JsonObject host = new JsonObject(payload).getJsonObject("host");
+        host.getJsonArray("tags");
+        return SystemProfileFacts.parseSystemProfile(host.getJsonObject("system_profile"));
+    }
+
+    @Benchmark
+    public HostEgressParser.Host streamingAllFacts() throws IOException {
+        return parser.parse(payload, null);
+    }
+
+    @Benchmark
+    public HostEgressParser.Host streamingReferencedFacts() throws IOException {
+        return parser.parse(payload, factKeys);
+    }
+
+    @Benchmark
+    public HostEgressParser.Host streamingNoFacts() throws IOException {
+        return parser.parse(payload, Collections.emptySet());
+    }
+}
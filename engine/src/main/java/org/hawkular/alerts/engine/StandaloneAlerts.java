@@ -6,6 +6,7 @@ import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.StatusService;
 import org.hawkular.alerts.engine.cache.IspnCacheManager;
+import org.hawkular.alerts.engine.cache.ActionDefinitionsCacheManager;
 import org.hawkular.alerts.engine.cache.ActionsCacheManager;
 import org.hawkular.alerts.engine.cache.PublishCacheManager;
 import org.hawkular.alerts.engine.impl.*;
@@ -41,6 +42,7 @@ public class StandaloneAlerts {
 
     private AlertsThreadFactory threadFactory;
 
+    private ActionDefinitionsCacheManager actionDefinitionsCacheManager;
     private ActionsCacheManager actionsCacheManager;
     private AlertsContext alertsContext;
     private AlertsEngineImpl engine;
@@ -76,6 +78,7 @@ public class StandaloneAlerts {
         dataDrivenGroupCacheManager = new DataDrivenGroupCacheManager();
         incoming = new IncomingDataManagerImpl();
         actionsCacheManager = new ActionsCacheManager();
+        actionDefinitionsCacheManager = new ActionDefinitionsCacheManager();
         publishCacheManager = new PublishCacheManager();
 
         log.info("Hawkular Alerting uses Infinispan backend");
@@ -96,6 +99,7 @@ public class StandaloneAlerts {
         ispnAlerts = new IspnAlertsServiceImpl();
         ispnDefinitions = new IspnDefinitionsServiceImpl();
 
+        ispnActions.setActionDefinitionsCacheManager(actionDefinitionsCacheManager);
         ispnActions.setActionsCacheManager(actionsCacheManager);
         ispnActions.setAlertsContext(alertsContext);
         ispnActions.setDefinitions(ispnDefinitions);
@@ -108,6 +112,8 @@ public class StandaloneAlerts {
         ispnDefinitions.setAlertsEngine(engine);
         ispnDefinitions.setAlertsContext(alertsContext);
 
+        actionDefinitionsCacheManager.setDefinitions(ispnDefinitions);
+
         actionsCacheManager.setDefinitions(ispnDefinitions);
         actionsCacheManager.setGlobalActionsCache(cacheManager.getCache("globalActions"));
 
@@ -119,6 +125,7 @@ public class StandaloneAlerts {
 
         engine.setActions(ispnActions);
         engine.setAlertsService(ispnAlerts);
+        engine.setCheckpointCache(cacheManager.getCache("checkpoint"));
         engine.setDefinitions(ispnDefinitions);
         engine.setExecutor(executor);
         engine.setExtensionsService(extensions);
@@ -137,6 +144,7 @@ public class StandaloneAlerts {
         actionsCacheManager.setDefinitions(ispnDefinitions);
         actionsCacheManager.setGlobalActionsCache(cacheManager.getCache("globalActions"));
 
+        publishCacheManager.setDataIdCache(dataIdCache);
         publishCacheManager.setDefinitions(ispnDefinitions);
         publishCacheManager.setPublishCache(cacheManager.getCache("publish"));
         publishCacheManager.setPublishDataIdsCache(cacheManager.getCache("dataIds"));
@@ -153,6 +161,7 @@ public class StandaloneAlerts {
         alertsContext.init();
         dataDrivenGroupCacheManager.init();
         actionsCacheManager.init();
+        actionDefinitionsCacheManager.init();
         publishCacheManager.init();
         extensions.init();
         engine.initServices();
@@ -177,6 +186,8 @@ public class StandaloneAlerts {
     public static void stop() {
         if (instance != null) {
             instance.engine.shutdown();
+            instance.ispnActions.shutdown();
+            instance.ispnAlerts.shutdown();
             instance.partitionManager.shutdown();
             IspnCacheManager.stop();
             instance = null;
@@ -0,0 +1,225 @@
+package org.hawkular.alerts.engine.cache;
+
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFINITION_CREATE;
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFINITION_REMOVE;
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFINITION_UPDATE;
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_PLUGIN_CHANGE;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.hawkular.alerts.api.model.action.ActionDefinition;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.engine.cache.ActionsCacheManager.ActionKey;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+
+/**
+ * It manages the cache of the action definitions resolved for the dispatch of the actions: the ActionDefinition with
+ * its properties merged over the default properties of its plugin.
+ *
+ * Definitions are resolved on first use and dropped on the ACTION_DEFINITION_* and ACTION_PLUGIN_CHANGE events.
+ * A definition is resolved under the lock of its entry, so an event on the same definition waits for it and drops
+ * what was just resolved.
+ *
+ * A plugin change affects all the definitions of the plugin, while some of them may be resolving against the former
+ * default properties. Each change bumps a generation, and the resolved definitions and default properties are
+ * stamped with the generation read before they are loaded: an entry older than the current generation is stale, it
+ * is loaded again on its next use.
+ */
+public class ActionDefinitionsCacheManager {
+    private final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class,
+            ActionDefinitionsCacheManager.class);
+
+    DefinitionsService definitions;
+
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private final Map<ActionKey, ResolvedActionDefinition> resolved = new ConcurrentHashMap<>();
+
+    // Default properties by plugin, empty for an unknown plugin
+    private final Map<String, PluginDefaults> pluginDefaults = new ConcurrentHashMap<>();
+
+    // Number of ACTION_PLUGIN_CHANGE events received
+    private final AtomicLong pluginGeneration = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter invalidations;
+
+    private static class PluginDefaults {
+        final long generation;
+        final Optional<Map<String, String>> properties;
+
+        PluginDefaults(long generation, Optional<Map<String, String>> properties) {
+            this.generation = generation;
+            this.properties = properties;
+        }
+    }
+
+    private void registerMetrics() {
+        hits = Counter.builder("engine.actions.definitions.lookups")
+                .description("Action definitions resolved for an action")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("engine.actions.definitions.lookups")
+                .description("Action definitions resolved for an action")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        invalidations = Counter.builder("engine.actions.definitions.invalidations")
+                .description("Resolved action definitions dropped after a definition or plugin change")
+                .register(meterRegistry);
+        Gauge.builder("engine.actions.definitions.cached", resolved, Map::size)
+                .description("Resolved action definitions held in memory")
+                .register(meterRegistry);
+    }
+
+    public void setDefinitions(DefinitionsService definitions) {
+        this.definitions = definitions;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void init() {
+        if (hits == null) {
+            registerMetrics();
+        }
+        resolved.clear();
+        pluginDefaults.clear();
+
+        definitions.registerListener(events -> {
+            events.stream().forEach(event -> {
+                switch (event.getType()) {
+                    case ACTION_DEFINITION_CREATE:
+                    case ACTION_DEFINITION_UPDATE:
+                    case ACTION_DEFINITION_REMOVE:
+                        ActionKey key = new ActionKey(event.getTargetTenantId(), event.getActionPlugin(),
+                                event.getTargetId());
+                        if (resolved.remove(key) != null) {
+                            invalidations.increment();
+                        }
+                        break;
+                    case ACTION_PLUGIN_CHANGE:
+                        String actionPlugin = event.getActionPlugin();
+                        // Before the sweep, so an entry loaded from the former defaults and stored after it is stale
+                        pluginGeneration.incrementAndGet();
+                        pluginDefaults.remove(actionPlugin);
+                        int before = resolved.size();
+                        resolved.keySet().removeIf(k -> actionPlugin.equals(k.getActionPlugin()));
+                        invalidations.increment(Math.max(0, before - resolved.size()));
+                }
+            });
+        }, ACTION_DEFINITION_CREATE, ACTION_DEFINITION_REMOVE, ACTION_DEFINITION_UPDATE, ACTION_PLUGIN_CHANGE);
+    }
+
+    /**
+     * @return the resolved definition, with a null ActionDefinition if it does not exist.
+     */
+    public ResolvedActionDefinition getActionDefinition(String tenantId, String actionPlugin, String actionId) {
+        ActionKey key = new ActionKey(tenantId, actionPlugin, actionId);
+        long generation = pluginGeneration.get();
+        ResolvedActionDefinition found = resolved.get(key);
+        if (found != null) {
+            if (found.generation >= generation) {
+                hits.increment();
+                return found;
+            }
+            resolved.remove(key, found);
+        }
+        misses.increment();
+        return resolved.computeIfAbsent(key, k -> resolve(k, generation));
+    }
+
+    /**
+     * @return the default properties of the plugin, null if the plugin does not exist.
+     */
+    public Map<String, String> getDefaultProperties(String actionPlugin) {
+        return getDefaultProperties(actionPlugin, pluginGeneration.get());
+    }
+
+    private Map<String, String> getDefaultProperties(String actionPlugin, long generation) {
+        PluginDefaults found = pluginDefaults.get(actionPlugin);
+        if (found != null && found.generation < generation) {
+            pluginDefaults.remove(actionPlugin, found);
+        }
+        return pluginDefaults.computeIfAbsent(actionPlugin, plugin -> {
+            try {
+                Map<String, String> defaultProperties = definitions.getDefaultActionPlugin(plugin);
+                return new PluginDefaults(generation, Optional.ofNullable(defaultProperties == null ? null
+                        : Collections.unmodifiableMap(new HashMap<>(defaultProperties))));
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot read the ActionPlugin " + plugin, e);
+            }
+        }).properties.orElse(null);
+    }
+
+    private ResolvedActionDefinition resolve(ActionKey key, long generation) {
+        ActionDefinition actionDefinition;
+        try {
+            actionDefinition = definitions.getActionDefinition(key.getTenantId(), key.getActionPlugin(),
+                    key.getActionId());
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot read the ActionDefinition " + key, e);
+        }
+        Map<String, String> defaultProperties = getDefaultProperties(key.getActionPlugin(), generation);
+        Map<String, String> properties = null;
+        if (actionDefinition != null && defaultProperties != null) {
+            properties = Collections.unmodifiableMap(mixProperties(actionDefinition.getProperties(),
+                    defaultProperties));
+        }
+        log.debugf("Resolved %s", key);
+        return new ResolvedActionDefinition(actionDefinition, properties, generation);
+    }
+
+    public static Map<String, String> mixProperties(Map<String, String> props, Map<String, String> defProps) {
+        Map<String, String> mixed = new HashMap<>();
+        if (props != null) {
+            mixed.putAll(props);
+        }
+        if (defProps != null) {
+            for (String defKey : defProps.keySet()) {
+                mixed.putIfAbsent(defKey, defProps.get(defKey));
+            }
+        }
+        return mixed;
+    }
+
+    /**
+     * An ActionDefinition with the properties of its actions: its own properties merged over the defaults of its
+     * plugin. Both are shared by the actions and must not be modified.
+     */
+    public static class ResolvedActionDefinition {
+        private final ActionDefinition actionDefinition;
+        private final Map<String, String> properties;
+        // Plugin generation the definition was resolved at
+        private final long generation;
+
+        ResolvedActionDefinition(ActionDefinition actionDefinition, Map<String, String> properties,
+                                 long generation) {
+            this.actionDefinition = actionDefinition;
+            this.properties = properties;
+            this.generation = generation;
+        }
+
+        public ActionDefinition getActionDefinition() {
+            return actionDefinition;
+        }
+
+        /**
+         * @return null if the ActionDefinition or its plugin does not exist.
+         */
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+    }
+}
@@ -7,7 +7,11 @@ import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFI
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hawkular.alerts.api.model.action.ActionDefinition;
 import org.hawkular.alerts.api.services.DefinitionsService;
@@ -22,6 +26,9 @@ import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
 /**
  * It manages the cache of global actions.
  *
+ * The global actions are also indexed by tenant, in immutable lists replaced on each change, so the lookup done for
+ * every fired trigger neither scans the cache nor allocates.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -32,6 +39,8 @@ public class ActionsCacheManager {
 
     private AdvancedCache<ActionKey, ActionDefinition> globalActionsCache;
 
+    private final Map<String, List<ActionDefinition>> globalActionsByTenant = new ConcurrentHashMap<>();
+
     public void setDefinitions(DefinitionsService definitions) {
         this.definitions = definitions;
     }
@@ -44,6 +53,7 @@ public class ActionsCacheManager {
         log.infoInitActionsCache();
 
         globalActionsCache.clear();
+        globalActionsByTenant.clear();
 
         initialCacheUpdate();
 
@@ -56,27 +66,51 @@ public class ActionsCacheManager {
                         ActionDefinition actionDefinition = event.getActionDefinition();
                         if (actionDefinition.isGlobal()) {
                             globalActionsCache.withFlags(IGNORE_RETURN_VALUES).put(key, actionDefinition);
+                            indexGlobalAction(key, actionDefinition);
+                        } else if (event.getType() == ACTION_DEFINITION_UPDATE) {
+                            globalActionsCache.withFlags(IGNORE_RETURN_VALUES).remove(key);
+                            indexGlobalAction(key, null);
                         }
                         break;
                     case ACTION_DEFINITION_REMOVE:
                         globalActionsCache.remove(key);
+                        indexGlobalAction(key, null);
                 }
             });
         }, ACTION_DEFINITION_CREATE, ACTION_DEFINITION_REMOVE, ACTION_DEFINITION_UPDATE);
     }
 
     public boolean hasGlobalActions() {
-        return !globalActionsCache.isEmpty();
+        return !globalActionsByTenant.isEmpty();
     }
 
+    /**
+     * @return the global actions of the tenant, an immutable list shared by all the callers.
+     */
     public Collection<ActionDefinition> getGlobalActions(String tenantId) {
-        List<ActionDefinition> globalActions = new ArrayList<>();
-        for (ActionKey key : globalActionsCache.keySet()) {
-            if (key.getTenantId().equals(tenantId)) {
-                globalActions.add(globalActionsCache.get(key));
+        return globalActionsByTenant.getOrDefault(tenantId, Collections.emptyList());
+    }
+
+    /*
+        Replaces the global action of the key in the list of its tenant, or removes it if actionDefinition is null.
+        The list is copied under the lock of the tenant entry, so concurrent changes of a tenant are not lost.
+     */
+    private void indexGlobalAction(ActionKey key, ActionDefinition actionDefinition) {
+        globalActionsByTenant.compute(key.getTenantId(), (tenantId, current) -> {
+            List<ActionDefinition> updated = new ArrayList<>();
+            if (current != null) {
+                for (ActionDefinition globalAction : current) {
+                    if (!key.getActionPlugin().equals(globalAction.getActionPlugin())
+                            || !key.getActionId().equals(globalAction.getActionId())) {
+                        updated.add(globalAction);
+                    }
+                }
             }
-        }
-        return globalActions;
+            if (actionDefinition != null) {
+                updated.add(actionDefinition);
+            }
+            return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+        });
     }
 
     private void initialCacheUpdate() {
@@ -84,6 +118,7 @@ public class ActionsCacheManager {
             log.debug("Initial ActionsCacheManager update in progress..");
 
             globalActionsCache.startBatch();
+            Map<String, List<ActionDefinition>> byTenant = new HashMap<>();
             Collection<ActionDefinition> actionDefinitions = definitions.getAllActionDefinitions();
             for (ActionDefinition actionDefinition : actionDefinitions) {
                 if (actionDefinition.isGlobal()) {
@@ -91,9 +126,13 @@ public class ActionsCacheManager {
                             actionDefinition.getActionPlugin(),
                             actionDefinition.getActionId());
                     globalActionsCache.withFlags(IGNORE_RETURN_VALUES).put(key, actionDefinition);
+                    byTenant.computeIfAbsent(actionDefinition.getTenantId(), t -> new ArrayList<>())
+                            .add(actionDefinition);
                 }
             }
             globalActionsCache.endBatch(true);
+            byTenant.forEach((tenantId, globalActions) ->
+                    globalActionsByTenant.put(tenantId, Collections.unmodifiableList(globalActions)));
         } catch (Exception e) {
             log.error("Failed to load global actions", e);
             globalActionsCache.endBatch(false);
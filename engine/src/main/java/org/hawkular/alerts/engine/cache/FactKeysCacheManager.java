@@ -0,0 +1,121 @@
+package org.hawkular.alerts.engine.cache;
+
+import com.redhat.cloud.policies.api.model.condition.expression.ExpressionCache;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.trigger.TriggerKey;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.TRIGGER_CONDITION_CHANGE;
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.TRIGGER_REMOVE;
+import static org.hawkular.alerts.api.util.Util.isEmpty;
+
+/**
+ * Keeps the top level fact keys read by the expressions of the defined EventConditions, per dataId.
+ *
+ * Event producers use it to materialize only the facts some condition can evaluate, e.g. the Receiver skips the
+ * system profile entries no policy refers to.
+ */
+public class FactKeysCacheManager {
+    private final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, FactKeysCacheManager.class);
+
+    DefinitionsService definitions;
+
+    // Fact keys per trigger and dataId, guarded by this
+    private final Map<TriggerKey, Map<String, Set<String>>> factKeysByTrigger = new HashMap<>();
+
+    // Merged view per dataId, null until the manager is initialized
+    private volatile Map<String, Set<String>> factKeys;
+
+    public void setDefinitions(DefinitionsService definitions) {
+        this.definitions = definitions;
+    }
+
+    public void init() {
+        synchronized (this) {
+            try {
+                for (Condition condition : definitions.getAllConditions()) {
+                    addCondition(condition);
+                }
+            } catch (Exception e) {
+                log.error("Failed to load the conditions fact keys, all facts will be kept", e);
+                return;
+            }
+            merge();
+        }
+
+        definitions.registerListener(events -> {
+            synchronized (this) {
+                events.forEach(e -> {
+                    TriggerKey triggerKey = new TriggerKey(e.getTargetTenantId(), e.getTargetId());
+                    factKeysByTrigger.remove(triggerKey);
+                    if (e.getType() == TRIGGER_CONDITION_CHANGE) {
+                        try {
+                            Collection<Condition> conditions = definitions.getTriggerConditions(
+                                    e.getTargetTenantId(), e.getTargetId(), null);
+                            conditions.forEach(this::addCondition);
+                        } catch (Exception ex) {
+                            log.errorf(ex, "Failed to load the conditions of trigger %s", triggerKey);
+                        }
+                    }
+                });
+                merge();
+            }
+        }, TRIGGER_CONDITION_CHANGE, TRIGGER_REMOVE);
+    }
+
+    /**
+     * @param dataId the dataId of the events
+     * @return the top level fact keys read by the EventConditions of dataId, lower case, or null if all the facts
+     * must be kept
+     */
+    public Set<String> getFactKeys(String dataId) {
+        Map<String, Set<String>> current = factKeys;
+        if (current == null) {
+            return null;
+        }
+        return current.getOrDefault(dataId, Collections.emptySet());
+    }
+
+    private void addCondition(Condition condition) {
+        if (!(condition instanceof EventCondition)) {
+            return;
+        }
+        EventCondition eventCondition = (EventCondition) condition;
+        if (isEmpty(eventCondition.getExpression())) {
+            return;
+        }
+        Set<String> keys;
+        try {
+            keys = ExpressionCache.get(eventCondition.getExpression()).getFactKeys();
+        } catch (IllegalArgumentException e) {
+            // An invalid expression never matches, it does not need any fact
+            return;
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        factKeysByTrigger.computeIfAbsent(new TriggerKey(condition.getTenantId(), condition.getTriggerId()),
+                k -> new HashMap<>())
+                .computeIfAbsent(eventCondition.getDataId(), k -> new HashSet<>())
+                .addAll(keys);
+    }
+
+    private void merge() {
+        Map<String, Set<String>> merged = new HashMap<>();
+        factKeysByTrigger.values().forEach(byDataId -> byDataId.forEach((dataId, keys) ->
+                merged.computeIfAbsent(dataId, k -> new HashSet<>()).addAll(keys)));
+        merged.replaceAll((dataId, keys) -> Collections.unmodifiableSet(keys));
+        factKeys = merged;
+        log.debugf("Referenced fact keys: %s", merged);
+    }
+}
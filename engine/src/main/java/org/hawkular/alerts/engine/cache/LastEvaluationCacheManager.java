@@ -0,0 +1,141 @@
+package org.hawkular.alerts.engine.cache;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.TRIGGER_CONDITION_CHANGE;
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.TRIGGER_REMOVE;
+
+/**
+ * Keeps the lastEvaluation of the conditions evaluated by the engine in memory.
+ *
+ * The engine records the evaluated conditions on every firing cycle. They are written to the backend in a single
+ * batch every flush period, and only when their lastEvaluation moved by at least the granularity since the last write.
+ * Reads of the conditions get the lastEvaluation from here, so they do not depend on the flush.
+ */
+public class LastEvaluationCacheManager {
+    private final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, LastEvaluationCacheManager.class);
+
+//    @ConfigProperty(name = "engine.alerts.condition-evaluation-flush-period")
+    long flushPeriod;
+
+//    @ConfigProperty(name = "engine.alerts.condition-evaluation-granularity")
+    long granularity;
+
+    DefinitionsService definitions;
+
+    private static class Entry {
+        final String tenantId;
+        final String triggerId;
+        volatile long lastEvaluation;
+        volatile long persisted;
+
+        Entry(String tenantId, String triggerId) {
+            this.tenantId = tenantId;
+            this.triggerId = triggerId;
+        }
+    }
+
+    // Per conditionId
+    private final Map<String, Entry> lastEvaluations = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flushExecutor;
+
+    public void setDefinitions(DefinitionsService definitions) {
+        this.definitions = definitions;
+    }
+
+    public void init() {
+        flushPeriod = ConfigProvider.getConfig().getValue("engine.alerts.condition-evaluation-flush-period", Long.class);
+        granularity = ConfigProvider.getConfig().getValue("engine.alerts.condition-evaluation-granularity", Long.class);
+
+        // The stored conditions are replaced, a pending lastEvaluation would be written over the new definition
+        definitions.registerListener(events -> events.forEach(e ->
+                lastEvaluations.values().removeIf(entry -> entry.tenantId.equals(e.getTargetTenantId())
+                        && entry.triggerId.equals(e.getTargetId()))
+        ), TRIGGER_CONDITION_CHANGE, TRIGGER_REMOVE);
+
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LastEvaluationCacheManager-Flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushPeriod, flushPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic flush and write what is pending.
+     */
+    public void shutdown() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(flushPeriod, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * @param conditions conditions evaluated by the engine, with their updated lastEvaluation
+     */
+    public void record(Collection<Condition> conditions) {
+        for (Condition c : conditions) {
+            Entry entry = lastEvaluations.computeIfAbsent(c.getConditionId(),
+                    id -> new Entry(c.getTenantId(), c.getTriggerId()));
+            if (c.getLastEvaluation() > entry.lastEvaluation) {
+                entry.lastEvaluation = c.getLastEvaluation();
+            }
+        }
+    }
+
+    /**
+     * @param conditionId the condition
+     * @return the last evaluation recorded for the condition, 0 if none
+     */
+    public long getLastEvaluation(String conditionId) {
+        Entry entry = lastEvaluations.get(conditionId);
+        return entry == null ? 0 : entry.lastEvaluation;
+    }
+
+    /**
+     * Write the lastEvaluations that moved by at least the granularity since their last write.
+     */
+    public synchronized void flush() {
+        Map<String, Long> batch = new HashMap<>();
+        lastEvaluations.forEach((conditionId, entry) -> {
+            long lastEvaluation = entry.lastEvaluation;
+            if (lastEvaluation - entry.persisted >= granularity && lastEvaluation > entry.persisted) {
+                batch.put(conditionId, lastEvaluation);
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            definitions.updateConditionsLastEvaluation(batch);
+            batch.forEach((conditionId, lastEvaluation) -> {
+                Entry entry = lastEvaluations.get(conditionId);
+                if (entry != null) {
+                    entry.persisted = lastEvaluation;
+                }
+            });
+            log.debugf("Stored the lastEvaluation of %s conditions", batch.size());
+        } catch (Exception e) {
+            log.errorf(e, "Failed to store the lastEvaluation of %s conditions", batch.size());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.hawkular.alerts.api.model.condition.CompareCondition;
 import org.hawkular.alerts.api.model.condition.Condition;
 import org.hawkular.alerts.api.model.trigger.TriggerKey;
 import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.filter.CacheClient;
 import org.hawkular.alerts.filter.CacheKey;
 import org.hawkular.alerts.log.AlertingLogger;
 import org.hawkular.alerts.log.MsgLogging;
@@ -31,6 +32,8 @@ import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
  * A coordinator strategy to initialize will not help either as each new node can became coordinator.
  * So, it is tradeoff to maintain an extra state or let each node initialize the publish* caches.
  *
+ * The keys changed in the publish cache are refreshed in the local copy of the {@link CacheClient} once committed.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -52,6 +55,8 @@ public class PublishCacheManager {
     // This cache is used by CacheClient to check which dataIds are published and forwarded from metrics.
     private AdvancedCache<CacheKey, Set<String>> publishCache;
 
+    private CacheClient dataIdCache;
+
     public void setDefinitions(DefinitionsService definitions) {
         this.definitions = definitions;
     }
@@ -64,6 +69,10 @@ public class PublishCacheManager {
         this.publishCache = publishCache.getAdvancedCache();
     }
 
+    public void setDataIdCache(CacheClient dataIdCache) {
+        this.dataIdCache = dataIdCache;
+    }
+
     public void init() {
         resetCache = ConfigProvider.getConfig().getValue("engine.cache.reset-publish-cache", Boolean.class);
         disablePublish = ConfigProvider.getConfig().getValue("engine.cache.disable-publish-filtering", Boolean.class);
@@ -77,6 +86,9 @@ public class PublishCacheManager {
             log.infoInitPublishCache();
 
             initialCacheUpdate();
+            if (dataIdCache != null) {
+                dataIdCache.reload();
+            }
 
             definitions.registerListener(events -> {
                 log.debugf("Receiving %s", events);
@@ -86,6 +98,7 @@ public class PublishCacheManager {
                             String tenantId = e.getTargetTenantId();
                             String triggerId = e.getTargetId();
                             TriggerKey triggerKey = new TriggerKey(tenantId, triggerId);
+                            Set<CacheKey> changed = new HashSet<>();
                             publishCache.startBatch();
                             publishDataIdsCache.startBatch();
                             switch (e.getType()) {
@@ -94,15 +107,15 @@ public class PublishCacheManager {
                                             Collections.emptySet());
                                     Set<String> newDataIds = e.getDataIds();
                                     if (!oldDataIds.equals(newDataIds)) {
-                                        removePublishCache(tenantId, triggerId, oldDataIds);
-                                        addPublishCache(tenantId, triggerId, newDataIds);
+                                        removePublishCache(tenantId, triggerId, oldDataIds, changed);
+                                        addPublishCache(tenantId, triggerId, newDataIds, changed);
                                         publishDataIdsCache.withFlags(IGNORE_RETURN_VALUES).put(triggerKey, newDataIds);
                                     }
                                     break;
                                 }
                                 case TRIGGER_REMOVE: {
                                     Set<String> oldDataIds = publishDataIdsCache.get(triggerKey);
-                                    removePublishCache(tenantId, triggerId, oldDataIds);
+                                    removePublishCache(tenantId, triggerId, oldDataIds, changed);
                                     publishDataIdsCache.remove(triggerKey);
                                     break;
                                 }
@@ -111,6 +124,9 @@ public class PublishCacheManager {
                             }
                             publishDataIdsCache.endBatch(true);
                             publishCache.endBatch(true);
+                            if (dataIdCache != null && !changed.isEmpty()) {
+                                dataIdCache.refresh(changed);
+                            }
                         });
             }, TRIGGER_CONDITION_CHANGE, TRIGGER_REMOVE);
 
@@ -119,7 +135,7 @@ public class PublishCacheManager {
         }
     }
 
-    private void removePublishCache(String tenantId, String triggerId, Set<String> dataIds) {
+    private void removePublishCache(String tenantId, String triggerId, Set<String> dataIds, Set<CacheKey> changed) {
         if (!isEmpty(dataIds)) {
             dataIds.stream().forEach(dataId -> {
                 CacheKey cacheKey = new CacheKey(tenantId, dataId);
@@ -128,6 +144,7 @@ public class PublishCacheManager {
                     triggerIds.remove(triggerId);
                     if (triggerIds.isEmpty()) {
                         publishCache.remove(cacheKey);
+                        changed.add(cacheKey);
                     } else {
                         publishCache.withFlags(IGNORE_RETURN_VALUES).put(cacheKey, triggerIds);
                     }
@@ -136,13 +153,14 @@ public class PublishCacheManager {
         }
     }
 
-    private void addPublishCache(String tenantId, String triggerId, Set<String> dataIds) {
+    private void addPublishCache(String tenantId, String triggerId, Set<String> dataIds, Set<CacheKey> changed) {
         if (!isEmpty(dataIds)) {
             dataIds.stream().forEach(dataId -> {
                 CacheKey cacheKey = new CacheKey(tenantId, dataId);
                 Set<String> triggerIds = publishCache.get(cacheKey);
                 if (triggerIds == null) {
                     triggerIds = new HashSet<>();
+                    changed.add(cacheKey);
                 }
                 triggerIds.add(triggerId);
                 publishCache.withFlags(IGNORE_RETURN_VALUES).put(cacheKey, triggerIds);
@@ -174,7 +192,7 @@ public class PublishCacheManager {
                 }
                 prevDataIds.addAll(dataIds);
                 publishDataIdsCache.withFlags(IGNORE_RETURN_VALUES).put(triggerKey, prevDataIds);
-                addPublishCache(c.getTenantId(), triggerId, dataIds);
+                addPublishCache(c.getTenantId(), triggerId, dataIds, new HashSet<>());
             }
             log.debugf("Published after update=%s", publishCache.size());
             if (log.isDebugEnabled()) {
@@ -1,23 +1,28 @@
 package org.hawkular.alerts.engine.impl;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.hawkular.alerts.api.model.condition.CompareCondition;
 import org.hawkular.alerts.api.model.condition.Condition;
 import org.hawkular.alerts.api.model.condition.ConditionEval;
 import org.hawkular.alerts.api.model.condition.MissingCondition;
-import org.hawkular.alerts.api.model.condition.MissingConditionEval;
 import org.hawkular.alerts.api.model.dampening.Dampening;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.model.trigger.TriggerKey;
 import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.DataExtension;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.EventExtension;
 import org.hawkular.alerts.api.services.ExtensionsService;
+import org.hawkular.alerts.engine.cache.LastEvaluationCacheManager;
 import org.hawkular.alerts.engine.impl.AlertsEngineCache.DataEntry;
 import org.hawkular.alerts.engine.service.AlertsEngine;
 import org.hawkular.alerts.engine.service.PartitionDataListener;
@@ -28,12 +33,12 @@ import org.hawkular.alerts.engine.service.RulesEngine;
 import org.hawkular.alerts.engine.util.MissingState;
 import org.hawkular.alerts.log.AlertingLogger;
 import org.hawkular.alerts.log.MsgLogging;
+import org.infinispan.Cache;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -41,7 +46,16 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.hawkular.alerts.api.util.Util.isEmpty;
 
@@ -53,6 +67,18 @@ import static org.hawkular.alerts.api.util.Util.isEmpty;
  * By design this class handles both and it should be transparent to callers which mode
  * is currently in use.
  *
+ * The rules are fired as soon as the pending Data and Events reach the batch size, or once the oldest of them has
+ * waited for the linger time. A periodic tick also fires the rules to handle dampening timeouts and missing data.
+ *
+ * The working memory can be split in several {@link RulesShard}, triggers are assigned to a shard by tenantId and
+ * the shards are fired in parallel. The results of all the shards are handled together once per firing cycle.
+ *
+ * The generated Alerts and Events are stored by a {@link WriteBehindPersister} while the next cycle fires. When its
+ * bounded queue is full the firing and the incoming Data and Events wait for the storage to catch up.
+ *
+ * In single-node mode the dampening, missing, rate and Nelson state of the working memory is periodically stored by
+ * an {@link EvaluationCheckpoint} and put back after a full reload.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -65,22 +91,60 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 //    @ConfigProperty(name = "engine.alerts.engine-period")
     int period;
 
-    private TreeSet<Data> pendingData;
-    private final Object pendingDataSync = new Object();
-    private TreeSet<Event> pendingEvents;
-    private final Object pendingEventsSync = new Object();
+//    @ConfigProperty(name = "engine.alerts.engine-batch-size")
+    int batchSize;
+
+//    @ConfigProperty(name = "engine.alerts.engine-linger")
+    int linger;
+
+//    @ConfigProperty(name = "engine.alerts.engine-shards")
+    int numShards;
+
+//    @ConfigProperty(name = "engine.alerts.persistence-queue-size")
+    int persistenceQueueSize;
+
+//    @ConfigProperty(name = "engine.alerts.checkpoint-period")
+    long checkpointPeriod;
 
-    private final List<Alert> alerts;
-    private final List<Event> events;
-    private final Set<Dampening> pendingTimeouts;
-    private final Map<Trigger, List<Set<ConditionEval>>> autoResolvedTriggers;
-    private final Set<Condition> evaluatedConditions;
-    private final Set<Trigger> disabledTriggers;
-    private final Set<MissingState> missingStates;
+    private final WriteBehindPersister persister;
+
+    private final EvaluationCheckpoint checkpoint;
+
+    // Triggers, Data and Events of a tenant all go to the same shard
+    volatile List<RulesShard> shards;
+
+    /*
+        Bounded pool used to fire the shards in parallel, only created when there is more than one shard.
+     */
+    private ExecutorService firingExecutor;
 
     private final Timer wakeUpTimer;
     private TimerTask rulesTask;
 
+    /*
+        Incoming Data and Events schedule one-shot firings on the wakeUpTimer, these flags avoid piling them up.
+     */
+    private final AtomicBoolean batchWakeUpScheduled = new AtomicBoolean();
+    private final AtomicBoolean lingerWakeUpScheduled = new AtomicBoolean();
+
+    /*
+        The shards are only fired once loaded. A reload() or clear() holds the firingLock while it changes the shards,
+        so a firing in progress is finished first and the firings requested meanwhile are skipped, their Data and
+        Events stay pending for the firing at the end of the reload.
+     */
+    private final Object firingLock = new Object();
+    private volatile boolean loaded;
+
+    // Triggers whose facts are inserted together into a shard by a full reload
+    private static final int RELOAD_BATCH_SIZE = 1000;
+
+    private static final long NO_PENDING = Long.MIN_VALUE;
+    private final AtomicLong firstPendingTime = new AtomicLong(NO_PENDING);
+
+    private io.micrometer.core.instrument.Timer batchWaitTimer;
+    private io.micrometer.core.instrument.Timer reloadTimer;
+    private DistributionSummary batchSizeSummary;
+
     /*
         All incoming Data and Events go through front-line global filtering (via IncomingDataManager)
         and therefore, in a non-distributed env the global filtering is equivalent to node-specific
@@ -97,8 +161,15 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
     RulesEngine rules;
 
+    // Creates the RulesEngine of the additional shards
+    Supplier<RulesEngine> rulesFactory = DroolsRulesEngineImpl::new;
+
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
     DefinitionsService definitions;
 
+    LastEvaluationCacheManager lastEvaluations;
+
     ActionsService actions;
 
     AlertsService alertsService;
@@ -107,36 +178,101 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
     ExtensionsService extensionsService;
 
+    StatusServiceImpl status;
+
     private ExecutorService executor;
 
     public AlertsEngineImpl() {
-        pendingData = new TreeSet<>();
-        pendingEvents = new TreeSet<>();
-        alerts = new ArrayList<>();
-        events = new ArrayList<>();
-        pendingTimeouts = new HashSet<>();
-        autoResolvedTriggers = new HashMap<>();
-        evaluatedConditions = new HashSet<>();
-        disabledTriggers = new HashSet<>();
-        missingStates = new HashSet<>();
-
         delay = ConfigProvider.getConfig().getValue("engine.alerts.engine-delay", Integer.class);
         period = ConfigProvider.getConfig().getValue("engine.alerts.engine-period", Integer.class);
+        batchSize = ConfigProvider.getConfig().getValue("engine.alerts.engine-batch-size", Integer.class);
+        linger = ConfigProvider.getConfig().getValue("engine.alerts.engine-linger", Integer.class);
+        numShards = ConfigProvider.getConfig().getValue("engine.alerts.engine-shards", Integer.class);
+        persistenceQueueSize = ConfigProvider.getConfig().getValue("engine.alerts.persistence-queue-size", Integer.class);
         engineExtensions = ConfigProvider.getConfig().getValue("engine.alerts.engine-extensions", Boolean.class);
         updateLastEvaluated = ConfigProvider.getConfig().getValue("engine.alerts.condition-evaluation-time", Boolean.class);
+        checkpointPeriod = ConfigProvider.getConfig().getValue("engine.alerts.checkpoint-period", Long.class);
         wakeUpTimer = new Timer("AlertsEngineImpl-Timer");
+        if (numShards < 1) {
+            throw new IllegalArgumentException("engine.alerts.engine-shards must be greater than 0");
+        }
+        if (numShards > 1) {
+            int poolSize = Math.min(numShards, Runtime.getRuntime().availableProcessors());
+            AtomicInteger threadNumber = new AtomicInteger();
+            firingExecutor = Executors.newFixedThreadPool(poolSize,
+                    r -> new Thread(r, "AlertsEngineImpl-Shard-" + threadNumber.incrementAndGet()));
+            log.infof("Rules engine split in [%s] shards fired by [%s] threads", numShards, poolSize);
+        }
+        persister = new WriteBehindPersister(persistenceQueueSize);
+        checkpoint = new EvaluationCheckpoint(checkpointPeriod);
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        Gauge.builder("engine.alerts.pending", this, AlertsEngineImpl::getPendingSize)
+                .description("Data and Events waiting for the next rules firing")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("engine.alerts.batch.size")
+                .description("Data and Events processed by a rules firing")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        batchWaitTimer = io.micrometer.core.instrument.Timer.builder("engine.alerts.batch.wait")
+                .description("Time the oldest pending Data or Event waited for a rules firing")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        reloadTimer = io.micrometer.core.instrument.Timer.builder("engine.alerts.reload")
+                .description("Time taken by a full reload of the triggers into the rules engine")
+                .register(meterRegistry);
+        persister.setMeterRegistry(meterRegistry);
+        checkpoint.setMeterRegistry(meterRegistry);
+    }
+
+    private int getPendingSize() {
+        List<RulesShard> currentShards = shards;
+        if (currentShards == null) {
+            return 0;
+        }
+        int pendingSize = 0;
+        for (RulesShard shard : currentShards) {
+            pendingSize += shard.getPendingSize();
+        }
+        return pendingSize;
     }
 
     public RulesEngine getRules() {
         return rules;
     }
 
+    /**
+     * @param rules the RulesEngine of the first shard, the RulesEngine of the other shards are created with the
+     *              rulesFactory
+     */
     public void setRules(RulesEngine rules) {
         this.rules = rules;
+        List<RulesShard> newShards = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++) {
+            RulesShard shard = new RulesShard(i, i == 0 ? rules : rulesFactory.get());
+            shard.setMeterRegistry(meterRegistry);
+            newShards.add(shard);
+        }
+        shards = Collections.unmodifiableList(newShards);
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        registerMetrics();
+        if (shards != null) {
+            shards.forEach(shard -> shard.setMeterRegistry(meterRegistry));
+        }
     }
 
     public void setDefinitions(DefinitionsService definitions) {
         this.definitions = definitions;
+        persister.setDefinitions(definitions);
+    }
+
+    public void setLastEvaluationCacheManager(LastEvaluationCacheManager lastEvaluations) {
+        this.lastEvaluations = lastEvaluations;
     }
 
     public void setActions(ActionsService actions) {
@@ -145,6 +281,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
     public void setAlertsService(AlertsService alertsService) {
         this.alertsService = alertsService;
+        persister.setAlertsService(alertsService);
     }
 
     public void setPartitionManager(PartitionManager partitionManager) {
@@ -155,6 +292,17 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         this.extensionsService = extensionsService;
     }
 
+    public void setStatusService(StatusServiceImpl status) {
+        this.status = status;
+    }
+
+    /**
+     * @param checkpointCache the cache storing the checkpoints of the evaluation state
+     */
+    public void setCheckpointCache(Cache<String, byte[]> checkpointCache) {
+        checkpoint.setCache(checkpointCache);
+    }
+
     public void setExecutor(ExecutorService executor) {
         this.executor = executor;
     }
@@ -167,6 +315,12 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
                 alertsEngineCache = new AlertsEngineCache();
                 partitionManager.registerDataListener(this);
                 partitionManager.registerTriggerListener(this);
+            } else {
+                checkpoint.start();
+            }
+            if (status != null) {
+                // Not ready until the triggers are loaded
+                status.setReloading("pending");
             }
             executor.submit(() -> {
                 /*
@@ -181,26 +335,34 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
     }
 
+    private RulesShard getShard(String tenantId) {
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+        return shards.get(Math.floorMod(tenantId.hashCode(), shards.size()));
+    }
+
     public void shutdown() {
-        rulesTask.cancel();
+        if (rulesTask != null) {
+            rulesTask.cancel();
+        }
         wakeUpTimer.cancel();
+        if (firingExecutor != null) {
+            firingExecutor.shutdown();
+        }
+        persister.shutdown();
+        checkpoint.shutdown();
     }
 
     @Override
     public void clear() {
         rulesTask.cancel();
 
-        rules.clear();
-
-        pendingData.clear();
-        pendingEvents.clear();
-        alerts.clear();
-        events.clear();
-        pendingTimeouts.clear();
-        autoResolvedTriggers.clear();
-        disabledTriggers.clear();
-        missingStates.clear();
-        evaluatedConditions.clear();
+        loaded = false;
+        synchronized (firingLock) {
+            shards.forEach(RulesShard::clear);
+            loaded = true;
+        }
 
         rulesTask = new RulesInvoker();
         wakeUpTimer.schedule(rulesTask, delay, period);
@@ -209,7 +371,23 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     @Override
     public void reload() {
         log.debug("Start a full reload of the AlertsEngine");
-        rules.reset();
+        loaded = false;
+        synchronized (firingLock) {
+            try {
+                load();
+            } finally {
+                loaded = true;
+            }
+        }
+
+        // Fire the Data and Events received during the reload
+        if (getPendingSize() > 0 && batchWakeUpScheduled.compareAndSet(false, true)) {
+            wakeUpTimer.schedule(new WakeUp(batchWakeUpScheduled), 0);
+        }
+    }
+
+    private void load() {
+        shards.forEach(shard -> shard.getRules().reset());
         if (distributed) {
             alertsEngineCache.clear();
         }
@@ -217,6 +395,34 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             rulesTask.cancel();
         }
 
+        long start = System.nanoTime();
+        int reloaded = 0;
+        try {
+            reloaded = reloadTriggers();
+        } finally {
+            if (status != null) {
+                status.setReloading(null);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        reloadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.infof("Reloaded [%s] triggers in [%s] ms", reloaded, TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        if (!distributed && checkpoint.isEnabled()) {
+            int restored = checkpoint.restore(shards, this::getShard);
+            log.infof("Restored [%s] evaluation states from the checkpoint", restored);
+        }
+
+        shards.forEach(shard -> shard.addGlobals(log, actions));
+
+        rulesTask = new RulesInvoker();
+        wakeUpTimer.schedule(rulesTask, delay, period);
+    }
+
+    private int reloadTriggers() {
+        if (!distributed) {
+            return loadAllTriggers();
+        }
         Collection<Trigger> triggers = null;
         try {
             triggers = definitions.getAllTriggers();
@@ -224,33 +430,20 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             log.debug(e.getMessage(), e);
             log.errorDefinitionsService("Triggers", e.getMessage());
         }
-
+        int notified = 0;
         if (!isEmpty(triggers)) {
-
-            triggers.stream().filter(Trigger::isLoadable).forEach(t -> {
-                /*
-                    In distributed scenario a reload should delegate into the PartitionManager to load the trigger on
-                    the node which belongs
-                 */
-                if (distributed) {
+            /*
+                In distributed scenario a reload should delegate into the PartitionManager to load the trigger on
+                the node which belongs
+             */
+            for (Trigger t : triggers) {
+                if (t.isLoadable()) {
                     partitionManager.notifyTrigger(Operation.UPDATE, t.getTenantId(), t.getId());
-                } else {
-                    reloadTrigger(t);
+                    notified++;
                 }
-            });
+            }
         }
-
-        rules.addGlobal("log", log);
-        rules.addGlobal("actions", actions);
-        rules.addGlobal("alerts", alerts);
-        rules.addGlobal("events", events);
-        rules.addGlobal("pendingTimeouts", pendingTimeouts);
-        rules.addGlobal("autoResolvedTriggers", autoResolvedTriggers);
-        rules.addGlobal("evaluatedConditions", evaluatedConditions);
-        rules.addGlobal("disabledTriggers", disabledTriggers);
-
-        rulesTask = new RulesInvoker();
-        wakeUpTimer.schedule(rulesTask, delay, period);
+        return notified;
     }
 
     @Override
@@ -335,6 +528,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         // Note that removeTrigger relies only on tenantId+triggerId.
         removeTrigger(trigger);
 
+        RulesShard shard = getShard(trigger.getTenantId());
+
         try {
             if (distributed) {
                 trigger = definitions.getTrigger(trigger.getTenantId(), trigger.getId());
@@ -344,41 +539,157 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
                         trigger.getId(), null);
                 Collection<Dampening> dampenings = definitions.getTriggerDampenings(trigger.getTenantId(),
                         trigger.getId(), null);
+                loadTrigger(shard, trigger, conditionSet, dampenings);
+            }
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            log.errorDefinitionsService("Conditions/Dampening", e.getMessage());
+        }
+    }
 
-                /*
-                    Cache dataId from conditions, Handle MissingCondition's MissingState
-                 */
-                for (Condition c : conditionSet) {
-                    if (distributed) {
-                        DataEntry entry = new DataEntry(c.getTenantId(), c.getTriggerId(), c.getDataId());
-                        alertsEngineCache.add(entry);
-                        if (Condition.Type.COMPARE == c.getType()) {
-                            String data2Id = ((CompareCondition) c).getData2Id();
-                            DataEntry entry2 = new DataEntry(c.getTenantId(), c.getTriggerId(), data2Id);
-                            alertsEngineCache.add(entry2);
-                        }
-                    }
-                    if (c instanceof MissingCondition) {
-                        // MissingState keeps a reference to the Trigger fact to check active trigger mode
-                        MissingState missingState = new MissingState(trigger, (MissingCondition) c);
-                        // MissingStates are modified inside the rules engine
-                        synchronized (missingStates) {
-                            missingStates.remove(missingState);
-                            missingStates.add(missingState);
-                            rules.addFact(missingState);
-                        }
+    /*
+        Loads all the triggers after a reset of the rules engine. The triggers, conditions and dampenings are read in
+        one scan each, then the facts of each shard are built and inserted in batches, the shards in parallel when
+        there are several. A KieSession is not thread-safe, so a shard is only ever loaded by one thread.
+     */
+    private int loadAllTriggers() {
+        Collection<Trigger> triggers;
+        Map<TriggerKey, List<Condition>> conditions;
+        Map<TriggerKey, List<Dampening>> dampenings;
+        try {
+            triggers = definitions.getAllTriggers();
+            conditions = definitions.getAllConditions().stream()
+                    .collect(Collectors.groupingBy(c -> new TriggerKey(c.getTenantId(), c.getTriggerId())));
+            dampenings = definitions.getAllDampenings().stream()
+                    .collect(Collectors.groupingBy(d -> new TriggerKey(d.getTenantId(), d.getTriggerId())));
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            log.errorDefinitionsService("Triggers/Conditions/Dampening", e.getMessage());
+            return 0;
+        }
+
+        Map<RulesShard, List<Trigger>> triggersByShard = new HashMap<>();
+        int total = 0;
+        for (Trigger trigger : triggers) {
+            if (trigger.isLoadable()) {
+                triggersByShard.computeIfAbsent(getShard(trigger.getTenantId()), s -> new ArrayList<>()).add(trigger);
+                total++;
+            }
+        }
+
+        ReloadProgress progress = new ReloadProgress(total);
+        if (firingExecutor == null) {
+            triggersByShard.forEach((shard, shardTriggers) ->
+                    loadShard(shard, shardTriggers, conditions, dampenings, progress));
+        } else {
+            List<Future<?>> loads = new ArrayList<>(triggersByShard.size());
+            triggersByShard.forEach((shard, shardTriggers) -> loads.add(firingExecutor.submit(() ->
+                    loadShard(shard, shardTriggers, conditions, dampenings, progress))));
+            for (Future<?> load : loads) {
+                try {
+                    load.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.errorDefinitionsService("Triggers", e.getMessage());
+                } catch (ExecutionException e) {
+                    log.debug(e.getMessage(), e);
+                    log.errorDefinitionsService("Triggers", e.getMessage());
+                }
+            }
+        }
+        return total;
+    }
+
+    private void loadShard(RulesShard shard, List<Trigger> triggers, Map<TriggerKey, List<Condition>> conditions,
+                           Map<TriggerKey, List<Dampening>> dampenings, ReloadProgress progress) {
+        List<Object> facts = new ArrayList<>();
+        int batched = 0;
+        for (Trigger trigger : triggers) {
+            TriggerKey key = new TriggerKey(trigger.getTenantId(), trigger.getId());
+            List<Condition> conditionSet = conditions.getOrDefault(key, Collections.emptyList());
+            for (Condition c : conditionSet) {
+                if (c instanceof MissingCondition) {
+                    // MissingState keeps a reference to the Trigger fact to check active trigger mode
+                    MissingState missingState = new MissingState(trigger, (MissingCondition) c);
+                    synchronized (shard.missingStates) {
+                        shard.missingStates.remove(missingState);
+                        shard.missingStates.add(missingState);
                     }
+                    facts.add(missingState);
                 }
+            }
+            facts.add(trigger);
+            facts.addAll(conditionSet);
+            facts.addAll(dampenings.getOrDefault(key, Collections.emptyList()));
+            if (++batched == RELOAD_BATCH_SIZE) {
+                shard.getRules().addFacts(facts);
+                progress.loaded(batched);
+                facts.clear();
+                batched = 0;
+            }
+        }
+        if (batched > 0) {
+            shard.getRules().addFacts(facts);
+            progress.loaded(batched);
+        }
+    }
+
+    /*
+        Number of triggers loaded so far by a reload, published in the status so readiness reports it.
+     */
+    private class ReloadProgress {
+        private final int total;
+        private final AtomicInteger loaded = new AtomicInteger();
+
+        ReloadProgress(int total) {
+            this.total = total;
+            publish(0);
+        }
+
+        void loaded(int triggers) {
+            publish(loaded.addAndGet(triggers));
+        }
 
-                rules.addFact(trigger);
-                rules.addFacts(conditionSet);
-                if (!dampenings.isEmpty()) {
-                    rules.addFacts(dampenings);
+        private void publish(int current) {
+            if (status != null) {
+                status.setReloading(current + "/" + total);
+            }
+        }
+    }
+
+    private void loadTrigger(RulesShard shard, Trigger trigger, Collection<Condition> conditionSet,
+                             Collection<Dampening> dampenings) {
+        RulesEngine rules = shard.getRules();
+
+        /*
+            Cache dataId from conditions, Handle MissingCondition's MissingState
+         */
+        for (Condition c : conditionSet) {
+            if (distributed) {
+                DataEntry entry = new DataEntry(c.getTenantId(), c.getTriggerId(), c.getDataId());
+                alertsEngineCache.add(entry);
+                if (Condition.Type.COMPARE == c.getType()) {
+                    String data2Id = ((CompareCondition) c).getData2Id();
+                    DataEntry entry2 = new DataEntry(c.getTenantId(), c.getTriggerId(), data2Id);
+                    alertsEngineCache.add(entry2);
                 }
             }
-        } catch (Exception e) {
-            log.debug(e.getMessage(), e);
-            log.errorDefinitionsService("Conditions/Dampening", e.getMessage());
+            if (c instanceof MissingCondition) {
+                // MissingState keeps a reference to the Trigger fact to check active trigger mode
+                MissingState missingState = new MissingState(trigger, (MissingCondition) c);
+                // MissingStates are modified inside the rules engine
+                synchronized (shard.missingStates) {
+                    shard.missingStates.remove(missingState);
+                    shard.missingStates.add(missingState);
+                    rules.addFact(missingState);
+                }
+            }
+        }
+
+        rules.addFact(trigger);
+        rules.addFacts(conditionSet);
+        if (!dampenings.isEmpty()) {
+            rules.addFacts(dampenings);
         }
     }
 
@@ -394,6 +705,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         if (trigger != null && trigger.isLoadable()) {
             List<Condition> conditions = fullTrigger.getConditions();
             List<Dampening> dampenings = fullTrigger.getDampenings();
+            RulesEngine rules = getShard(trigger.getTenantId()).getRules();
             rules.addFact(trigger);
             rules.addFacts(conditions);
             if (!dampenings.isEmpty()) {
@@ -410,7 +722,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
         Trigger loadedTrigger = null;
         try {
-            loadedTrigger = (Trigger) rules.getFact(trigger);
+            loadedTrigger = (Trigger) getShard(trigger.getTenantId()).getRules().getFact(trigger);
         } catch (Exception e) {
             log.errorf("Failed to get Trigger from engine %s: %s", trigger, e);
         }
@@ -437,6 +749,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     private void removeTrigger(Trigger trigger) {
         final String tenantId = trigger.getTenantId();
         final String triggerId = trigger.getId();
+        final RulesShard shard = getShard(tenantId);
+        final RulesEngine rules = shard.getRules();
 
         // If necessary, clean up working memory
         if (null != rules.getFact(trigger)) {
@@ -466,14 +780,13 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             alertsEngineCache.remove(trigger.getTenantId(), trigger.getId());
         }
         // Remove any MissingState being managed for the trigger
-        synchronized (missingStates) {
-            missingStates.removeIf(missingState -> missingState.getTenantId().equals(trigger.getTenantId()) &&
-                    missingState.getTriggerId().equals(triggerId));
+        synchronized (shard.missingStates) {
+            shard.missingStates.removeTrigger(trigger.getTenantId(), triggerId);
         }
     }
 
-    // We allow concurrent threads to make this call in order to process distributed data in parallel. We
-    // use synchronized blocks to protect pendingData.
+    // We allow concurrent threads to make this call in order to process distributed data in parallel. The
+    // pending buffers of the shards are lock-free.
     @Override
     public void sendData(TreeSet<Data> data) {
         if (data == null) {
@@ -483,6 +796,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             return;
         }
 
+        awaitPersistence();
         addData(data);
 
         if (distributed) {
@@ -499,10 +813,16 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             data = processDataExtensions(data);
         }
 
-        synchronized (pendingDataSync) {
-            log.debugf("Adding [%s] to pendingData [%s]", data, pendingData);
-            pendingData.addAll(data);
+        if (shards.size() == 1) {
+            shards.get(0).addData(data);
+        } else {
+            Map<RulesShard, List<Data>> dataByShard = new HashMap<>();
+            for (Data d : data) {
+                dataByShard.computeIfAbsent(getShard(d.getTenantId()), s -> new ArrayList<>()).add(d);
+            }
+            dataByShard.forEach(RulesShard::addData);
         }
+        wakeUp();
     }
 
     private TreeSet<Data> filterIncomingDataForNode(TreeSet<Data> data) {
@@ -521,8 +841,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         return data;
     }
 
-    // We allow concurrent threads to make this call in order to process distributed data in parallel. We
-    // use synchronized blocks to protect pendingEvents.
+    // We allow concurrent threads to make this call in order to process distributed data in parallel. The
+    // pending buffers of the shards are lock-free.
     @Override
     public void sendEvents(TreeSet<Event> events) {
         if (events == null) {
@@ -532,6 +852,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             return;
         }
 
+        awaitPersistence();
         addEvents(events);
 
         if (distributed) {
@@ -548,10 +869,16 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             events = processEventsExtensions(events);
         }
 
-        synchronized (pendingEventsSync) {
-            log.debugf("Adding [%s] to pendingEvents [%s]", events, pendingEvents);
-            pendingEvents.addAll(events);
+        if (shards.size() == 1) {
+            shards.get(0).addEvents(events);
+        } else {
+            Map<RulesShard, List<Event>> eventsByShard = new HashMap<>();
+            for (Event e : events) {
+                eventsByShard.computeIfAbsent(getShard(e.getTenantId()), s -> new ArrayList<>()).add(e);
+            }
+            eventsByShard.forEach(RulesShard::addEvents);
         }
+        wakeUp();
     }
 
     private TreeSet<Event> filterIncomingEventsForNode(TreeSet<Event> events) {
@@ -568,241 +895,240 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         return events;
     }
 
-    private TreeSet<Data> getAndClearPendingData() {
-        TreeSet<Data> result;
-        synchronized (pendingDataSync) {
-            result = pendingData;
-            pendingData = new TreeSet<>();
+    /*
+        Back-pressure of the write-behind persistence, incoming Data and Events wait while its queue is full.
+     */
+    private void awaitPersistence() {
+        try {
+            persister.awaitCapacity();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return result;
     }
 
-    private TreeSet<Event> getAndClearPendingEvents() {
-        TreeSet<Event> result;
-        synchronized (pendingEventsSync) {
-            result = pendingEvents;
-            pendingEvents = new TreeSet<>();
+    /*
+        Fire right away when the batch is full, otherwise make sure a firing happens before the linger time expires.
+     */
+    private void wakeUp() {
+        firstPendingTime.compareAndSet(NO_PENDING, System.nanoTime());
+        try {
+            if (getPendingSize() >= batchSize) {
+                if (batchWakeUpScheduled.compareAndSet(false, true)) {
+                    wakeUpTimer.schedule(new WakeUp(batchWakeUpScheduled), 0);
+                }
+            } else if (lingerWakeUpScheduled.compareAndSet(false, true)) {
+                wakeUpTimer.schedule(new WakeUp(lingerWakeUpScheduled), Math.max(0, linger));
+            }
+        } catch (IllegalStateException e) {
+            // The engine is shutting down, pending Data and Events are not processed
+            log.debugf("Wake up of the rules engine ignored: %s", e.getMessage());
         }
-        return result;
     }
 
     private class RulesInvoker extends TimerTask {
         @Override
         public void run() {
-            int numTimeouts = checkPendingTimeouts();
-
-            int numMissingEvals = checkMissingStates();
-
-            if (!pendingData.isEmpty() || !pendingEvents.isEmpty() || numTimeouts > 0 || numMissingEvals > 0) {
-                TreeSet<Data> newData = getAndClearPendingData();
-                TreeSet<Event> newEvents = getAndClearPendingEvents();
-
-                log.debugf("Executing rules engine on %s datums, %s events, %s dampening timeouts.", newData.size(),
-                        newEvents.size(), numTimeouts);
+            if (!loaded) {
+                return;
+            }
+            synchronized (firingLock) {
+                if (loaded) {
+                    fire();
+                }
+            }
+        }
 
-                try {
-                    if (newData.isEmpty() && newEvents.isEmpty()) {
-                        rules.fireNoData();
-                    } else {
-                        if (!newData.isEmpty()) {
-                            rules.addData(newData);
-                        }
-                        if (!newEvents.isEmpty()) {
-                            rules.addEvents(newEvents);
-                        }
+        private void fire() {
+            long firstPending = firstPendingTime.getAndSet(NO_PENDING);
+            if (firstPending != NO_PENDING) {
+                batchWaitTimer.record(System.nanoTime() - firstPending, TimeUnit.NANOSECONDS);
+            }
 
-                        // release to GC
-                        newData = null;
-                        newEvents = null;
+            List<RulesShard> firedShards = fireShards();
+            if (firedShards.isEmpty()) {
+                return;
+            }
 
-                        rules.fire();
-                    }
+            int firedBatchSize = 0;
+            for (RulesShard shard : firedShards) {
+                firedBatchSize += shard.getLastBatchSize();
+            }
+            if (firedBatchSize > 0) {
+                batchSizeSummary.record(firedBatchSize);
+            }
 
-                    handleAlerts();
-                    alertsService.persistEvents(events).await().indefinitely();
-                    if (distributed && !events.isEmpty()) {
-                        /*
-                            Generated events on a node should be notified to other nodes for chained triggers
-                         */
-                        partitionManager.notifyEvents(new ArrayList<>(events));
+            try {
+                List<Alert> alerts = new ArrayList<>();
+                List<Event> events = new ArrayList<>();
+                for (RulesShard shard : firedShards) {
+                    alerts.addAll(shard.alerts);
+                    events.addAll(shard.events);
+                }
+                persister.submit(alerts, events);
+                if (distributed && !events.isEmpty()) {
+                    /*
+                        Generated events on a node should be notified to other nodes for chained triggers
+                     */
+                    partitionManager.notifyEvents(events);
+                }
+                handleDisabledTriggers(firedShards);
+                if (hasAutoResolvedTriggers(firedShards)) {
+                    // The alerts to resolve must be stored first
+                    if (!persister.awaitWritten()) {
+                        log.warnf("Some alerts could not be stored before the autoresolve of their triggers");
                     }
-                    events.clear();
-                    handleDisabledTriggers();
-                    handleAutoResolvedTriggers();
-                    handleConditionEvaluationTimes();
-                    actions.flush();
-                } catch (Exception e) {
-                    log.debug("Error on rules processing: %s",e);
-                    log.errorProcessingRules(e.getMessage());
-                } finally {
-                    alerts.clear();
-                    events.clear();
+                }
+                handleAutoResolvedTriggers(firedShards);
+                handleConditionEvaluationTimes(firedShards);
+                actions.flush();
+            } catch (Exception e) {
+                log.debug("Error on rules processing: %s",e);
+                log.errorProcessingRules(e.getMessage());
+            } finally {
+                for (RulesShard shard : firedShards) {
+                    shard.alerts.clear();
+                    shard.events.clear();
                 }
             }
+            checkpoint.checkpoint(shards);
         }
 
-        private int checkPendingTimeouts() {
-            if (pendingTimeouts.isEmpty()) {
-                return 0;
+        /*
+            A single shard is fired on the timer thread, several shards are fired in parallel on the firingExecutor.
+            Either way this returns once all the shards have finished firing.
+         */
+        private List<RulesShard> fireShards() {
+            if (shards.size() == 1) {
+                RulesShard shard = shards.get(0);
+                return fireShard(shard) ? Collections.singletonList(shard) : Collections.emptyList();
             }
 
-            long now = System.currentTimeMillis();
-            Set<Dampening> timeouts = null;
-            for (Dampening d : pendingTimeouts) {
-                if (now < d.getTrueEvalsStartTime() + d.getEvalTimeSetting()) {
-                    continue;
-                }
-
-                d.setSatisfied(true);
+            List<Future<Boolean>> firings = new ArrayList<>(shards.size());
+            for (RulesShard shard : shards) {
+                firings.add(firingExecutor.submit(() -> fireShard(shard)));
+            }
+            List<RulesShard> firedShards = new ArrayList<>();
+            for (int i = 0; i < firings.size(); i++) {
                 try {
-                    log.debugf("Dampening Timeout Hit! %s", d.toString());
-                    rules.updateFact(d);
-                    if (null == timeouts) {
-                        timeouts = new HashSet<>();
+                    if (firings.get(i).get()) {
+                        firedShards.add(shards.get(i));
                     }
-                    timeouts.add(d);
-                } catch (Exception e) {
-                    log.errorf(e, "Unable to update Dampening Fact on Timeout! %s", d.toString());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.errorProcessingRules(e.getMessage());
+                } catch (ExecutionException e) {
+                    log.errorProcessingRules(e.getMessage());
                 }
-
             }
+            return firedShards;
+        }
 
-            if (null == timeouts) {
-                return 0;
+        private boolean fireShard(RulesShard shard) {
+            try {
+                return shard.fire();
+            } catch (Exception e) {
+                log.debug("Error on rules processing: %s",e);
+                log.errorProcessingRules(e.getMessage());
+                shard.alerts.clear();
+                shard.events.clear();
+                return false;
             }
-
-            pendingTimeouts.removeAll(timeouts);
-            return timeouts.size();
         }
     }
 
-    private void handleAlerts() throws Exception {
-        alertsService.addAlerts(alerts);
-        for (Alert alert : alerts) {
-            definitions.addLifecycleToTrigger(alert.getTenantId(), alert.getTriggerId(), Trigger.TriggerLifecycle.ALERT_GENERATE);
+    /*
+        One-shot firing requested by incoming Data and Events. It runs on the wakeUpTimer thread as the periodic
+        RulesInvoker, so firing cycles never overlap.
+     */
+    private class WakeUp extends RulesInvoker {
+        private final AtomicBoolean scheduled;
+
+        WakeUp(AtomicBoolean scheduled) {
+            this.scheduled = scheduled;
+        }
+
+        @Override
+        public void run() {
+            scheduled.set(false);
+            super.run();
         }
-        alerts.clear();
     }
 
-    private void handleDisabledTriggers() {
-        try {
-            for (Trigger t : disabledTriggers) {
-                try {
-                    // TODO This will now generate "DISABLED" .. not AUTO_DISABLED
-                    definitions.updateTriggerEnablement(t.getTenantId(), t.getId(), false, null);
-                } catch (Exception e) {
-                    log.errorf(e, "Failed to persist updated trigger. Could not autoDisable %s.", t);
-                }
+    private boolean hasAutoResolvedTriggers(List<RulesShard> firedShards) {
+        for (RulesShard shard : firedShards) {
+            if (!shard.autoResolvedTriggers.isEmpty()) {
+                return true;
             }
-        } finally {
-            disabledTriggers.clear();
         }
+        return false;
     }
 
-    private void handleAutoResolvedTriggers() {
-        try {
-            for (Entry<Trigger, List<Set<ConditionEval>>> entry : autoResolvedTriggers.entrySet()) {
-                Trigger t = entry.getKey();
-                boolean manualReload = !t.isAutoResolveAlerts();
-
-                // calling resolveAlertsForTrigger will result in a trigger reload (unless it fails),
-                // otherwise, manually reload the trigger back into the engine (in firing mode).
-                if (t.isAutoResolveAlerts()) {
-                    try {
-                        alertsService.resolveAlertsForTrigger(t.getTenantId(), t.getId(), null,
-                                null, entry.getValue());
-                    } catch (Exception e) {
-                        manualReload = true;
-                        log.errorf("Failed to resolve Alerts. Could not AutoResolve alerts for trigger %s.", t);
-                    }
-                }
-
-                if (manualReload) {
+    private void handleDisabledTriggers(List<RulesShard> firedShards) {
+        for (RulesShard shard : firedShards) {
+            try {
+                for (Trigger t : shard.disabledTriggers) {
                     try {
-                        reloadTrigger(t.getTenantId(), t.getId());
+                        // TODO This will now generate "DISABLED" .. not AUTO_DISABLED
+                        definitions.updateTriggerEnablement(t.getTenantId(), t.getId(), false, null);
                     } catch (Exception e) {
-                        log.errorf("Failed to reload AutoResolved Trigger: %s.", t);
+                        log.errorf(e, "Failed to persist updated trigger. Could not autoDisable %s.", t);
                     }
                 }
+            } finally {
+                shard.disabledTriggers.clear();
             }
-        } finally {
-            autoResolvedTriggers.clear();
         }
     }
 
-    private static class ConditionKey {
-        String tenantId;
-        String triggerId;
-
-        public ConditionKey(String tenantId, String triggerId) {
-            this.tenantId = tenantId;
-            this.triggerId = triggerId;
-        }
-
-        public String getTenantId() {
-            return tenantId;
-        }
-
-        public String getTriggerId() {
-            return triggerId;
-        }
-    }
+    private void handleAutoResolvedTriggers(List<RulesShard> firedShards) {
+        for (RulesShard shard : firedShards) {
+            try {
+                for (Entry<Trigger, List<Set<ConditionEval>>> entry : shard.autoResolvedTriggers.entrySet()) {
+                    Trigger t = entry.getKey();
+                    boolean manualReload = !t.isAutoResolveAlerts();
+
+                    // calling resolveAlertsForTrigger will result in a trigger reload (unless it fails),
+                    // otherwise, manually reload the trigger back into the engine (in firing mode).
+                    if (t.isAutoResolveAlerts()) {
+                        try {
+                            alertsService.resolveAlertsForTrigger(t.getTenantId(), t.getId(), null,
+                                    null, entry.getValue());
+                        } catch (Exception e) {
+                            manualReload = true;
+                            log.errorf("Failed to resolve Alerts. Could not AutoResolve alerts for trigger %s.", t);
+                        }
+                    }
 
-    private void handleConditionEvaluationTimes() {
-        if(updateLastEvaluated) {
-            HashMap<ConditionKey, Set<Condition>> groupedConditionUpdates = new HashMap<>();
-            for (Condition evaluatedCondition : evaluatedConditions) {
-                ConditionKey condKey = new ConditionKey(evaluatedCondition.getTenantId(), evaluatedCondition.getTriggerId());
-                Set<Condition> conditions = groupedConditionUpdates.get(condKey);
-                if(conditions == null) {
-                    conditions = new HashSet<>();
+                    if (manualReload) {
+                        try {
+                            reloadTrigger(t.getTenantId(), t.getId());
+                        } catch (Exception e) {
+                            log.errorf("Failed to reload AutoResolved Trigger: %s.", t);
+                        }
+                    }
                 }
-                conditions.add(evaluatedCondition);
-                groupedConditionUpdates.put(condKey, conditions);
-            }
-
-            for (Entry<ConditionKey, Set<Condition>> condEntry : groupedConditionUpdates.entrySet()) {
-                definitions.updateConditions(condEntry.getKey().getTenantId(), condEntry.getKey().getTriggerId(), condEntry.getValue());
+            } finally {
+                shard.autoResolvedTriggers.clear();
             }
         }
-
-        evaluatedConditions.clear();
     }
 
-    private int checkMissingStates() {
-        if (missingStates.isEmpty()) {
-            return 0;
-        }
-
-        int numMatchingEvals = 0;
-        for (MissingState missingState : missingStates) {
-            if (missingState.getTriggerMode() != missingState.getTrigger().getMode()) {
-                continue;
+    private void handleConditionEvaluationTimes(List<RulesShard> firedShards) {
+        for (RulesShard shard : firedShards) {
+            if (updateLastEvaluated && lastEvaluations != null) {
+                // Kept in memory, stored in batches by the LastEvaluationCacheManager
+                lastEvaluations.record(shard.evaluatedConditions);
             }
-
-            long now = System.currentTimeMillis();
-            rules.removeFact(missingState);
-            missingState.setTime(now);
-            if (missingState.getCondition().match(missingState.getPreviousTime(), now)) {
-                MissingConditionEval eval = new MissingConditionEval(missingState.getCondition(),
-                        missingState.getPreviousTime(),
-                        now);
-                missingState.setPreviousTime(now);
-                rules.addFact(eval);
-                numMatchingEvals++;
-            }
-            rules.addFact(missingState);
+            shard.evaluatedConditions.clear();
         }
-
-        return numMatchingEvals;
     }
 
     /*
         Data incoming from a different node.  This has already been globally filtered but not locally filtered.
         It does not need to be re-propagated.
 
-        We allow concurrent threads to make this call in order to process distributed data in parallel. We
-        use synchronized blocks to protect pendingData.
+        We allow concurrent threads to make this call in order to process distributed data in parallel. The
+        pending buffers of the shards are lock-free.
      */
     @Override
     public void onNewData(Collection<Data> data) {
@@ -813,8 +1139,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         Events incoming from a different node.  This has already been globally filtered but not locally filtered.
         It does not need to be re-propagated.
 
-        We allow concurrent threads to make this call in order to process distributed data in parallel. We
-        use synchronized blocks to protect pendingEvents.
+        We allow concurrent threads to make this call in order to process distributed data in parallel. The
+        pending buffers of the shards are lock-free.
      */
     @Override
     public void onNewEvents(Collection<Event> events) {
@@ -857,12 +1183,12 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         log.debugf("Removed: %s", removed);
         log.debugf("Added: %s", added);
 
-        if (!pendingData.isEmpty() || !pendingEvents.isEmpty()) {
-            if (!pendingData.isEmpty()) {
-                log.warnf("Pending Data onPartitionChange: %s.", pendingData);
+        for (RulesShard shard : shards) {
+            if (shard.hasPendingData()) {
+                log.warnf("Pending Data onPartitionChange on shard [%s].", shard.getIndex());
             }
-            if (pendingEvents.isEmpty()) {
-                log.warnf("Pending Events onPartitionChange: %s.", pendingData);
+            if (shard.hasPendingEvents()) {
+                log.warnf("Pending Events onPartitionChange on shard [%s].", shard.getIndex());
             }
         }
 
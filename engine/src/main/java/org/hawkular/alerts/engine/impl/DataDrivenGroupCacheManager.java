@@ -6,14 +6,24 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.eclipse.microprofile.config.ConfigProvider;
+import org.hawkular.alerts.api.exception.NotFoundException;
 import org.hawkular.alerts.api.model.condition.CompareCondition;
 import org.hawkular.alerts.api.model.condition.Condition;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.model.trigger.TriggerKey;
 import org.hawkular.alerts.api.model.trigger.TriggerType;
 import org.hawkular.alerts.api.services.DefinitionsEvent;
 import org.hawkular.alerts.api.services.DefinitionsService;
@@ -23,6 +33,9 @@ import org.hawkular.alerts.log.MsgLogging;
 /**
  * A helper class to keep track of DataDrivenGroup
  *
+ * The index is fully built on init. Then every trigger definitions change only reloads the data-driven groups it
+ * affects: the group itself, or the group of a member trigger.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -35,22 +48,47 @@ public class DataDrivenGroupCacheManager {
 //    @ConfigProperty(name = "engine.data-driven-triggers-enabled")
     boolean dataDrivenTriggersEnabled;
 
-    // The sources with member triggers for the dataId.
-    // - null if dataId is not used in a group trigger condition
-    // - EmptySet if no source members are yet defined
-    Map<CacheKey, Set<String>> sourcesMap = new HashMap<>();
-    // The group triggerIds relevant to the dataId, null if none
-    Map<CacheKey, Set<String>> triggersMap = new HashMap<>();
-
-    private volatile boolean updateRequested = false;
-    private volatile boolean updating = false;
+    // The data-driven group triggers, guarded by this
+    Map<TriggerKey, Group> groups = new HashMap<>();
+    // The group of the member triggers, guarded by this
+    Map<TriggerKey, TriggerKey> memberGroups = new HashMap<>();
+    // The groups relevant to the dataId, read without locking. The value sets are replaced, never modified.
+    Map<CacheKey, Set<Group>> groupsByDataId = new ConcurrentHashMap<>();
 
     DefinitionsService definitions;
 
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private Timer rebuildTimer;
+    private Timer updateTimer;
+
+    public DataDrivenGroupCacheManager() {
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        rebuildTimer = Timer.builder("engine.data-driven-groups.update")
+                .description("Time spent updating the data-driven group triggers index")
+                .tag("type", "rebuild")
+                .register(meterRegistry);
+        updateTimer = Timer.builder("engine.data-driven-groups.update")
+                .description("Time spent updating the data-driven group triggers index")
+                .tag("type", "incremental")
+                .register(meterRegistry);
+        Gauge.builder("engine.data-driven-groups", this, manager -> manager.groups.size())
+                .description("Data-driven group triggers held in the index")
+                .register(meterRegistry);
+    }
+
     public void setDefinitions(DefinitionsService definitions) {
         this.definitions = definitions;
     }
 
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        registerMetrics();
+    }
+
     public void init() {
         dataDrivenTriggersEnabled = ConfigProvider.getConfig().getValue("engine.data-driven-triggers-enabled", Boolean.class);
 
@@ -58,92 +96,148 @@ public class DataDrivenGroupCacheManager {
 
         if (dataDrivenTriggersEnabled) {
 
-            requestCacheUpdate();
+            updateCache();
 
-            definitions.registerListener(e -> {
-                    requestCacheUpdate();
-            }, DefinitionsEvent.Type.TRIGGER_CONDITION_CHANGE);
+            definitions.registerListener(this::updateGroups, DefinitionsEvent.Type.TRIGGER_CONDITION_CHANGE,
+                    DefinitionsEvent.Type.TRIGGER_CREATE, DefinitionsEvent.Type.TRIGGER_REMOVE,
+                    DefinitionsEvent.Type.TRIGGER_UPDATE);
         }
     }
 
-    // Just run updateCache one time if multiple requests come in while an update is already in progress...
-    private void requestCacheUpdate() {
-        log.debug("Cache update requested");
-        if (updateRequested) {
-            log.debug("Cache update, redundant request ignored.");
-            return;
-        }
-
-        updateRequested = true;
-
-        if (!updating) {
-            updateCache();
+    // Full build of the index
+    synchronized void updateCache() {
+        log.debug("Updating cache...");
+        long start = System.nanoTime();
+        try {
+            clear();
+            Collection<Trigger> allTriggers = definitions.getAllTriggers();
+            int numGroups = 0;
+            for (Trigger t : allTriggers) {
+                if (TriggerType.DATA_DRIVEN_GROUP == t.getType()) {
+                    index(load(t));
+                    numGroups++;
+                }
+            }
+            log.debugf("Updated [%s] data-driven triggers out of [%s] total triggers", numGroups, allTriggers.size());
+        } catch (Exception e) {
+            log.error("FAILED to updateCache. Unable to generate data-driven member triggers!", e);
+            clear();
+        } finally {
+            log.debugf("Cache updates complete. groups: %s", groups);
+            rebuildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
-    private synchronized void updateCache() {
-        log.debug("Updating cache...");
-
+    // Reload the groups affected by the changed triggers
+    private synchronized void updateGroups(List<DefinitionsEvent> events) {
+        long start = System.nanoTime();
         try {
-            updating = true;
-
-            while (updateRequested) {
-                updateRequested = false;
-                log.debug("Cache update in progress..");
-
-                Collection<Trigger> allTriggers = definitions.getAllTriggers();
-                Set<Trigger> ddGroupTriggers = new HashSet<>();
-                for (Trigger t : allTriggers) {
-                    if (TriggerType.DATA_DRIVEN_GROUP == t.getType()) {
-                        ddGroupTriggers.add(t);
-                    }
+            Set<TriggerKey> affected = new HashSet<>();
+            for (DefinitionsEvent event : events) {
+                TriggerKey key = new TriggerKey(event.getTargetTenantId(), event.getTargetId());
+                if (groups.containsKey(key)) {
+                    affected.add(key);
                 }
-
-                log.debugf("Updating [%s] data-driven triggers out of [%s] total triggers...", ddGroupTriggers.size(),
-                        allTriggers.size());
-
-                for (Trigger groupTrigger : ddGroupTriggers) {
-                    String tenantId = groupTrigger.getTenantId();
-                    Set<String> sources = new HashSet<>();
-                    for (Trigger memberTrigger : definitions.getMemberTriggers(tenantId, groupTrigger.getId(),
-                            false)) {
-                        sources.add(memberTrigger.getSource());
+                if (memberGroups.containsKey(key)) {
+                    affected.add(memberGroups.get(key));
+                }
+                if (event.getType() != DefinitionsEvent.Type.TRIGGER_REMOVE) {
+                    Trigger trigger = getTrigger(key);
+                    if (trigger == null) {
+                        continue;
                     }
-                    for (Condition c : definitions.getTriggerConditions(tenantId, groupTrigger.getId(), null)) {
-                        CacheKey key = new CacheKey(tenantId, c.getDataId());
-                        sourcesMap.put(key, sources);
-                        Set<String> triggers = triggersMap.get(key);
-                        if (null == triggers) {
-                            triggers = new HashSet<>();
-                        }
-                        triggers.add(groupTrigger.getId());
-                        triggersMap.put(key, triggers);
-
-                        if (c instanceof CompareCondition) {
-                            key = new CacheKey(tenantId, ((CompareCondition) c).getData2Id());
-                            sourcesMap.put(key, sources);
-
-                            triggers = triggersMap.get(key);
-                            if (null == triggers) {
-                                triggers = new HashSet<>();
-                            }
-                            triggers.add(groupTrigger.getId());
-                            triggersMap.put(key, triggers);
+                    if (TriggerType.DATA_DRIVEN_GROUP == trigger.getType()) {
+                        affected.add(key);
+                    } else if (!isEmpty(trigger.getMemberOf())) {
+                        TriggerKey groupKey = new TriggerKey(key.getTenantId(), trigger.getMemberOf());
+                        if (groups.containsKey(groupKey)) {
+                            affected.add(groupKey);
                         }
                     }
                 }
             }
+            for (TriggerKey groupKey : affected) {
+                Group previous = groups.get(groupKey);
+                if (previous != null) {
+                    unindex(previous);
+                }
+                Trigger group = getTrigger(groupKey);
+                if (group != null && TriggerType.DATA_DRIVEN_GROUP == group.getType()) {
+                    index(load(group));
+                }
+            }
+            log.debugf("Updated [%s] data-driven triggers for [%s] definitions events", affected.size(),
+                    events.size());
         } catch (Exception e) {
-            log.error("FAILED to updateCache. Unable to generate data-driven member triggers!", e);
-            sourcesMap = new HashMap<>();
+            log.error("FAILED to update data-driven triggers, rebuilding the cache", e);
+            updateCache();
         } finally {
-            log.debugf("Cache updates complete. sourceMap: %s", sourcesMap);
-            updating = false;
+            updateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
+    private Trigger getTrigger(TriggerKey key) throws Exception {
+        try {
+            return definitions.getTrigger(key.getTenantId(), key.getTriggerId());
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    private Group load(Trigger groupTrigger) throws Exception {
+        String tenantId = groupTrigger.getTenantId();
+        Set<String> sources = new HashSet<>();
+        Set<String> members = new HashSet<>();
+        for (Trigger memberTrigger : definitions.getMemberTriggers(tenantId, groupTrigger.getId(), false)) {
+            sources.add(memberTrigger.getSource());
+            members.add(memberTrigger.getId());
+        }
+        Set<CacheKey> dataIds = new HashSet<>();
+        for (Condition c : definitions.getTriggerConditions(tenantId, groupTrigger.getId(), null)) {
+            dataIds.add(new CacheKey(tenantId, c.getDataId()));
+            if (c instanceof CompareCondition) {
+                dataIds.add(new CacheKey(tenantId, ((CompareCondition) c).getData2Id()));
+            }
+        }
+        return new Group(tenantId, groupTrigger.getId(), dataIds, sources, members);
+    }
+
+    private void index(Group group) {
+        groups.put(group.key, group);
+        for (String member : group.members) {
+            memberGroups.put(new TriggerKey(group.key.getTenantId(), member), group.key);
+        }
+        for (CacheKey dataId : group.dataIds) {
+            Set<Group> dataIdGroups = new HashSet<>(groupsByDataId.getOrDefault(dataId, Collections.emptySet()));
+            dataIdGroups.add(group);
+            groupsByDataId.put(dataId, Collections.unmodifiableSet(dataIdGroups));
+        }
+    }
+
+    private void unindex(Group group) {
+        groups.remove(group.key);
+        for (String member : group.members) {
+            memberGroups.remove(new TriggerKey(group.key.getTenantId(), member), group.key);
+        }
+        for (CacheKey dataId : group.dataIds) {
+            Set<Group> dataIdGroups = new HashSet<>(groupsByDataId.getOrDefault(dataId, Collections.emptySet()));
+            dataIdGroups.remove(group);
+            if (dataIdGroups.isEmpty()) {
+                groupsByDataId.remove(dataId);
+            } else {
+                groupsByDataId.put(dataId, Collections.unmodifiableSet(dataIdGroups));
+            }
+        }
+    }
+
+    private void clear() {
+        groups.clear();
+        memberGroups.clear();
+        groupsByDataId.clear();
+    }
+
     public boolean isCacheActive() {
-        return !sourcesMap.isEmpty();
+        return !groupsByDataId.isEmpty();
     }
 
     public Set<String> needsSourceMember(String tenantId, String dataId, String source) {
@@ -151,24 +245,62 @@ public class DataDrivenGroupCacheManager {
             return Collections.emptySet();
         }
 
-        CacheKey key = new CacheKey(tenantId, dataId);
-
         // if the dataId is not relevant to any group triggers just return empty set
-        if (null == triggersMap.get(key)) {
+        Set<Group> dataIdGroups = groupsByDataId.get(new CacheKey(tenantId, dataId));
+        if (null == dataIdGroups) {
             return Collections.emptySet();
         }
 
-        // if the dataId is relevant to group triggers but the source is already known just return empty set
-        Set<String> sources = sourcesMap.get(key);
-        if (sources.contains(source)) {
-            return Collections.emptySet();
+        // otherwise, return the triggers that do not have a member for this source yet
+        Set<String> triggerIds = null;
+        for (Group group : dataIdGroups) {
+            if (!group.sources.contains(source)) {
+                if (null == triggerIds) {
+                    triggerIds = new HashSet<>();
+                }
+                triggerIds.add(group.key.getTriggerId());
+            }
+        }
+        return null == triggerIds ? Collections.emptySet() : triggerIds;
+    }
+
+    /*
+        A data-driven group trigger, with the dataIds of its conditions and its member triggers.
+     */
+    static class Group {
+        private final TriggerKey key;
+        private final Set<CacheKey> dataIds;
+        private final Set<String> sources;
+        private final Set<String> members;
+
+        Group(String tenantId, String triggerId, Set<CacheKey> dataIds, Set<String> sources, Set<String> members) {
+            this.key = new TriggerKey(tenantId, triggerId);
+            this.dataIds = dataIds;
+            this.sources = sources;
+            this.members = members;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Group group = (Group) o;
+            return key.equals(group.key) && dataIds.equals(group.dataIds) && sources.equals(group.sources)
+                    && members.equals(group.members);
         }
 
-        // otherwise, return the triggers that need a member for this source
-        return triggersMap.get(key);
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, dataIds, sources, members);
+        }
+
+        @Override
+        public String toString() {
+            return "Group [" + key + ", dataIds=" + dataIds + ", sources=" + sources + "]";
+        }
     }
 
-    private static class CacheKey {
+    static class CacheKey {
         private String tenantId;
         private String dataId;
 
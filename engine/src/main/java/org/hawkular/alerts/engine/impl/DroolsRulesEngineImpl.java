@@ -1,8 +1,14 @@
 package org.hawkular.alerts.engine.impl;
 
 import org.eclipse.microprofile.config.ConfigProvider;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.EventConditionEval;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.EventConditionIndex.IndexedCondition;
 import org.hawkular.alerts.engine.service.RulesEngine;
 import org.hawkular.alerts.log.MsgLogger;
 import org.hawkular.alerts.log.MsgLogging;
@@ -12,8 +18,12 @@ import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.ObjectFilter;
 import org.kie.api.runtime.rule.FactHandle;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Predicate;
 
@@ -25,6 +35,12 @@ import java.util.function.Predicate;
  * The RulesEngine is invoked only by the AlertsEngine impl and is not invoked concurrently, so
  * single-threading is a fair assumption.
  *
+ * With indexed events the EventConditions are kept in an {@link EventConditionIndex} instead of the working memory.
+ * Each Event is evaluated against the conditions of its dataId and only the resulting EventConditionEvals are
+ * inserted for the dampening rules. An Event enters the working memory only if another kind of condition reads its
+ * dataId. Events generated by the triggers are dispatched the same way, one at a time, to evaluate chained
+ * conditions.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -41,6 +57,17 @@ public class DroolsRulesEngineImpl implements RulesEngine {
 //    @ConfigProperty(name = "engine.rules.data.duplicate-filter-time")
     int minReportingIntervalData;
 
+//    @ConfigProperty(name = "engine.rules.events.indexed")
+    boolean indexedEvents;
+
+    // Only created with indexed events
+    private final EventConditionIndex eventConditionIndex;
+
+    // Globals read by the indexed events dispatch
+    private List<?> alertsGlobal;
+    private List<?> eventsGlobal;
+    private Set<Condition> evaluatedConditionsGlobal;
+
     private KieServices ks;
     private KieContainer kc;
     private KieSession kSession;
@@ -49,6 +76,13 @@ public class DroolsRulesEngineImpl implements RulesEngine {
     TreeSet<Event> pendingEvents = new TreeSet<>();
 
     public DroolsRulesEngineImpl() {
+        this(ConfigProvider.getConfig().getValue("engine.rules.events.indexed", Boolean.class));
+    }
+
+    /**
+     * @param indexedEvents true to evaluate the EventConditions out of the working memory
+     */
+    public DroolsRulesEngineImpl(boolean indexedEvents) {
         log.debug("Creating instance of DroolsRulesEngineImpl.");
         ks = KieServices.Factory.get();
         kc = ks.getKieClasspathContainer();
@@ -56,6 +90,8 @@ public class DroolsRulesEngineImpl implements RulesEngine {
 
         minReportingIntervalEvents = ConfigProvider.getConfig().getValue("engine.rules.events.duplicate-filter-time", Integer.class);
         minReportingIntervalData = ConfigProvider.getConfig().getValue("engine.rules.data.duplicate-filter-time", Integer.class);
+        this.indexedEvents = indexedEvents;
+        eventConditionIndex = indexedEvents ? new EventConditionIndex() : null;
     }
 
     @Override
@@ -63,7 +99,7 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         if (fact instanceof Data || fact instanceof Event) {
             throw new IllegalArgumentException(fact.toString());
         }
-        kSession.insert(fact);
+        insert(fact);
         if (log.isDebugEnabled()) {
             log.debugf("addFact( %s )", fact.toString());
             log.debug("==> Begin Dump");
@@ -86,7 +122,7 @@ public class DroolsRulesEngineImpl implements RulesEngine {
             if (log.isDebugEnabled()) {
                 log.debugf("Insert %s", fact);
             }
-            kSession.insert(fact);
+            insert(fact);
         }
         if (log.isDebugEnabled()) {
             log.debugf("addFacts( %s )", facts.toString());
@@ -99,6 +135,20 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         }
     }
 
+    /*
+        With indexed events the Triggers are tracked by the index as well, and the EventConditions go to the index only.
+     */
+    private void insert(Object fact) {
+        if (eventConditionIndex != null) {
+            if (fact instanceof Trigger) {
+                eventConditionIndex.addTrigger((Trigger) fact);
+            } else if (fact instanceof Condition && eventConditionIndex.addCondition((Condition) fact)) {
+                return;
+            }
+        }
+        kSession.insert(fact);
+    }
+
     @Override
     public void addData(TreeSet<Data> data) {
         pendingData.addAll(data);
@@ -113,6 +163,23 @@ public class DroolsRulesEngineImpl implements RulesEngine {
     public void addGlobal(String name, Object global) {
         log.debugf("Add Global %s = %s ", name, global);
         kSession.setGlobal(name, global);
+        setIndexGlobal(name, global);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setIndexGlobal(String name, Object global) {
+        switch (name) {
+            case "alerts":
+                alertsGlobal = (List<?>) global;
+                break;
+            case "events":
+                eventsGlobal = (List<?>) global;
+                break;
+            case "evaluatedConditions":
+                evaluatedConditionsGlobal = (Set<Condition>) global;
+                break;
+            default:
+        }
     }
 
     @Override
@@ -121,6 +188,9 @@ public class DroolsRulesEngineImpl implements RulesEngine {
             log.debugf("Delete %s", factHandle);
             kSession.delete(factHandle);
         }
+        if (eventConditionIndex != null) {
+            eventConditionIndex.clear();
+        }
     }
 
     @Override
@@ -154,7 +224,10 @@ public class DroolsRulesEngineImpl implements RulesEngine {
                 }
             }
 
+            int alertsMark = size(alertsGlobal);
+            int eventsMark = size(eventsGlobal);
             kSession.fireAllRules();
+            dispatchGeneratedEvents(alertsMark, eventsMark);
             fireCycle++;
         }
         long firingTime = System.currentTimeMillis() - startFiring;
@@ -204,6 +277,7 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         long startBatching = System.currentTimeMillis();
         TreeSet<Event> batchEvents = pendingEvents;
         pendingEvents = new TreeSet<>();
+        List<ConditionEval> evals = eventConditionIndex == null ? null : new ArrayList<>();
 
         // Keep only the least recent datum for any dataId. Remove minReportingInterval violators, defer the rest
         Event previousEvent = null;
@@ -211,7 +285,11 @@ public class DroolsRulesEngineImpl implements RulesEngine {
             Event e = i.next();
             if (!e.same(previousEvent)) {
                 previousEvent = e;
-                kSession.insert(e);
+                if (eventConditionIndex == null) {
+                    kSession.insert(e);
+                } else {
+                    insertIndexed(e, evals);
+                }
 
             } else {
                 if ((e.getCtime() - previousEvent.getCtime()) < minReportingIntervalEvents) {
@@ -223,6 +301,10 @@ public class DroolsRulesEngineImpl implements RulesEngine {
             }
         }
 
+        if (evals != null) {
+            evals.forEach(kSession::insert);
+        }
+
         if (!pendingEvents.isEmpty()) {
             log.debugf("Deferring [%s] Event(s) to next firing !!", pendingEvents.size());
         }
@@ -235,9 +317,85 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         }
     }
 
+    /*
+        Evaluate the indexed EventConditions of the event. The Event itself is inserted only if a condition of the
+        working memory reads its dataId.
+     */
+    private void insertIndexed(Event e, List<ConditionEval> evals) {
+        evaluateIndexed(e, evals);
+        if (eventConditionIndex.isReadByWorkingMemory(e.getTenantId(), e.getDataId())) {
+            kSession.insert(e);
+        }
+    }
+
+    /*
+        Same joins as the Event and UpdateConditionEvalTimes rules: the Trigger is in the working memory, in the mode
+        of the condition, and its source is the source of the Event.
+     */
+    private void evaluateIndexed(Event e, List<ConditionEval> evals) {
+        List<Trigger> orphans = null;
+        for (IndexedCondition indexed : eventConditionIndex.getConditions(e.getTenantId(), e.getDataId())) {
+            Trigger t = indexed.getTrigger();
+            if (t == null || kSession.getFactHandle(t) == null) {
+                // Retracted by the rules or never loaded, as retractOrphanCondition would do
+                if (orphans == null) {
+                    orphans = new ArrayList<>();
+                }
+                orphans.add(t != null ? t : new Trigger(indexed.condition.getTenantId(),
+                        indexed.condition.getTriggerId(), "orphan"));
+                continue;
+            }
+            EventCondition c = indexed.condition;
+            if (t.getMode() != c.getTriggerMode() || !Objects.equals(t.getSource(), e.getDataSource())) {
+                continue;
+            }
+            EventConditionEval ce = new EventConditionEval(c, e);
+            if (log.isDebugEnabled()) {
+                log.debugf("Event Eval: %s %s", (ce.isMatch() ? "Match!" : "no match"), ce.getDisplayString());
+            }
+            evals.add(ce);
+            c.updateLastEvaluation();
+            if (evaluatedConditionsGlobal != null) {
+                evaluatedConditionsGlobal.add(c);
+            }
+        }
+        if (orphans != null) {
+            orphans.forEach(eventConditionIndex::removeTrigger);
+        }
+    }
+
+    /*
+        The rules insert the events they generate, with indexed events the chained EventConditions are evaluated here.
+        Each generated event is dispatched and fired on its own, in the order they were generated.
+     */
+    private void dispatchGeneratedEvents(int alertsMark, int eventsMark) {
+        if (eventConditionIndex == null) {
+            return;
+        }
+        List<ConditionEval> evals = new ArrayList<>();
+        while (eventsMark < size(eventsGlobal) || alertsMark < size(alertsGlobal)) {
+            Event generated = eventsMark < size(eventsGlobal)
+                    ? (Event) eventsGlobal.get(eventsMark++)
+                    : (Event) alertsGlobal.get(alertsMark++);
+            evaluateIndexed(generated, evals);
+            if (!evals.isEmpty()) {
+                evals.forEach(kSession::insert);
+                evals.clear();
+                kSession.fireAllRules();
+            }
+        }
+    }
+
+    private static int size(List<?> global) {
+        return global == null ? 0 : global.size();
+    }
+
     @Override
     public void fireNoData() {
+        int alertsMark = size(alertsGlobal);
+        int eventsMark = size(eventsGlobal);
         kSession.fireAllRules();
+        dispatchGeneratedEvents(alertsMark, eventsMark);
     }
 
     @Override
@@ -259,8 +417,25 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         return result;
     }
 
+    @Override
+    public Collection<Object> getFacts(Predicate<Object> factFilter) {
+        return new ArrayList<>(kSession.getObjects(new ObjectFilter() {
+            @Override
+            public boolean accept(Object object) {
+                return factFilter.test(object);
+            }
+        }));
+    }
+
     @Override
     public void removeFact(Object fact) {
+        if (eventConditionIndex != null) {
+            if (fact instanceof Trigger) {
+                eventConditionIndex.removeTrigger((Trigger) fact);
+            } else if (fact instanceof EventCondition) {
+                eventConditionIndex.removeIf(fact::equals);
+            }
+        }
         FactHandle factHandle = kSession.getFactHandle(fact);
         if (factHandle != null) {
             log.debugf("Delete %s", factHandle);
@@ -304,6 +479,9 @@ public class DroolsRulesEngineImpl implements RulesEngine {
 
     @Override
     public void removeFacts(Predicate<Object> factFilter) {
+        if (eventConditionIndex != null) {
+            eventConditionIndex.removeIf(factFilter);
+        }
         Collection<FactHandle> handles = kSession.getFactHandles(new ObjectFilter() {
             @Override
             public boolean accept(Object object) {
@@ -324,6 +502,7 @@ public class DroolsRulesEngineImpl implements RulesEngine {
     public void removeGlobal(String name) {
         log.debugf("Remove Global %s", name);
         kSession.setGlobal(name, null);
+        setIndexGlobal(name, null);
     }
 
     @Override
@@ -331,5 +510,8 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         log.debug("Reset session");
         kSession.dispose();
         kSession = kc.newKieSession(SESSION_NAME);
+        if (eventConditionIndex != null) {
+            eventConditionIndex.clear();
+        }
     }
 }
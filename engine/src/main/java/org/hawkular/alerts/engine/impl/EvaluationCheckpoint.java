@@ -0,0 +1,372 @@
+package org.hawkular.alerts.engine.impl;
+
+import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.NelsonCondition;
+import org.hawkular.alerts.api.model.condition.RateCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.hawkular.alerts.engine.util.MissingState;
+import org.hawkular.alerts.engine.util.NelsonData;
+import org.hawkular.alerts.engine.util.RateData;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+import org.infinispan.Cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Periodic checkpoint of the evaluation state held by the working memory: the dampening counters, the MissingState
+ * times, the previous Data of the rate conditions and the NelsonData baselines. None of them are part of the
+ * definitions, so without a checkpoint a restart loses them.
+ *
+ * The state is copied on the firing thread between two firing cycles, then a writer thread marshalls it and stores
+ * the entries that changed since the previous checkpoint, and removes the ones that are gone, in a single batch. A
+ * checkpoint is skipped while the previous one is still being written.
+ *
+ * After a full reload the stored state is put back on the facts that are still the same. A Dampening or a
+ * NelsonCondition that was updated in between starts from scratch, as it would without a checkpoint.
+ *
+ * Only used in single-node mode, in distributed mode the triggers move between the nodes.
+ */
+class EvaluationCheckpoint {
+    private final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, EvaluationCheckpoint.class);
+
+    private static final String DAMPENING = "Dampening-";
+    private static final String MISSING = "Missing-";
+    private static final String RATE = "Rate-";
+    private static final String NELSON = "Nelson-";
+
+    private final long period;
+    private Cache<String, byte[]> cache;
+
+    private ExecutorService writer;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private long lastCheckpoint;
+
+    // Hash of the stored entries, only used by the writer once restored
+    private final Map<String, Integer> stored = new HashMap<>();
+
+    private Timer snapshotTimer;
+    private Timer writeTimer;
+
+    /**
+     * Working copy of the transient state of a Dampening, with the definition it belongs to.
+     */
+    private static class DampeningState implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final Dampening dampening;
+        final int numTrueEvals;
+        final int numEvals;
+        final long trueEvalsStartTime;
+        final boolean satisfied;
+        final Map<Integer, ConditionEval> currentEvals;
+        final List<Set<ConditionEval>> satisfyingEvals;
+
+        DampeningState(Dampening d) {
+            dampening = new Dampening(d);
+            numTrueEvals = d.getNumTrueEvals();
+            numEvals = d.getNumEvals();
+            trueEvalsStartTime = d.getTrueEvalsStartTime();
+            satisfied = d.isSatisfied();
+            currentEvals = new HashMap<>(d.getCurrentEvals());
+            satisfyingEvals = d.getSatisfyingEvals();
+        }
+
+        void applyTo(Dampening d) {
+            d.setNumTrueEvals(numTrueEvals);
+            d.setNumEvals(numEvals);
+            d.setTrueEvalsStartTime(trueEvalsStartTime);
+            d.setSatisfied(satisfied);
+            d.getCurrentEvals().putAll(currentEvals);
+            d.setSatisfyingEvals(new ArrayList<>(satisfyingEvals));
+        }
+    }
+
+    /**
+     * @param period minimum time between two checkpoints, in milliseconds. 0 disables the checkpoint.
+     */
+    EvaluationCheckpoint(long period) {
+        this.period = period;
+    }
+
+    void setCache(Cache<String, byte[]> cache) {
+        this.cache = cache;
+    }
+
+    void setMeterRegistry(MeterRegistry meterRegistry) {
+        snapshotTimer = Timer.builder("engine.alerts.checkpoint.snapshot")
+                .description("Time the firing thread spent copying the evaluation state")
+                .register(meterRegistry);
+        writeTimer = Timer.builder("engine.alerts.checkpoint.write")
+                .description("Time spent storing the evaluation state that changed since the previous checkpoint")
+                .register(meterRegistry);
+    }
+
+    boolean isEnabled() {
+        return period > 0 && cache != null;
+    }
+
+    /**
+     * Start the writer. Until then {@link #checkpoint(List)} does nothing.
+     */
+    void start() {
+        if (isEnabled() && writer == null) {
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "AlertsEngineImpl-Checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            lastCheckpoint = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Stop the writer, a checkpoint being written is completed.
+     */
+    void shutdown() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Take a checkpoint if the period has elapsed. Called by the firing thread once all the shards have fired.
+     */
+    void checkpoint(List<RulesShard> shards) {
+        if (writer == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastCheckpoint < period || !writing.compareAndSet(false, true)) {
+            return;
+        }
+        lastCheckpoint = now;
+        long start = System.nanoTime();
+        Map<String, Object> snapshot = new HashMap<>();
+        try {
+            for (RulesShard shard : shards) {
+                snapshot(shard.getRules(), snapshot);
+            }
+        } catch (Exception e) {
+            writing.set(false);
+            log.debugf(e, "Error copying the evaluation state");
+            log.errorProcessingRules(e.getMessage());
+            return;
+        } finally {
+            if (snapshotTimer != null) {
+                snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        try {
+            writer.submit(() -> write(snapshot));
+        } catch (Exception e) {
+            // The writer is stopped
+            writing.set(false);
+        }
+    }
+
+    private void snapshot(RulesEngine rules, Map<String, Object> snapshot) {
+        for (Object fact : rules.getFacts(EvaluationCheckpoint::isEvaluationState)) {
+            if (fact instanceof Dampening) {
+                Dampening d = (Dampening) fact;
+                if (d.getNumEvals() > 0 || d.isSatisfied() || !d.getCurrentEvals().isEmpty()) {
+                    snapshot.put(DAMPENING + d.getDampeningId(), new DampeningState(d));
+                }
+            } else if (fact instanceof MissingState) {
+                MissingState ms = (MissingState) fact;
+                snapshot.put(MISSING + ms.getCondition().getConditionId(),
+                        new long[] { ms.getPreviousTime(), ms.getTime() });
+            } else if (fact instanceof RateData) {
+                Data data = ((RateData) fact).getData();
+                snapshot.put(RATE + data.getTenantId() + "-" + data.getSource() + "-" + data.getId(), data);
+            } else {
+                NelsonData nd = (NelsonData) fact;
+                snapshot.put(NELSON + nd.getCondition().getConditionId(), new NelsonData(nd, nd.getCondition()));
+            }
+        }
+    }
+
+    private static boolean isEvaluationState(Object fact) {
+        return fact instanceof Dampening || fact instanceof MissingState || fact instanceof RateData
+                || fact instanceof NelsonData;
+    }
+
+    private void write(Map<String, Object> snapshot) {
+        long start = System.nanoTime();
+        Map<String, byte[]> puts = new HashMap<>();
+        Map<String, Integer> hashes = new HashMap<>(snapshot.size());
+        try {
+            for (Map.Entry<String, Object> entry : snapshot.entrySet()) {
+                byte[] value = marshall(entry.getValue());
+                int hash = Arrays.hashCode(value);
+                hashes.put(entry.getKey(), hash);
+                Integer previous = stored.get(entry.getKey());
+                if (previous == null || previous != hash) {
+                    puts.put(entry.getKey(), value);
+                }
+            }
+            Set<String> removes = new HashSet<>(stored.keySet());
+            removes.removeAll(hashes.keySet());
+            if (puts.isEmpty() && removes.isEmpty()) {
+                return;
+            }
+            try {
+                cache.startBatch();
+                puts.forEach((key, value) -> cache.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).put(key, value));
+                removes.forEach(key -> cache.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).remove(key));
+                cache.endBatch(true);
+            } catch (Exception e) {
+                cache.endBatch(false);
+                throw e;
+            }
+            stored.clear();
+            stored.putAll(hashes);
+            log.debugf("Checkpoint stored [%s] and removed [%s] of [%s] states", puts.size(), removes.size(),
+                    hashes.size());
+        } catch (Exception e) {
+            log.debugf(e, "Error storing the evaluation state");
+            log.errorDatabaseException(e.getMessage());
+        } finally {
+            writing.set(false);
+            if (writeTimer != null) {
+                writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Put the stored state back on the facts of a full reload. Must be called before the rules are fired.
+     *
+     * @param shards the shards just reloaded
+     * @param shardOf the shard of a tenant
+     * @return the number of states restored
+     */
+    int restore(List<RulesShard> shards, Function<String, RulesShard> shardOf) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        Map<String, Object> states = new HashMap<>();
+        stored.clear();
+        try {
+            for (Map.Entry<String, byte[]> entry : cache.entrySet()) {
+                // Everything found is replaced or removed by the next checkpoint
+                stored.put(entry.getKey(), Arrays.hashCode(entry.getValue()));
+                try {
+                    states.put(entry.getKey(), unmarshall(entry.getValue()));
+                } catch (IOException | ClassNotFoundException e) {
+                    log.debugf("Skipping checkpoint of [%s]: %s", entry.getKey(), e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.debugf(e, "Error reading the evaluation state");
+            log.errorDatabaseException(e.getMessage());
+            return 0;
+        }
+        if (states.isEmpty()) {
+            return 0;
+        }
+
+        int restored = 0;
+        for (RulesShard shard : shards) {
+            restored += restore(shard, states);
+        }
+        for (Map.Entry<String, Object> entry : states.entrySet()) {
+            if (entry.getKey().startsWith(RATE)) {
+                Data data = (Data) entry.getValue();
+                RulesShard shard = shardOf.apply(data.getTenantId());
+                if (shard.getRules().getFacts(fact -> fact instanceof RateCondition
+                        && ((RateCondition) fact).getTenantId().equals(data.getTenantId())
+                        && ((RateCondition) fact).getDataId().equals(data.getId())).isEmpty()) {
+                    continue;
+                }
+                shard.getRules().addFact(new RateData(data));
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private int restore(RulesShard shard, Map<String, Object> states) {
+        RulesEngine rules = shard.getRules();
+        int restored = 0;
+        for (Object fact : rules.getFacts(fact -> fact instanceof Dampening || fact instanceof MissingState
+                || fact instanceof NelsonCondition)) {
+            if (fact instanceof Dampening) {
+                Dampening d = (Dampening) fact;
+                Object state = states.get(DAMPENING + d.getDampeningId());
+                if (state instanceof DampeningState && ((DampeningState) state).dampening.isSame(d)) {
+                    ((DampeningState) state).applyTo(d);
+                    rules.updateFact(d);
+                    // The rules only schedule a timeout on the first true evaluation
+                    if (d.getType() == Dampening.Type.STRICT_TIMEOUT && d.getNumTrueEvals() > 0 && !d.isSatisfied()) {
+                        shard.pendingTimeouts.add(d);
+                    }
+                    restored++;
+                }
+            } else if (fact instanceof MissingState) {
+                MissingState ms = (MissingState) fact;
+                Object state = states.get(MISSING + ms.getCondition().getConditionId());
+                if (state instanceof long[]) {
+                    ms.setPreviousTime(((long[]) state)[0]);
+                    ms.setTime(((long[]) state)[1]);
+                    rules.updateFact(ms);
+                    synchronized (shard.missingStates) {
+                        shard.missingStates.check(Collections.singleton(ms));
+                    }
+                    restored++;
+                }
+            } else {
+                NelsonCondition nc = (NelsonCondition) fact;
+                Object state = states.get(NELSON + nc.getConditionId());
+                if (state instanceof NelsonData && ((NelsonData) state).getCondition().isSame(nc)) {
+                    rules.addFact(new NelsonData((NelsonData) state, nc));
+                    restored++;
+                }
+            }
+        }
+        return restored;
+    }
+
+    private static byte[] marshall(Object state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object unmarshall(byte[] value) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(value))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.hawkular.alerts.engine.impl;
+
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.model.trigger.TriggerKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Index of the EventConditions kept outside of the working memory, by tenantId and dataId.
+ *
+ * An incoming Event only meets the conditions of its own dataId instead of being joined by the rules against every
+ * Trigger and Condition of the session. The other conditions still live in the working memory, the index keeps count
+ * of the dataIds they refer to so the Events they need can still be inserted.
+ *
+ * A removed Trigger takes its conditions out of the index, as retractOrphanCondition does in the working memory.
+ *
+ * It is used by a single rules engine session and is not thread safe.
+ */
+class EventConditionIndex {
+
+    /**
+     * An EventCondition with the Trigger entry it belongs to.
+     */
+    static class IndexedCondition {
+        final EventCondition condition;
+        final TriggerEntry entry;
+
+        IndexedCondition(EventCondition condition, TriggerEntry entry) {
+            this.condition = condition;
+            this.entry = entry;
+        }
+
+        /**
+         * @return the Trigger added for this condition, null if it is not loaded
+         */
+        Trigger getTrigger() {
+            return entry.trigger;
+        }
+    }
+
+    private static class TriggerEntry {
+        Trigger trigger;
+        final List<IndexedCondition> eventConditions = new ArrayList<>();
+        final List<Condition> otherConditions = new ArrayList<>();
+    }
+
+    private final Map<TriggerKey, TriggerEntry> entries = new HashMap<>();
+
+    // tenantId -> dataId -> EventConditions
+    private final Map<String, Map<String, List<IndexedCondition>>> eventConditions = new HashMap<>();
+
+    // tenantId -> dataId -> number of working memory conditions reading it
+    private final Map<String, Map<String, Integer>> workingMemoryDataIds = new HashMap<>();
+
+    void addTrigger(Trigger trigger) {
+        entry(trigger.getTenantId(), trigger.getId()).trigger = trigger;
+    }
+
+    /**
+     * Remove the Trigger and all its conditions.
+     */
+    void removeTrigger(Trigger trigger) {
+        TriggerEntry entry = entries.remove(new TriggerKey(trigger.getTenantId(), trigger.getId()));
+        if (entry == null) {
+            return;
+        }
+        entry.eventConditions.forEach(this::unindex);
+        entry.otherConditions.forEach(this::unreference);
+    }
+
+    /**
+     * @param condition a condition to be loaded
+     * @return true if the condition is an EventCondition held by the index, false if it must be inserted in the
+     * working memory
+     */
+    boolean addCondition(Condition condition) {
+        TriggerEntry entry = entry(condition.getTenantId(), condition.getTriggerId());
+        // An equal fact is inserted only once in the working memory, the same goes for the index
+        entry.eventConditions.removeIf(indexed -> {
+            if (indexed.condition.equals(condition)) {
+                unindex(indexed);
+                return true;
+            }
+            return false;
+        });
+        entry.otherConditions.removeIf(other -> {
+            if (other.equals(condition)) {
+                unreference(other);
+                return true;
+            }
+            return false;
+        });
+        if (condition instanceof EventCondition) {
+            IndexedCondition indexed = new IndexedCondition((EventCondition) condition, entry);
+            entry.eventConditions.add(indexed);
+            eventConditions.computeIfAbsent(condition.getTenantId(), t -> new HashMap<>())
+                    .computeIfAbsent(condition.getDataId(), d -> new ArrayList<>())
+                    .add(indexed);
+            return true;
+        }
+        entry.otherConditions.add(condition);
+        workingMemoryDataIds.computeIfAbsent(condition.getTenantId(), t -> new HashMap<>())
+                .merge(condition.getDataId(), 1, Integer::sum);
+        return false;
+    }
+
+    /**
+     * Remove the Triggers and conditions accepted by the filter.
+     */
+    void removeIf(Predicate<Object> filter) {
+        for (Iterator<TriggerEntry> it = entries.values().iterator(); it.hasNext();) {
+            TriggerEntry entry = it.next();
+            if (entry.trigger != null && filter.test(entry.trigger)) {
+                entry.trigger = null;
+            }
+            entry.eventConditions.removeIf(indexed -> {
+                if (filter.test(indexed.condition)) {
+                    unindex(indexed);
+                    return true;
+                }
+                return false;
+            });
+            entry.otherConditions.removeIf(condition -> {
+                if (filter.test(condition)) {
+                    unreference(condition);
+                    return true;
+                }
+                return false;
+            });
+            if (entry.trigger == null && entry.eventConditions.isEmpty() && entry.otherConditions.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    void clear() {
+        entries.clear();
+        eventConditions.clear();
+        workingMemoryDataIds.clear();
+    }
+
+    /**
+     * @return the EventConditions on the dataId of the tenant
+     */
+    List<IndexedCondition> getConditions(String tenantId, String dataId) {
+        Map<String, List<IndexedCondition>> byDataId = eventConditions.get(tenantId);
+        if (byDataId == null) {
+            return Collections.emptyList();
+        }
+        return byDataId.getOrDefault(dataId, Collections.emptyList());
+    }
+
+    /**
+     * @return true if a condition in the working memory reads the dataId of the tenant
+     */
+    boolean isReadByWorkingMemory(String tenantId, String dataId) {
+        Map<String, Integer> byDataId = workingMemoryDataIds.get(tenantId);
+        return byDataId != null && byDataId.containsKey(dataId);
+    }
+
+    private TriggerEntry entry(String tenantId, String triggerId) {
+        return entries.computeIfAbsent(new TriggerKey(tenantId, triggerId), k -> new TriggerEntry());
+    }
+
+    private void unindex(IndexedCondition indexed) {
+        String tenantId = indexed.condition.getTenantId();
+        Map<String, List<IndexedCondition>> byDataId = eventConditions.get(tenantId);
+        if (byDataId == null) {
+            return;
+        }
+        List<IndexedCondition> conditions = byDataId.get(indexed.condition.getDataId());
+        if (conditions == null) {
+            return;
+        }
+        conditions.remove(indexed);
+        if (conditions.isEmpty()) {
+            byDataId.remove(indexed.condition.getDataId());
+            if (byDataId.isEmpty()) {
+                eventConditions.remove(tenantId);
+            }
+        }
+    }
+
+    private void unreference(Condition condition) {
+        Map<String, Integer> byDataId = workingMemoryDataIds.get(condition.getTenantId());
+        if (byDataId == null) {
+            return;
+        }
+        byDataId.computeIfPresent(condition.getDataId(), (d, count) -> count == 1 ? null : count - 1);
+        if (byDataId.isEmpty()) {
+            workingMemoryDataIds.remove(condition.getTenantId());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.hawkular.alerts.engine.impl;
+
+import org.hawkular.alerts.api.model.trigger.TriggerKey;
+import org.hawkular.alerts.engine.util.MissingState;
+import org.hawkular.alerts.engine.util.TimerWheel;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The MissingStates of a {@link RulesShard}, each one scheduled on a {@link TimerWheel} for the next time it has to
+ * be checked, so a firing only checks the states that are due:
+ * <ul>
+ *     <li>a new state, or a state updated by the rules from incoming Data or Events, right away, as it has to be
+ *     re-armed for the next Data or Events,</li>
+ *     <li>an armed state when its MissingCondition would match,</li>
+ *     <li>a state of an inactive trigger mode once the trigger changes mode, with {@link #checkTrigger}.</li>
+ * </ul>
+ *
+ * It is not thread safe, callers synchronize on the instance.
+ */
+class MissingStates extends AbstractSet<MissingState> {
+
+    // Deadline of the states to check on the next firing
+    static final long NOW = Long.MIN_VALUE;
+
+    // Deadline of the states waiting for their trigger to change mode
+    static final long NEVER = Long.MAX_VALUE;
+
+    private final TimerWheel<MissingState> timers;
+    private final Map<TriggerKey, Set<MissingState>> byTrigger = new HashMap<>();
+
+    MissingStates(long tickMs, int ticksPerWheel) {
+        timers = new TimerWheel<>(tickMs, ticksPerWheel, missingState -> NOW);
+    }
+
+    /**
+     * Next time a checked state has to be checked again. An armed state (previousTime before time) is checked when its
+     * MissingCondition would match. A state just updated or matched is armed as soon as time moves past previousTime.
+     */
+    static long nextCheck(MissingState missingState) {
+        if (missingState.getPreviousTime() < missingState.getTime()) {
+            return missingState.getPreviousTime() + missingState.getCondition().getInterval() + 1;
+        }
+        return missingState.getPreviousTime() + 1;
+    }
+
+    @Override
+    public boolean add(MissingState missingState) {
+        if (!timers.add(missingState)) {
+            return false;
+        }
+        byTrigger.computeIfAbsent(key(missingState), k -> new HashSet<>()).add(missingState);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!timers.remove(o)) {
+            return false;
+        }
+        unindex((MissingState) o);
+        return true;
+    }
+
+    /**
+     * Remove the states of a trigger.
+     */
+    void removeTrigger(String tenantId, String triggerId) {
+        Set<MissingState> states = byTrigger.remove(new TriggerKey(tenantId, triggerId));
+        if (states != null) {
+            timers.removeAll(states);
+        }
+    }
+
+    /**
+     * Check the states of a trigger on the next firing, after the trigger changed mode.
+     */
+    void checkTrigger(String tenantId, String triggerId) {
+        check(byTrigger.getOrDefault(new TriggerKey(tenantId, triggerId), Collections.emptySet()));
+    }
+
+    /**
+     * Check the given states on the next firing, the ones no longer held are ignored.
+     */
+    void check(Collection<MissingState> missingStates) {
+        for (MissingState missingState : missingStates) {
+            if (timers.contains(missingState)) {
+                timers.schedule(missingState, NOW);
+            }
+        }
+    }
+
+    /**
+     * Take the states due at now. They are still held but must be scheduled again with {@link #schedule}.
+     */
+    List<MissingState> expire(long now) {
+        return timers.expire(now);
+    }
+
+    void schedule(MissingState missingState, long deadline) {
+        timers.schedule(missingState, deadline);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return timers.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return timers.size();
+    }
+
+    @Override
+    public void clear() {
+        timers.clear();
+        byTrigger.clear();
+    }
+
+    @Override
+    public Iterator<MissingState> iterator() {
+        Iterator<MissingState> states = timers.iterator();
+        return new Iterator<MissingState>() {
+            private MissingState last;
+
+            @Override
+            public boolean hasNext() {
+                return states.hasNext();
+            }
+
+            @Override
+            public MissingState next() {
+                last = states.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                states.remove();
+                unindex(last);
+            }
+        };
+    }
+
+    private void unindex(MissingState missingState) {
+        TriggerKey key = key(missingState);
+        Set<MissingState> states = byTrigger.get(key);
+        if (states != null) {
+            states.remove(missingState);
+            if (states.isEmpty()) {
+                byTrigger.remove(key);
+            }
+        }
+    }
+
+    private static TriggerKey key(MissingState missingState) {
+        return new TriggerKey(missingState.getTenantId(), missingState.getTriggerId());
+    }
+}
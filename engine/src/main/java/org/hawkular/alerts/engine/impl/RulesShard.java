@@ -0,0 +1,302 @@
+package org.hawkular.alerts.engine.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.MissingConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.hawkular.alerts.engine.util.MissingState;
+import org.hawkular.alerts.engine.util.StripedBuffer;
+import org.hawkular.alerts.engine.util.TimerWheel;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One partition of the AlertsEngine working memory.
+ *
+ * Triggers are assigned to a shard by tenantId, so every fact, Data and Event of a tenant lives in the same
+ * {@link RulesEngine} session. Each shard owns its pending queues and the globals the rules write into, which
+ * allows the shards to be fired in parallel. The results are collected by the {@link AlertsEngineImpl} once all
+ * shards have fired.
+ *
+ * The dampening timeouts and the missing states are kept on timer wheels, so a firing only checks the ones that
+ * are due instead of all of them.
+ *
+ * A shard is fired by a single thread at a time.
+ */
+class RulesShard {
+    private final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, RulesShard.class);
+
+    // Resolution of the dampening timeouts and missing states, below the engine period
+    private static final long TICK_MS = 1000;
+    private static final int TICKS_PER_WHEEL = 4096;
+
+    private final int index;
+    private final RulesEngine rules;
+
+    /*
+        Producers only append, ordering and deduplication are done once when the shard is fired.
+     */
+    private final StripedBuffer<Data> pendingData;
+    private final StripedBuffer<Event> pendingEvents;
+
+    final List<Alert> alerts;
+    final List<Event> events;
+    final TimerWheel<Dampening> pendingTimeouts;
+    final Map<Trigger, List<Set<ConditionEval>>> autoResolvedTriggers;
+    final Set<Condition> evaluatedConditions;
+    final Set<Trigger> disabledTriggers;
+    final MissingStates missingStates;
+    final Set<MissingState> updatedMissingStates;
+
+    private Timer firingTimer;
+
+    // Number of Data and Events taken by the last firing
+    private int lastBatchSize;
+
+    RulesShard(int index, RulesEngine rules) {
+        this.index = index;
+        this.rules = rules;
+        pendingData = new StripedBuffer<>();
+        pendingEvents = new StripedBuffer<>();
+        alerts = new ArrayList<>();
+        events = new ArrayList<>();
+        pendingTimeouts = new TimerWheel<>(TICK_MS, TICKS_PER_WHEEL,
+                d -> d.getTrueEvalsStartTime() + d.getEvalTimeSetting());
+        autoResolvedTriggers = new HashMap<>();
+        evaluatedConditions = new HashSet<>();
+        disabledTriggers = new HashSet<>();
+        missingStates = new MissingStates(TICK_MS, TICKS_PER_WHEEL);
+        updatedMissingStates = new HashSet<>();
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    RulesEngine getRules() {
+        return rules;
+    }
+
+    void setMeterRegistry(MeterRegistry meterRegistry) {
+        firingTimer = Timer.builder("engine.rules.firing")
+                .description("Time spent firing the rules of one engine shard")
+                .tag("shard", String.valueOf(index))
+                .register(meterRegistry);
+    }
+
+    void addGlobals(AlertingLogger engineLog, ActionsService actions) {
+        rules.addGlobal("log", engineLog);
+        rules.addGlobal("actions", actions);
+        rules.addGlobal("alerts", alerts);
+        rules.addGlobal("events", events);
+        rules.addGlobal("pendingTimeouts", pendingTimeouts);
+        rules.addGlobal("autoResolvedTriggers", autoResolvedTriggers);
+        rules.addGlobal("evaluatedConditions", evaluatedConditions);
+        rules.addGlobal("disabledTriggers", disabledTriggers);
+        rules.addGlobal("updatedMissingStates", updatedMissingStates);
+    }
+
+    void addData(Collection<Data> data) {
+        log.debugf("Adding [%s] to pendingData of shard [%s]", data, index);
+        pendingData.addAll(data);
+    }
+
+    void addEvents(Collection<Event> events) {
+        log.debugf("Adding [%s] to pendingEvents of shard [%s]", events, index);
+        pendingEvents.addAll(events);
+    }
+
+    boolean hasPendingData() {
+        return !pendingData.isEmpty();
+    }
+
+    boolean hasPendingEvents() {
+        return !pendingEvents.isEmpty();
+    }
+
+    int getPendingSize() {
+        return pendingData.size() + pendingEvents.size();
+    }
+
+    int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    /**
+     * Run the rules over the pending Data and Events, the dampening timeouts and the missing states of this shard.
+     * The generated alerts, events and trigger changes are left in the shard globals for the caller to handle.
+     *
+     * @return true if the rules were fired
+     */
+    boolean fire() {
+        return fire(System.currentTimeMillis());
+    }
+
+    // The dampening timeouts and missing states are checked at now
+    boolean fire(long now) {
+        int numTimeouts = checkPendingTimeouts(now);
+
+        int numMissingEvals = checkMissingStates(now);
+
+        lastBatchSize = 0;
+        if (pendingData.isEmpty() && pendingEvents.isEmpty() && numTimeouts == 0 && numMissingEvals == 0) {
+            return false;
+        }
+
+        TreeSet<Data> newData = pendingData.drain();
+        TreeSet<Event> newEvents = pendingEvents.drain();
+        lastBatchSize = newData.size() + newEvents.size();
+
+        log.debugf("Executing rules engine shard [%s] on %s datums, %s events, %s dampening timeouts.", index,
+                newData.size(), newEvents.size(), numTimeouts);
+
+        long start = System.nanoTime();
+        try {
+            if (newData.isEmpty() && newEvents.isEmpty()) {
+                rules.fireNoData();
+            } else {
+                if (!newData.isEmpty()) {
+                    rules.addData(newData);
+                }
+                if (!newEvents.isEmpty()) {
+                    rules.addEvents(newEvents);
+                }
+
+                // release to GC
+                newData = null;
+                newEvents = null;
+
+                rules.fire();
+            }
+        } finally {
+            if (firingTimer != null) {
+                firingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            scheduleUpdatedMissingStates();
+        }
+        return true;
+    }
+
+    /*
+        The MissingStates updated by the rules from Data or Events have to be re-armed, and the ones of a trigger that
+        generated an Alert or Event or was autoresolved may have become active with the trigger mode, so all are
+        checked on next firing.
+     */
+    private void scheduleUpdatedMissingStates() {
+        synchronized (missingStates) {
+            missingStates.check(updatedMissingStates);
+            updatedMissingStates.clear();
+            for (Alert alert : alerts) {
+                checkTrigger(alert);
+            }
+            for (Event event : events) {
+                checkTrigger(event);
+            }
+            for (Trigger trigger : autoResolvedTriggers.keySet()) {
+                missingStates.checkTrigger(trigger.getTenantId(), trigger.getId());
+            }
+        }
+    }
+
+    private void checkTrigger(Event event) {
+        if (event.getTrigger() != null) {
+            missingStates.checkTrigger(event.getTenantId(), event.getTrigger().getId());
+        }
+    }
+
+    private int checkPendingTimeouts(long now) {
+        if (pendingTimeouts.isEmpty()) {
+            return 0;
+        }
+
+        int numTimeouts = 0;
+        for (Dampening d : pendingTimeouts.expire(now)) {
+            long timeout = d.getTrueEvalsStartTime() + d.getEvalTimeSetting();
+            if (now < timeout) {
+                pendingTimeouts.schedule(d, timeout);
+                continue;
+            }
+
+            d.setSatisfied(true);
+            try {
+                log.debugf("Dampening Timeout Hit! %s", d.toString());
+                rules.updateFact(d);
+                numTimeouts++;
+            } catch (Exception e) {
+                log.errorf(e, "Unable to update Dampening Fact on Timeout! %s", d.toString());
+                // Retried on next firing
+                pendingTimeouts.schedule(d, timeout);
+            }
+        }
+
+        return numTimeouts;
+    }
+
+    private int checkMissingStates(long now) {
+        synchronized (missingStates) {
+            if (missingStates.isEmpty()) {
+                return 0;
+            }
+
+            int numMatchingEvals = 0;
+            for (MissingState missingState : missingStates.expire(now)) {
+                // A MissingState of the inactive trigger mode waits for the trigger to change mode
+                if (missingState.getTriggerMode() != missingState.getTrigger().getMode()) {
+                    missingStates.schedule(missingState, MissingStates.NEVER);
+                    continue;
+                }
+
+                try {
+                    rules.removeFact(missingState);
+                    missingState.setTime(now);
+                    if (missingState.getCondition().match(missingState.getPreviousTime(), now)) {
+                        MissingConditionEval eval = new MissingConditionEval(missingState.getCondition(),
+                                missingState.getPreviousTime(),
+                                now);
+                        missingState.setPreviousTime(now);
+                        rules.addFact(eval);
+                        numMatchingEvals++;
+                    }
+                    rules.addFact(missingState);
+                } finally {
+                    missingStates.schedule(missingState, MissingStates.nextCheck(missingState));
+                }
+            }
+
+            return numMatchingEvals;
+        }
+    }
+
+    void clear() {
+        rules.clear();
+
+        pendingData.clear();
+        pendingEvents.clear();
+        alerts.clear();
+        events.clear();
+        pendingTimeouts.clear();
+        autoResolvedTriggers.clear();
+        disabledTriggers.clear();
+        missingStates.clear();
+        updatedMissingStates.clear();
+        evaluatedConditions.clear();
+    }
+}
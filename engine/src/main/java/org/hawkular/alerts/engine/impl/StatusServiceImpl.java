@@ -6,8 +6,8 @@ import org.hawkular.alerts.engine.service.PartitionManager;
 import org.infinispan.health.CacheHealth;
 import org.infinispan.health.Health;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.infinispan.health.HealthStatus.HEALTHY;
 
@@ -26,7 +26,8 @@ public class StatusServiceImpl implements StatusService {
     PartitionManager partitionManager;
 
     public StatusServiceImpl() {
-        this.statusNotes = new HashMap<>();
+        // Updated by the engine while it reloads, read by the readiness checks
+        this.statusNotes = new ConcurrentHashMap<>();
     }
 
     public void setPartitionManager(PartitionManager partitionManager) {
@@ -41,7 +42,7 @@ public class StatusServiceImpl implements StatusService {
     @Override
     public boolean isHealthy() {
         // TODO Add status of Kafka connections (once Smallrye Reactive Messaging exposes them)
-        return isStarted() && isInfinispanHealthy();
+        return isStarted() && !isReloading() && isInfinispanHealthy();
     }
 
     @Override
@@ -70,6 +71,21 @@ public class StatusServiceImpl implements StatusService {
         }
     }
 
+    /**
+     * @param progress triggers loaded over the total while the engine reloads its triggers, null once it is done
+     */
+    public void setReloading(String progress) {
+        if(progress != null) {
+            statusNotes.put("reload", progress);
+        } else {
+            statusNotes.remove("reload");
+        }
+    }
+
+    public boolean isReloading() {
+        return statusNotes.containsKey("reload");
+    }
+
     public boolean isInfinispanHealthy() {
         boolean healthy = true;
         // Infinispan health
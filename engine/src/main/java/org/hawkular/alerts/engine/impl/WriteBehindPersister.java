@@ -0,0 +1,295 @@
+package org.hawkular.alerts.engine.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.model.trigger.TriggerKey;
+import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage storing the alerts and events generated by the rules.
+ *
+ * The engine hands the results of a firing cycle over and starts the next cycle while a writer thread stores them.
+ * The writer merges the cycles waiting in the queue: their alerts and events are stored in one batch each and the
+ * ALERT_GENERATE lifecycles are added with a single read and write per trigger.
+ *
+ * The queue is bounded. When it is full the engine blocks on {@link #submit(List, List)} and the ingestion blocks on
+ * {@link #awaitCapacity()}, so the back-pressure reaches the producers instead of growing the memory.
+ *
+ * A write failing {@link #MAX_ATTEMPTS} times is given up: its alerts and events are lost, it is counted in the
+ * engine.persistence.failures metric and reported by the next {@link #awaitWritten()}.
+ *
+ * With a queue size of 0, or once stopped, the results are stored by the caller of {@link #submit(List, List)}, as a
+ * synchronous engine did.
+ */
+class WriteBehindPersister {
+    private final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, WriteBehindPersister.class);
+
+    // Wait slice of the blocking calls, they also return when the persister is stopped
+    private static final long WAIT_MS = 100;
+
+    // Attempts of a write before its batches are given up
+    static final int MAX_ATTEMPTS = 3;
+
+    private final BlockingQueue<Batch> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Set by the writer once it has left its loop, before it drains the queue a last time
+    private volatile boolean stopped;
+
+    // Number of batches submitted, written and given up, guarded by this
+    private long submitted;
+    private long written;
+    private long failed;
+    // Failed batches already reported by awaitWritten, guarded by this
+    private long reportedFailed;
+
+    private AlertsService alertsService;
+    private DefinitionsService definitions;
+
+    private Timer writeTimer;
+    private Counter writeFailures;
+
+    private static class Batch {
+        final List<Alert> alerts;
+        final List<Event> events;
+
+        Batch(List<Alert> alerts, List<Event> events) {
+            this.alerts = alerts;
+            this.events = events;
+        }
+    }
+
+    WriteBehindPersister(int queueSize) {
+        if (queueSize > 0) {
+            queue = new ArrayBlockingQueue<>(queueSize);
+            writer = new Thread(this::writeLoop, "AlertsEngineImpl-Writer");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            queue = null;
+            writer = null;
+        }
+    }
+
+    void setAlertsService(AlertsService alertsService) {
+        this.alertsService = alertsService;
+    }
+
+    void setDefinitions(DefinitionsService definitions) {
+        this.definitions = definitions;
+    }
+
+    void setMeterRegistry(MeterRegistry meterRegistry) {
+        Gauge.builder("engine.persistence.queue", this, WriteBehindPersister::getQueueSize)
+                .description("Firing cycles waiting to be stored")
+                .register(meterRegistry);
+        writeTimer = Timer.builder("engine.persistence.write")
+                .description("Time spent storing the alerts and events of one or more firing cycles")
+                .register(meterRegistry);
+        writeFailures = Counter.builder("engine.persistence.failures")
+                .description("Firing cycles whose alerts and events could not be stored")
+                .register(meterRegistry);
+    }
+
+    int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Hand over the alerts and events of a firing cycle. Blocks while the queue is full.
+     */
+    void submit(List<Alert> alerts, List<Event> events) throws InterruptedException {
+        if (alerts.isEmpty() && events.isEmpty()) {
+            return;
+        }
+        Batch batch = new Batch(new ArrayList<>(alerts), new ArrayList<>(events));
+        if (queue == null || !running) {
+            storeNow(batch);
+            return;
+        }
+        while (!queue.offer(batch, WAIT_MS, TimeUnit.MILLISECONDS)) {
+            if (!running) {
+                storeNow(batch);
+                return;
+            }
+        }
+        synchronized (this) {
+            submitted++;
+        }
+        // The writer may have left before the offer, then the batch is stored here unless it was drained
+        if (stopped && queue.remove(batch)) {
+            store(List.of(batch));
+        }
+    }
+
+    /**
+     * Wait while the queue is full. Ingestion calls it so it is slowed down to the storage pace.
+     */
+    void awaitCapacity() throws InterruptedException {
+        if (queue == null || queue.remainingCapacity() > 0) {
+            return;
+        }
+        synchronized (this) {
+            while (running && queue.remainingCapacity() == 0) {
+                wait(WAIT_MS);
+            }
+        }
+    }
+
+    /**
+     * Wait until everything submitted so far is stored or given up.
+     *
+     * @return false if some batches were given up since the previous call
+     */
+    boolean awaitWritten() throws InterruptedException {
+        synchronized (this) {
+            long target = submitted;
+            while (written + failed < target && writer != null && writer.isAlive()) {
+                wait(WAIT_MS);
+            }
+            boolean stored = failed == reportedFailed;
+            reportedFailed = failed;
+            return stored;
+        }
+    }
+
+    /**
+     * Stop accepting batches and store the ones already queued.
+     */
+    void shutdown() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Batch> batches = new ArrayList<>();
+        try {
+            while (running || !queue.isEmpty()) {
+                Batch first = queue.poll(WAIT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batches.add(first);
+                queue.drainTo(batches);
+                synchronized (this) {
+                    // The queue has room again
+                    notifyAll();
+                }
+                store(batches);
+                batches.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped = true;
+            queue.drainTo(batches);
+            if (!batches.isEmpty()) {
+                store(batches);
+            }
+        }
+    }
+
+    private void storeNow(Batch batch) {
+        synchronized (this) {
+            submitted++;
+        }
+        store(List.of(batch));
+    }
+
+    /*
+        Write the batches, retried up to MAX_ATTEMPTS times, and count them as written or failed. The writes are
+        keyed by the ids of the alerts and events, so a retry overwrites what a failed attempt may have stored.
+     */
+    private void store(List<Batch> batches) {
+        boolean stored = write(batches, 1);
+        for (int attempt = 2; !stored && attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                Thread.sleep(WAIT_MS * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            stored = write(batches, attempt);
+        }
+        if (!stored) {
+            int numAlerts = 0;
+            int numEvents = 0;
+            for (Batch batch : batches) {
+                numAlerts += batch.alerts.size();
+                numEvents += batch.events.size();
+            }
+            log.errorf("Giving up storing %s alerts and %s events", numAlerts, numEvents);
+            if (writeFailures != null) {
+                writeFailures.increment(batches.size());
+            }
+        }
+        synchronized (this) {
+            if (stored) {
+                written += batches.size();
+            } else {
+                failed += batches.size();
+            }
+            notifyAll();
+        }
+    }
+
+    private boolean write(List<Batch> batches, int attempt) {
+        long start = System.nanoTime();
+        List<Alert> alerts = new ArrayList<>();
+        List<Event> events = new ArrayList<>();
+        for (Batch batch : batches) {
+            alerts.addAll(batch.alerts);
+            events.addAll(batch.events);
+        }
+        try {
+            alertsService.addAlerts(alerts);
+            addLifecycles(alerts);
+            alertsService.persistEvents(events).await().indefinitely();
+            return true;
+        } catch (Exception e) {
+            log.debugf(e, "Error storing %s alerts and %s events, attempt %s", alerts.size(), events.size(),
+                    attempt);
+            log.errorProcessingRules(e.getMessage());
+            return false;
+        } finally {
+            if (writeTimer != null) {
+                writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // One lifecycle per alert, coalesced per trigger
+    private void addLifecycles(List<Alert> alerts) throws Exception {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        Map<TriggerKey, List<Long>> lifecycleTimes = new HashMap<>();
+        for (Alert alert : alerts) {
+            lifecycleTimes.computeIfAbsent(new TriggerKey(alert.getTenantId(), alert.getTriggerId()),
+                    k -> new ArrayList<>()).add(alert.getCtime());
+        }
+        definitions.addLifecycleToTriggers(lifecycleTimes, Trigger.TriggerLifecycle.ALERT_GENERATE);
+    }
+}
@@ -10,6 +10,7 @@ import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.Parser;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
 import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -20,6 +21,7 @@ import org.hibernate.search.query.dsl.QueryBuilder;
 import org.hibernate.search.query.dsl.RangeMatchingContext;
 
 import java.util.BitSet;
+import java.util.List;
 import java.util.regex.Pattern;
 
 public class HibernateSearchQueryCreator extends ExpressionBaseVisitor<Query> {
@@ -43,11 +45,11 @@ public class HibernateSearchQueryCreator extends ExpressionBaseVisitor<Query> {
     public static Query evaluate(QueryBuilder queryBuilder, String expression) {
         ThrowingErrorHandler errorListener = new ThrowingErrorHandler();
         ParseTree parseTree = createParserTree(expression, errorListener);
-        QueryVisitor visitor = new QueryVisitor(queryBuilder);
+        QueryVisitor visitor = new QueryVisitor(queryBuilder, null);
         return visitor.visit(parseTree);
     }
 
-    private static class ThrowingErrorHandler implements ANTLRErrorListener {
+    static class ThrowingErrorHandler implements ANTLRErrorListener {
 
         @Override
         public void syntaxError(Recognizer<?, ?> recognizer, Object o, int line, int charPos, String msg, RecognitionException e) {
@@ -74,9 +76,22 @@ public class HibernateSearchQueryCreator extends ExpressionBaseVisitor<Query> {
     static class QueryVisitor extends ExpressionBaseVisitor<Query> {
         QueryBuilder builder;
 
+        // Tokens bound to a cached parse tree by their index, null to read the tokens of the tree
+        List<? extends Token> tokens;
+
         // TODO We could add the type here to check the field's name - or if it's a correct field at all
-        public QueryVisitor(QueryBuilder builder) {
+        public QueryVisitor(QueryBuilder builder, List<? extends Token> tokens) {
             this.builder = builder;
+            this.tokens = tokens;
+        }
+
+        private String text(TerminalNode node) {
+            Token symbol = node.getSymbol();
+            return tokens == null ? symbol.getText() : tokens.get(symbol.getTokenIndex()).getText();
+        }
+
+        private String valueText(ExpressionParser.ValueContext value) {
+            return value.STRING() != null ? cleanString(text(value.STRING())) : null;
         }
 
         @Override
@@ -131,9 +146,9 @@ public class HibernateSearchQueryCreator extends ExpressionBaseVisitor<Query> {
             // This is the tagKey
             if (ctx.key() != null) {
                 if(ctx.key().SIMPLETEXT() != null) {
-                    field = cleanString(ctx.key().SIMPLETEXT().getSymbol().getText());
+                    field = cleanString(text(ctx.key().SIMPLETEXT()));
                 } else if (ctx.key().STRING() != null) {
-                    field = cleanString(ctx.key().STRING().getSymbol().getText());
+                    field = cleanString(text(ctx.key().STRING()));
                 }
                 if(field.startsWith("tags.")) {
                     // tags are always parsed to lowercase in the input
@@ -147,7 +162,7 @@ public class HibernateSearchQueryCreator extends ExpressionBaseVisitor<Query> {
             String strValue = null;
             TerminalNode number = null;
             if (value != null) {
-                strValue = valueToString(value);
+                strValue = valueText(value);
                 if (value.NUMBER() != null) {
                     number = value.NUMBER();
                 }
@@ -156,7 +171,7 @@ public class HibernateSearchQueryCreator extends ExpressionBaseVisitor<Query> {
             }
 
             if (number != null) {
-                strValue = number.getSymbol().getText();
+                strValue = text(number);
             }
 
             // Process operators here
@@ -174,7 +189,7 @@ public class HibernateSearchQueryCreator extends ExpressionBaseVisitor<Query> {
                     if(ctx.array_operator().IN() != null) {
                         BooleanJunction<BooleanJunction> bool = builder.bool();
                         for (ExpressionParser.ValueContext valueContext : ctx.array().value()) {
-                            String val = valueToString(valueContext);
+                            String val = valueText(valueContext);
                             bool = bool.should(builder.keyword().onField(field).ignoreFieldBridge().matching(val).createQuery());
                         }
                         return bool.createQuery();
@@ -218,19 +233,9 @@ public class HibernateSearchQueryCreator extends ExpressionBaseVisitor<Query> {
         }
     }
 
-    // These are repeated from ExprParser - with one change, these are not case-insensitive.
+    // This is repeated from ExprParser - with one change, it is not case-insensitive.
     // TODO Should we create different analyzer to get lowerCase indexed?
 
-    public static String valueToString(ExpressionParser.ValueContext value) {
-        String strValue = null;
-        if (value.STRING() != null) {
-            strValue = value.STRING().getSymbol().getText();
-            strValue = cleanString(strValue);
-        }
-
-        return strValue;
-    }
-
     static String cleanString(String strValue) {
         return ESCAPE_CLEANER_REGEXP.matcher(strValue).replaceAll("$2");
     }
@@ -0,0 +1,102 @@
+package org.hawkular.alerts.engine.impl.hibernate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.redhat.cloud.policies.api.model.condition.expression.parser.ExpressionLexer;
+import com.redhat.cloud.policies.api.model.condition.expression.parser.ExpressionParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.apache.lucene.search.Query;
+import org.hawkular.alerts.engine.impl.hibernate.HibernateSearchQueryCreator.QueryVisitor;
+import org.hawkular.alerts.engine.impl.hibernate.HibernateSearchQueryCreator.ThrowingErrorHandler;
+import org.hibernate.search.query.dsl.QueryBuilder;
+
+import java.util.List;
+
+/**
+ * Bounded cache of the parsed criteria queries, the plans, for {@link HibernateSearchQueryCreator}.
+ *
+ * A plan is keyed by the shape of the query: the types of its tokens. The field names and values of each query are
+ * bound to the cached parse tree when the Lucene query is built, so the criteria that only differ by their values,
+ * such as the ctime lower bound set from the current time, share a plan and skip the parsing.
+ *
+ * The tenant is never part of a plan, the services add it to the Lucene query outside of the criteria.
+ */
+public class QueryPlanCache {
+
+    private final Cache<String, ParseTree> plans;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param entity indexed entity queried with the plans, it tags the metrics
+     * @param maximumSize number of plans kept, 0 parses every query
+     */
+    public QueryPlanCache(String entity, long maximumSize, MeterRegistry meterRegistry) {
+        plans = maximumSize > 0 ? CacheBuilder.newBuilder().maximumSize(maximumSize).build() : null;
+        hits = Counter.builder("engine.backend.query.plans")
+                .description("Criteria queries built from a cached plan")
+                .tag("entity", entity)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("engine.backend.query.plans")
+                .description("Criteria queries built from a cached plan")
+                .tag("entity", entity)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        if (plans != null) {
+            Gauge.builder("engine.backend.query.plans.cached", plans, Cache::size)
+                    .description("Criteria query plans held in memory")
+                    .tag("entity", entity)
+                    .register(meterRegistry);
+        }
+    }
+
+    public Query evaluate(QueryBuilder queryBuilder, String expression) {
+        if (plans == null) {
+            return HibernateSearchQueryCreator.evaluate(queryBuilder, expression);
+        }
+        ThrowingErrorHandler errorListener = new ThrowingErrorHandler();
+        ExpressionLexer lexer = new ExpressionLexer(CharStreams.fromString(expression));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+        List<? extends Token> tokens = lexer.getAllTokens();
+
+        String shape = shape(tokens);
+        ParseTree plan = plans.getIfPresent(shape);
+        if (plan == null) {
+            misses.increment();
+            ExpressionParser parser = new ExpressionParser(new CommonTokenStream(new ListTokenSource(tokens)));
+            parser.removeErrorListeners();
+            parser.addErrorListener(errorListener);
+            plan = parser.expression();
+            plans.put(shape, plan);
+        } else {
+            hits.increment();
+        }
+        return new QueryVisitor(queryBuilder, tokens).visit(plan);
+    }
+
+    long size() {
+        return plans == null ? 0 : plans.size();
+    }
+
+    /*
+        The parser only depends on the token types: the keywords are case insensitive and the field names and the
+        values are read from the bound tokens. The white space is skipped by the lexer, so the token index is the
+        position in the list for both the plan and the bound tokens.
+     */
+    private static String shape(List<? extends Token> tokens) {
+        StringBuilder shape = new StringBuilder();
+        for (Token token : tokens) {
+            shape.append(token.getType()).append(' ');
+        }
+        return shape.toString();
+    }
+}
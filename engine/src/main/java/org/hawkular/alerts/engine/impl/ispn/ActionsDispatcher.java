@@ -0,0 +1,240 @@
+package org.hawkular.alerts.engine.impl.ispn;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the actions off the thread firing the rules, on a bounded queue and a worker thread per action plugin, so a
+ * slow plugin or store delays its own actions only. The actions of a plugin are run in the order they are
+ * dispatched, except with the CALLER_RUNS policy below.
+ *
+ * When the queue of a plugin is full the {@link Overflow} policy applies:
+ * - BLOCK: the caller waits for room.
+ * - DROP: the action is discarded. It is neither passed to the listeners nor persisted in the action history.
+ * - CALLER_RUNS: the caller runs the action itself, right away, ahead of the actions already queued for the plugin.
+ *
+ * With a queue size of 0, or once stopped, the actions are run by the caller, as a synchronous dispatch did.
+ */
+class ActionsDispatcher {
+    private final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, ActionsDispatcher.class);
+
+    // Wait slice of the blocking calls, they also return when the dispatcher is stopped
+    private static final long WAIT_MS = 100;
+
+    // Minimum time between two warnings of the actions dropped by a plugin
+    private static final long DROP_WARNING_MS = TimeUnit.MINUTES.toMillis(1);
+
+    enum Overflow {
+        BLOCK, DROP, CALLER_RUNS;
+
+        static Overflow parse(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final int queueSize;
+    private final Overflow overflow;
+    private final Map<String, Worker> workers = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private static class Task {
+        final Runnable runnable;
+        // Dispatch time of an action, 0 for the tasks of afterPending
+        final long queued;
+
+        Task(Runnable runnable, long queued) {
+            this.runnable = runnable;
+            this.queued = queued;
+        }
+    }
+
+    private class Worker {
+        final String actionPlugin;
+        final BlockingQueue<Task> queue;
+        final Thread thread;
+        final Timer latency;
+        final Counter overflows;
+        // Dropped actions not reported yet and time of the last report
+        final AtomicLong unreportedDrops = new AtomicLong();
+        volatile long lastDropWarning;
+
+        Worker(String actionPlugin) {
+            this.actionPlugin = actionPlugin;
+            queue = new ArrayBlockingQueue<>(queueSize);
+            Gauge.builder("engine.actions.queue", queue, BlockingQueue::size)
+                    .description("Actions waiting to be run")
+                    .tag("plugin", actionPlugin)
+                    .register(meterRegistry);
+            latency = Timer.builder("engine.actions.latency")
+                    .description("Time from the dispatch of an action to the end of its run")
+                    .tag("plugin", actionPlugin)
+                    .register(meterRegistry);
+            overflows = Counter.builder("engine.actions.overflow")
+                    .description("Actions dispatched while the queue was full")
+                    .tag("plugin", actionPlugin)
+                    .tag("policy", overflow.name())
+                    .register(meterRegistry);
+            thread = new Thread(this::runLoop, "ActionsDispatcher-" + actionPlugin);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void dispatch(Task task) throws InterruptedException {
+            if (queue.offer(task)) {
+                return;
+            }
+            overflows.increment();
+            switch (overflow) {
+                case DROP:
+                    warnDropped();
+                    return;
+                case CALLER_RUNS:
+                    run(task);
+                    return;
+                default:
+                    enqueue(task);
+            }
+        }
+
+        // At most once per DROP_WARNING_MS, with the count of actions dropped since the previous warning
+        private void warnDropped() {
+            unreportedDrops.incrementAndGet();
+            long now = System.currentTimeMillis();
+            long last = lastDropWarning;
+            if (now - last < DROP_WARNING_MS) {
+                return;
+            }
+            synchronized (this) {
+                if (lastDropWarning != last) {
+                    return;
+                }
+                lastDropWarning = now;
+            }
+            log.warnf("Queue of plugin %s is full, dropped %s actions. They are not run nor persisted.",
+                    actionPlugin, unreportedDrops.getAndSet(0));
+        }
+
+        // Waits for room whatever the overflow policy is
+        void enqueue(Task task) throws InterruptedException {
+            while (!queue.offer(task, WAIT_MS, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    log.warnf("Dispatcher stopped, dropping an action of plugin %s", actionPlugin);
+                    return;
+                }
+            }
+        }
+
+        void run(Task task) {
+            try {
+                task.runnable.run();
+            } catch (Exception e) {
+                log.debugf(e, "Error running an action of plugin %s", actionPlugin);
+                log.errorProcessingAction(e.getMessage());
+            } finally {
+                if (task.queued != 0) {
+                    latency.record(System.nanoTime() - task.queued, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        private void runLoop() {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Task task = queue.poll(WAIT_MS, TimeUnit.MILLISECONDS);
+                    if (task != null) {
+                        run(task);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    ActionsDispatcher(int queueSize, Overflow overflow) {
+        this.queueSize = queueSize;
+        this.overflow = overflow;
+    }
+
+    void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Queue an action of a plugin, the overflow policy applies if the queue is full.
+     */
+    void dispatch(String actionPlugin, Runnable action) {
+        if (queueSize <= 0 || !running) {
+            action.run();
+            return;
+        }
+        try {
+            workers.computeIfAbsent(actionPlugin, Worker::new).dispatch(new Task(action, System.nanoTime()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run a task once the actions dispatched so far have been run, by all the plugins. It is queued behind them
+     * whatever the overflow policy is, and run by the worker that gets to it last.
+     */
+    void afterPending(Runnable task) {
+        List<Worker> active = new ArrayList<>(workers.values());
+        if (active.isEmpty()) {
+            task.run();
+            return;
+        }
+        AtomicInteger pending = new AtomicInteger(active.size());
+        Runnable barrier = () -> {
+            if (pending.decrementAndGet() == 0) {
+                task.run();
+            }
+        };
+        try {
+            for (Worker worker : active) {
+                worker.enqueue(new Task(barrier, 0));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getQueueSize(String actionPlugin) {
+        Worker worker = workers.get(actionPlugin);
+        return worker == null ? 0 : worker.queue.size();
+    }
+
+    /**
+     * Stop accepting actions and run the ones already queued.
+     */
+    void shutdown() {
+        running = false;
+        for (Worker worker : workers.values()) {
+            try {
+                worker.thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
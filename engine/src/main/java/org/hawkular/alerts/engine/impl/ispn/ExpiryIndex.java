@@ -0,0 +1,245 @@
+package org.hawkular.alerts.engine.impl.ispn;
+
+import org.infinispan.Cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
+
+/**
+ * Index of the expirable entries of the backend by the hour they expire in, kept in the [expiry] cache so the
+ * retention cleanup and the statistics do not walk the whole keyspace of the backend.
+ *
+ * For each type of entry (Action, Alert, Event) and each hour bucket it holds a running counter of the keys written
+ * with an expiration in the bucket, and the keys themselves in chunks of at most {@link #CHUNK_SIZE}. A write reserves
+ * a range of the counter and puts its chunks at the start of the range, so it never reads nor rewrites a chunk.
+ *
+ * A cleanup drops whole buckets from the first one not dropped yet, so its cost depends on the expired entries only.
+ * The entries are written with an expiration after now, so a bucket dropped once never gets new keys.
+ *
+ * An entry written again is indexed again in a later bucket, it is for the cleanup to check whether an entry of a
+ * dropped bucket is still there. Entries written before the index existed are not in it, see {@link #getIndexedSince}.
+ *
+ * The writers stage their keys in memory and {@link #flush} them once per batch, with one write of the index per type
+ * and bucket. The index is not updated atomically with the backend: the keys staged or being flushed when the process
+ * dies are lost, and their entries are only removed once their lifespan in the backend is over. For the actions, the
+ * owner of the index {@link #open}s it at start: if it was not {@link #close}d, the legacy scan of the backend keys runs
+ * again until the actions written before are expired, see {@link #getUnindexedBefore}.
+ */
+class ExpiryIndex {
+
+    static final String ACTION = "Action";
+    static final String ALERT = "Alert";
+    static final String EVENT = "Event";
+
+    static final long BUCKET_MS = TimeUnit.HOURS.toMillis(1);
+    static final int CHUNK_SIZE = 1000;
+
+    private static final String INDEXED_SINCE_KEY = "Indexed-since";
+    private static final String LEGACY_PURGED_KEY = "Legacy-purged";
+    private static final String UNINDEXED_BEFORE_KEY = "Unindexed-before";
+    private static final String OPEN_KEY = "Open";
+
+    private final Cache<String, Object> cache;
+
+    // Newest bucket written by this instance per type, the stored one is only updated when it moves forward
+    private final Map<String, Long> newest = new ConcurrentHashMap<>();
+
+    // Keys staged per type and bucket, only modified under a compute of their bucket so a removed set is complete
+    private final Map<String, Map<Long, Set<String>>> staged = new ConcurrentHashMap<>();
+
+    ExpiryIndex(Cache<String, Object> cache) {
+        this.cache = cache;
+        cache.putIfAbsent(INDEXED_SINCE_KEY, System.currentTimeMillis());
+    }
+
+    static long bucket(long expiration) {
+        return Math.floorDiv(expiration, BUCKET_MS) * BUCKET_MS;
+    }
+
+    /**
+     * Index keys of a type written with the same expiration.
+     *
+     * @param type of the entries
+     * @param expiration time in ms the entries expire at, after now
+     * @param keys of the entries in the backend
+     */
+    void add(String type, long expiration, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        long bucket = bucket(expiration);
+        if (bucket > newest.getOrDefault(type, Long.MIN_VALUE)) {
+            cache.merge(key(type, "newest"), bucket, (a, b) -> Math.max((Long) a, (Long) b));
+            newest.merge(type, bucket, Math::max);
+        }
+
+        List<String> distinct = new ArrayList<>(new HashSet<>(keys));
+        long end = (Long) cache.merge(key(type, bucket, "count"), (long) distinct.size(),
+                (a, b) -> (Long) a + (Long) b);
+        long start = end - distinct.size() + 1;
+        for (int i = 0; i < distinct.size(); i += CHUNK_SIZE) {
+            Set<String> chunk = new HashSet<>(distinct.subList(i, Math.min(i + CHUNK_SIZE, distinct.size())));
+            cache.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES)
+                    .put(key(type, bucket, String.valueOf(start + i)), chunk);
+        }
+    }
+
+    /**
+     * Stage the key of an entry, it is indexed by the next {@link #flush}. A bucket reaching {@link #CHUNK_SIZE} staged
+     * keys is written at once.
+     *
+     * @param type of the entry
+     * @param expiration time in ms the entry expires at, after now
+     * @param key of the entry in the backend
+     */
+    void stage(String type, long expiration, String key) {
+        long bucket = bucket(expiration);
+        Map<Long, Set<String>> buckets = staged.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        Set<String> keys = buckets.compute(bucket, (b, current) -> {
+            Set<String> added = current != null ? current : new HashSet<>();
+            added.add(key);
+            return added;
+        });
+        if (keys.size() >= CHUNK_SIZE && buckets.remove(bucket, keys)) {
+            add(type, bucket, keys);
+        }
+    }
+
+    /**
+     * Index the staged keys, with one {@link #add} per type and bucket.
+     */
+    void flush() {
+        staged.forEach((type, buckets) -> {
+            for (Long bucket : buckets.keySet()) {
+                Set<String> keys = buckets.remove(bucket);
+                if (keys != null) {
+                    add(type, bucket, keys);
+                }
+            }
+        });
+    }
+
+    /**
+     * Mark the index as in use until {@link #close}. If it was still in use, the previous owner stopped without
+     * closing it and the entries written before now may not be indexed: the legacy scan is needed again.
+     */
+    void open() {
+        if (cache.putIfAbsent(OPEN_KEY, System.currentTimeMillis()) != null) {
+            cache.put(UNINDEXED_BEFORE_KEY, System.currentTimeMillis());
+            cache.remove(LEGACY_PURGED_KEY);
+        }
+    }
+
+    /**
+     * Flush the staged keys and mark the index as no longer in use.
+     */
+    void close() {
+        flush();
+        cache.remove(OPEN_KEY);
+    }
+
+    /**
+     * Drop the buckets of a type that expire before the cutoff, passing each of their keys to remove.
+     *
+     * @param type of the entries
+     * @param cutoff time in ms, only the buckets ending before it are dropped
+     * @param remove called with each key of the dropped buckets
+     * @return the number of keys passed to remove
+     */
+    long purge(String type, long cutoff, Consumer<String> remove) {
+        long first = firstBucket(type);
+        long visited = 0;
+        long bucket = first;
+        for (; bucket + BUCKET_MS <= cutoff; bucket += BUCKET_MS) {
+            String countKey = key(type, bucket, "count");
+            long count = (Long) cache.getOrDefault(countKey, 0L);
+            for (long seq = 1; seq <= count; ) {
+                String chunkKey = key(type, bucket, String.valueOf(seq));
+                @SuppressWarnings("unchecked")
+                Set<String> keys = (Set<String>) cache.get(chunkKey);
+                if (keys == null) {
+                    // A range reserved by a write that did not complete
+                    seq++;
+                    continue;
+                }
+                keys.forEach(remove);
+                visited += keys.size();
+                seq += keys.size();
+                cache.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).remove(chunkKey);
+            }
+            cache.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).remove(countKey);
+        }
+        if (bucket != first) {
+            cache.put(key(type, "purged"), bucket);
+        }
+        return visited;
+    }
+
+    /**
+     * @param type of the entries
+     * @param cutoff time in ms, only the buckets ending before it are counted
+     * @return the keys of a type still indexed in the buckets ending before the cutoff
+     */
+    long count(String type, long cutoff) {
+        Long last = (Long) cache.get(key(type, "newest"));
+        if (last == null) {
+            return 0;
+        }
+        long count = 0;
+        for (long bucket = firstBucket(type); bucket <= last && bucket + BUCKET_MS <= cutoff; bucket += BUCKET_MS) {
+            count += (Long) cache.getOrDefault(key(type, bucket, "count"), 0L);
+        }
+        return count;
+    }
+
+    /**
+     * @return time in ms the index was created at, entries written before are not indexed
+     */
+    long getIndexedSince() {
+        return (Long) cache.get(INDEXED_SINCE_KEY);
+    }
+
+    /**
+     * @return time in ms the entries written before may not be indexed, the creation of the index or the last start
+     * after an owner did not close it
+     */
+    long getUnindexedBefore() {
+        Long unindexedBefore = (Long) cache.get(UNINDEXED_BEFORE_KEY);
+        return unindexedBefore != null ? Math.max(unindexedBefore, getIndexedSince()) : getIndexedSince();
+    }
+
+    /**
+     * @return true once the entries written before {@link #getUnindexedBefore} have been cleaned up by a scan of the
+     * backend
+     */
+    boolean isLegacyPurged() {
+        return cache.containsKey(LEGACY_PURGED_KEY);
+    }
+
+    void setLegacyPurged() {
+        cache.put(LEGACY_PURGED_KEY, System.currentTimeMillis());
+    }
+
+    // First bucket not dropped yet
+    private long firstBucket(String type) {
+        Long purged = (Long) cache.get(key(type, "purged"));
+        return purged != null ? purged : bucket(getIndexedSince());
+    }
+
+    private static String key(String type, String name) {
+        return new StringBuilder(type).append("-").append(name).toString();
+    }
+
+    private static String key(String type, long bucket, String name) {
+        return new StringBuilder(type).append("-").append(bucket).append("-").append(name).toString();
+    }
+}
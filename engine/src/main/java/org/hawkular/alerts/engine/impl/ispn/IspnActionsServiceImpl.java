@@ -1,5 +1,7 @@
 package org.hawkular.alerts.engine.impl.ispn;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.hawkular.alerts.api.model.action.Action;
 import org.hawkular.alerts.api.model.action.ActionDefinition;
@@ -15,6 +17,8 @@ import org.hawkular.alerts.api.services.ActionListener;
 import org.hawkular.alerts.api.services.ActionsCriteria;
 import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.engine.cache.ActionDefinitionsCacheManager;
+import org.hawkular.alerts.engine.cache.ActionDefinitionsCacheManager.ResolvedActionDefinition;
 import org.hawkular.alerts.engine.cache.ActionsCacheManager;
 import org.hawkular.alerts.engine.cache.IspnCacheManager;
 import org.hawkular.alerts.engine.impl.AlertsContext;
@@ -28,7 +32,6 @@ import org.infinispan.query.dsl.QueryFactory;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +40,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.hawkular.alerts.api.util.Util.isEmpty;
+import static org.hawkular.alerts.engine.cache.ActionDefinitionsCacheManager.mixProperties;
 import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
 
 /**
@@ -57,17 +61,31 @@ public class IspnActionsServiceImpl implements ActionsService {
 
     ActionsCacheManager actionsCacheManager;
 
+    ActionDefinitionsCacheManager actionDefinitionsCacheManager;
+
     private boolean fastActionsStore = false;
 
     Cache<String, Object> actionsStore;
 
     QueryFactory queryFactory;
 
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    /**
+     * Runs the listeners and the store of the actions off the rules thread
+     */
+    ActionsDispatcher dispatcher;
+
     /**
      * Set the TTL of actions to the same as TTL of Alerts
      */
     long alertsLifespanInHours;
 
+    /**
+     * Index of the persistent actions by the hour they expire in, null for the ephemeral store
+     */
+    ExpiryIndex expiry;
+
     public void init() {
         fastActionsStore = ConfigProvider.getConfig().getValue("engine.backend.ispn.actions-ephemeral", Boolean.class);
         if(fastActionsStore) {
@@ -75,6 +93,13 @@ public class IspnActionsServiceImpl implements ActionsService {
         } else {
             // Persistent caching option
             actionsStore = IspnCacheManager.getCacheManager().getCache("backend");
+            Cache<String, Object> expiryCache = IspnCacheManager.getCacheManager().getCache("expiry");
+            if (expiryCache == null) {
+                log.error("Ispn expiry cache not found. Check configuration.");
+                throw new RuntimeException("expiry cache not found");
+            }
+            expiry = new ExpiryIndex(expiryCache);
+            expiry.open();
         }
         if (actionsStore == null) {
             log.error("Ispn backend / actions cache not found. Check configuration.");
@@ -82,6 +107,26 @@ public class IspnActionsServiceImpl implements ActionsService {
         }
         queryFactory = Search.getQueryFactory(actionsStore);
         alertsLifespanInHours = ConfigProvider.getConfig().getValue("engine.backend.ispn.alerts-lifespan", Long.class);
+        int queueSize = ConfigProvider.getConfig().getValue("engine.actions.queue-size", Integer.class);
+        String overflow = ConfigProvider.getConfig().getValue("engine.actions.overflow", String.class);
+        dispatcher = new ActionsDispatcher(queueSize, ActionsDispatcher.Overflow.parse(overflow));
+        dispatcher.setMeterRegistry(meterRegistry);
+    }
+
+    /**
+     * Run the actions already dispatched and stop the workers.
+     */
+    public void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (expiry != null) {
+            expiry.close();
+        }
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
     }
 
     public void setAlertsContext(AlertsContext alertsContext) {
@@ -96,6 +141,10 @@ public class IspnActionsServiceImpl implements ActionsService {
         this.actionsCacheManager = actionsCacheManager;
     }
 
+    public void setActionDefinitionsCacheManager(ActionDefinitionsCacheManager actionDefinitionsCacheManager) {
+        this.actionDefinitionsCacheManager = actionDefinitionsCacheManager;
+    }
+
     @Override
     public void send(Trigger trigger, Event event) {
         if (trigger == null) {
@@ -146,11 +195,20 @@ public class IspnActionsServiceImpl implements ActionsService {
         }
     }
 
+    /**
+     * The listeners are flushed once they have processed the actions dispatched so far, and the stored actions are
+     * indexed for the cleanup.
+     */
     @Override
     public void flush() {
-        for (ActionListener listener : alertsContext.getActionsListeners()) {
-            listener.flush();
-        }
+        dispatcher.afterPending(() -> {
+            if (expiry != null) {
+                expiry.flush();
+            }
+            for (ActionListener listener : alertsContext.getActionsListeners()) {
+                listener.flush();
+            }
+        });
     }
 
     @Override
@@ -333,14 +391,11 @@ public class IspnActionsServiceImpl implements ActionsService {
         Action action = new Action(triggerAction.getTenantId(), triggerAction.getActionPlugin(),
                 triggerAction.getActionId(), event);
         try {
-            ActionDefinition actionDefinition = definitions.getActionDefinition(triggerAction.getTenantId(),
-                    triggerAction.getActionPlugin(), triggerAction.getActionId());
-            Map<String, String> defaultProperties = definitions
-                    .getDefaultActionPlugin(triggerAction.getActionPlugin());
-            if (actionDefinition != null && defaultProperties != null) {
-                Map<String, String> mixedProps = mixProperties(actionDefinition.getProperties(),
-                        defaultProperties);
-                action.setProperties(mixedProps);
+            ResolvedActionDefinition resolved = actionDefinitionsCacheManager.getActionDefinition(
+                    triggerAction.getTenantId(), triggerAction.getActionPlugin(), triggerAction.getActionId());
+            ActionDefinition actionDefinition = resolved.getActionDefinition();
+            if (resolved.getProperties() != null) {
+                action.setProperties(resolved.getProperties());
             } else {
                 log.debugf("Action %s has not an ActionDefinition", action);
             }
@@ -351,10 +406,7 @@ public class IspnActionsServiceImpl implements ActionsService {
                 log.debugf("Using ActionDefinition constraints: %s", actionDefinition);
             }
             if (ActionsValidator.validate(triggerAction, event)) {
-                for (ActionListener listener : alertsContext.getActionsListeners()) {
-                    listener.process(action);
-                }
-                insertAction(action);
+                dispatcher.dispatch(action.getActionPlugin(), () -> process(action));
             }
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
@@ -379,20 +431,22 @@ public class IspnActionsServiceImpl implements ActionsService {
         Action action = new Action(globalTriggerAction.getTenantId(), globalTriggerAction.getActionPlugin(),
                 globalTriggerAction.getActionId(), event);
         try {
-            Map<String, String> defaultProperties = definitions
-                    .getDefaultActionPlugin(globalTriggerAction.getActionPlugin());
-            if (defaultProperties != null) {
-                Map<String, String> mixedProps = mixProperties(globalActionDefinition.getProperties(),
-                        defaultProperties);
-                action.setProperties(mixedProps);
+            ResolvedActionDefinition resolved = actionDefinitionsCacheManager.getActionDefinition(
+                    globalTriggerAction.getTenantId(), globalTriggerAction.getActionPlugin(),
+                    globalTriggerAction.getActionId());
+            if (resolved.getProperties() != null) {
+                action.setProperties(resolved.getProperties());
+            } else {
+                Map<String, String> defaultProperties = actionDefinitionsCacheManager
+                        .getDefaultProperties(globalTriggerAction.getActionPlugin());
+                if (defaultProperties != null) {
+                    action.setProperties(mixProperties(globalActionDefinition.getProperties(), defaultProperties));
+                }
             }
             globalTriggerAction.setStates(globalActionDefinition.getStates());
             globalTriggerAction.setCalendar(globalActionDefinition.getCalendar());
             if (ActionsValidator.validate(globalTriggerAction, event)) {
-                for (ActionListener listener : alertsContext.getActionsListeners()) {
-                    listener.process(action);
-                }
-                insertAction(action);
+                dispatcher.dispatch(action.getActionPlugin(), () -> process(action));
             }
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
@@ -400,17 +454,16 @@ public class IspnActionsServiceImpl implements ActionsService {
         }
     }
 
-    private Map<String, String> mixProperties(Map<String, String> props, Map<String, String> defProps) {
-        Map<String, String> mixed = new HashMap<>();
-        if (props != null) {
-            mixed.putAll(props);
-        }
-        if (defProps != null) {
-            for (String defKey : defProps.keySet()) {
-                mixed.putIfAbsent(defKey, defProps.get(defKey));
+    private void process(Action action) {
+        try {
+            for (ActionListener listener : alertsContext.getActionsListeners()) {
+                listener.process(action);
             }
+            insertAction(action);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            log.errorCannotUpdateAction(e.getMessage());
         }
-        return mixed;
     }
 
     private void insertAction(Action action) {
@@ -422,6 +475,10 @@ public class IspnActionsServiceImpl implements ActionsService {
                 actionsStore.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).put(IspnPk.pk(action), new IspnAction(action));
             } else {
                 actionsStore.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).put(IspnPk.pk(action), new IspnAction(action), alertsLifespanInHours, TimeUnit.HOURS);
+                if (expiry != null) {
+                    long expiration = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(alertsLifespanInHours);
+                    expiry.stage(ExpiryIndex.ACTION, expiration, IspnPk.pk(action));
+                }
             }
         } catch (Exception e) {
             log.errorDatabaseException(e.getMessage());
@@ -1,27 +1,40 @@
 package org.hawkular.alerts.engine.impl.ispn;
 
+import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
+import static org.infinispan.context.Flag.SKIP_INDEXING;
+
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.hawkular.alerts.engine.cache.IspnCacheManager;
+import org.hawkular.alerts.engine.impl.ispn.model.IspnExternalizers;
 import org.hawkular.alerts.log.AlertingLogger;
 import org.hawkular.alerts.log.MsgLogging;
+import org.infinispan.AdvancedCache;
 import org.infinispan.Cache;
+import org.infinispan.commons.util.CloseableIterator;
+import org.infinispan.container.entries.CacheEntry;
 import org.infinispan.persistence.manager.PersistenceManager;
 import org.infinispan.persistence.rocksdb.RocksDBStore;
 import org.infinispan.query.Search;
 import org.infinispan.query.dsl.QueryFactory;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
 public class IspnAdminService {
 
     private final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, IspnAdminService.class);
+
+    // Entry holding the encoding version all the backend entries are written with
+    private static final String ENCODING_KEY = "Encoding-version";
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
     Cache<String, Object> backend;
     QueryFactory queryFactory;
+    ExpiryIndex expiry;
 
     public void init() {
         backend = IspnCacheManager.getCacheManager().getCache("backend");
@@ -30,6 +43,12 @@ public class IspnAdminService {
             throw new RuntimeException("backend cache not found");
         }
         queryFactory = Search.getQueryFactory(backend);
+        Cache<String, Object> expiryCache = IspnCacheManager.getCacheManager().getCache("expiry");
+        if (expiryCache == null) {
+            log.error("Ispn expiry cache not found. Check configuration.");
+            throw new RuntimeException("expiry cache not found");
+        }
+        expiry = new ExpiryIndex(expiryCache);
     }
 
     private long getAlertLatestExpireTime() {
@@ -43,7 +62,36 @@ public class IspnAdminService {
         return maxExpireTimeDate.getTime();
     }
 
+    /**
+     * Remove the expired actions, alerts and events of the backend. They are dropped by whole hour buckets of the
+     * expiry index, so the cost depends on the expired entries only. The keys of the backend are still scanned until
+     * the actions that may not be indexed have expired: the ones written before the index existed or, after a stop
+     * without closing the index, before the restart.
+     */
     public void deleteExpiredKeys() {
+        long start = System.currentTimeMillis();
+        if (!expiry.isLegacyPurged()) {
+            deleteLegacyExpiredKeys();
+        }
+        long now = System.currentTimeMillis();
+        // As the scan of the keys did, an action is removed once expired even if it was updated since
+        long actions = expiry.purge(ExpiryIndex.ACTION, now, backend::remove);
+        long alerts = expiry.purge(ExpiryIndex.ALERT, now, this::removeIfExpired);
+        long events = expiry.purge(ExpiryIndex.EVENT, now, this::removeIfExpired);
+        log.infof("Cleaned up [%s] actions, [%s] alerts and [%s] events of Infinispan [backend] in [%s] ms", actions,
+                alerts, events, System.currentTimeMillis() - start);
+    }
+
+    /*
+        An alert or event stored again since it was indexed expires later, it is also indexed in a later bucket.
+     */
+    private void removeIfExpired(String pk) {
+        if (backend.getAdvancedCache().getCacheEntry(pk) == null) {
+            backend.remove(pk);
+        }
+    }
+
+    private void deleteLegacyExpiredKeys() {
         long maxExpireTimeForAlerts = getAlertLatestExpireTime();
         // Calculate here expired time etc.. since we can't access RocksDB directly from here
         backend.keySet().stream()
@@ -58,62 +106,26 @@ public class IspnAdminService {
                     } catch (Exception var34) {
                     }
                 });
+        if (maxExpireTimeForAlerts >= expiry.getUnindexedBefore()) {
+            // The actions that may not be indexed are all gone
+            expiry.setLegacyPurged();
+        }
     }
 
+    /**
+     * Log the running counters of the expiry index, without scanning the backend. They count the indexed writes, not
+     * the existing entries: an entry written several times is counted once per write, and a removed or expired entry
+     * until the cleanup of its bucket.
+     */
     public void printDataStatistics() {
-        final long maxExpireTimeForAlerts = getAlertLatestExpireTime();
-        final Map<String, AtomicLong> keyStats = new HashMap<>();
-        // var allows accessing these params inside lambda
-        var stats = new Object() {
-            long totalCount = 0L;
-            long expiredEvents = 0L;
-            long expiredActions = 0;
-        };
-        backend.keySet().forEach(sKey -> {
-            stats.totalCount++;
-            String[] splitParts = sKey.split("-");
-            String subKey = splitParts[0];
-            if(splitParts.length < 2) {
-                subKey = "Unknown";
-            }
-            if(keyStats.containsKey(subKey)) {
-                keyStats.get(subKey).addAndGet(1);
-            } else {
-                keyStats.put(subKey, new AtomicLong(1));
-            }
-
-            if (subKey.equals("Event")) {
-                if (splitParts.length - 6 > 0) {
-                    try {
-                        long ctime = Long.valueOf(splitParts[splitParts.length - 6]);
-                        if (ctime < maxExpireTimeForAlerts) {
-                            ++stats.expiredEvents;
-                        }
-                    } catch (Exception var34) {
-                    }
-                }
-            }
-
-            if(subKey.equals("Action")) {
-                try {
-                    long ctime = Long.valueOf(splitParts[splitParts.length - 1]);
-                    if (ctime < maxExpireTimeForAlerts) {
-                        ++stats.expiredActions;
-                    }
-                } catch (Exception var34) {
-                }
-            }
-        });
-
-
-        log.info("Statistics from scanning Infinispan's backend cache:");
-        log.infof("\tTotal key count: %d", stats.totalCount);
-        log.infof("\tExpired events from key parsing: %d", stats.expiredEvents);
-        log.infof("\tExpired actions from key parsing: %d", stats.expiredActions);
-
-        log.info("\tDetailed key counts:");
-        for (Map.Entry<String, AtomicLong> ae : keyStats.entrySet()) {
-            log.infof("\t\t%s\t\t%d", ae.getKey(), ae.getValue().get());
+        long now = System.currentTimeMillis();
+        log.info("Statistics from the expiry index of Infinispan's backend cache (indexed writes, not entries):");
+        for (String type : List.of(ExpiryIndex.ACTION, ExpiryIndex.ALERT, ExpiryIndex.EVENT)) {
+            log.infof("\tIndexed %s writes: %d", type, expiry.count(type, Long.MAX_VALUE));
+            log.infof("\tIndexed %s writes expired and waiting for cleanup: %d", type, expiry.count(type, now));
+        }
+        if (!expiry.isLegacyPurged()) {
+            log.infof("\tWrites before %s may not be indexed", new Date(expiry.getUnindexedBefore()));
         }
     }
 
@@ -131,4 +143,69 @@ public class IspnAdminService {
         }
         log.info("Finished RocksDB Compaction");
     }
+
+    /**
+     * @return true if the backend entries have been rewritten with the current encoding
+     */
+    public boolean isEncodingMigrated() {
+        Object version = backend.get(ENCODING_KEY);
+        return version instanceof Integer && (Integer) version >= IspnExternalizers.VERSION;
+    }
+
+    /**
+     * Rewrite the backend entries with the current encoding, entries stored by Java serialization are read and
+     * written back through the externalizers. It runs online: the entries are rewritten in small batches, each one
+     * atomically so a concurrent update is not lost, keeping its remaining lifespan and without reindexing as the
+     * indexed fields do not change.
+     */
+    public void migrateEncoding() {
+        log.info("Rewriting the entries of Infinispan [backend] with the current encoding");
+        long start = System.currentTimeMillis();
+        long rewritten = 0;
+        List<CacheEntry<String, Object>> batch = new ArrayList<>(MIGRATION_BATCH_SIZE);
+        try (CloseableIterator<CacheEntry<String, Object>> entries =
+                     backend.getAdvancedCache().cacheEntrySet().iterator()) {
+            while (entries.hasNext()) {
+                batch.add(entries.next());
+                if (batch.size() == MIGRATION_BATCH_SIZE) {
+                    rewritten += rewrite(batch);
+                    batch.clear();
+                }
+            }
+        }
+        rewritten += rewrite(batch);
+        backend.put(ENCODING_KEY, IspnExternalizers.VERSION);
+        log.infof("Rewrote [%s] entries of Infinispan [backend] in [%s] ms", rewritten,
+                System.currentTimeMillis() - start);
+    }
+
+    private int rewrite(List<CacheEntry<String, Object>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        AdvancedCache<String, Object> cache = backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES, SKIP_INDEXING);
+        long now = System.currentTimeMillis();
+        int rewritten = 0;
+        try {
+            backend.startBatch();
+            for (CacheEntry<String, Object> entry : batch) {
+                if (entry.getLifespan() < 0) {
+                    cache.computeIfPresent(entry.getKey(), (key, value) -> value);
+                } else {
+                    long remaining = entry.getCreated() + entry.getLifespan() - now;
+                    if (remaining <= 0) {
+                        continue;
+                    }
+                    cache.computeIfPresent(entry.getKey(), (key, value) -> value, remaining, TimeUnit.MILLISECONDS);
+                }
+                rewritten++;
+            }
+            backend.endBatch(true);
+        } catch (Exception e) {
+            backend.endBatch(false);
+            log.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        return rewritten;
+    }
 }
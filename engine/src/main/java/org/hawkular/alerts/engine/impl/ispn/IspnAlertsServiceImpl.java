@@ -1,6 +1,10 @@
 package org.hawkular.alerts.engine.impl.ispn;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import io.smallrye.mutiny.Uni;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.hawkular.alerts.api.model.Note;
 import org.hawkular.alerts.api.model.condition.ConditionEval;
@@ -8,6 +12,7 @@ import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Alert.Status;
 import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.event.EventSummary;
 import org.hawkular.alerts.api.model.event.EventType;
 import org.hawkular.alerts.api.model.paging.AlertComparator;
 import org.hawkular.alerts.api.model.paging.EventComparator;
@@ -24,12 +29,14 @@ import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.EventsCriteria;
 import org.hawkular.alerts.engine.cache.IspnCacheManager;
 import org.hawkular.alerts.engine.impl.IncomingDataManagerImpl;
-import org.hawkular.alerts.engine.impl.hibernate.HibernateSearchQueryCreator;
+import org.hawkular.alerts.engine.impl.hibernate.QueryPlanCache;
 import org.hawkular.alerts.engine.impl.ispn.model.IspnEvent;
+import org.hawkular.alerts.engine.impl.ispn.model.TagsBridge;
 import org.hawkular.alerts.engine.service.AlertsEngine;
 import org.hawkular.alerts.engine.service.IncomingDataManager;
 import org.hawkular.alerts.log.AlertingLogger;
 import org.hawkular.alerts.log.MsgLogging;
+import org.hibernate.search.engine.ProjectionConstants;
 import org.hibernate.search.exception.SearchException;
 import org.hibernate.search.query.dsl.MustJunction;
 import org.hibernate.search.query.dsl.sort.SortFieldContext;
@@ -41,9 +48,11 @@ import org.infinispan.query.dsl.QueryFactory;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -63,6 +72,10 @@ import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
 public class IspnAlertsServiceImpl implements AlertsService {
     private static final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, IspnAlertsServiceImpl.class);
 
+    // Stored fields of IspnEvent, the document holds the stored tags
+    private static final String[] SUMMARY_PROJECTION = {"eventType", "tenantId", "id", "ctime", "category",
+            "triggerId", "status", "stime", "severity", ProjectionConstants.DOCUMENT};
+
     AlertsEngine alertsEngine;
 
     DefinitionsService definitionsService;
@@ -77,6 +90,12 @@ public class IspnAlertsServiceImpl implements AlertsService {
 
     SearchManager searchManager;
 
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    QueryPlanCache queryPlans;
+
+    ExpiryIndex expiry;
+
     long eventLifespanInHours;
     long alertsLifespanInHours;
 
@@ -93,6 +112,28 @@ public class IspnAlertsServiceImpl implements AlertsService {
         }
         queryFactory = Search.getQueryFactory(backend);
         searchManager = Search.getSearchManager(backend);
+        Cache<String, Object> expiryCache = IspnCacheManager.getCacheManager().getCache("expiry");
+        if (expiryCache == null) {
+            log.error("Ispn expiry cache not found. Check configuration.");
+            throw new RuntimeException("expiry cache not found");
+        }
+        expiry = new ExpiryIndex(expiryCache);
+        long queryPlanCacheSize = ConfigProvider.getConfig()
+                .getValue("engine.backend.ispn.query-plan-cache-size", Long.class);
+        queryPlans = new QueryPlanCache("event", queryPlanCacheSize, meterRegistry);
+    }
+
+    /**
+     * Index the entries stored since the last batch.
+     */
+    public void shutdown() {
+        if (expiry != null) {
+            expiry.flush();
+        }
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
     }
 
     public void setAlertsEngine(AlertsEngine alertsEngine) {
@@ -111,6 +152,11 @@ public class IspnAlertsServiceImpl implements AlertsService {
         this.incomingDataManager = incomingDataManager;
     }
 
+    /*
+        The backend keeps its entries in binary form, the events returned by a read are unmarshalled for that read
+        only. The updates (ack, notes, tags, resolve) modify the events they read and store them again, no copy is
+        needed to keep other readers unaffected.
+     */
     private void store(Event event) {
         long ttl = eventLifespanInHours;
         if(event instanceof Alert) {
@@ -121,6 +167,59 @@ public class IspnAlertsServiceImpl implements AlertsService {
         } else {
             backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).put(pk(event), new IspnEvent(event), ttl, TimeUnit.HOURS);
         }
+        if (ttl >= 0) {
+            // Indexed with the next batch
+            expiry.stage(event instanceof Alert ? ExpiryIndex.ALERT : ExpiryIndex.EVENT,
+                    System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttl), pk(event));
+        }
+    }
+
+    /*
+        Stores the events with one putAll per lifespan under a single batch, instead of a put per event.
+     */
+    private void storeAll(Collection<? extends Event> events) {
+        Map<String, IspnEvent> alertEntries = new HashMap<>();
+        Map<String, IspnEvent> eventEntries = new HashMap<>();
+        for (Event event : events) {
+            (event instanceof Alert ? alertEntries : eventEntries).put(pk(event), new IspnEvent(event));
+        }
+        try {
+            backend.startBatch();
+            putAll(alertEntries, alertsLifespanInHours);
+            putAll(eventEntries, eventLifespanInHours);
+            backend.endBatch(true);
+        } catch (Exception e) {
+            try {
+                backend.endBatch(false);
+            } catch (Exception e2) {
+                log.errorDatabaseException(e2.getMessage());
+            }
+            throw e;
+        }
+        index(ExpiryIndex.ALERT, alertEntries.keySet(), alertsLifespanInHours);
+        index(ExpiryIndex.EVENT, eventEntries.keySet(), eventLifespanInHours);
+        expiry.flush();
+    }
+
+    private void putAll(Map<String, IspnEvent> entries, long ttl) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if(ttl < 0) {
+            backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).putAll(entries);
+        } else {
+            backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).putAll(entries, ttl, TimeUnit.HOURS);
+        }
+    }
+
+    /*
+        Entries stored with a lifespan are indexed by the hour they expire in, for the cleanup of IspnAdminService.
+        A batch is indexed with one write per type, the single updates are staged until the next batch.
+     */
+    private void index(String type, Collection<String> pks, long ttl) {
+        if (ttl >= 0) {
+            expiry.add(type, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttl), pks);
+        }
     }
 
     @Override
@@ -164,8 +263,8 @@ public class IspnAlertsServiceImpl implements AlertsService {
                 alert.setEvalSets(null);
                 alert.setResolvedEvalSets(null);
             }
-            store(alert);
         }
+        storeAll(alerts);
     }
 
     @Override
@@ -231,9 +330,7 @@ public class IspnAlertsServiceImpl implements AlertsService {
         }
         log.debugf("Adding %s events", events.size());
         return Uni.createFrom().item(() -> {
-            for (Event event : events) {
-                store(event);
-            }
+            storeAll(events);
             return null;
         });
     }
@@ -345,68 +442,16 @@ public class IspnAlertsServiceImpl implements AlertsService {
             criteria = new AlertsCriteria();
         }
 
-        // Set the query starting point to the earliest retention time to prevent incorrect
-        // return of the Query maxResults
-        long earliestRetentionTime = Instant.now().minus(alertsLifespanInHours, ChronoUnit.HOURS).toEpochMilli();
-
-        if(criteria.getStartTime() == null || criteria.getStartTime() < earliestRetentionTime) {
-            criteria.setStartTime(earliestRetentionTime);
-        }
-
         try {
-            org.hibernate.search.query.dsl.QueryBuilder queryBuilder = searchManager.buildQueryBuilderForClass(IspnEvent.class).get();
-            // TODO Remove multi-tenant fetching from function
-            org.apache.lucene.search.Query tenantQuery = queryBuilder.keyword().onField("tenantId").matching(tenantIds.iterator().next()).createQuery();
-            // TODO Add alerts only searching
-
-            org.apache.lucene.search.Query typeQuery = queryBuilder.keyword().onField("eventType").matching("ALERT").createQuery();
-            org.apache.lucene.search.Query criteriaQuery = HibernateSearchQueryCreator.evaluate(queryBuilder, criteria.getQuery());
-            MustJunction rulesPart = queryBuilder.bool().must(tenantQuery).must(typeQuery).must(criteriaQuery);
-
-            if (criteria.hasTagQueryCriteria()) {
-                org.apache.lucene.search.Query tagsQuery = HibernateSearchQueryCreator.evaluate(queryBuilder, criteria.getTagQuery());
-                rulesPart = rulesPart.must(tagsQuery);
-            }
-            org.apache.lucene.search.Query finalQuery = rulesPart.createQuery();
-
-            CacheQuery<IspnEvent> query = searchManager.getQuery(finalQuery, IspnEvent.class);
-
-            if (pager != null) {
-                if (pager.getOrder() != null && !pager.getOrder().isEmpty() && pager.getOrder().get(0).isSpecific()) {
-                    String field = "id";
-                    if (AlertComparator.Field.CTIME.getText().equals(pager.getOrder().get(0).getField())) {
-                        // The generated alert ids include ctime, so this should sort them correctly
-                        field = "ctime";
-                    }
-                    SortFieldContext sortField = queryBuilder.sort()
-                            .byField(field);
-
-                    if (pager.getOrder().get(0).getDirection() == Order.Direction.DESCENDING) {
-                        sortField = sortField.desc();
-                    } else {
-                        sortField = sortField.asc();
-                    }
-                    query = query.sort(sortField.createSort());
-                }
-
-                // Do limitations at Infinispan level if possible
-                if (isServerSideSorted(pager)) {
-                    if (pager.getStart() > 0) {
-                        query = query.firstResult(pager.getStart());
-                    }
-                    if (pager.getPageSize() != PageContext.UNLIMITED_PAGE_SIZE) {
-                        query = query.maxResults(pager.getPageSize());
-                    }
-                }
-            }
+            CacheQuery<IspnEvent> query = alertsQuery(tenantIds, criteria, pager);
 
             List<IspnEvent> ispnEvents = query.list();
 
-            // TODO Replace with projection?
+            // Each entry of the results is unmarshalled for this query, its alert is trimmed in place
             final boolean thinAlerts = criteria.isThin();
             List<Alert> alerts = ispnEvents.stream().map(ispnEvent -> {
                 if (thinAlerts) {
-                    Alert alert = new Alert((Alert) ispnEvent.getEvent());
+                    Alert alert = (Alert) ispnEvent.getEvent();
                     alert.setDampening(null);
                     alert.setEvalSets(null);
                     alert.setResolvedEvalSets(null);
@@ -423,6 +468,52 @@ public class IspnAlertsServiceImpl implements AlertsService {
         }
     }
 
+    @Override
+    public Page<EventSummary> getAlertSummaries(String tenantId, AlertsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+
+        if(criteria == null) {
+            criteria = new AlertsCriteria();
+        }
+
+        pager = summaryPager(pager);
+        try {
+            CacheQuery<IspnEvent> query = alertsQuery(Collections.singleton(tenantId), criteria, pager);
+            return new Page<>(summaries(query), pager, query.getResultSize());
+        } catch (SearchException se) {
+            throw new IllegalArgumentException(se.getMessage());
+        }
+    }
+
+    private CacheQuery<IspnEvent> alertsQuery(Set<String> tenantIds, AlertsCriteria criteria, Pager pager) {
+        // Set the query starting point to the earliest retention time to prevent incorrect
+        // return of the Query maxResults
+        long earliestRetentionTime = Instant.now().minus(alertsLifespanInHours, ChronoUnit.HOURS).toEpochMilli();
+
+        if(criteria.getStartTime() == null || criteria.getStartTime() < earliestRetentionTime) {
+            criteria.setStartTime(earliestRetentionTime);
+        }
+
+        org.hibernate.search.query.dsl.QueryBuilder queryBuilder = searchManager.buildQueryBuilderForClass(IspnEvent.class).get();
+        // TODO Remove multi-tenant fetching from function
+        org.apache.lucene.search.Query tenantQuery = queryBuilder.keyword().onField("tenantId").matching(tenantIds.iterator().next()).createQuery();
+        // TODO Add alerts only searching
+
+        org.apache.lucene.search.Query typeQuery = queryBuilder.keyword().onField("eventType").matching("ALERT").createQuery();
+        org.apache.lucene.search.Query criteriaQuery = queryPlans.evaluate(queryBuilder, criteria.getQuery());
+        MustJunction rulesPart = queryBuilder.bool().must(tenantQuery).must(typeQuery).must(criteriaQuery);
+
+        if (criteria.hasTagQueryCriteria()) {
+            org.apache.lucene.search.Query tagsQuery = queryPlans.evaluate(queryBuilder, criteria.getTagQuery());
+            rulesPart = rulesPart.must(tagsQuery);
+        }
+        org.apache.lucene.search.Query finalQuery = rulesPart.createQuery();
+
+        return page(queryBuilder, searchManager.getQuery(finalQuery, IspnEvent.class), pager);
+    }
+
     @Override
     public Event getEvent(String tenantId, String eventId, boolean thin) throws Exception {
         if (isEmpty(tenantId)) {
@@ -454,6 +545,34 @@ public class IspnAlertsServiceImpl implements AlertsService {
             criteria = new EventsCriteria();
         }
 
+        CacheQuery<IspnEvent> query = eventsQuery(tenantIds, criteria, pager);
+
+        List<IspnEvent> ispnEvents = query.list();
+        List<Event> events = ispnEvents.stream().map(e -> e.getEvent()).collect(Collectors.toList());
+
+        return prepareEventsPage(events, pager, query.getResultSize());
+    }
+
+    @Override
+    public Page<EventSummary> getEventSummaries(String tenantId, EventsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+
+        if(criteria == null) {
+            criteria = new EventsCriteria();
+        }
+
+        pager = summaryPager(pager);
+        try {
+            CacheQuery<IspnEvent> query = eventsQuery(Collections.singleton(tenantId), criteria, pager);
+            return new Page<>(summaries(query), pager, query.getResultSize());
+        } catch (SearchException se) {
+            throw new IllegalArgumentException(se.getMessage());
+        }
+    }
+
+    private CacheQuery<IspnEvent> eventsQuery(Set<String> tenantIds, EventsCriteria criteria, Pager pager) {
         // Set the query starting point to the earliest retention time to prevent incorrect
         // return of the Query maxResults
         long earliestRetentionTime = Instant.now().minus(alertsLifespanInHours, ChronoUnit.HOURS).toEpochMilli();
@@ -465,7 +584,7 @@ public class IspnAlertsServiceImpl implements AlertsService {
         org.hibernate.search.query.dsl.QueryBuilder queryBuilder = searchManager.buildQueryBuilderForClass(IspnEvent.class).get();
         // TODO Remove multi-tenant fetching from function
         org.apache.lucene.search.Query tenantQuery = queryBuilder.keyword().onField("tenantId").matching(tenantIds.iterator().next()).createQuery();
-        org.apache.lucene.search.Query criteriaQuery = HibernateSearchQueryCreator.evaluate(queryBuilder, criteria.getQuery());
+        org.apache.lucene.search.Query criteriaQuery = queryPlans.evaluate(queryBuilder, criteria.getQuery());
         MustJunction rulesPart = queryBuilder.bool().must(tenantQuery).must(criteriaQuery);
 
         if (criteria.hasEventTypeCriteria()) {
@@ -475,13 +594,20 @@ public class IspnAlertsServiceImpl implements AlertsService {
         }
 
         if(criteria.hasTagQueryCriteria()) {
-            org.apache.lucene.search.Query tagsQuery = HibernateSearchQueryCreator.evaluate(queryBuilder, criteria.getTagQuery());
+            org.apache.lucene.search.Query tagsQuery = queryPlans.evaluate(queryBuilder, criteria.getTagQuery());
             rulesPart = rulesPart.must(tagsQuery);
         }
         org.apache.lucene.search.Query finalQuery = rulesPart.createQuery();
 
-        CacheQuery<IspnEvent> query = searchManager.getQuery(finalQuery, IspnEvent.class);
+        return page(queryBuilder, searchManager.getQuery(finalQuery, IspnEvent.class), pager);
+    }
 
+    /*
+        Sorts and limits the query in the index when the pager allows it, the other orders are applied to the
+        results by preparePage and prepareEventsPage.
+     */
+    private CacheQuery<IspnEvent> page(org.hibernate.search.query.dsl.QueryBuilder queryBuilder,
+                                       CacheQuery<IspnEvent> query, Pager pager) {
         if (pager != null) {
             if (pager.getOrder() != null && !pager.getOrder().isEmpty() && pager.getOrder().get(0).isSpecific()) {
                 String field = "id";
@@ -510,11 +636,59 @@ public class IspnAlertsServiceImpl implements AlertsService {
                 }
             }
         }
+        return query;
+    }
 
-        List<IspnEvent> ispnEvents = query.list();
-        List<Event> events = ispnEvents.stream().map(e -> e.getEvent()).collect(Collectors.toList());
+    /*
+        The summaries are sorted and paged in the index only, so they are ordered by id (the default) or ctime.
+     */
+    private Pager summaryPager(Pager pager) {
+        String byId = AlertComparator.Field.ALERT_ID.getText();
+        if (pager == null) {
+            return Pager.unlimited(Order.by(byId, Order.Direction.ASCENDING));
+        }
+        Order order = pager.getOrder() != null && !pager.getOrder().isEmpty() ? pager.getOrder().get(0) : null;
+        if (order == null || !order.isSpecific() || EventComparator.Field.ID.getName().equals(order.getField())) {
+            Order.Direction direction = order != null && order.getDirection() != null
+                    ? order.getDirection() : Order.Direction.ASCENDING;
+            return Pager.builder()
+                    .withPageSize(pager.getPageSize())
+                    .withStartPage(pager.getPageNumber())
+                    .orderBy(byId, direction).build();
+        }
+        if (!isServerSideSorted(pager)) {
+            throw new IllegalArgumentException("Summaries can only be ordered by id or ctime, not by "
+                    + order.getField());
+        }
+        return pager;
+    }
 
-        return prepareEventsPage(events, pager, query.getResultSize());
+    /*
+        Reads the summaries from the stored fields of the index documents, the entries are not loaded.
+     */
+    private List<EventSummary> summaries(CacheQuery<IspnEvent> query) {
+        List<Object[]> rows = query.projection(SUMMARY_PROJECTION).list();
+        List<EventSummary> summaries = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            EventSummary summary = new EventSummary();
+            summary.setEventType((String) row[0]);
+            summary.setTenantId((String) row[1]);
+            summary.setId((String) row[2]);
+            summary.setCtime(row[3] != null ? ((Number) row[3]).longValue() : 0);
+            summary.setCategory((String) row[4]);
+            summary.setTriggerId((String) row[5]);
+            summary.setStatus((String) row[6]);
+            summary.setStime(row[7] != null ? ((Number) row[7]).longValue() : 0);
+            summary.setSeverity((String) row[8]);
+            for (IndexableField field : ((Document) row[9]).getFields()) {
+                if (field.name().startsWith(TagsBridge.TAGS_PREFIX)) {
+                    summary.getTags().put(field.name().substring(TagsBridge.TAGS_PREFIX.length()),
+                            field.stringValue());
+                }
+            }
+            summaries.add(summary);
+        }
+        return summaries;
     }
 
     @Override
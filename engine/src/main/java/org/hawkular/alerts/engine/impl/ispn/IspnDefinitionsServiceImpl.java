@@ -5,12 +5,14 @@ import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFI
 import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFINITION_UPDATE;
 import static org.hawkular.alerts.api.util.Util.isEmpty;
 import static org.hawkular.alerts.engine.impl.ispn.IspnPk.pk;
+import static org.hawkular.alerts.engine.impl.ispn.IspnPk.pkFromConditionId;
 import static org.hawkular.alerts.engine.impl.ispn.IspnPk.pkFromDampeningId;
 import static org.hawkular.alerts.engine.impl.ispn.IspnPk.pkFromTriggerId;
 import static org.hawkular.alerts.engine.util.Utils.checkTenantId;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Charsets;
@@ -18,10 +20,15 @@ import com.google.common.collect.Multimap;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
+import com.redhat.cloud.policies.api.model.condition.expression.ExpressionCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.apache.lucene.search.Query;
+import org.eclipse.microprofile.config.ConfigProvider;
 import org.hawkular.alerts.api.exception.FoundException;
 import org.hawkular.alerts.api.exception.NotFoundException;
 import org.hawkular.alerts.api.json.GroupMemberInfo;
+import org.hawkular.alerts.api.model.Lifecycle;
 import org.hawkular.alerts.api.model.Note;
 import org.hawkular.alerts.api.model.action.ActionDefinition;
 import org.hawkular.alerts.api.model.condition.*;
@@ -36,6 +43,7 @@ import org.hawkular.alerts.api.model.paging.TriggerComparator;
 import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.model.trigger.TriggerKey;
 import org.hawkular.alerts.api.model.trigger.TriggerAction;
 import org.hawkular.alerts.api.model.trigger.TriggerType;
 import org.hawkular.alerts.api.services.*;
@@ -45,8 +53,9 @@ import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.DistributedListener;
 import org.hawkular.alerts.api.services.TriggersCriteria;
 import org.hawkular.alerts.engine.cache.IspnCacheManager;
+import org.hawkular.alerts.engine.cache.LastEvaluationCacheManager;
 import org.hawkular.alerts.engine.impl.AlertsContext;
-import org.hawkular.alerts.engine.impl.hibernate.HibernateSearchQueryCreator;
+import org.hawkular.alerts.engine.impl.hibernate.QueryPlanCache;
 import org.hawkular.alerts.engine.impl.ispn.model.*;
 import org.hawkular.alerts.engine.service.AlertsEngine;
 import org.hawkular.alerts.log.AlertingLogger;
@@ -72,11 +81,25 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
 
     AlertsContext alertsContext;
 
+    LastEvaluationCacheManager lastEvaluationCacheManager;
+
     Cache<String, Object> backend;
 
     QueryFactory queryFactory;
     SearchManager searchManager;
 
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    QueryPlanCache queryPlans;
+
+//    @ConfigProperty(name = "engine.backend.ispn.lifecycle-bucket-size")
+    long lifecycleBucketSizeInHours;
+
+//    @ConfigProperty(name = "engine.backend.ispn.lifecycle-lifespan")
+    long lifecycleLifespanInHours;
+
+    IspnTriggerLifecycleStore lifecycleStore;
+
     private List<DefinitionsEvent> deferredNotifications = new ArrayList<>();
     private int deferNotificationsCount = 0;
 
@@ -88,6 +111,18 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
         }
         queryFactory = Search.getQueryFactory(backend);
         searchManager = Search.getSearchManager(backend);
+        lifecycleBucketSizeInHours = ConfigProvider.getConfig()
+                .getValue("engine.backend.ispn.lifecycle-bucket-size", Long.class);
+        lifecycleLifespanInHours = ConfigProvider.getConfig()
+                .getValue("engine.backend.ispn.lifecycle-lifespan", Long.class);
+        lifecycleStore = new IspnTriggerLifecycleStore(backend, lifecycleBucketSizeInHours, lifecycleLifespanInHours);
+        long queryPlanCacheSize = ConfigProvider.getConfig()
+                .getValue("engine.backend.ispn.query-plan-cache-size", Long.class);
+        queryPlans = new QueryPlanCache("trigger", queryPlanCacheSize, meterRegistry);
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
     }
 
     public void setAlertsEngine(AlertsEngine alertsEngine) {
@@ -98,6 +133,10 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
         this.alertsContext = alertsContext;
     }
 
+    public void setLastEvaluationCacheManager(LastEvaluationCacheManager lastEvaluationCacheManager) {
+        this.lastEvaluationCacheManager = lastEvaluationCacheManager;
+    }
+
     @Override
     public void addActionDefinition(String tenantId, ActionDefinition actionDefinition) throws Exception {
         if (isEmpty(tenantId)) {
@@ -428,8 +467,7 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
             }
         }
 
-        existingTrigger.getLifecycle().addAll(trigger.getLifecycle());
-        trigger.setLifecycle(existingTrigger.getLifecycle());
+        mergeLifecycle(existingTrigger, trigger);
 
         try {
             deferNotifications();
@@ -556,8 +594,7 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
                 throw new IllegalArgumentException("Orphan status can not be changed by this method.");
             }
         }
-        existingTrigger.getLifecycle().addAll(trigger.getLifecycle());
-        trigger.setLifecycle(existingTrigger.getLifecycle());
+        mergeLifecycle(existingTrigger, trigger);
         return updateTrigger(trigger, reload);
     }
 
@@ -704,7 +741,7 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
             org.hibernate.search.query.dsl.QueryBuilder queryBuilder = searchManager.buildQueryBuilderForClass(IspnTrigger.class).get();
             Query tenantQuery = queryBuilder.keyword().onField("tenantId").matching(tenantId).createQuery();
 
-            Query values = HibernateSearchQueryCreator.evaluate(queryBuilder, criteria.getQuery());
+            Query values = queryPlans.evaluate(queryBuilder, criteria.getQuery());
 
             Query finalQuery = queryBuilder.bool().must(tenantQuery).must(values).createQuery();
 
@@ -1045,6 +1082,14 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
                 .build().list());
     }
 
+    @Override
+    public Map<String, List<Dampening>> getDampeningsByTrigger(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        return groupByTrigger(getDampenings(tenantId), Dampening::getTriggerId, Dampening::getTriggerMode);
+    }
+
     @Override
     public Collection<Dampening> getTriggerDampenings(String tenantId, String triggerId, Mode triggerMode)
             throws Exception {
@@ -1304,6 +1349,36 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
         backend.putAll(newConditions);
     }
 
+    @Override
+    public void updateConditionsLastEvaluation(Map<String, Long> lastEvaluations) throws Exception {
+        if (isEmpty(lastEvaluations)) {
+            return;
+        }
+        try {
+            backend.startBatch();
+            for (Entry<String, Long> entry : lastEvaluations.entrySet()) {
+                // Read back the stored condition, it may have been redefined since it was evaluated
+                IspnCondition ispnCondition = (IspnCondition) backend.get(pkFromConditionId(entry.getKey()));
+                if (ispnCondition == null || ispnCondition.getCondition().getLastEvaluation() >= entry.getValue()) {
+                    continue;
+                }
+                IspnCondition updated = new IspnCondition(ispnCondition.getCondition());
+                updated.getCondition().setLastEvaluation(entry.getValue());
+                backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES)
+                        .put(pkFromConditionId(entry.getKey()), updated);
+            }
+            backend.endBatch(true);
+        } catch (Exception e) {
+            try {
+                backend.endBatch(false);
+            } catch (Exception e2) {
+                log.errorDatabaseException(e2.getMessage());
+            }
+            log.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+    }
+
     @Override
     public Collection<Condition> getConditions(String tenantId) throws Exception {
         return mapConditions(queryFactory.from(IspnCondition.class)
@@ -1311,6 +1386,24 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
                 .build().list());
     }
 
+    @Override
+    public Map<String, List<Condition>> getConditionsByTrigger(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        return groupByTrigger(getConditions(tenantId), Condition::getTriggerId, Condition::getTriggerMode);
+    }
+
+    /*
+        Conditions and dampenings are listed per trigger with the FIRING mode first, as the FullTrigger expects them.
+     */
+    private static <T> Map<String, List<T>> groupByTrigger(Collection<T> items, Function<T, String> triggerId,
+            Function<T, Mode> triggerMode) {
+        return items.stream()
+                .sorted(Comparator.comparing(triggerMode, Comparator.nullsLast(Comparator.naturalOrder())))
+                .collect(Collectors.groupingBy(triggerId));
+    }
+
     @Override
     public Collection<Condition> getTriggerConditions(String tenantId, String triggerId, Mode triggerMode)
             throws Exception {
@@ -1347,6 +1440,8 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
             throw new FoundException(pk);
         }
         backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).put(pk, new IspnActionPlugin(actionPlugin, defaultProperties));
+
+        notifyListeners(new DefinitionsEvent(Type.ACTION_PLUGIN_CHANGE, null, null, null, actionPlugin, null, null));
     }
 
     @Override
@@ -1355,6 +1450,8 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
             throw new IllegalArgumentException("actionPlugin must be not null");
         }
         backend.remove(pk(actionPlugin));
+
+        notifyListeners(new DefinitionsEvent(Type.ACTION_PLUGIN_CHANGE, null, null, null, actionPlugin, null, null));
     }
 
     @Override
@@ -1382,6 +1479,8 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
         }
         found.setDefaultProperties(defaultProperties);
         backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).put(pk, found);
+
+        notifyListeners(new DefinitionsEvent(Type.ACTION_PLUGIN_CHANGE, null, null, null, actionPlugin, null, null));
     }
 
     @Override
@@ -1866,6 +1965,7 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
         if (found != null) {
             throw new FoundException(pk);
         }
+        archiveLifecycle(trigger);
         backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).put(pk, new IspnTrigger(trigger));
 
         if (null != alertsEngine) {
@@ -1889,6 +1989,7 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
             backend.startBatch();
 
             backend.remove(pkFromTriggerId(tenantId, triggerId));
+            lifecycleStore.remove(tenantId, triggerId);
             removeConditions(tenantId, triggerId, null);
             getTriggerDampenings(tenantId, triggerId, null).stream()
                     .forEach(d -> backend.remove(pk(d)));
@@ -1910,10 +2011,92 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
 
     public void addLifecycleToTrigger(String tenantId, String triggerId, Trigger.TriggerLifecycle lifecycle) throws Exception {
         Trigger trigger = getTrigger(tenantId, triggerId);
-        trigger.addLifecycle(lifecycle, 0, null);
+        archiveLegacyLifecycle(trigger);
+        Lifecycle added = trigger.addLifecycle(lifecycle, 0, null);
+        lifecycleStore.append(tenantId, triggerId, Collections.singletonList(added));
         updateTrigger(trigger, false);
     }
 
+    @Override
+    public void addLifecycleToTriggers(Map<TriggerKey, List<Long>> lifecycleTimes,
+                                       Trigger.TriggerLifecycle lifecycle) throws Exception {
+        if (isEmpty(lifecycleTimes)) {
+            return;
+        }
+        try {
+            backend.startBatch();
+            for (Entry<TriggerKey, List<Long>> entry : lifecycleTimes.entrySet()) {
+                TriggerKey key = entry.getKey();
+                IspnTrigger ispnTrigger = (IspnTrigger) backend.get(pkFromTriggerId(key.getTenantId(), key.getTriggerId()));
+                if (ispnTrigger == null) {
+                    log.debugf("Trigger %s not found, lifecycle %s skipped", key, lifecycle);
+                    continue;
+                }
+                Trigger trigger = ispnTrigger.getTrigger();
+                archiveLegacyLifecycle(trigger);
+                List<Lifecycle> added = new ArrayList<>(entry.getValue().size());
+                for (Long stime : entry.getValue()) {
+                    added.add(trigger.addLifecycle(lifecycle, stime, null));
+                }
+                lifecycleStore.append(key.getTenantId(), key.getTriggerId(), added);
+                backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES).put(pk(trigger), new IspnTrigger(trigger));
+            }
+            backend.endBatch(true);
+        } catch (Exception e) {
+            try {
+                backend.endBatch(false);
+            } catch (Exception e2) {
+                log.errorDatabaseException(e2.getMessage());
+            }
+            log.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Lifecycle> getTriggerLifecycle(String tenantId, String triggerId, long start, long end)
+            throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(triggerId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+        if (start > end) {
+            throw new IllegalArgumentException("Start time must be before end time");
+        }
+        return lifecycleStore.get(tenantId, triggerId, start, end);
+    }
+
+    /**
+     * Moves the lifecycle events of the trigger to its history, the trigger keeps the latest ones and the counts.
+     */
+    private void archiveLifecycle(Trigger trigger) {
+        List<Lifecycle> lifecycle = trigger.getLifecycle();
+        trigger.setLifecycle(new ArrayList<>());
+        trigger.setLifecycleCounts(new HashMap<>());
+        lifecycle.forEach(trigger::addLifecycle);
+        lifecycleStore.append(trigger.getTenantId(), trigger.getId(), lifecycle);
+    }
+
+    /**
+     * Triggers stored before the lifecycle history carry all their lifecycle events and no counts, their events are
+     * moved to the history before the first new one is added.
+     */
+    private void archiveLegacyLifecycle(Trigger trigger) {
+        if (trigger.getLifecycleCounts() == null) {
+            archiveLifecycle(trigger);
+        }
+    }
+
+    private void mergeLifecycle(Trigger existingTrigger, Trigger trigger) {
+        archiveLegacyLifecycle(existingTrigger);
+        trigger.getLifecycle().forEach(existingTrigger::addLifecycle);
+        lifecycleStore.append(existingTrigger.getTenantId(), existingTrigger.getId(), trigger.getLifecycle());
+        trigger.setLifecycle(existingTrigger.getLifecycle());
+        trigger.setLifecycleCounts(existingTrigger.getLifecycleCounts());
+    }
+
     private Trigger updateTrigger(Trigger trigger, boolean reload) throws Exception {
         log.info("new IspnTrigger: " + trigger.toString());
         String pk = pk(trigger);
@@ -2015,7 +2198,9 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
             for (Trigger trigger : triggers) {
                 trigger.setEnabled(enabled);
                 Trigger.TriggerLifecycle updatedCycle = enabled ? Trigger.TriggerLifecycle.ENABLE : Trigger.TriggerLifecycle.DISABLE;
-                trigger.addLifecycle(updatedCycle, System.currentTimeMillis(), note);
+                archiveLegacyLifecycle(trigger);
+                Lifecycle added = trigger.addLifecycle(updatedCycle, System.currentTimeMillis(), note);
+                lifecycleStore.append(tenantId, trigger.getId(), Collections.singletonList(added));
                 updateTrigger(trigger, true);
             }
         } finally {
@@ -2097,24 +2282,11 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
         }
         try {
             Trigger t = getTrigger(tenantId, triggerId);
-            List<Dampening> allDampenings = new ArrayList<>();
-            Collection<Dampening> firingDampenings = getTriggerDampenings(tenantId, t.getId(), Mode.FIRING);
-            Collection<Dampening> autoDampenings = getTriggerDampenings(tenantId, t.getId(), Mode.AUTORESOLVE);
-            if (!isEmpty(firingDampenings)) {
-                allDampenings.addAll(firingDampenings);
-            }
-            if (!isEmpty(autoDampenings)) {
-                allDampenings.addAll(autoDampenings);
-            }
-            List<Condition> allConditions = new ArrayList<>();
-            Collection<Condition> firingConditions = getTriggerConditions(tenantId, t.getId(), Mode.FIRING);
-            Collection<Condition> autoConditions = getTriggerConditions(tenantId, t.getId(), Mode.AUTORESOLVE);
-            if (!isEmpty(firingConditions)) {
-                allConditions.addAll(firingConditions);
-            }
-            if (!isEmpty(autoConditions)) {
-                allConditions.addAll(autoConditions);
-            }
+            // Both modes in one lookup each, grouped to keep the FIRING ones first
+            List<Dampening> allDampenings = groupByTrigger(getTriggerDampenings(tenantId, t.getId(), null),
+                    Dampening::getTriggerId, Dampening::getTriggerMode).getOrDefault(t.getId(), new ArrayList<>());
+            List<Condition> allConditions = groupByTrigger(getTriggerConditions(tenantId, t.getId(), null),
+                    Condition::getTriggerId, Condition::getTriggerMode).getOrDefault(t.getId(), new ArrayList<>());
             return new FullTrigger(t, allDampenings, allConditions);
         } catch (Exception e) {
             log.errorDatabaseException(e.getMessage());
@@ -2129,26 +2301,11 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
         List<FullTrigger> fullTriggers = new ArrayList<>();
         try {
             Collection<Trigger> triggers = getTriggers(tenantId, null, null);
+            Map<String, List<Dampening>> dampenings = getDampeningsByTrigger(tenantId);
+            Map<String, List<Condition>> conditions = getConditionsByTrigger(tenantId);
             for (Trigger t : triggers) {
-                List<Dampening> allDampenings = new ArrayList<>();
-                Collection<Dampening> firingDampenings = getTriggerDampenings(tenantId, t.getId(), Mode.FIRING);
-                Collection<Dampening> autoDampenings = getTriggerDampenings(tenantId, t.getId(), Mode.AUTORESOLVE);
-                if (!isEmpty(firingDampenings)) {
-                    allDampenings.addAll(firingDampenings);
-                }
-                if (!isEmpty(autoDampenings)) {
-                    allDampenings.addAll(autoDampenings);
-                }
-                List<Condition> allConditions = new ArrayList<>();
-                Collection<Condition> firingConditions = getTriggerConditions(tenantId, t.getId(), Mode.FIRING);
-                Collection<Condition> autoConditions = getTriggerConditions(tenantId, t.getId(), Mode.AUTORESOLVE);
-                if (!isEmpty(firingConditions)) {
-                    allConditions.addAll(firingConditions);
-                }
-                if (!isEmpty(autoConditions)) {
-                    allConditions.addAll(autoConditions);
-                }
-                fullTriggers.add(new FullTrigger(t, allDampenings, allConditions));
+                fullTriggers.add(new FullTrigger(t, dampenings.getOrDefault(t.getId(), new ArrayList<>()),
+                        conditions.getOrDefault(t.getId(), new ArrayList<>())));
             }
         } catch (Exception e) {
             log.errorDatabaseException(e.getMessage());
@@ -2168,10 +2325,23 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
 
     private Collection<Condition> mapConditions(List<IspnCondition> ispnConditions) {
         return ispnConditions.stream()
-                .map(c -> c.getCondition())
+                .map(c -> withLastEvaluation(c.getCondition()))
                 .collect(Collectors.toList());
     }
 
+    // The lastEvaluation kept in memory is ahead of the stored one until the next flush
+    private Condition withLastEvaluation(Condition condition) {
+        if (lastEvaluationCacheManager != null) {
+            long lastEvaluation = lastEvaluationCacheManager.getLastEvaluation(condition.getConditionId());
+            if (lastEvaluation > condition.getLastEvaluation()) {
+                // A copy, the stored instance is left untouched
+                condition = new IspnCondition(condition).getCondition();
+                condition.setLastEvaluation(lastEvaluation);
+            }
+        }
+        return condition;
+    }
+
     private void updateMemberTriggerDataIdMap(String tenantId, String memberTriggerId, Map<String, String> dataIdMap)
             throws Exception {
         if (isEmpty(tenantId)) {
@@ -2356,7 +2526,13 @@ public class IspnDefinitionsServiceImpl implements DefinitionsService {
 
         try {
             getTriggerConditions(tenantId, triggerId, triggerMode).stream()
-                    .forEach(c -> backend.remove(pk(c)));
+                    .forEach(c -> {
+                        backend.remove(pk(c));
+                        if (c instanceof EventCondition) {
+                            // Compiled expressions are keyed by string, drop the replaced ones from the cache
+                            ExpressionCache.invalidate(((EventCondition) c).getExpression());
+                        }
+                    });
         } catch (Exception e) {
             log.errorDatabaseException(e.getMessage());
             throw e;
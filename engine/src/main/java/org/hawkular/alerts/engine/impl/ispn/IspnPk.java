@@ -67,8 +67,15 @@ public class IspnPk {
         if (condition == null) {
             return null;
         }
+        return pkFromConditionId(condition.getConditionId());
+    }
+
+    public static String pkFromConditionId(String conditionId) {
+        if (conditionId == null) {
+            return null;
+        }
         return new StringBuilder("Condition-")
-                .append(condition.getConditionId())
+                .append(conditionId)
                 .toString();
     }
 
@@ -106,6 +113,19 @@ public class IspnPk {
                 .toString();
     }
 
+    public static String pkFromTriggerLifecycle(String tenantId, String triggerId, long bucket) {
+        if (tenantId == null || triggerId == null) {
+            return null;
+        }
+        return new StringBuilder("TriggerLifecycle-")
+                .append(tenantId)
+                .append("-")
+                .append(triggerId)
+                .append("-")
+                .append(bucket)
+                .toString();
+    }
+
     public static String pk(Event event) {
         if (event == null) {
             return null;
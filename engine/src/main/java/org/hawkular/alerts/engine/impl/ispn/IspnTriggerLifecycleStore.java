@@ -0,0 +1,115 @@
+package org.hawkular.alerts.engine.impl.ispn;
+
+import static org.hawkular.alerts.engine.impl.ispn.IspnPk.pkFromTriggerLifecycle;
+import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.api.model.Lifecycle;
+import org.hawkular.alerts.engine.impl.ispn.model.IspnTriggerLifecycle;
+import org.infinispan.Cache;
+
+/**
+ * Append-only history of the trigger lifecycle events, out of the trigger definitions.
+ *
+ * The events of a trigger are grouped in time buckets, one backend entry per trigger and bucket. A bucket expires
+ * once its most recent event is older than the lifespan, so the history is bounded in time and the Trigger itself
+ * only keeps the latest events and the counts.
+ *
+ * The caller manages the backend batch.
+ */
+class IspnTriggerLifecycleStore {
+
+    private final Cache<String, Object> backend;
+    private final long bucketSize;
+    private final long lifespan;
+
+    /**
+     * @param backend the backend cache
+     * @param bucketHours time covered by a bucket
+     * @param lifespanHours time the lifecycle events are kept
+     */
+    IspnTriggerLifecycleStore(Cache<String, Object> backend, long bucketHours, long lifespanHours) {
+        this.backend = backend;
+        this.bucketSize = TimeUnit.HOURS.toMillis(bucketHours);
+        this.lifespan = TimeUnit.HOURS.toMillis(lifespanHours);
+    }
+
+    /**
+     * Append lifecycle events to the history of a trigger. Events older than the lifespan are skipped.
+     */
+    void append(String tenantId, String triggerId, Collection<Lifecycle> lifecycle) {
+        if (lifecycle.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, List<Lifecycle>> byBucket = new HashMap<>();
+        for (Lifecycle item : lifecycle) {
+            byBucket.computeIfAbsent(bucket(item.getStime()), b -> new ArrayList<>()).add(item);
+        }
+        for (Map.Entry<Long, List<Lifecycle>> entry : byBucket.entrySet()) {
+            long bucket = entry.getKey();
+            long ttl = bucket + bucketSize + lifespan - now;
+            if (ttl <= 0) {
+                continue;
+            }
+            String pk = pkFromTriggerLifecycle(tenantId, triggerId, bucket);
+            IspnTriggerLifecycle found = (IspnTriggerLifecycle) backend.get(pk);
+            IspnTriggerLifecycle updated = found != null ? new IspnTriggerLifecycle(found)
+                    : new IspnTriggerLifecycle(tenantId, triggerId, bucket);
+            updated.getLifecycle().addAll(entry.getValue());
+            backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES)
+                    .put(pk, updated, ttl, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the lifecycle events of the trigger within [start, end], oldest first
+     */
+    List<Lifecycle> get(String tenantId, String triggerId, long start, long end) {
+        long now = System.currentTimeMillis();
+        // No bucket is ahead of now, a far future end would walk buckets that cannot exist
+        end = Math.min(end, now);
+        if (start > end) {
+            return new ArrayList<>();
+        }
+        long oldest = bucket(now - lifespan - bucketSize);
+        Set<String> pks = new HashSet<>();
+        for (long bucket = Math.max(bucket(start), oldest); bucket <= end; bucket += bucketSize) {
+            pks.add(pkFromTriggerLifecycle(tenantId, triggerId, bucket));
+        }
+        List<Lifecycle> lifecycle = new ArrayList<>();
+        for (Object found : backend.getAdvancedCache().getAll(pks).values()) {
+            for (Lifecycle item : ((IspnTriggerLifecycle) found).getLifecycle()) {
+                if (item.getStime() >= start && item.getStime() <= end) {
+                    lifecycle.add(item);
+                }
+            }
+        }
+        lifecycle.sort(Comparator.comparingLong(Lifecycle::getStime));
+        return lifecycle;
+    }
+
+    /**
+     * Remove the history of a trigger.
+     */
+    void remove(String tenantId, String triggerId) {
+        long now = System.currentTimeMillis();
+        for (long bucket = bucket(now - lifespan - bucketSize); bucket <= now; bucket += bucketSize) {
+            backend.getAdvancedCache().withFlags(IGNORE_RETURN_VALUES)
+                    .remove(pkFromTriggerLifecycle(tenantId, triggerId, bucket));
+        }
+    }
+
+    private long bucket(long time) {
+        return time - Math.floorMod(time, bucketSize);
+    }
+}
@@ -2,6 +2,7 @@ package org.hawkular.alerts.engine.impl.ispn.model;
 
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.Multimaps;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hibernate.search.annotations.Analyze;
@@ -14,6 +15,13 @@ import org.hibernate.search.annotations.Store;
 
 import java.io.Serializable;
 /**
+ * Backend entry of an event or an alert.
+ *
+ * The entry holds the event it is built from, it does not copy it. The backend cache stores its entries in binary
+ * form: an entry is marshalled on put and every read, a get or a query, unmarshals a new entry with its own event
+ * graph. The event returned by {@link #getEvent()} belongs to the reader, it can be returned as is or modified and
+ * stored again without affecting other readers.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -32,8 +40,9 @@ public class IspnEvent implements Serializable {
 
 //    @Field(store = Store.YES, analyze = Analyze.YES, name = "")
 //    @FieldBridge(impl = TagsBridge.class)
-    @Field(name = "")
 //    @Field(name = "", store = Store.YES, analyze = Analyze.NO)
+    // Stored for the summaries, documents indexed before are only complete after a reindex
+    @Field(name = "", store = Store.YES)
     @FieldBridge(impl = TagsBridge.class)
     private Multimap<String, String> tags;
 
@@ -71,13 +80,11 @@ public class IspnEvent implements Serializable {
         if (event == null) {
             throw new IllegalArgumentException("event must be not null");
         }
+        this.event = event;
         if (event instanceof Alert) {
-            this.event = new Alert((Alert) event);
             this.status = ((Alert) event).getCurrentLifecycle().getStatus();
             this.stime = ((Alert) event).getCurrentLifecycle().getStime();
             this.severity = ((Alert) event).getSeverity().name();
-        } else {
-            this.event = new Event(event);
         }
         this.id = event.getId();
         this.eventType = event.getEventType();
@@ -111,9 +118,7 @@ public class IspnEvent implements Serializable {
     }
 
     public Multimap<String, String> getTags() {
-        Multimap<String, String> map = tagsBuilder();
-        map.putAll(tags);
-        return map;
+        return Multimaps.unmodifiableMultimap(tags);
     }
 
     public void setTags(Multimap<String, String> tags) {
@@ -130,10 +135,7 @@ public class IspnEvent implements Serializable {
     }
 
     public Event getEvent() {
-        if (event instanceof Alert) {
-            return new Alert((Alert) event);
-        }
-        return new Event(event);
+        return event;
     }
 
     public void setEvent(Event event) {
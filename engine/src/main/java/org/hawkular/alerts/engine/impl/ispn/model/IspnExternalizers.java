@@ -0,0 +1,266 @@
+package org.hawkular.alerts.engine.impl.ispn.model;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.action.ActionDefinition;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.infinispan.commons.marshall.AdvancedExternalizer;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Encoding of the backend entities, registered as advanced externalizers in the serialization of the cache container
+ * instead of the reflective Java serialization of their object graphs.
+ *
+ * The indexed fields of a wrapper are derived from the model object it holds, so only the model object is written,
+ * in Smile (binary JSON) with the Jackson mapping of the REST API. Properties are written by name: a property added to
+ * the model is ignored by an older reader and a missing one keeps its default, so the stored entries follow the
+ * evolution of the model. Each entry starts with its encoding version, for the changes that are not compatible.
+ * The state of a model object that is not part of its json mapping is written after it, version 2 added the
+ * lastEvaluation of the conditions and whether a trigger has lifecycle counts.
+ *
+ * Entries stored before the externalizers were registered are still read by Java serialization,
+ * {@link org.hawkular.alerts.engine.impl.ispn.IspnAdminService#migrateEncoding()} rewrites them.
+ */
+public final class IspnExternalizers {
+
+    public static final int VERSION = 2;
+
+    private static final ObjectMapper mapper = new ObjectMapper(new SmileFactory())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private IspnExternalizers() {
+    }
+
+    private static void writeValue(ObjectOutput output, Object value) throws IOException {
+        output.writeByte(VERSION);
+        byte[] bytes = mapper.writeValueAsBytes(value);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static <T> T readValue(ObjectInput input, Class<T> type) throws IOException {
+        readVersion(input, type);
+        return readBody(input, type);
+    }
+
+    private static int readVersion(ObjectInput input, Class<?> type) throws IOException {
+        int version = input.readByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported encoding version " + version + " of " + type.getSimpleName());
+        }
+        return version;
+    }
+
+    private static <T> T readBody(ObjectInput input, Class<T> type) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return mapper.readValue(bytes, type);
+    }
+
+    public static class IspnActionExternalizer implements AdvancedExternalizer<IspnAction> {
+        @Override
+        public Set<Class<? extends IspnAction>> getTypeClasses() {
+            return Collections.singleton(IspnAction.class);
+        }
+
+        @Override
+        public Integer getId() {
+            return 4000;
+        }
+
+        @Override
+        public void writeObject(ObjectOutput output, IspnAction object) throws IOException {
+            writeValue(output, object.getAction());
+        }
+
+        @Override
+        public IspnAction readObject(ObjectInput input) throws IOException {
+            return new IspnAction(readValue(input, Action.class));
+        }
+    }
+
+    public static class IspnActionDefinitionExternalizer implements AdvancedExternalizer<IspnActionDefinition> {
+        @Override
+        public Set<Class<? extends IspnActionDefinition>> getTypeClasses() {
+            return Collections.singleton(IspnActionDefinition.class);
+        }
+
+        @Override
+        public Integer getId() {
+            return 4001;
+        }
+
+        @Override
+        public void writeObject(ObjectOutput output, IspnActionDefinition object) throws IOException {
+            writeValue(output, object.getActionDefinition());
+        }
+
+        @Override
+        public IspnActionDefinition readObject(ObjectInput input) throws IOException {
+            return new IspnActionDefinition(readValue(input, ActionDefinition.class));
+        }
+    }
+
+    public static class IspnActionPluginExternalizer implements AdvancedExternalizer<IspnActionPlugin> {
+        @Override
+        public Set<Class<? extends IspnActionPlugin>> getTypeClasses() {
+            return Collections.singleton(IspnActionPlugin.class);
+        }
+
+        @Override
+        public Integer getId() {
+            return 4002;
+        }
+
+        @Override
+        public void writeObject(ObjectOutput output, IspnActionPlugin object) throws IOException {
+            writeValue(output, object);
+        }
+
+        @Override
+        public IspnActionPlugin readObject(ObjectInput input) throws IOException {
+            return readValue(input, IspnActionPlugin.class);
+        }
+    }
+
+    public static class IspnConditionExternalizer implements AdvancedExternalizer<IspnCondition> {
+        @Override
+        public Set<Class<? extends IspnCondition>> getTypeClasses() {
+            return Collections.singleton(IspnCondition.class);
+        }
+
+        @Override
+        public Integer getId() {
+            return 4003;
+        }
+
+        @Override
+        public void writeObject(ObjectOutput output, IspnCondition object) throws IOException {
+            Condition condition = object.getCondition();
+            writeValue(output, condition);
+            // Not part of the json mapping
+            output.writeLong(condition.getLastEvaluation());
+        }
+
+        @Override
+        public IspnCondition readObject(ObjectInput input) throws IOException {
+            int version = readVersion(input, Condition.class);
+            Condition condition = readBody(input, Condition.class);
+            if (version >= 2) {
+                condition.setLastEvaluation(input.readLong());
+            }
+            return new IspnCondition(condition);
+        }
+    }
+
+    public static class IspnDampeningExternalizer implements AdvancedExternalizer<IspnDampening> {
+        @Override
+        public Set<Class<? extends IspnDampening>> getTypeClasses() {
+            return Collections.singleton(IspnDampening.class);
+        }
+
+        @Override
+        public Integer getId() {
+            return 4004;
+        }
+
+        @Override
+        public void writeObject(ObjectOutput output, IspnDampening object) throws IOException {
+            writeValue(output, object.getDampening());
+        }
+
+        @Override
+        public IspnDampening readObject(ObjectInput input) throws IOException {
+            return new IspnDampening(readValue(input, Dampening.class));
+        }
+    }
+
+    public static class IspnEventExternalizer implements AdvancedExternalizer<IspnEvent> {
+        @Override
+        public Set<Class<? extends IspnEvent>> getTypeClasses() {
+            return Collections.singleton(IspnEvent.class);
+        }
+
+        @Override
+        public Integer getId() {
+            return 4005;
+        }
+
+        @Override
+        public void writeObject(ObjectOutput output, IspnEvent object) throws IOException {
+            writeValue(output, object.getEvent());
+        }
+
+        @Override
+        public IspnEvent readObject(ObjectInput input) throws IOException {
+            // Alerts are read as such from their eventType
+            return new IspnEvent(readValue(input, Event.class));
+        }
+    }
+
+    public static class IspnTriggerExternalizer implements AdvancedExternalizer<IspnTrigger> {
+        @Override
+        public Set<Class<? extends IspnTrigger>> getTypeClasses() {
+            return Collections.singleton(IspnTrigger.class);
+        }
+
+        @Override
+        public Integer getId() {
+            return 4006;
+        }
+
+        @Override
+        public void writeObject(ObjectOutput output, IspnTrigger object) throws IOException {
+            Trigger trigger = object.getTrigger();
+            writeValue(output, trigger);
+            // Not part of the json mapping
+            output.writeByte(trigger.getMode() == Mode.AUTORESOLVE ? 1 : 0);
+            // No counts mark a trigger stored before the lifecycle history, empty counts are not in the json
+            output.writeByte(trigger.getLifecycleCounts() == null ? 0 : 1);
+        }
+
+        @Override
+        public IspnTrigger readObject(ObjectInput input) throws IOException {
+            int version = readVersion(input, Trigger.class);
+            Trigger trigger = readBody(input, Trigger.class);
+            trigger.setMode(input.readByte() == 1 ? Mode.AUTORESOLVE : Mode.FIRING);
+            if (version >= 2 && input.readByte() == 0) {
+                trigger.setLifecycleCounts(null);
+            }
+            return new IspnTrigger(trigger);
+        }
+    }
+
+    public static class IspnTriggerLifecycleExternalizer implements AdvancedExternalizer<IspnTriggerLifecycle> {
+        @Override
+        public Set<Class<? extends IspnTriggerLifecycle>> getTypeClasses() {
+            return Collections.singleton(IspnTriggerLifecycle.class);
+        }
+
+        @Override
+        public Integer getId() {
+            return 4007;
+        }
+
+        @Override
+        public void writeObject(ObjectOutput output, IspnTriggerLifecycle object) throws IOException {
+            writeValue(output, object);
+        }
+
+        @Override
+        public IspnTriggerLifecycle readObject(ObjectInput input) throws IOException {
+            return readValue(input, IspnTriggerLifecycle.class);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.hawkular.alerts.engine.impl.ispn.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hawkular.alerts.api.model.Lifecycle;
+
+/**
+ * The lifecycle events of a trigger within a time bucket. It is not indexed, the buckets are read by key.
+ */
+public class IspnTriggerLifecycle implements Serializable {
+
+    private String tenantId;
+
+    private String triggerId;
+
+    private long bucket;
+
+    private List<Lifecycle> lifecycle;
+
+    public IspnTriggerLifecycle() {
+    }
+
+    public IspnTriggerLifecycle(String tenantId, String triggerId, long bucket) {
+        this.tenantId = tenantId;
+        this.triggerId = triggerId;
+        this.bucket = bucket;
+        this.lifecycle = new ArrayList<>();
+    }
+
+    public IspnTriggerLifecycle(IspnTriggerLifecycle triggerLifecycle) {
+        this.tenantId = triggerLifecycle.getTenantId();
+        this.triggerId = triggerLifecycle.getTriggerId();
+        this.bucket = triggerLifecycle.getBucket();
+        this.lifecycle = new ArrayList<>(triggerLifecycle.getLifecycle());
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getTriggerId() {
+        return triggerId;
+    }
+
+    public void setTriggerId(String triggerId) {
+        this.triggerId = triggerId;
+    }
+
+    public long getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(long bucket) {
+        this.bucket = bucket;
+    }
+
+    public List<Lifecycle> getLifecycle() {
+        return lifecycle;
+    }
+
+    public void setLifecycle(List<Lifecycle> lifecycle) {
+        this.lifecycle = lifecycle;
+    }
+
+    @Override
+    public String toString() {
+        return "IspnTriggerLifecycle{" +
+                "tenantId='" + tenantId + '\'' +
+                ", triggerId='" + triggerId + '\'' +
+                ", bucket=" + bucket +
+                ", lifecycle.size=" + lifecycle.size() +
+                '}';
+    }
+}
@@ -17,7 +17,7 @@ import java.util.Map;
 public class TagsBridge implements ContainerBridge, FieldBridge {
     private static final MsgLogger log = MsgLogging.getMsgLogger(TagsBridge.class);
 
-    private static String TAGS_PREFIX = "tags.";
+    public static final String TAGS_PREFIX = "tags.";
 
     TagBridge bridge;
 
@@ -43,6 +43,12 @@ public interface RulesEngine {
      */
     Object getFact(Object fact);
 
+    /**
+     * @param factFilter the factFilter
+     * @return A copy of the facts in the rules engine matching the <code>factFilter</code>. Not null.
+     */
+    Collection<Object> getFacts(Predicate<Object> factFilter);
+
     /**
      * Retrieves the FactHandle for <code>fact</code> and then deletes the fact from the rules engine.
      * @param fact the fact
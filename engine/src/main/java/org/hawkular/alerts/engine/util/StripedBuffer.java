@@ -0,0 +1,197 @@
+package org.hawkular.alerts.engine.util;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-producer, single-consumer append buffer used to queue incoming Data and Events until the rules are fired.
+ *
+ * Producers append to one of several lock-free stripes, picked by thread, so concurrent producers rarely hit the
+ * same queue and never pay for ordering. The consumer drains all the stripes at once, sorts the items in a flat
+ * list and removes the duplicates. The drained set is in the natural ordering of the items, as a {@link TreeSet},
+ * and holds one item of each group of items comparing as equal. Which one is kept depends on the stripes the items
+ * were appended to, not on the order they were appended in.
+ *
+ * Only one thread at a time can {@link #drain()} or {@link #clear()} the buffer.
+ *
+ * @param <E> the type of the buffered items
+ */
+public class StripedBuffer<E extends Comparable<? super E>> {
+
+    private final ConcurrentLinkedQueue<E>[] stripes;
+    private final int mask;
+    private final LongAdder size = new LongAdder();
+
+    public StripedBuffer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param numStripes the minimum number of stripes, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public StripedBuffer(int numStripes) {
+        int n = Integer.highestOneBit(Math.max(1, numStripes - 1) << 1);
+        stripes = new ConcurrentLinkedQueue[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new ConcurrentLinkedQueue<>();
+        }
+        mask = n - 1;
+    }
+
+    public void add(E item) {
+        stripe().add(item);
+        size.increment();
+    }
+
+    public void addAll(Collection<? extends E> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        stripe().addAll(items);
+        size.add(items.size());
+    }
+
+    /**
+     * @return the number of items appended and not drained yet, duplicates included
+     */
+    public int size() {
+        return (int) Math.max(0, size.sum());
+    }
+
+    public boolean isEmpty() {
+        for (ConcurrentLinkedQueue<E> stripe : stripes) {
+            if (!stripe.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Take all the items appended so far. Items appended while draining are either part of the result or left in
+     * the buffer for the next drain, never lost.
+     *
+     * @return the drained items, sorted and without duplicates
+     */
+    public TreeSet<E> drain() {
+        List<E> items = new ArrayList<>(size());
+        for (ConcurrentLinkedQueue<E> stripe : stripes) {
+            E item;
+            while ((item = stripe.poll()) != null) {
+                items.add(item);
+            }
+        }
+        size.add(-items.size());
+        if (items.isEmpty()) {
+            return new TreeSet<>();
+        }
+
+        // The first of equal items in the drained order of the stripes is the one kept
+        items.sort(null);
+        int last = 0;
+        for (int i = 1; i < items.size(); i++) {
+            if (items.get(i).compareTo(items.get(last)) != 0) {
+                items.set(++last, items.get(i));
+            }
+        }
+        items.subList(last + 1, items.size()).clear();
+
+        // Building a TreeSet from a SortedSet is linear, no further comparisons are needed
+        return new TreeSet<>(new SortedListView<>(items));
+    }
+
+    public void clear() {
+        for (ConcurrentLinkedQueue<E> stripe : stripes) {
+            while (stripe.poll() != null) {
+                size.decrement();
+            }
+        }
+    }
+
+    private ConcurrentLinkedQueue<E> stripe() {
+        long id = Thread.currentThread().getId();
+        return stripes[(int) (id ^ (id >>> 16)) & mask];
+    }
+
+    /*
+        Read-only SortedSet over a sorted list without duplicates, natural ordering.
+     */
+    private static class SortedListView<E extends Comparable<? super E>> extends AbstractSet<E>
+            implements SortedSet<E> {
+
+        private final List<E> items;
+
+        SortedListView(List<E> items) {
+            this.items = items;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return Collections.unmodifiableList(items).iterator();
+        }
+
+        @Override
+        public int size() {
+            return items.size();
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return new SortedListView<>(items.subList(indexOf(fromElement), indexOf(toElement)));
+        }
+
+        @Override
+        public SortedSet<E> headSet(E toElement) {
+            return new SortedListView<>(items.subList(0, indexOf(toElement)));
+        }
+
+        @Override
+        public SortedSet<E> tailSet(E fromElement) {
+            return new SortedListView<>(items.subList(indexOf(fromElement), items.size()));
+        }
+
+        @Override
+        public E first() {
+            if (items.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return items.get(0);
+        }
+
+        @Override
+        public E last() {
+            if (items.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return items.get(items.size() - 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean contains(Object o) {
+            return Collections.binarySearch(items, (E) o) >= 0;
+        }
+
+        // Index of the first item greater than or equal to the element
+        private int indexOf(E element) {
+            int i = Collections.binarySearch(items, element);
+            return i >= 0 ? i : -(i + 1);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.hawkular.alerts.engine.util;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hashed timer wheel: a set of items, each one scheduled at a deadline in ms, from which the due items are taken
+ * with {@link #expire(long)}.
+ *
+ * The deadlines are hashed by tick into a fixed number of slots. Expiring walks only the slots of the ticks elapsed
+ * since the previous call, so its cost depends on the items that are due, plus the items of the same slots that are
+ * due on a later turn of the wheel, but not on the total number of items.
+ *
+ * An item is scheduled with {@link #schedule(Object, long)}, or with {@link #add(Object)} at the deadline given by
+ * the function of the wheel. Scheduling an item already in the wheel moves it to the new deadline. A deadline in the
+ * past is due on the next expire.
+ *
+ * It is not thread safe.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class TimerWheel<T> extends AbstractSet<T> {
+
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final long tickMs;
+    private final int mask;
+    private final Set<T>[] slots;
+    private final Map<T, Timer> timers = new HashMap<>();
+    private final ToLongFunction<? super T> deadline;
+
+    // Tick of the last expire, the slots up to it have been walked
+    private long currentTick = NOT_STARTED;
+
+    private static class Timer {
+        final long deadline;
+        final int slot;
+
+        Timer(long deadline, int slot) {
+            this.deadline = deadline;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * @param tickMs duration of a tick in ms
+     * @param ticksPerWheel the minimum number of slots, rounded up to a power of two
+     * @param deadline deadline of the items added with {@link #add(Object)}
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMs, int ticksPerWheel, ToLongFunction<? super T> deadline) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be positive");
+        }
+        int n = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1) << 1);
+        this.tickMs = tickMs;
+        this.slots = new Set[n];
+        this.mask = n - 1;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Schedule the item at the deadline given by the function of the wheel.
+     *
+     * @return true if the item was not in the wheel
+     */
+    @Override
+    public boolean add(T item) {
+        return schedule(item, deadline.applyAsLong(item));
+    }
+
+    /**
+     * Schedule the item at the given deadline, or move it there if it is already in the wheel.
+     *
+     * @return true if the item was not in the wheel
+     */
+    public boolean schedule(T item, long deadline) {
+        Timer previous = timers.remove(item);
+        if (previous != null) {
+            slots[previous.slot].remove(item);
+        }
+        Timer timer = new Timer(deadline, slot(deadline));
+        timers.put(item, timer);
+        if (slots[timer.slot] == null) {
+            slots[timer.slot] = new HashSet<>();
+        }
+        slots[timer.slot].add(item);
+        return previous == null;
+    }
+
+    /**
+     * Remove and return the items with a deadline at or before now.
+     */
+    public List<T> expire(long now) {
+        List<T> expired = new ArrayList<>();
+        if (timers.isEmpty()) {
+            currentTick = Math.max(currentTick, tick(now));
+            return expired;
+        }
+        long nowTick = tick(now);
+        if (currentTick == NOT_STARTED || nowTick - currentTick >= slots.length) {
+            for (Set<T> slot : slots) {
+                expire(slot, now, expired);
+            }
+        } else {
+            // The slot of the current tick is walked again, it may hold items due later in that tick
+            for (long t = currentTick; t <= Math.max(nowTick, currentTick); t++) {
+                expire(slots[(int) (t & mask)], now, expired);
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+        return expired;
+    }
+
+    private void expire(Set<T> slot, long now, List<T> expired) {
+        if (slot == null || slot.isEmpty()) {
+            return;
+        }
+        for (Iterator<T> i = slot.iterator(); i.hasNext();) {
+            T item = i.next();
+            if (timers.get(item).deadline <= now) {
+                i.remove();
+                timers.remove(item);
+                expired.add(item);
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        Timer previous = timers.remove(item);
+        if (previous == null) {
+            return false;
+        }
+        slots[previous.slot].remove(item);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return timers.containsKey(item);
+    }
+
+    @Override
+    public int size() {
+        return timers.size();
+    }
+
+    @Override
+    public void clear() {
+        timers.clear();
+        for (Set<T> slot : slots) {
+            if (slot != null) {
+                slot.clear();
+            }
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<Map.Entry<T, Timer>> entries = timers.entrySet().iterator();
+        return new Iterator<T>() {
+            private Map.Entry<T, Timer> last;
+
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public T next() {
+                last = entries.next();
+                return last.getKey();
+            }
+
+            @Override
+            public void remove() {
+                entries.remove();
+                slots[last.getValue().slot].remove(last.getKey());
+            }
+        };
+    }
+
+    private long tick(long time) {
+        return Math.floorDiv(time, tickMs);
+    }
+
+    // Past deadlines go to the slot of the current tick, which the next expire walks first
+    private int slot(long deadline) {
+        long t = currentTick == NOT_STARTED ? tick(deadline) : Math.max(tick(deadline), currentTick);
+        return (int) (t & mask);
+    }
+}
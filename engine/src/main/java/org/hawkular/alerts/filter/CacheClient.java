@@ -2,8 +2,13 @@ package org.hawkular.alerts.filter;
 
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Event;
 import org.infinispan.AdvancedCache;
@@ -16,7 +21,9 @@ import static org.infinispan.context.Flag.IGNORE_RETURN_VALUES;
  * used to perform front-line filtering of incoming data and events.  Data with dataIds not found in this cache
  * can be immediately discarded as it is not needed for trigger evaluation (on this or or other alerting nodes).
  *
- * The cache is a shared ISPN cache.
+ * The cache is a shared ISPN cache. The filtering is done against a local copy of its keys, so the incoming data
+ * and events do not touch the cache. The copy is loaded with the cache and kept in sync by the PublishCacheManager,
+ * which calls {@link #refresh(Collection)} with the keys it changes.
  *
  * @author Lucas Ponce
  * @author Jay Shaughnessy
@@ -27,8 +34,34 @@ public class CacheClient {
     // This cache is used by CacheClient to check wich dataIds are published and forwarded from metrics.
     private AdvancedCache<CacheKey, Set<String>> cache;
 
+    // Local copy of the keys of the cache
+    private volatile Set<CacheKey> published = ConcurrentHashMap.newKeySet();
+
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private Counter lookups;
+
+    public CacheClient() {
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        lookups = Counter.builder("engine.publish.lookups")
+                .description("Published keys read from the publish cache")
+                .register(meterRegistry);
+        Gauge.builder("engine.publish.keys", this, client -> client.published.size())
+                .description("Published keys held in memory for the filtering of incoming data and events")
+                .register(meterRegistry);
+    }
+
     public void setCache(Cache<CacheKey, Set<String>> cache) {
         this.cache = cache.getAdvancedCache();
+        reload();
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        registerMetrics();
     }
 
     public Set<CacheKey> keySet() {
@@ -43,17 +76,44 @@ public class CacheClient {
         return cache.get(key);
     }
 
+    /**
+     * Reload the local copy from all the keys of the cache, after the cache is cleared or loaded in bulk.
+     */
+    public synchronized void reload() {
+        Set<CacheKey> keys = ConcurrentHashMap.newKeySet();
+        for (CacheKey key : cache.keySet()) {
+            keys.add(new CacheKey(key.getTenantId(), key.getDataId()));
+            lookups.increment();
+        }
+        published = keys;
+    }
+
+    /**
+     * Update the local copy with the current state of the given keys in the cache. It is called once the changes of
+     * the keys are committed, the last call for a key reads its last committed state.
+     */
+    public synchronized void refresh(Collection<CacheKey> keys) {
+        for (CacheKey key : keys) {
+            lookups.increment();
+            if (cache.containsKey(key)) {
+                published.add(new CacheKey(key.getTenantId(), key.getDataId()));
+            } else {
+                published.remove(key);
+            }
+        }
+    }
+
     public Collection<Data> filterData(Collection<Data> data) {
         final CacheKey tester = new CacheKey("", "");
         return data.stream()
-                .filter(d -> cache.containsKey(fillKey(tester, d)))
+                .filter(d -> published.contains(fillKey(tester, d)))
                 .collect(Collectors.toList());
     }
 
     public Collection<Event> filterEvents(Collection<Event> events) {
         final CacheKey tester = new CacheKey("", "");
         return events.stream()
-                .filter(e -> cache.containsKey(fillKey(tester, e)))
+                .filter(e -> published.contains(fillKey(tester, e)))
                 .collect(Collectors.toList());
     }
 
@@ -74,5 +134,6 @@ public class CacheClient {
      */
     public void addTestKey(CacheKey key, Set<String> value) {
         cache.withFlags(IGNORE_RETURN_VALUES).put(key, value);
+        published.add(new CacheKey(key.getTenantId(), key.getDataId()));
     }
 }
@@ -0,0 +1,98 @@
+package org.hawkular.alerts.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.UUID;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.ExternalCondition;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.event.EventCategory;
+import org.hawkular.alerts.api.model.event.EventType;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.DroolsRulesEngineImpl;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.junit.Test;
+
+/**
+ * Runs the RulesEngine tests with the EventConditions evaluated out of the working memory.
+ */
+@QuarkusTest
+public class IndexedEventsRulesEngineTest extends RulesEngineTest {
+
+    @Override
+    protected RulesEngine createRulesEngine() {
+        return new DroolsRulesEngineImpl(true);
+    }
+
+    @Test
+    public void indexedEventsStayOutOfWorkingMemory() {
+        Trigger t1 = new Trigger("tenant", "trigger-1", "Events Test");
+        t1.setEventType(EventType.EVENT);
+        t1.setEnabled(true);
+        EventCondition t1c1 = new EventCondition("tenant", "trigger-1", "myapp.war", "text = 'DOWN'");
+
+        rulesEngine.addFact(t1);
+        rulesEngine.addFact(t1c1);
+
+        assertNull(rulesEngine.getFact(t1c1));
+
+        inputEvents.add(new Event("tenant", UUID.randomUUID().toString(), "myapp.war",
+                EventCategory.DEPLOYMENT.name(), "DOWN"));
+        rulesEngine.addEvents(inputEvents);
+        rulesEngine.fire();
+
+        assertEquals(outputEvents.toString(), 1, outputEvents.size());
+        assertEquals(1, evaluatedConditions.size());
+    }
+
+    @Test
+    public void removedTriggerIsNotEvaluated() {
+        Trigger t1 = new Trigger("tenant", "trigger-1", "Events Test");
+        t1.setEventType(EventType.EVENT);
+        t1.setEnabled(true);
+        EventCondition t1c1 = new EventCondition("tenant", "trigger-1", "myapp.war", "text = 'DOWN'");
+
+        rulesEngine.addFact(t1);
+        rulesEngine.addFact(t1c1);
+        rulesEngine.removeFact(t1);
+
+        inputEvents.add(new Event("tenant", UUID.randomUUID().toString(), "myapp.war",
+                EventCategory.DEPLOYMENT.name(), "DOWN"));
+        rulesEngine.addEvents(inputEvents);
+        rulesEngine.fire();
+
+        assertEquals(outputEvents.toString(), 0, outputEvents.size());
+        assertEquals(0, evaluatedConditions.size());
+    }
+
+    @Test
+    public void eventsReadByOtherConditionsEnterWorkingMemory() {
+        Trigger t1 = new Trigger("tenant", "trigger-1", "External Test");
+        t1.setEventType(EventType.EVENT);
+        t1.setEnabled(true);
+        ExternalCondition t1c1 = new ExternalCondition("tenant", "trigger-1", Mode.FIRING, "myapp.war",
+                "HawkularMetrics", "event:groupBy(tags.accountId):having(count > 1)");
+
+        Trigger t2 = new Trigger("tenant", "trigger-2", "Events Test");
+        t2.setEventType(EventType.EVENT);
+        t2.setEnabled(true);
+        EventCondition t2c1 = new EventCondition("tenant", "trigger-2", "myapp.war", "text = 'DOWN'");
+
+        rulesEngine.addFact(t1);
+        rulesEngine.addFact(t1c1);
+        rulesEngine.addFact(t2);
+        rulesEngine.addFact(t2c1);
+
+        inputEvents.add(new Event("tenant", UUID.randomUUID().toString(), "myapp.war",
+                EventCategory.DEPLOYMENT.name(), "DOWN"));
+        rulesEngine.addEvents(inputEvents);
+        rulesEngine.fire();
+
+        // Both triggers are evaluated, the ExternalCondition from the working memory
+        assertEquals(outputEvents.toString(), 2, outputEvents.size());
+    }
+}
@@ -71,7 +71,7 @@ public class RulesEngineTest {
     public void before() {
         SmallRyeConfig config = ConfigUtils.configBuilder(true).build();
         QuarkusConfigFactory.setConfig(config);
-        rulesEngine = new DroolsRulesEngineImpl();
+        rulesEngine = createRulesEngine();
         rulesEngine.addGlobal("log", log);
         rulesEngine.addGlobal("alerts", alerts);
         rulesEngine.addGlobal("events", outputEvents);
@@ -81,6 +81,10 @@ public class RulesEngineTest {
         rulesEngine.addGlobal("disabledTriggers", disabledTriggers);
     }
 
+    protected RulesEngine createRulesEngine() {
+        return new DroolsRulesEngineImpl();
+    }
+
     @After
     public void after() {
         rulesEngine.reset();
@@ -0,0 +1,119 @@
+package org.hawkular.alerts.engine.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.ConfigUtils;
+import io.quarkus.runtime.configuration.QuarkusConfigFactory;
+import io.smallrye.config.SmallRyeConfig;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.AlertsContext;
+import org.hawkular.alerts.engine.impl.ispn.IspnDefinitionsServiceImpl;
+import org.hawkular.alerts.filter.CacheClient;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PublishCacheManagerTest {
+
+    private static final String TENANT = "publishTenant";
+    private static final String OTHER_TENANT = "publishOtherTenant";
+
+    static IspnDefinitionsServiceImpl definitions;
+    static CacheClient dataIdCache;
+    static SimpleMeterRegistry meterRegistry;
+
+    @BeforeClass
+    public static void init() {
+        SmallRyeConfig config = ConfigUtils.configBuilder(true).build();
+        QuarkusConfigFactory.setConfig(config);
+        System.setProperty("hawkular.data", "./target/ispn");
+
+        AlertsContext alertsContext = new AlertsContext();
+        definitions = new IspnDefinitionsServiceImpl();
+        definitions.setAlertsContext(alertsContext);
+        definitions.init();
+
+        meterRegistry = new SimpleMeterRegistry();
+        dataIdCache = new CacheClient();
+        dataIdCache.setMeterRegistry(meterRegistry);
+        dataIdCache.setCache(IspnCacheManager.getCacheManager().getCache("publish"));
+
+        PublishCacheManager publishCacheManager = new PublishCacheManager();
+        publishCacheManager.setDefinitions(definitions);
+        publishCacheManager.setDataIdCache(dataIdCache);
+        publishCacheManager.setPublishCache(IspnCacheManager.getCacheManager().getCache("publish"));
+        publishCacheManager.setPublishDataIdsCache(IspnCacheManager.getCacheManager().getCache("dataIds"));
+
+        alertsContext.init();
+        publishCacheManager.init();
+    }
+
+    @Test
+    public void filterEventsTest() throws Exception {
+        addTrigger(TENANT, "trigger1", "dataId1");
+        addTrigger(TENANT, "trigger2", "dataId1");
+        addTrigger(TENANT, "trigger3", "dataId2");
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            events.add(new Event(TENANT, "event" + i, "dataId" + (i % 4), "category", "text"));
+            events.add(new Event(OTHER_TENANT, "otherEvent" + i, "dataId1", "category", "text"));
+        }
+
+        // The batch is filtered without reading the publish cache
+        double lookups = lookups();
+        assertEquals(List.of("dataId1", "dataId2"), filteredDataIds(events));
+        assertEquals(lookups, lookups(), 0);
+
+        // A dataId stays published while one of its triggers is defined
+        definitions.removeTrigger(TENANT, "trigger1");
+        assertEquals(List.of("dataId1", "dataId2"), filteredDataIds(events));
+        definitions.removeTrigger(TENANT, "trigger2");
+        assertEquals(List.of("dataId2"), filteredDataIds(events));
+
+        // Changed conditions publish the new dataId and drop the old one
+        definitions.setAllConditions(TENANT, "trigger3",
+                Collections.singletonList(new EventCondition(TENANT, "trigger3", Mode.FIRING, "dataId3", null)));
+        assertEquals(List.of("dataId3"), filteredDataIds(events));
+
+        addTrigger(OTHER_TENANT, "trigger1", "dataId1");
+        lookups = lookups();
+        Collection<Event> filtered = dataIdCache.filterEvents(events);
+        assertEquals(lookups, lookups(), 0);
+        assertEquals(125, filtered.size());
+
+        definitions.removeTrigger(TENANT, "trigger3");
+        definitions.removeTrigger(OTHER_TENANT, "trigger1");
+        assertEquals(0, dataIdCache.filterEvents(events).size());
+    }
+
+    private static void addTrigger(String tenantId, String triggerId, String dataId) throws Exception {
+        definitions.addTrigger(tenantId, new Trigger(tenantId, triggerId, "Trigger " + triggerId));
+        List<Condition> conditions = Collections.singletonList(
+                new EventCondition(tenantId, triggerId, Mode.FIRING, dataId, null));
+        definitions.setAllConditions(tenantId, triggerId, conditions);
+    }
+
+    private static List<String> filteredDataIds(List<Event> events) {
+        return dataIdCache.filterEvents(events).stream()
+                .filter(e -> e.getTenantId().equals(TENANT))
+                .map(Event::getDataId)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static double lookups() {
+        return meterRegistry.get("engine.publish.lookups").counter().count();
+    }
+}
@@ -0,0 +1,174 @@
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import io.quarkus.runtime.configuration.ConfigUtils;
+import io.quarkus.runtime.configuration.QuarkusConfigFactory;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The triggers of a tenant are loaded into a single shard, and the Data and Events of the tenant are queued to that
+ * same shard only.
+ */
+public class AlertsEngineShardsTest {
+
+    private static final String SHARDS_PROPERTY = "engine.alerts.engine-shards";
+    private static final int SHARDS = 4;
+    private static final int TENANTS = 20;
+
+    @BeforeClass
+    public static void init() {
+        System.setProperty(SHARDS_PROPERTY, String.valueOf(SHARDS));
+        QuarkusConfigFactory.setConfig(ConfigUtils.configBuilder(true).build());
+    }
+
+    @AfterClass
+    public static void restore() {
+        System.clearProperty(SHARDS_PROPERTY);
+        QuarkusConfigFactory.setConfig(ConfigUtils.configBuilder(true).build());
+    }
+
+    @Test
+    public void oneShardPerTriggerTest() {
+        AlertsEngineImpl engine = createEngine();
+        try {
+            Set<Integer> usedShards = new HashSet<>();
+            for (int i = 0; i < TENANTS; i++) {
+                Trigger trigger = trigger(i);
+                engine.loadTrigger(new FullTrigger(trigger, Collections.emptyList(), Collections.emptyList()));
+                int shard = shardOf(engine, trigger);
+                usedShards.add(shard);
+
+                // Loaded again, it stays in the same shard
+                engine.loadTrigger(new FullTrigger(trigger, Collections.emptyList(), Collections.emptyList()));
+                assertEquals(shard, shardOf(engine, trigger));
+                assertNotNull(engine.getLoadedTrigger(trigger));
+
+                // Another trigger of the tenant goes to the same shard
+                Trigger other = new Trigger(trigger.getTenantId(), "other", "Other");
+                engine.loadTrigger(new FullTrigger(other, Collections.emptyList(), Collections.emptyList()));
+                assertEquals(shard, shardOf(engine, other));
+            }
+            assertTrue("The tenants are spread over several shards", usedShards.size() > 1);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void routingByTriggerTest() {
+        AlertsEngineImpl engine = createEngine();
+        try {
+            for (int i = 0; i < TENANTS; i++) {
+                Trigger trigger = trigger(i);
+                engine.loadTrigger(new FullTrigger(trigger, Collections.emptyList(), Collections.emptyList()));
+                int shard = shardOf(engine, trigger);
+
+                int[] before = pendingSizes(engine);
+                TreeSet<Data> data = new TreeSet<>();
+                data.add(Data.forNumeric(trigger.getTenantId(), "data-" + i, 1, 1.0));
+                data.add(Data.forNumeric(trigger.getTenantId(), "data-" + i, 2, 2.0));
+                engine.sendData(data);
+                TreeSet<Event> events = new TreeSet<>();
+                events.add(new Event(trigger.getTenantId(), "event-" + i, "data-" + i, "category", "text"));
+                engine.sendEvents(events);
+
+                // The Data and Events of the tenant are all queued to the shard of its trigger
+                int[] after = pendingSizes(engine);
+                for (int s = 0; s < SHARDS; s++) {
+                    assertEquals("Shard " + s + " of tenant " + i, s == shard ? 3 : 0, after[s] - before[s]);
+                }
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /*
+        An engine of SHARDS shards whose rules engines only keep their facts. Its triggers are not reloaded, so the
+        shards are never fired and the Data and Events stay pending.
+     */
+    private static AlertsEngineImpl createEngine() {
+        AlertsEngineImpl engine = new AlertsEngineImpl();
+        engine.rulesFactory = AlertsEngineShardsTest::factsOnly;
+        engine.setRules(factsOnly());
+        assertEquals(SHARDS, engine.shards.size());
+        return engine;
+    }
+
+    private static Trigger trigger(int tenant) {
+        return new Trigger("tenant-" + tenant, "trigger", "Trigger");
+    }
+
+    // Index of the only shard the trigger is loaded into
+    private static int shardOf(AlertsEngineImpl engine, Trigger trigger) {
+        List<Integer> loadedInto = new ArrayList<>();
+        for (RulesShard shard : engine.shards) {
+            if (shard.getRules().getFact(trigger) != null) {
+                loadedInto.add(shard.getIndex());
+            }
+        }
+        assertEquals("Shards of " + trigger.getTenantId(), 1, loadedInto.size());
+        return loadedInto.get(0);
+    }
+
+    private static int[] pendingSizes(AlertsEngineImpl engine) {
+        int[] sizes = new int[SHARDS];
+        for (RulesShard shard : engine.shards) {
+            sizes[shard.getIndex()] = shard.getPendingSize();
+        }
+        return sizes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RulesEngine factsOnly() {
+        List<Object> facts = new ArrayList<>();
+        return (RulesEngine) Proxy.newProxyInstance(RulesEngine.class.getClassLoader(),
+                new Class<?>[] { RulesEngine.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addFact":
+                            facts.add(args[0]);
+                            return null;
+                        case "addFacts":
+                            facts.addAll((Collection<Object>) args[0]);
+                            return null;
+                        case "getFact":
+                            return facts.stream().filter(args[0]::equals).findFirst().orElse(null);
+                        case "removeFact":
+                            facts.remove(args[0]);
+                            return null;
+                        case "removeFacts":
+                            if (args[0] instanceof Predicate) {
+                                facts.removeIf((Predicate<Object>) args[0]);
+                            } else {
+                                facts.removeAll((Collection<Object>) args[0]);
+                            }
+                            return null;
+                        case "clear":
+                            facts.clear();
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
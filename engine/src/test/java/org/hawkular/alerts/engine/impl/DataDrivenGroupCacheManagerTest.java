@@ -0,0 +1,117 @@
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.ConfigUtils;
+import io.quarkus.runtime.configuration.QuarkusConfigFactory;
+import org.hawkular.alerts.api.model.condition.CompareCondition;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.model.trigger.TriggerType;
+import org.hawkular.alerts.engine.impl.ispn.IspnDefinitionsServiceImpl;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DataDrivenGroupCacheManagerTest {
+
+    private static final String TENANT = "dataDrivenTenant";
+
+    static IspnDefinitionsServiceImpl definitions;
+    static DataDrivenGroupCacheManager manager;
+    static SimpleMeterRegistry meterRegistry;
+
+    @BeforeClass
+    public static void init() {
+        System.setProperty("engine.data-driven-triggers-enabled", "true");
+        QuarkusConfigFactory.setConfig(ConfigUtils.configBuilder(true).build());
+        System.setProperty("hawkular.data", "./target/ispn");
+
+        AlertsContext alertsContext = new AlertsContext();
+        definitions = new IspnDefinitionsServiceImpl();
+        definitions.setAlertsContext(alertsContext);
+        definitions.init();
+
+        meterRegistry = new SimpleMeterRegistry();
+        manager = new DataDrivenGroupCacheManager();
+        manager.setMeterRegistry(meterRegistry);
+        manager.setDefinitions(definitions);
+
+        alertsContext.init();
+        manager.init();
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        System.clearProperty("engine.data-driven-triggers-enabled");
+    }
+
+    @Test
+    public void incrementalUpdateTest() throws Exception {
+        addGroup("dd1", new ThresholdCondition("dd1", Mode.FIRING, "cpu", ThresholdCondition.Operator.GT, 10.0));
+        addGroup("dd2", new CompareCondition("dd2", Mode.FIRING, "cpu", CompareCondition.Operator.GT, 1.0, "mem"));
+        assertEquals(Set.of("dd1", "dd2"), manager.needsSourceMember(TENANT, "cpu", "host1"));
+        assertEquals(Set.of("dd2"), manager.needsSourceMember(TENANT, "mem", "host1"));
+        assertTrue(manager.needsSourceMember(TENANT, "disk", "host1").isEmpty());
+        assertConsistent();
+
+        // Only the group without a member for the source needs one
+        definitions.addDataDrivenMemberTrigger(TENANT, "dd1", "host1");
+        assertEquals(Set.of("dd2"), manager.needsSourceMember(TENANT, "cpu", "host1"));
+        assertEquals(Set.of("dd1", "dd2"), manager.needsSourceMember(TENANT, "cpu", "host2"));
+        assertConsistent();
+
+        // Triggers outside of the groups do not change the index
+        Trigger trigger = new Trigger(TENANT, "standalone", "Standalone");
+        definitions.addTrigger(TENANT, trigger);
+        definitions.setAllConditions(TENANT, "standalone", Collections.singletonList(
+                new ThresholdCondition(TENANT, "standalone", "disk", ThresholdCondition.Operator.GT, 10.0)));
+        assertTrue(manager.needsSourceMember(TENANT, "disk", "host1").isEmpty());
+        assertConsistent();
+
+        // New group conditions remove the generated members
+        definitions.setGroupConditions(TENANT, "dd1", Mode.FIRING, Collections.singleton(
+                new ThresholdCondition("dd1", Mode.FIRING, "disk", ThresholdCondition.Operator.GT, 10.0)), null);
+        assertEquals(Set.of("dd1"), manager.needsSourceMember(TENANT, "disk", "host1"));
+        assertEquals(Set.of("dd2"), manager.needsSourceMember(TENANT, "cpu", "host1"));
+        assertConsistent();
+
+        definitions.removeGroupTrigger(TENANT, "dd2", false, false);
+        assertTrue(manager.needsSourceMember(TENANT, "mem", "host1").isEmpty());
+        assertTrue(manager.needsSourceMember(TENANT, "cpu", "host1").isEmpty());
+        assertConsistent();
+
+        definitions.removeGroupTrigger(TENANT, "dd1", false, false);
+        definitions.removeTrigger(TENANT, "standalone");
+        assertTrue(manager.needsSourceMember(TENANT, "disk", "host1").isEmpty());
+        assertConsistent();
+
+        assertTrue(meterRegistry.get("engine.data-driven-groups.update").tag("type", "incremental").timer()
+                .count() > 0);
+    }
+
+    private static void addGroup(String groupId, Condition condition) throws Exception {
+        Trigger group = new Trigger(TENANT, groupId, "Group " + groupId);
+        group.setType(TriggerType.DATA_DRIVEN_GROUP);
+        definitions.addGroupTrigger(TENANT, group);
+        definitions.setGroupConditions(TENANT, groupId, Mode.FIRING, Collections.singleton(condition), null);
+    }
+
+    // The index updated from the definitions events must be the one built from scratch
+    private static void assertConsistent() {
+        DataDrivenGroupCacheManager rebuilt = new DataDrivenGroupCacheManager();
+        rebuilt.setMeterRegistry(new SimpleMeterRegistry());
+        rebuilt.setDefinitions(definitions);
+        rebuilt.updateCache();
+        assertEquals(rebuilt.groups, manager.groups);
+        assertEquals(rebuilt.memberGroups, manager.memberGroups);
+        assertEquals(rebuilt.groupsByDataId, manager.groupsByDataId);
+    }
+}
@@ -0,0 +1,141 @@
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.hawkular.alerts.api.model.condition.MissingCondition;
+import org.hawkular.alerts.api.model.condition.RateCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.cache.IspnCacheManager;
+import org.hawkular.alerts.engine.util.MissingState;
+import org.hawkular.alerts.engine.util.RateData;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+import org.infinispan.Cache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Round trip of the evaluation state through the checkpoint cache.
+ */
+public class EvaluationCheckpointTest {
+
+    private static final String TENANT = "tenant";
+
+    private Cache<String, byte[]> cache;
+
+    @Before
+    public void before() {
+        cache = IspnCacheManager.getCacheManager().getCache("checkpoint");
+        cache.clear();
+    }
+
+    @After
+    public void after() {
+        cache.clear();
+    }
+
+    @Test
+    public void restoreTest() throws Exception {
+        List<RulesShard> shards = createShard(3);
+        RulesShard shard = shards.get(0);
+        Dampening dampening = (Dampening) shard.getRules()
+                .getFact(Dampening.forStrict(TENANT, "trigger", Mode.FIRING, 3));
+        dampening.setNumTrueEvals(2);
+        dampening.setNumEvals(2);
+        MissingState missingState = shard.missingStates.iterator().next();
+        missingState.setPreviousTime(1000L);
+        missingState.setTime(2000L);
+        shard.getRules().addFact(new RateData(Data.forNumeric(TENANT, "cpu", 3000L, 50.0)));
+
+        EvaluationCheckpoint checkpoint = new EvaluationCheckpoint(1);
+        checkpoint.setCache(cache);
+        checkpoint.start();
+        Thread.sleep(10);
+        checkpoint.checkpoint(shards);
+        checkpoint.shutdown();
+        assertEquals(3, cache.size());
+
+        List<RulesShard> reloaded = createShard(3);
+        EvaluationCheckpoint restart = new EvaluationCheckpoint(1);
+        restart.setCache(cache);
+        assertEquals(3, restart.restore(reloaded, tenantId -> reloaded.get(0)));
+
+        RulesShard reloadedShard = reloaded.get(0);
+        Dampening restored = (Dampening) reloadedShard.getRules().getFact(dampening);
+        assertEquals(2, restored.getNumTrueEvals());
+        assertEquals(2, restored.getNumEvals());
+        MissingState restoredState = reloadedShard.missingStates.iterator().next();
+        assertEquals(1000L, restoredState.getPreviousTime());
+        assertEquals(2000L, restoredState.getTime());
+        assertEquals(1, reloadedShard.getRules().getFacts(fact -> fact instanceof RateData).size());
+
+        // A dampening updated in between starts from scratch
+        List<RulesShard> updated = createShard(4);
+        assertEquals(2, restart.restore(updated, tenantId -> updated.get(0)));
+        restored = (Dampening) updated.get(0).getRules().getFact(dampening);
+        assertEquals(0, restored.getNumTrueEvals());
+    }
+
+    @Test
+    public void restoreTimeoutTest() throws Exception {
+        long now = System.currentTimeMillis();
+        RulesShard shard = createTimeoutShard();
+        shard.addData(List.of(Data.forNumeric(TENANT, "cpu", now, 20.0)));
+        shard.fire(now);
+        shard.addData(List.of(Data.forNumeric(TENANT, "cpu", now + 1000L, 20.0)));
+        shard.fire(now + 1000L);
+        Dampening pending = shard.pendingTimeouts.iterator().next();
+        assertEquals(2, pending.getNumTrueEvals());
+        long timeout = pending.getTrueEvalsStartTime() + pending.getEvalTimeSetting();
+
+        EvaluationCheckpoint checkpoint = new EvaluationCheckpoint(1);
+        checkpoint.setCache(cache);
+        checkpoint.start();
+        Thread.sleep(10);
+        checkpoint.checkpoint(Collections.singletonList(shard));
+        checkpoint.shutdown();
+
+        RulesShard reloaded = createTimeoutShard();
+        EvaluationCheckpoint restart = new EvaluationCheckpoint(1);
+        restart.setCache(cache);
+        assertEquals(1, restart.restore(Collections.singletonList(reloaded), tenantId -> reloaded));
+
+        // The restored dampening times out without new data
+        assertEquals(1, reloaded.pendingTimeouts.size());
+        assertTrue(reloaded.fire(timeout));
+        assertEquals(1, reloaded.alerts.size());
+    }
+
+    private RulesShard createTimeoutShard() {
+        RulesShard shard = new RulesShard(0, new DroolsRulesEngineImpl());
+        Trigger trigger = new Trigger(TENANT, "timeout-trigger", "Timeout Trigger");
+        trigger.setEnabled(true);
+        shard.getRules().addFacts(List.of(trigger,
+                new ThresholdCondition(TENANT, "timeout-trigger", "cpu", ThresholdCondition.Operator.GT, 10.0),
+                Dampening.forStrictTimeout(TENANT, "timeout-trigger", Mode.FIRING, 5000L)));
+        shard.addGlobals(MsgLogging.getMsgLogger(AlertingLogger.class, EvaluationCheckpointTest.class), null);
+        return shard;
+    }
+
+    private List<RulesShard> createShard(int numConsecutiveTrueEvals) {
+        RulesShard shard = new RulesShard(0, new DroolsRulesEngineImpl());
+        Trigger trigger = new Trigger(TENANT, "trigger", "Trigger");
+        MissingCondition missing = new MissingCondition(TENANT, "trigger", Mode.FIRING, "heartbeat", 60000L);
+        RateCondition rate = new RateCondition(TENANT, "trigger", "cpu", RateCondition.Direction.INCREASING,
+                RateCondition.Period.MINUTE, RateCondition.Operator.GT, 10.0);
+        MissingState missingState = new MissingState(trigger, missing);
+        shard.missingStates.add(missingState);
+        shard.getRules().addFacts(List.of(trigger, missing, rate, missingState,
+                Dampening.forStrict(TENANT, "trigger", Mode.FIRING, numConsecutiveTrueEvals)));
+        return Collections.singletonList(shard);
+    }
+}
@@ -0,0 +1,64 @@
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.api.model.condition.MissingCondition;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.util.MissingState;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+
+/**
+ * A {@link RulesShard} loaded with triggers holding a one hour MissingCondition, fired once so that every
+ * MissingState is armed. The next firings within the hour have nothing to do: this is the shard of an engine cycle
+ * when nothing arrives.
+ *
+ * It is public for the benchmarks module, which reads it from the test-jar of the engine.
+ */
+public class IdleShard {
+
+    private static final String TENANT = "tenant";
+
+    final RulesShard shard;
+    final List<MissingState> missingStates;
+
+    /**
+     * @param triggers the number of triggers loaded in the shard
+     * @param now time in ms of the first firing
+     */
+    public IdleShard(int triggers, long now) {
+        shard = new RulesShard(0, new DroolsRulesEngineImpl());
+        shard.addGlobals(MsgLogging.getMsgLogger(AlertingLogger.class, IdleShard.class), null);
+        missingStates = new ArrayList<>(triggers);
+        List<Object> facts = new ArrayList<>();
+        for (int i = 0; i < triggers; i++) {
+            String triggerId = "trigger-" + i;
+            Trigger trigger = new Trigger(TENANT, triggerId, "Trigger " + i);
+            trigger.setEnabled(true);
+            MissingCondition condition = new MissingCondition(TENANT, triggerId, "data-" + i,
+                    TimeUnit.HOURS.toMillis(1));
+            MissingState missingState = new MissingState(trigger, condition);
+            shard.missingStates.add(missingState);
+            missingStates.add(missingState);
+            facts.add(trigger);
+            facts.add(condition);
+            facts.add(missingState);
+        }
+        shard.getRules().addFacts(facts);
+        shard.fire(now);
+    }
+
+    /**
+     * @param now time in ms of the firing
+     * @return true if the rules were fired
+     */
+    public boolean fire(long now) {
+        return shard.fire(now);
+    }
+
+    public void clear() {
+        shard.clear();
+    }
+}
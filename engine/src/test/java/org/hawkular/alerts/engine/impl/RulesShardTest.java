@@ -0,0 +1,282 @@
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import io.quarkus.runtime.configuration.ConfigUtils;
+import io.quarkus.runtime.configuration.QuarkusConfigFactory;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.MissingCondition;
+import org.hawkular.alerts.api.model.condition.MissingConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.hawkular.alerts.engine.util.MissingState;
+import org.hawkular.alerts.log.AlertingLogger;
+import org.hawkular.alerts.log.MsgLogging;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The shard checks only the dampening timeouts and missing states that are due, these tests compare it with the
+ * former check of all of them on every firing.
+ */
+public class RulesShardTest {
+
+    private static final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, RulesShardTest.class);
+
+    private static final String TENANT = "tenant";
+    private static final int TRIGGERS = 30;
+    private static final int DATA_IDS = 5;
+    private static final long CYCLE = 1000;
+
+    @BeforeClass
+    public static void init() {
+        QuarkusConfigFactory.setConfig(ConfigUtils.configBuilder(true).build());
+    }
+
+    @Test
+    public void missingStatesTest() {
+        long base = System.currentTimeMillis();
+        RulesShard shard = new RulesShard(0, new DroolsRulesEngineImpl());
+        shard.addGlobals(log, null);
+        ScanShard scan = new ScanShard();
+        for (int i = 0; i < TRIGGERS; i++) {
+            load(shard.getRules(), shard.missingStates, i, base);
+            load(scan.rules, scan.missingStates, i, base);
+        }
+
+        Random random = new Random(42);
+        int numAlerts = 0;
+        int numAutoResolved = 0;
+        int idleCycles = 0;
+        for (int cycle = 1; cycle <= 300; cycle++) {
+            long now = base + cycle * CYCLE;
+            List<long[]> feed = new ArrayList<>();
+            for (int d = 0; d < DATA_IDS; d++) {
+                if (random.nextInt(10) < 3) {
+                    // Some Data come with a timestamp ahead of the engine
+                    feed.add(new long[] { d, now - CYCLE + random.nextInt(2 * (int) CYCLE) });
+                }
+            }
+            shard.addData(data(feed));
+            boolean fired = shard.fire(now);
+            assertEquals("Cycle " + cycle, scan.fire(now, data(feed)), fired);
+            if (!fired) {
+                idleCycles++;
+            }
+
+            assertEquals("Cycle " + cycle, triggerIds(scan.alerts), triggerIds(shard.alerts));
+            assertEquals("Cycle " + cycle, triggerIds(scan.autoResolvedTriggers.keySet()),
+                    triggerIds(shard.autoResolvedTriggers.keySet()));
+            numAlerts += shard.alerts.size();
+            numAutoResolved += shard.autoResolvedTriggers.size();
+
+            // As the engine does, autoresolved triggers are reloaded with new MissingStates
+            for (Trigger trigger : shard.autoResolvedTriggers.keySet()) {
+                int i = Integer.parseInt(trigger.getId().substring("trigger-".length()));
+                shard.getRules().removeFacts(fact -> ofTrigger(fact, trigger.getId()));
+                shard.missingStates.removeTrigger(TENANT, trigger.getId());
+                load(shard.getRules(), shard.missingStates, i, now);
+                scan.rules.removeFacts(fact -> ofTrigger(fact, trigger.getId()));
+                scan.missingStates.removeIf(missingState -> missingState.getTriggerId().equals(trigger.getId()));
+                load(scan.rules, scan.missingStates, i, now);
+            }
+            shard.alerts.clear();
+            shard.events.clear();
+            shard.autoResolvedTriggers.clear();
+            shard.evaluatedConditions.clear();
+            scan.alerts.clear();
+            scan.events.clear();
+            scan.autoResolvedTriggers.clear();
+            scan.evaluatedConditions.clear();
+        }
+        assertTrue(numAlerts > 0);
+        assertTrue(numAutoResolved > 0);
+        assertTrue(idleCycles > 0);
+    }
+
+    @Test
+    public void idleCycleTest() {
+        // The cycles with nothing pending and no MissingCondition due do not check any MissingState
+        long base = System.currentTimeMillis();
+        IdleShard idle = new IdleShard(1000, base);
+        Map<MissingState, Long> times = new HashMap<>();
+        idle.missingStates.forEach(missingState -> times.put(missingState, missingState.getTime()));
+
+        for (int cycle = 1; cycle <= 60; cycle++) {
+            assertFalse("Cycle " + cycle, idle.fire(base + cycle * CYCLE));
+        }
+        for (MissingState missingState : idle.missingStates) {
+            assertEquals(times.get(missingState).longValue(), missingState.getTime());
+        }
+        idle.clear();
+    }
+
+    @Test
+    public void dampeningTimeoutTest() {
+        RulesShard shard = new RulesShard(0, new DroolsRulesEngineImpl());
+        shard.addGlobals(log, null);
+        Trigger trigger = new Trigger(TENANT, "timeout-trigger", "Timeout Trigger");
+        trigger.setEnabled(true);
+        shard.getRules().addFacts(List.of(trigger,
+                new ThresholdCondition(TENANT, "timeout-trigger", "cpu", ThresholdCondition.Operator.GT, 10.0),
+                Dampening.forStrictTimeout(TENANT, "timeout-trigger", Mode.FIRING, 5000L)));
+
+        long now = System.currentTimeMillis();
+        shard.addData(List.of(Data.forNumeric(TENANT, "cpu", now, 20.0)));
+        shard.fire(now);
+        assertTrue(shard.alerts.isEmpty());
+        assertEquals(1, shard.pendingTimeouts.size());
+        Dampening pending = shard.pendingTimeouts.iterator().next();
+        long timeout = pending.getTrueEvalsStartTime() + pending.getEvalTimeSetting();
+
+        // The timeout is not due on the cycles before it
+        while (now + CYCLE < timeout) {
+            now += CYCLE;
+            assertFalse(shard.fire(now));
+            assertTrue(shard.alerts.isEmpty());
+        }
+        now += CYCLE;
+        assertTrue(shard.fire(now));
+        assertEquals(1, shard.alerts.size());
+        assertTrue(shard.pendingTimeouts.isEmpty());
+    }
+
+    private static void load(RulesEngine rules, Set<MissingState> missingStates, int i, long now) {
+        String triggerId = "trigger-" + i;
+        Trigger trigger = new Trigger(TENANT, triggerId, "Trigger " + i);
+        trigger.setEnabled(true);
+        List<Object> facts = new ArrayList<>();
+        facts.add(trigger);
+        List<MissingCondition> conditions = new ArrayList<>();
+        conditions.add(new MissingCondition(TENANT, triggerId, Mode.FIRING, "data-" + (i % DATA_IDS),
+                2000L + 1500L * (i % 4)));
+        if (i % 3 == 0) {
+            trigger.setAutoResolve(true);
+            conditions.add(new MissingCondition(TENANT, triggerId, Mode.AUTORESOLVE,
+                    "data-" + ((i + 1) % DATA_IDS), 2500L));
+        }
+        for (MissingCondition condition : conditions) {
+            MissingState missingState = new MissingState(trigger, condition);
+            missingState.setPreviousTime(now);
+            missingState.setTime(now);
+            missingStates.add(missingState);
+            facts.add(condition);
+            facts.add(missingState);
+        }
+        rules.addFacts(facts);
+    }
+
+    private static boolean ofTrigger(Object fact, String triggerId) {
+        if (fact instanceof Trigger) {
+            return ((Trigger) fact).getId().equals(triggerId);
+        }
+        if (fact instanceof Condition) {
+            return ((Condition) fact).getTriggerId().equals(triggerId);
+        }
+        if (fact instanceof Dampening) {
+            return ((Dampening) fact).getTriggerId().equals(triggerId);
+        }
+        if (fact instanceof MissingState) {
+            return ((MissingState) fact).getTriggerId().equals(triggerId);
+        }
+        return false;
+    }
+
+    private static List<Data> data(List<long[]> feed) {
+        return feed.stream()
+                .map(d -> Data.forNumeric(TENANT, "data-" + d[0], d[1], 1.0))
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> triggerIds(Collection<? extends Object> items) {
+        return items.stream()
+                .map(item -> item instanceof Alert ? ((Alert) item).getTrigger().getId() : ((Trigger) item).getId())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /*
+        The former firing of a shard, checking every dampening timeout and missing state.
+     */
+    private static class ScanShard {
+        final RulesEngine rules = new DroolsRulesEngineImpl();
+        final List<Alert> alerts = new ArrayList<>();
+        final List<Event> events = new ArrayList<>();
+        final Set<Dampening> pendingTimeouts = new HashSet<>();
+        final Map<Trigger, List<Set<ConditionEval>>> autoResolvedTriggers = new HashMap<>();
+        final Set<Condition> evaluatedConditions = new HashSet<>();
+        final Set<Trigger> disabledTriggers = new HashSet<>();
+        final Set<MissingState> missingStates = new HashSet<>();
+
+        ScanShard() {
+            rules.addGlobal("log", log);
+            rules.addGlobal("alerts", alerts);
+            rules.addGlobal("events", events);
+            rules.addGlobal("pendingTimeouts", pendingTimeouts);
+            rules.addGlobal("autoResolvedTriggers", autoResolvedTriggers);
+            rules.addGlobal("evaluatedConditions", evaluatedConditions);
+            rules.addGlobal("disabledTriggers", disabledTriggers);
+        }
+
+        boolean fire(long now, List<Data> data) {
+            int numTimeouts = 0;
+            Set<Dampening> timeouts = new HashSet<>();
+            for (Dampening d : pendingTimeouts) {
+                if (now >= d.getTrueEvalsStartTime() + d.getEvalTimeSetting()) {
+                    d.setSatisfied(true);
+                    rules.updateFact(d);
+                    timeouts.add(d);
+                    numTimeouts++;
+                }
+            }
+            pendingTimeouts.removeAll(timeouts);
+
+            int numMissingEvals = 0;
+            for (MissingState missingState : missingStates) {
+                if (missingState.getTriggerMode() != missingState.getTrigger().getMode()) {
+                    continue;
+                }
+                rules.removeFact(missingState);
+                missingState.setTime(now);
+                if (missingState.getCondition().match(missingState.getPreviousTime(), now)) {
+                    rules.addFact(new MissingConditionEval(missingState.getCondition(),
+                            missingState.getPreviousTime(), now));
+                    missingState.setPreviousTime(now);
+                    numMissingEvals++;
+                }
+                rules.addFact(missingState);
+            }
+
+            if (data.isEmpty() && numTimeouts == 0 && numMissingEvals == 0) {
+                return false;
+            }
+            if (data.isEmpty()) {
+                rules.fireNoData();
+            } else {
+                rules.addData(new TreeSet<>(data));
+                rules.fire();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.smallrye.mutiny.Uni;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.junit.Test;
+
+/**
+ * The written batches are the stored ones: a failed write is retried, and given up after
+ * {@link WriteBehindPersister#MAX_ATTEMPTS} attempts without being reported as written.
+ */
+public class WriteBehindPersisterTest {
+
+    @Test
+    public void retryTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        // The first attempt fails
+        WriteBehindPersister persister = createPersister(4, calls, 1);
+        persister.submit(alerts(), Collections.emptyList());
+        assertTrue(persister.awaitWritten());
+        assertEquals(2, calls.get());
+        persister.shutdown();
+    }
+
+    @Test
+    public void givenUpTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        WriteBehindPersister persister = createPersister(4, calls, Integer.MAX_VALUE);
+        persister.submit(alerts(), Collections.emptyList());
+        assertFalse(persister.awaitWritten());
+        assertEquals(WriteBehindPersister.MAX_ATTEMPTS, calls.get());
+        // Reported once
+        assertTrue(persister.awaitWritten());
+        persister.shutdown();
+    }
+
+    @Test
+    public void submitAfterShutdownTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        WriteBehindPersister persister = createPersister(4, calls, 0);
+        persister.shutdown();
+        // Stored by the caller once the writer is gone
+        persister.submit(alerts(), Collections.emptyList());
+        assertEquals(1, calls.get());
+        assertEquals(0, persister.getQueueSize());
+        assertTrue(persister.awaitWritten());
+    }
+
+    private static List<Alert> alerts() {
+        Alert alert = new Alert();
+        alert.setTenantId("tenant");
+        alert.setTrigger(new Trigger("tenant", "trigger", "Trigger"));
+        return Collections.singletonList(alert);
+    }
+
+    /*
+        A persister whose addAlerts fails the given number of times, counting its calls.
+     */
+    private static WriteBehindPersister createPersister(int queueSize, AtomicInteger calls, int failures) {
+        WriteBehindPersister persister = new WriteBehindPersister(queueSize);
+        persister.setAlertsService((AlertsService) Proxy.newProxyInstance(AlertsService.class.getClassLoader(),
+                new Class<?>[] { AlertsService.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("addAlerts") && calls.incrementAndGet() <= failures) {
+                        throw new IllegalStateException("Store not available");
+                    }
+                    if (method.getName().equals("persistEvents")) {
+                        return Uni.createFrom().voidItem();
+                    }
+                    return null;
+                }));
+        persister.setDefinitions((DefinitionsService) Proxy.newProxyInstance(
+                DefinitionsService.class.getClassLoader(), new Class<?>[] { DefinitionsService.class },
+                (proxy, method, args) -> null));
+        return persister;
+    }
+}
@@ -0,0 +1,68 @@
+package org.hawkular.alerts.engine.impl.hibernate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hawkular.alerts.engine.cache.IspnCacheManager;
+import org.hawkular.alerts.engine.impl.ispn.model.IspnEvent;
+import org.hibernate.search.query.dsl.QueryBuilder;
+import org.infinispan.query.Search;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class QueryPlanCacheTest {
+
+    private static QueryBuilder queryBuilder;
+
+    @BeforeClass
+    public static void init() {
+        queryBuilder = Search.getSearchManager(IspnCacheManager.getCacheManager().getCache("backend"))
+                .buildQueryBuilderForClass(IspnEvent.class).get();
+    }
+
+    @Test
+    public void bindValuesTest() {
+        QueryPlanCache queryPlans = new QueryPlanCache("event", 10, new SimpleMeterRegistry());
+        String[] queries = {
+                "ctime >= 1000 and (status = 'OPEN' or status = 'ACKNOWLEDGED')",
+                "ctime >= 2000 and (status = 'RESOLVED' or status = 'OPEN')",
+                "ctime >=   3000 AND (status = \"OPEN\"  or status = 'RESOLVED')",
+                "tags.Display_Name = 'host-1' and triggerId in ['a', 'b']",
+                "tags.display_name = 'host-2' and triggerId in ['c', 'd']",
+                "not severity = 'HIGH'",
+                "not severity = 'LOW'"
+        };
+        for (String query : queries) {
+            assertEquals(query, HibernateSearchQueryCreator.evaluate(queryBuilder, query).toString(),
+                    queryPlans.evaluate(queryBuilder, query).toString());
+        }
+        // One plan per shape
+        assertEquals(3, queryPlans.size());
+
+        // A different number of values is a different shape
+        queryPlans.evaluate(queryBuilder, "tags.display_name = 'host-2' and triggerId in ['c', 'd', 'e']");
+        assertEquals(4, queryPlans.size());
+    }
+
+    @Test
+    public void invalidQueryTest() {
+        QueryPlanCache queryPlans = new QueryPlanCache("event", 10, new SimpleMeterRegistry());
+        try {
+            queryPlans.evaluate(queryBuilder, "status = 'OPEN' and");
+            fail("Invalid query should fail");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(0, queryPlans.size());
+    }
+
+    @Test
+    public void disabledTest() {
+        QueryPlanCache queryPlans = new QueryPlanCache("event", 0, new SimpleMeterRegistry());
+        String query = "ctime >= 1000 and status = 'OPEN'";
+        assertEquals(HibernateSearchQueryCreator.evaluate(queryBuilder, query).toString(),
+                queryPlans.evaluate(queryBuilder, query).toString());
+        assertEquals(0, queryPlans.size());
+    }
+}
@@ -0,0 +1,138 @@
+package org.hawkular.alerts.engine.impl.ispn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hawkular.alerts.engine.impl.ispn.ActionsDispatcher.Overflow;
+import org.junit.Test;
+
+public class ActionsDispatcherTest {
+
+    @Test
+    public void afterPendingTest() throws Exception {
+        ActionsDispatcher dispatcher = createDispatcher(100, Overflow.BLOCK);
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch slowPlugin = new CountDownLatch(1);
+        CountDownLatch flushed = new CountDownLatch(1);
+
+        dispatcher.dispatch("slow", () -> {
+            await(slowPlugin);
+            processed.add("slow-0");
+        });
+        for (int i = 0; i < 10; i++) {
+            String action = "fast-" + i;
+            dispatcher.dispatch("fast", () -> processed.add(action));
+        }
+        dispatcher.afterPending(() -> {
+            processed.add("flush");
+            flushed.countDown();
+        });
+
+        // The fast plugin is not held by the slow one, the flush waits for both
+        assertTrue(waitFor(() -> processed.size() == 10));
+        assertEquals("fast-9", processed.get(9));
+        slowPlugin.countDown();
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        assertEquals(12, processed.size());
+        assertEquals("slow-0", processed.get(10));
+        assertEquals("flush", processed.get(11));
+
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void dropTest() throws Exception {
+        ActionsDispatcher dispatcher = createDispatcher(1, Overflow.DROP);
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+
+        dispatcher.dispatch("plugin", () -> {
+            running.countDown();
+            await(blocked);
+            processed.add("action-0");
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch("plugin", () -> processed.add("action-1"));
+        dispatcher.dispatch("plugin", () -> processed.add("action-2"));
+        assertEquals(1, dispatcher.getQueueSize("plugin"));
+
+        blocked.countDown();
+        dispatcher.shutdown();
+        assertEquals(List.of("action-0", "action-1"), processed);
+    }
+
+    @Test
+    public void callerRunsTest() throws Exception {
+        ActionsDispatcher dispatcher = createDispatcher(1, Overflow.CALLER_RUNS);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+
+        dispatcher.dispatch("plugin", () -> {
+            running.countDown();
+            await(blocked);
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch("plugin", () -> threads.add(Thread.currentThread()));
+        dispatcher.dispatch("plugin", () -> threads.add(Thread.currentThread()));
+        assertEquals(1, threads.size());
+        assertSame(Thread.currentThread(), threads.get(0));
+
+        blocked.countDown();
+        dispatcher.shutdown();
+        assertEquals(2, threads.size());
+        assertNotEquals(Thread.currentThread(), threads.get(1));
+    }
+
+    @Test
+    public void synchronousTest() {
+        ActionsDispatcher dispatcher = createDispatcher(0, Overflow.BLOCK);
+        List<Thread> threads = new ArrayList<>();
+        dispatcher.dispatch("plugin", () -> threads.add(Thread.currentThread()));
+        dispatcher.afterPending(() -> threads.add(Thread.currentThread()));
+        assertEquals(List.of(Thread.currentThread(), Thread.currentThread()), threads);
+    }
+
+    @Test
+    public void overflowParseTest() {
+        assertEquals(Overflow.BLOCK, Overflow.parse("block"));
+        assertEquals(Overflow.DROP, Overflow.parse("Drop"));
+        assertEquals(Overflow.CALLER_RUNS, Overflow.parse("caller-runs"));
+    }
+
+    private static ActionsDispatcher createDispatcher(int queueSize, Overflow overflow) {
+        ActionsDispatcher dispatcher = new ActionsDispatcher(queueSize, overflow);
+        dispatcher.setMeterRegistry(new SimpleMeterRegistry());
+        return dispatcher;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
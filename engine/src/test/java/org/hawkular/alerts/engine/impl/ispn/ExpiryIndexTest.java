@@ -0,0 +1,219 @@
+package org.hawkular.alerts.engine.impl.ispn;
+
+import io.quarkus.runtime.configuration.ConfigUtils;
+import io.quarkus.runtime.configuration.QuarkusConfigFactory;
+import org.hawkular.alerts.engine.cache.IspnCacheManager;
+import org.infinispan.Cache;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hawkular.alerts.engine.impl.ispn.ExpiryIndex.BUCKET_MS;
+import static org.hawkular.alerts.engine.impl.ispn.ExpiryIndex.CHUNK_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExpiryIndexTest {
+
+    // Start of the next bucket, the entries are written with an expiration after now
+    private static final long NOW = ExpiryIndex.bucket(System.currentTimeMillis()) + BUCKET_MS;
+
+    static Cache<String, Object> cache;
+
+    @BeforeClass
+    public static void init() {
+        QuarkusConfigFactory.setConfig(ConfigUtils.configBuilder(true).build());
+        System.setProperty("hawkular.data", "./target/ispn");
+        cache = IspnCacheManager.getCacheManager().getCache("expiry");
+    }
+
+    @Before
+    public void clear() {
+        cache.clear();
+    }
+
+    @Test
+    public void purgeExpiredBuckets() {
+        ExpiryIndex expiry = new ExpiryIndex(cache);
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            String pk = "Event-tenant-" + i;
+            expired.add(pk);
+            // Single writes and batches spread over three hours
+            expiry.add(ExpiryIndex.EVENT, NOW + (i % 3) * BUCKET_MS, Set.of(pk));
+        }
+        expiry.add(ExpiryIndex.EVENT, NOW, keys("Event-batch-", 2 * CHUNK_SIZE));
+        expiry.add(ExpiryIndex.EVENT, NOW + 5 * BUCKET_MS, Set.of("Event-later"));
+        expiry.add(ExpiryIndex.ALERT, NOW, Set.of("Event-alert"));
+        expired.addAll(keys("Event-batch-", 2 * CHUNK_SIZE));
+
+        assertEquals(2251, expiry.count(ExpiryIndex.EVENT, Long.MAX_VALUE));
+        assertEquals(2250, expiry.count(ExpiryIndex.EVENT, NOW + 3 * BUCKET_MS));
+
+        // Nothing ending after the cutoff is dropped
+        Set<String> removed = new HashSet<>();
+        assertEquals(0, expiry.purge(ExpiryIndex.EVENT, NOW + BUCKET_MS - 1, removed::add));
+        assertEquals(2250, expiry.purge(ExpiryIndex.EVENT, NOW + 3 * BUCKET_MS, removed::add));
+        assertEquals(new HashSet<>(expired), removed);
+        assertEquals(0, expiry.purge(ExpiryIndex.EVENT, NOW + 3 * BUCKET_MS, removed::add));
+        assertEquals(1, expiry.count(ExpiryIndex.EVENT, Long.MAX_VALUE));
+
+        removed.clear();
+        assertEquals(1, expiry.purge(ExpiryIndex.EVENT, NOW + 10 * BUCKET_MS, removed::add));
+        assertEquals(Set.of("Event-later"), removed);
+        assertEquals(0, expiry.count(ExpiryIndex.EVENT, Long.MAX_VALUE));
+        assertEquals(1, expiry.count(ExpiryIndex.ALERT, Long.MAX_VALUE));
+    }
+
+    /*
+        The calls made on the cache stand in for the cleanup time, which is too noisy to compare in a unit test.
+     */
+    @Test
+    public void purgeDoesNotGrowWithUnexpiredEntries() {
+        // The same expired entries, with 100 times more entries to keep
+        long fewUnexpired = cleanup(100);
+        long manyUnexpired = cleanup(10000);
+        assertEquals(fewUnexpired, manyUnexpired);
+    }
+
+    @Test
+    public void addDoesNotRewriteChunks() {
+        CountingCache counting = new CountingCache(cache);
+        ExpiryIndex expiry = new ExpiryIndex(counting.proxy());
+        expiry.add(ExpiryIndex.ACTION, NOW, Set.of("Action-first"));
+
+        // A single key costs the same whatever the keys already in its bucket
+        long calls = counting.calls;
+        expiry.add(ExpiryIndex.ACTION, NOW, Set.of("Action-second"));
+        long firstCost = counting.calls - calls;
+        for (int i = 0; i < 2 * CHUNK_SIZE; i++) {
+            expiry.add(ExpiryIndex.ACTION, NOW, Set.of("Action-" + i));
+        }
+        calls = counting.calls;
+        expiry.add(ExpiryIndex.ACTION, NOW, Set.of("Action-last"));
+        assertEquals(firstCost, counting.calls - calls);
+        assertEquals(2 * CHUNK_SIZE + 3, expiry.count(ExpiryIndex.ACTION, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void stagedKeysAreIndexedOnFlush() {
+        CountingCache counting = new CountingCache(cache);
+        ExpiryIndex expiry = new ExpiryIndex(counting.proxy());
+        for (int i = 0; i < 500; i++) {
+            expiry.stage(ExpiryIndex.ACTION, NOW + (i % 2) * BUCKET_MS, "Action-" + i);
+        }
+        expiry.stage(ExpiryIndex.ALERT, NOW, "Event-alert");
+        assertEquals(0, expiry.count(ExpiryIndex.ACTION, Long.MAX_VALUE));
+
+        // One write of the index per type and bucket: at most a merge of the newest bucket, a merge of the counter
+        // and a chunk put, instead of one per key
+        long calls = counting.calls;
+        expiry.flush();
+        assertTrue(counting.calls - calls <= 3 * 3);
+        assertEquals(500, expiry.count(ExpiryIndex.ACTION, Long.MAX_VALUE));
+        assertEquals(1, expiry.count(ExpiryIndex.ALERT, Long.MAX_VALUE));
+
+        // A full bucket is written without waiting for the flush
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            expiry.stage(ExpiryIndex.EVENT, NOW, "Event-" + i);
+        }
+        assertEquals(CHUNK_SIZE, expiry.count(ExpiryIndex.EVENT, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void reopenWithoutCloseNeedsLegacyScan() {
+        ExpiryIndex expiry = new ExpiryIndex(cache);
+        expiry.setLegacyPurged();
+        expiry.open();
+        expiry.stage(ExpiryIndex.ACTION, NOW, "Action-staged");
+        expiry.close();
+        assertEquals(1, expiry.count(ExpiryIndex.ACTION, Long.MAX_VALUE));
+        expiry.open();
+        assertTrue(expiry.isLegacyPurged());
+        assertEquals(expiry.getIndexedSince(), expiry.getUnindexedBefore());
+
+        // The previous owner did not close it
+        long before = System.currentTimeMillis();
+        ExpiryIndex restarted = new ExpiryIndex(cache);
+        restarted.open();
+        assertFalse(restarted.isLegacyPurged());
+        assertTrue(restarted.getUnindexedBefore() >= before);
+    }
+
+    @Test
+    public void legacyMarkers() {
+        long before = System.currentTimeMillis();
+        ExpiryIndex expiry = new ExpiryIndex(cache);
+        long indexedSince = expiry.getIndexedSince();
+        assertTrue(indexedSince >= before);
+        // The first index created is the one kept
+        assertEquals(indexedSince, new ExpiryIndex(cache).getIndexedSince());
+        assertFalse(expiry.isLegacyPurged());
+        expiry.setLegacyPurged();
+        assertTrue(new ExpiryIndex(cache).isLegacyPurged());
+    }
+
+    /*
+        Cache accesses of a purge over 1000 expired entries in 24 buckets, with the given number of unexpired ones.
+     */
+    private long cleanup(int unexpired) {
+        cache.clear();
+        ExpiryIndex expiry = new ExpiryIndex(cache);
+        for (int i = 0; i < 1000; i++) {
+            expiry.add(ExpiryIndex.ACTION, NOW + (i % 24) * BUCKET_MS, Set.of("Action-expired-" + i));
+        }
+        for (int i = 0; i < unexpired; i++) {
+            expiry.add(ExpiryIndex.ACTION, NOW + (48 + i % 24) * BUCKET_MS, Set.of("Action-unexpired-" + i));
+        }
+        Set<String> removed = new HashSet<>();
+        CountingCache counting = new CountingCache(cache);
+        ExpiryIndex counted = new ExpiryIndex(counting.proxy());
+        long visited = counted.purge(ExpiryIndex.ACTION, NOW + 24 * BUCKET_MS, removed::add);
+        assertEquals(1000, visited);
+        assertEquals(1000, removed.size());
+        assertTrue(removed.stream().allMatch(pk -> pk.startsWith("Action-expired-")));
+        assertEquals(unexpired, expiry.count(ExpiryIndex.ACTION, Long.MAX_VALUE));
+        return counting.calls;
+    }
+
+    private static Set<String> keys(String prefix, int n) {
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            keys.add(prefix + i);
+        }
+        return keys;
+    }
+
+    /*
+        Counts the calls made on the cache.
+     */
+    private static class CountingCache {
+        final Cache<String, Object> cache;
+        long calls;
+
+        CountingCache(Cache<String, Object> cache) {
+            this.cache = cache;
+        }
+
+        @SuppressWarnings("unchecked")
+        Cache<String, Object> proxy() {
+            return (Cache<String, Object>) Proxy.newProxyInstance(Cache.class.getClassLoader(),
+                    new Class<?>[] { Cache.class }, (proxy, method, args) -> {
+                        calls++;
+                        try {
+                            return method.invoke(cache, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
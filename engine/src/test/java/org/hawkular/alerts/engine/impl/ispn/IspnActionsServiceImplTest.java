@@ -4,11 +4,15 @@ import io.quarkus.runtime.configuration.ConfigUtils;
 import io.quarkus.runtime.configuration.QuarkusConfigFactory;
 import io.smallrye.config.SmallRyeConfig;
 import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.action.ActionDefinition;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.hawkular.alerts.api.model.trigger.TriggerAction;
+import org.hawkular.alerts.api.services.ActionListener;
 import org.hawkular.alerts.api.services.ActionsCriteria;
 import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.engine.cache.ActionDefinitionsCacheManager;
+import org.hawkular.alerts.engine.cache.ActionDefinitionsCacheManager.ResolvedActionDefinition;
 import org.hawkular.alerts.engine.cache.ActionsCacheManager;
 import org.hawkular.alerts.engine.cache.IspnCacheManager;
 import org.hawkular.alerts.engine.impl.AlertsContext;
@@ -18,10 +22,21 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -30,6 +45,8 @@ import static org.junit.Assert.assertTrue;
  */
 public class IspnActionsServiceImplTest extends IspnBaseServiceImplTest {
     static final MsgLogger log = MsgLogging.getMsgLogger(IspnActionsServiceImplTest.class);
+    static ActionsCacheManager actionsCacheManager;
+    static ActionDefinitionsCacheManager actionDefinitionsCacheManager;
 
     @BeforeClass
     public static void init() {
@@ -50,16 +67,21 @@ public class IspnActionsServiceImplTest extends IspnBaseServiceImplTest {
             actions = new IspnActionsServiceImpl();
             actions.init();
 
-            ActionsCacheManager actionsCacheManager = new ActionsCacheManager();
+            actionsCacheManager = new ActionsCacheManager();
             actionsCacheManager.setDefinitions(definitions);
             actionsCacheManager.setGlobalActionsCache(IspnCacheManager.getCacheManager().getCache("globalActions"));
 
+            actionDefinitionsCacheManager = new ActionDefinitionsCacheManager();
+            actionDefinitionsCacheManager.setDefinitions(definitions);
+
+            actions.setActionDefinitionsCacheManager(actionDefinitionsCacheManager);
             actions.setActionsCacheManager(actionsCacheManager);
             actions.setAlertsContext(alertsContext);
             actions.setDefinitions(definitions);
 
             alertsContext.init();
             actionsCacheManager.init();
+            actionDefinitionsCacheManager.init();
         } catch (Exception e) {
             e.printStackTrace();
             throw e;
@@ -203,4 +225,134 @@ public class IspnActionsServiceImplTest extends IspnBaseServiceImplTest {
 
     }
 
+    @Test
+    public void dispatchedActionsTest() throws Exception {
+        // The test configuration runs the actions on the caller, here they are queued as in production
+        ActionsDispatcher callerRuns = actions.dispatcher;
+        actions.dispatcher = new ActionsDispatcher(16, ActionsDispatcher.Overflow.BLOCK);
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        List<String> processedAtFlush = new ArrayList<>();
+        CountDownLatch flushed = new CountDownLatch(1);
+        actions.addListener(new ActionListener() {
+            @Override
+            public void process(Action action) {
+                processed.add(action.getActionId());
+            }
+
+            @Override
+            public void flush() {
+                if (flushed.getCount() > 0) {
+                    processedAtFlush.addAll(processed);
+                    flushed.countDown();
+                }
+            }
+        });
+
+        createTestPluginsAndActions(1, 1, 2);
+        createTestTriggers(1, 1);
+        createTestAlerts(1, 1, 1);
+        try {
+            Trigger trigger = definitions.getTrigger("tenant0", "trigger0");
+            trigger.addAction(new TriggerAction("tenant0", "plugin0", "action0"));
+            trigger.addAction(new TriggerAction("tenant0", "plugin0", "action1"));
+            definitions.updateTrigger("tenant0", trigger, true);
+            Alert alert = alerts.getAlerts("tenant0", null, null).get(0);
+
+            actions.send(definitions.getTrigger("tenant0", "trigger0"), alert);
+            actions.flush();
+
+            // The listeners are flushed once the queued actions have been processed and stored
+            assertTrue(flushed.await(10, TimeUnit.SECONDS));
+            assertEquals(new HashSet<>(Arrays.asList("action0", "action1")), new HashSet<>(processedAtFlush));
+            assertEquals(2, processedAtFlush.size());
+            assertEquals(2, actions.getActions("tenant0", null, null).size());
+        } finally {
+            actions.dispatcher.shutdown();
+            actions.dispatcher = callerRuns;
+            actions.deleteActions("tenant0", null);
+            deleteTestAlerts(1);
+            deleteTestTriggers(1, 1);
+            deleteTestPluginsAndActions(1, 1, 2);
+        }
+    }
+
+    @Test
+    public void globalActionsTest() throws Exception {
+        createTestPluginsAndActions(2, 1, 2);
+        try {
+            ActionDefinition action0 = definitions.getActionDefinition("tenant0", "plugin0", "action0");
+            action0.setGlobal(true);
+            definitions.updateActionDefinition("tenant0", action0);
+            ActionDefinition action1 = definitions.getActionDefinition("tenant0", "plugin0", "action1");
+            action1.setGlobal(true);
+            definitions.updateActionDefinition("tenant0", action1);
+
+            assertTrue(actionsCacheManager.hasGlobalActions());
+            assertEquals(2, actionsCacheManager.getGlobalActions("tenant0").size());
+            assertTrue(actionsCacheManager.getGlobalActions("tenant1").isEmpty());
+            assertSame(actionsCacheManager.getGlobalActions("tenant0"),
+                    actionsCacheManager.getGlobalActions("tenant0"));
+
+            action0.getProperties().put("prop1", "value1");
+            definitions.updateActionDefinition("tenant0", action0);
+            assertEquals(2, actionsCacheManager.getGlobalActions("tenant0").size());
+            assertTrue(actionsCacheManager.getGlobalActions("tenant0").stream()
+                    .anyMatch(a -> "value1".equals(a.getProperties().get("prop1"))));
+
+            action1.setGlobal(false);
+            definitions.updateActionDefinition("tenant0", action1);
+            assertEquals(1, actionsCacheManager.getGlobalActions("tenant0").size());
+
+            definitions.removeActionDefinition("tenant0", "plugin0", "action0");
+            assertTrue(actionsCacheManager.getGlobalActions("tenant0").isEmpty());
+            assertFalse(actionsCacheManager.hasGlobalActions());
+        } finally {
+            deleteTestPluginsAndActions(2, 1, 2);
+        }
+    }
+
+    @Test
+    public void resolvedActionDefinitionsTest() throws Exception {
+        createTestPluginsAndActions(1, 1, 1);
+        try {
+            Map<String, String> defaultProperties = new HashMap<>();
+            defaultProperties.put("prop1", "default1");
+            defaultProperties.put("prop2", "");
+            defaultProperties.put("prop3", "");
+            defaultProperties.put("prop4", "default4");
+            definitions.updateActionPlugin("plugin0", defaultProperties);
+
+            ActionDefinition actionDefinition = definitions.getActionDefinition("tenant0", "plugin0", "action0");
+            actionDefinition.getProperties().remove("prop1");
+            definitions.updateActionDefinition("tenant0", actionDefinition);
+
+            ResolvedActionDefinition resolved = actionDefinitionsCacheManager.getActionDefinition("tenant0",
+                    "plugin0", "action0");
+            assertNotNull(resolved.getActionDefinition());
+            assertEquals("default1", resolved.getProperties().get("prop1"));
+            assertEquals(actionDefinition.getProperties().get("prop2"), resolved.getProperties().get("prop2"));
+            assertEquals("default4", resolved.getProperties().get("prop4"));
+            assertSame(resolved, actionDefinitionsCacheManager.getActionDefinition("tenant0", "plugin0", "action0"));
+
+            actionDefinition.getProperties().put("prop1", "value1");
+            definitions.updateActionDefinition("tenant0", actionDefinition);
+            ResolvedActionDefinition updated = actionDefinitionsCacheManager.getActionDefinition("tenant0",
+                    "plugin0", "action0");
+            assertNotSame(resolved, updated);
+            assertEquals("value1", updated.getProperties().get("prop1"));
+
+            defaultProperties.put("prop4", "updated4");
+            definitions.updateActionPlugin("plugin0", defaultProperties);
+            assertEquals("updated4", actionDefinitionsCacheManager.getActionDefinition("tenant0", "plugin0",
+                    "action0").getProperties().get("prop4"));
+
+            assertNull(actionDefinitionsCacheManager.getActionDefinition("tenant0", "plugin0", "action1")
+                    .getActionDefinition());
+        } finally {
+            deleteTestPluginsAndActions(1, 1, 1);
+        }
+        assertNull(actionDefinitionsCacheManager.getActionDefinition("tenant0", "plugin0", "action0")
+                .getActionDefinition());
+    }
+
 }
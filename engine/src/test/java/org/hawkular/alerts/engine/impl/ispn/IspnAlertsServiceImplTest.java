@@ -8,6 +8,7 @@ import io.smallrye.config.SmallRyeConfig;
 import org.hawkular.alerts.api.model.Severity;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.event.EventSummary;
 import org.hawkular.alerts.api.model.paging.AlertComparator;
 import org.hawkular.alerts.api.model.paging.Order;
 import org.hawkular.alerts.api.model.paging.Page;
@@ -354,6 +355,32 @@ public class IspnAlertsServiceImplTest extends IspnBaseServiceImplTest {
         deleteTestAlerts(numTenants);
     }
 
+    @Test
+    public void queryAlertSummaries() throws Exception {
+        int numTenants = 1;
+        int numTriggers = 5;
+        int numAlerts = 5;
+        createTestAlerts(numTenants, numTriggers, numAlerts);
+
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setTriggerId("trigger0");
+        Pager pager = new Pager(0, 3, Order.by(AlertComparator.Field.CTIME.getText(), Order.Direction.DESCENDING));
+
+        Page<EventSummary> summaries = alerts.getAlertSummaries("tenant0", criteria, pager);
+        assertEquals(3, summaries.size());
+        assertEquals(5, summaries.getTotalSize());
+        Alert alert = alerts.getAlert("tenant0", summaries.get(0).getId(), true);
+        EventSummary summary = summaries.get(0);
+        assertEquals(alert.getCtime(), summary.getCtime());
+        assertTrue(summary.getCtime() > summaries.get(1).getCtime());
+        assertEquals("trigger0", summary.getTriggerId());
+        assertEquals(alert.getStatus().name(), summary.getStatus());
+        assertEquals(alert.getSeverity().name(), summary.getSeverity());
+        assertEquals(alert.getTags(), summary.getTags());
+
+        deleteTestAlerts(numTenants);
+    }
+
     @Test
     public void queryAlertsByCTime() throws Exception {
         int numTenants = 1;
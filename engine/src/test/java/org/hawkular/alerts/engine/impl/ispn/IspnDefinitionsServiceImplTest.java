@@ -1,5 +1,6 @@
 package org.hawkular.alerts.engine.impl.ispn;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -8,6 +9,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import io.quarkus.runtime.configuration.ConfigUtils;
 import io.quarkus.runtime.configuration.QuarkusConfigFactory;
@@ -29,6 +31,7 @@ import org.hawkular.alerts.api.model.paging.TriggerComparator;
 import org.hawkular.alerts.api.model.trigger.*;
 import org.hawkular.alerts.api.services.AlertsCriteria;
 import org.hawkular.alerts.api.services.TriggersCriteria;
+import org.hawkular.alerts.engine.cache.LastEvaluationCacheManager;
 import org.hawkular.alerts.log.MsgLogger;
 import org.hawkular.alerts.log.MsgLogging;
 import org.junit.BeforeClass;
@@ -287,6 +290,13 @@ public class IspnDefinitionsServiceImplTest extends IspnBaseServiceImplTest {
         fetchedConditions = new HashSet<>(definitions.getConditions("tenantX"));
         assertEquals(0, fetchedConditions.size());
 
+        // get tenant Conditions per trigger, firing first
+        Map<String, List<Condition>> conditionsByTrigger = definitions.getConditionsByTrigger("tenant0");
+        assertEquals(Collections.singleton("trigger0"), conditionsByTrigger.keySet());
+        assertEquals(Arrays.asList(Mode.FIRING, Mode.AUTORESOLVE), conditionsByTrigger.get("trigger0").stream()
+                .map(Condition::getTriggerMode).collect(Collectors.toList()));
+        assertTrue(definitions.getConditionsByTrigger("tenantX").isEmpty());
+
         // get trigger conditions
         fetchedConditions = new HashSet<>(
                 definitions.getTriggerConditions("tenant0", "trigger0", null));
@@ -328,6 +338,53 @@ public class IspnDefinitionsServiceImplTest extends IspnBaseServiceImplTest {
         deleteTestTriggers(numTenants, numTriggers);
     }
 
+    @Test
+    public void conditionsLastEvaluationTest() throws Exception {
+        int numTenants = 1;
+        int numTriggers = 1;
+        createTestTriggers(numTenants, numTriggers);
+
+        Condition fc = new AvailabilityCondition("trigger-0", Mode.FIRING, "firing-cond", Operator.NOT_UP);
+        Condition rc = new AvailabilityCondition("trigger-0", Mode.AUTORESOLVE, "resolve-cond", Operator.UP);
+        Collection<Condition> conditions = definitions.setAllConditions("tenant0", "trigger0",
+                new HashSet<>(Arrays.asList(fc, rc)));
+        Condition firing = conditions.stream().filter(c -> c.getTriggerMode() == Mode.FIRING).findFirst().get();
+
+        Map<String, Long> lastEvaluations = new HashMap<>();
+        lastEvaluations.put(firing.getConditionId(), 2000L);
+        lastEvaluations.put("tenant0-trigger0-FIRING-1-9", 2000L);
+        definitions.updateConditionsLastEvaluation(lastEvaluations);
+
+        // An older lastEvaluation does not go back in time
+        definitions.updateConditionsLastEvaluation(Collections.singletonMap(firing.getConditionId(), 1000L));
+
+        Collection<Condition> triggerConditions = definitions.getTriggerConditions("tenant0", "trigger0", Mode.FIRING);
+        assertEquals(1, triggerConditions.size());
+        assertEquals(2000L, triggerConditions.iterator().next().getLastEvaluation());
+        triggerConditions = definitions.getTriggerConditions("tenant0", "trigger0", Mode.AUTORESOLVE);
+        assertEquals(0, triggerConditions.iterator().next().getLastEvaluation());
+
+        // Recorded lastEvaluations are read from memory until they are flushed
+        LastEvaluationCacheManager lastEvaluationCacheManager = new LastEvaluationCacheManager();
+        lastEvaluationCacheManager.setDefinitions(definitions);
+        definitions.setLastEvaluationCacheManager(lastEvaluationCacheManager);
+        try {
+            firing.setLastEvaluation(3000L);
+            lastEvaluationCacheManager.record(Collections.singleton(firing));
+            triggerConditions = definitions.getTriggerConditions("tenant0", "trigger0", Mode.FIRING);
+            assertEquals(3000L, triggerConditions.iterator().next().getLastEvaluation());
+
+            lastEvaluationCacheManager.flush();
+            definitions.setLastEvaluationCacheManager(null);
+            triggerConditions = definitions.getTriggerConditions("tenant0", "trigger0", Mode.FIRING);
+            assertEquals(3000L, triggerConditions.iterator().next().getLastEvaluation());
+        } finally {
+            definitions.setLastEvaluationCacheManager(null);
+        }
+
+        deleteTestTriggers(numTenants, numTriggers);
+    }
+
     @Test
     public void dampeningTest() throws Exception {
         int numTenants = 1;
@@ -360,6 +417,12 @@ public class IspnDefinitionsServiceImplTest extends IspnBaseServiceImplTest {
         fetchedDampenings = new HashSet<>(definitions.getDampenings("tenantX"));
         assertEquals(0, fetchedDampenings.size());
 
+        // get tenant Dampenings per trigger, firing first
+        Map<String, List<Dampening>> dampeningsByTrigger = definitions.getDampeningsByTrigger("tenant0");
+        assertEquals(Collections.singleton("trigger0"), dampeningsByTrigger.keySet());
+        assertEquals(Arrays.asList(fd, ad), dampeningsByTrigger.get("trigger0"));
+        assertTrue(definitions.getDampeningsByTrigger("tenantX").isEmpty());
+
         // get trigger Dampenings
         fetchedDampenings = new HashSet<>(definitions.getTriggerDampenings("tenant0", "trigger0", null));
         assertEquals(expectedDampenings, fetchedDampenings);
@@ -498,6 +561,39 @@ public class IspnDefinitionsServiceImplTest extends IspnBaseServiceImplTest {
         definitions.removeActionPlugin("pluginM");
     }
 
+    @Test
+    public void testBoundedLifecycle() throws Exception {
+        long now = System.currentTimeMillis();
+        Trigger trigger = new Trigger(TENANT, "trigger-bounded-lifecycle", "Trigger Bounded Lifecycle");
+        trigger.addLifecycle(Trigger.TriggerLifecycle.CREATED, now - 100, null);
+        definitions.addTrigger(TENANT, trigger);
+
+        List<Long> stimes = new ArrayList<>();
+        for (int i = 30; i > 0; i--) {
+            stimes.add(now - i);
+        }
+        definitions.addLifecycleToTriggers(Collections.singletonMap(new TriggerKey(TENANT, trigger.getId()), stimes),
+                Trigger.TriggerLifecycle.ALERT_GENERATE);
+
+        Trigger found = definitions.getTrigger(TENANT, trigger.getId());
+        assertEquals(Trigger.LIFECYCLE_SIZE, found.getLifecycle().size());
+        assertEquals(now - 1, found.getLifecycle().get(Trigger.LIFECYCLE_SIZE - 1).getStime());
+        assertEquals(Long.valueOf(1), found.getLifecycleCounts().get(Trigger.TriggerLifecycle.CREATED.name()));
+        assertEquals(Long.valueOf(30), found.getLifecycleCounts().get(Trigger.TriggerLifecycle.ALERT_GENERATE.name()));
+
+        List<Lifecycle> history = definitions.getTriggerLifecycle(TENANT, trigger.getId(), 0, now);
+        assertEquals(31, history.size());
+        assertEquals(Trigger.TriggerLifecycle.CREATED.name(), history.get(0).getStatus());
+        assertEquals(10, definitions.getTriggerLifecycle(TENANT, trigger.getId(), now - 10, now).size());
+        // An open ended query stops at now
+        assertEquals(31, definitions.getTriggerLifecycle(TENANT, trigger.getId(), 0, Long.MAX_VALUE).size());
+        assertTrue(definitions.getTriggerLifecycle(TENANT, trigger.getId(), Long.MAX_VALUE - 1, Long.MAX_VALUE)
+                .isEmpty());
+
+        definitions.removeTrigger(TENANT, trigger.getId());
+        assertTrue(definitions.getTriggerLifecycle(TENANT, trigger.getId(), 0, now).isEmpty());
+    }
+
     @Test
     public void getTriggersWithPaging() throws Exception {
         int numTenants = 1;
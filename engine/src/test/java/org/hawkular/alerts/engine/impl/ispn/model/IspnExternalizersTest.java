@@ -0,0 +1,132 @@
+package org.hawkular.alerts.engine.impl.ispn.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.EventConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.infinispan.commons.marshall.AdvancedExternalizer;
+import org.junit.Test;
+
+public class IspnExternalizersTest {
+
+    @Test
+    public void alertTest() throws Exception {
+        Trigger trigger = new Trigger("tenant", "trigger", "Trigger");
+        EventCondition condition = new EventCondition("tenant", "trigger", "dataId", "facts.arch = 'x86_64'");
+        Event host = new Event("tenant", "event", "dataId", "insight_report", "host");
+        Map<String, Object> facts = new HashMap<>();
+        facts.put("arch", "x86_64");
+        facts.put("number_of_cpus", 4);
+        host.setFacts(facts);
+        host.addTag("display_name", "host");
+        Set<ConditionEval> evalSet = new HashSet<>();
+        evalSet.add(new EventConditionEval(condition, host));
+        Alert alert = new Alert("tenant", trigger, Collections.singletonList(evalSet));
+
+        IspnEvent ispnEvent = new IspnEvent(alert);
+        IspnEvent read = roundTrip(new IspnExternalizers.IspnEventExternalizer(), ispnEvent);
+        assertTrue(read.getEvent() instanceof Alert);
+        assertEquals(ispnEvent.getId(), read.getId());
+        assertEquals(ispnEvent.getStatus(), read.getStatus());
+        assertEquals(ispnEvent.getTags(), read.getTags());
+        Alert readAlert = (Alert) read.getEvent();
+        assertEquals(alert.getSeverity(), readAlert.getSeverity());
+        EventConditionEval readEval = (EventConditionEval) readAlert.getEvalSets().get(0).iterator().next();
+        assertEquals(facts, readEval.getValue().getFacts());
+    }
+
+    @Test
+    public void eventReadTest() throws Exception {
+        Event event = new Event("tenant", "event", "dataId", "insight_report", "host");
+        event.addTag("display_name", "host");
+        IspnEvent ispnEvent = new IspnEvent(event);
+        assertSame(event, ispnEvent.getEvent());
+
+        // Each read unmarshals its own event, updating it leaves the other reads unchanged
+        IspnExternalizers.IspnEventExternalizer externalizer = new IspnExternalizers.IspnEventExternalizer();
+        Event first = roundTrip(externalizer, ispnEvent).getEvent();
+        Event second = roundTrip(externalizer, ispnEvent).getEvent();
+        assertNotSame(first, second);
+        first.addTag("display_name", "updated");
+        assertEquals("host", second.getTags().get("display_name"));
+
+        try {
+            ispnEvent.getTags().put("display_name", "updated");
+            fail("Tags of the entry are read only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void triggerModeTest() throws Exception {
+        Trigger trigger = new Trigger("tenant", "trigger", "Trigger");
+        trigger.setAutoResolve(true);
+        trigger.setMode(Mode.AUTORESOLVE);
+
+        IspnTrigger read = roundTrip(new IspnExternalizers.IspnTriggerExternalizer(), new IspnTrigger(trigger));
+        assertEquals(trigger, read.getTrigger());
+        assertEquals(Mode.AUTORESOLVE, read.getTrigger().getMode());
+    }
+
+    @Test
+    public void conditionLastEvaluationTest() throws Exception {
+        ThresholdCondition condition = new ThresholdCondition("tenant", "trigger", Mode.FIRING, "cpu",
+                ThresholdCondition.Operator.GT, 10.0);
+        condition.setLastEvaluation(2000L);
+
+        IspnCondition read = roundTrip(new IspnExternalizers.IspnConditionExternalizer(), new IspnCondition(condition));
+        assertEquals(condition, read.getCondition());
+        assertEquals(2000L, read.getCondition().getLastEvaluation());
+    }
+
+    @Test
+    public void triggerLifecycleCountsTest() throws Exception {
+        IspnExternalizers.IspnTriggerExternalizer externalizer = new IspnExternalizers.IspnTriggerExternalizer();
+
+        // A trigger stored before the lifecycle history keeps no counts
+        Trigger legacy = new Trigger("tenant", "legacy", "Legacy");
+        legacy.setLifecycleCounts(null);
+        assertNull(roundTrip(externalizer, new IspnTrigger(legacy)).getTrigger().getLifecycleCounts());
+
+        Trigger trigger = new Trigger("tenant", "trigger", "Trigger");
+        assertNotNull(roundTrip(externalizer, new IspnTrigger(trigger)).getTrigger().getLifecycleCounts());
+        trigger.getLifecycleCounts().put("DISABLED", 2L);
+        assertEquals(trigger.getLifecycleCounts(),
+                roundTrip(externalizer, new IspnTrigger(trigger)).getTrigger().getLifecycleCounts());
+    }
+
+    private static <T> T roundTrip(AdvancedExternalizer<T> externalizer, T object) throws IOException,
+            ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            externalizer.writeObject(output, object);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return externalizer.readObject(input);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.hawkular.alerts.engine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Event;
+import org.junit.Test;
+
+public class StripedBufferTest {
+
+    @Test
+    public void drainIsOrderedLikeTreeSet() {
+        List<Data> data = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            data.add(Data.forNumeric("tenant" + (i % 3), "data" + (i % 7), i % 2, (double) i));
+        }
+
+        StripedBuffer<Data> buffer = new StripedBuffer<>(4);
+        buffer.addAll(data.subList(0, 50));
+        buffer.addAll(data.subList(50, 100));
+        assertEquals(100, buffer.size());
+
+        TreeSet<Data> expected = new TreeSet<>(data);
+        TreeSet<Data> drained = buffer.drain();
+        assertEquals(expected.size(), drained.size());
+        Iterator<Data> it = drained.iterator();
+        for (Data d : expected) {
+            assertSame(d, it.next());
+        }
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    public void firstDuplicateIsKept() {
+        Event e1 = new Event("tenant", "id1", 1L, "dataId", "category", "first");
+        Event e2 = new Event("tenant", "id1", 1L, "dataId", "category", "second");
+        Event e3 = new Event("tenant", "id0", 1L, "dataId", "category", "other");
+
+        StripedBuffer<Event> buffer = new StripedBuffer<>(1);
+        buffer.addAll(Arrays.asList(e1, e2));
+        buffer.add(e3);
+
+        TreeSet<Event> expected = new TreeSet<>(Arrays.asList(e1, e2, e3));
+        TreeSet<Event> drained = buffer.drain();
+        assertEquals(2, drained.size());
+        Iterator<Event> it = drained.iterator();
+        Iterator<Event> expectedIt = expected.iterator();
+        while (it.hasNext()) {
+            assertSame(expectedIt.next(), it.next());
+        }
+        assertEquals("first", drained.last().getText());
+
+        // The drained set is a regular TreeSet
+        drained.add(new Event("tenant", "id2", 2L, "dataId", "category", "added"));
+        assertEquals(3, drained.size());
+    }
+
+    @Test
+    public void concurrentProducersLoseNothing() throws Exception {
+        int producers = 8;
+        int perProducer = 10_000;
+        StripedBuffer<Data> buffer = new StripedBuffer<>();
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            String tenantId = "tenant" + p;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    buffer.add(Data.forString(tenantId, "data", i, "value"));
+                }
+                done.countDown();
+            });
+        }
+
+        int drained = 0;
+        while (done.getCount() > 0) {
+            drained += buffer.drain().size();
+        }
+        drained += buffer.drain().size();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(producers * perProducer, drained);
+        assertEquals(0, buffer.size());
+    }
+}
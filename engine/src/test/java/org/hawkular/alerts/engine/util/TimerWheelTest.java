@@ -0,0 +1,116 @@
+package org.hawkular.alerts.engine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TimerWheelTest {
+
+    @Test
+    public void expireAtDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, s -> Long.parseLong(s));
+        wheel.add("1500");
+        wheel.add("2500");
+        wheel.add("2999");
+        wheel.add("20000");
+        assertEquals(4, wheel.size());
+
+        assertTrue(wheel.expire(1000).isEmpty());
+        assertEquals(List.of("1500"), wheel.expire(2000));
+        assertEquals(List.of("2500"), wheel.expire(2500));
+        assertEquals(List.of("2999"), wheel.expire(3500));
+        // 20000 shares a slot with the walked ticks, but is only due on a later turn of the wheel
+        assertTrue(wheel.expire(19999).isEmpty());
+        assertEquals(List.of("20000"), wheel.expire(20000));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void scheduleMovesDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, s -> 5000L);
+        assertTrue(wheel.add("a"));
+        assertTrue(wheel.add("b"));
+        wheel.expire(1000);
+
+        // An item in the wheel is moved, a past deadline is due on next expire
+        assertFalse(wheel.schedule("a", Long.MIN_VALUE));
+        assertFalse(wheel.schedule("b", 9000));
+        assertEquals(2, wheel.size());
+        assertEquals(List.of("a"), wheel.expire(1001));
+        assertTrue(wheel.expire(8999).isEmpty());
+        assertEquals(List.of("b"), wheel.expire(9000));
+
+        // Parked items are never due
+        wheel.schedule("c", Long.MAX_VALUE);
+        assertTrue(wheel.expire(Long.MAX_VALUE - 1).isEmpty());
+        assertTrue(wheel.contains("c"));
+    }
+
+    @Test
+    public void removeAndIterate() {
+        TimerWheel<Integer> wheel = new TimerWheel<>(10, 4, i -> i * 10L);
+        for (int i = 0; i < 10; i++) {
+            wheel.add(i);
+        }
+        assertTrue(wheel.remove(3));
+        assertFalse(wheel.remove(3));
+        for (Iterator<Integer> it = wheel.iterator(); it.hasNext();) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(4, wheel.size());
+        List<Integer> expired = wheel.expire(1000);
+        Collections.sort(expired);
+        assertEquals(List.of(1, 5, 7, 9), expired);
+
+        wheel.add(1);
+        wheel.clear();
+        assertTrue(wheel.expire(1000).isEmpty());
+    }
+
+    @Test
+    public void sameItemsAsScan() {
+        Random random = new Random(42);
+        TimerWheel<Integer> wheel = new TimerWheel<>(100, 16, i -> 0L);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long now = 0;
+        for (int step = 0; step < 2000; step++) {
+            for (int i = 0; i < 5; i++) {
+                int item = random.nextInt(200);
+                long deadline = now + random.nextInt(10000) - 1000;
+                wheel.schedule(item, deadline);
+                deadlines.put(item, deadline);
+            }
+            if (random.nextInt(10) == 0) {
+                int item = random.nextInt(200);
+                assertEquals(deadlines.remove(item) != null, wheel.remove(item));
+            }
+
+            // Irregular steps, sometimes skipping whole turns of the wheel
+            now += random.nextInt(10) == 0 ? random.nextInt(5000) : random.nextInt(300);
+            List<Integer> expected = new ArrayList<>();
+            for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+                if (entry.getValue() <= now) {
+                    expected.add(entry.getKey());
+                }
+            }
+            expected.forEach(deadlines::remove);
+            List<Integer> expired = wheel.expire(now);
+            Collections.sort(expected);
+            Collections.sort(expired);
+            assertEquals(expected, expired);
+            assertEquals(deadlines.size(), wheel.size());
+        }
+    }
+}
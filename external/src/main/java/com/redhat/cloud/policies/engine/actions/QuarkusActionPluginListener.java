@@ -13,9 +13,11 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
+/**
+ * Hands the actions to the plugins registered for them. The actions of each plugin are processed on their own
+ * dispatch thread by the ActionsService, a plugin registered under several names is called by one of them at a time.
+ */
 @ApplicationScoped
 public class QuarkusActionPluginListener implements ActionListener {
     private static final AlertingLogger log = MsgLogging.getMsgLogger(AlertingLogger.class, QuarkusActionPluginListener.class);
@@ -23,13 +25,10 @@ public class QuarkusActionPluginListener implements ActionListener {
     @Inject
     DefinitionsService definitions;
 
-    ExecutorService executorService;
-
     private Map<String, ActionPluginListener> plugins;
 
     public QuarkusActionPluginListener() {
         this.plugins = new HashMap<>();
-        this.executorService = Executors.newCachedThreadPool();
     }
 
     public void addPlugin(String pluginKey, ActionPluginListener listener) {
@@ -59,7 +58,9 @@ public class QuarkusActionPluginListener implements ActionListener {
 
             ActionMessage pluginMessage = new StandaloneActionMessage(action);
             try {
-                plugin.process(pluginMessage);
+                synchronized (plugin) {
+                    plugin.process(pluginMessage);
+                }
             } catch (Exception e) {
                 log.debugf("Error processing action: %s", action.getActionPlugin(), e);
                 log.errorProcessingAction(e.getMessage());
@@ -75,13 +76,9 @@ public class QuarkusActionPluginListener implements ActionListener {
         for (Map.Entry<String, ActionPluginListener> pluginEntry : plugins.entrySet()) {
             ActionPluginListener plugin = pluginEntry.getValue();
             log.debugf("Flushing %s\n", pluginEntry.getKey());
-            plugin.flush();
-        }
-    }
-
-    public void close() {
-        if (executorService != null) {
-            executorService.shutdown();
+            synchronized (plugin) {
+                plugin.flush();
+            }
         }
     }
 
@@ -45,6 +45,7 @@ public class AdminHandler {
         router.put(path + "/cleanup").handler(this::cleanupExpiredItems);
         router.get(path + "/stats").handler(this::getKeyStatistics);
         router.put(path + "/rocksdb/compact").handler(this::rocksOperations);
+        router.put(path + "/rocksdb/migrate").handler(this::migrateEncoding);
         router.put(path + "/down").handler(this::setAdminDown);
     }
 
@@ -82,6 +83,20 @@ public class AdminHandler {
         });
     }
 
+    void executeMigration() {
+        executorService.submit(() -> {
+            try {
+                statusService.setAdditionalStatus("operation", "rewriting entries with the current encoding");
+                adminService.migrateEncoding();
+            } catch (Exception e) {
+                log.error("Failed to rewrite the entries",e);
+            } finally {
+                blockRunning.lazySet(false);
+                statusService.setAdditionalStatus("operation", null);
+            }
+        });
+    }
+
     void executeStatistics() {
         executorService.submit(() -> {
             try {
@@ -152,4 +167,23 @@ public class AdminHandler {
             ResponseUtil.badRequest(routing, "Blocking RocksDB operation is already running");
         }
     }
+
+    @DocPath(method = PUT,
+            path = "/rocksdb/migrate",
+            name = "Rewrite all the Infinispan backend entries with the current encoding",
+            notes = "This will update liveness handler with operation annotation and return immediately.")
+    @DocResponses(value = {
+            @DocResponse(code = 204, message = "Success, processing results.", response = String.class),
+            @DocResponse(code = 500, message = "Internal server error.", response = ResponseUtil.ApiError.class)
+    })
+    public void migrateEncoding(RoutingContext routing) {
+        if(blockRunning.compareAndSet(false, true)) {
+            executeMigration();
+            routing.response()
+                    .setStatusCode(204)
+                    .end();
+        } else {
+            ResponseUtil.badRequest(routing, "Blocking RocksDB operation is already running");
+        }
+    }
 }
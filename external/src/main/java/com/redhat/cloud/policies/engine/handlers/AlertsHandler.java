@@ -12,6 +12,7 @@ import io.vertx.ext.web.handler.BodyHandler;
 import org.hawkular.alerts.api.doc.*;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.EventSummary;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.services.AlertsCriteria;
@@ -63,6 +64,7 @@ public class AlertsHandler {
     private static final String PARAM_TEXT = "text";
     private static final String PARAM_TAG_NAMES = "tagNames";
     private static final String PARAM_THIN = "thin";
+    private static final String PARAM_SUMMARY = "summary";
     private static final String PARAM_RESOLVED_BY = "resolvedBy";
     private static final String PARAM_RESOLVED_NOTES = "resolvedNotes";
 
@@ -88,6 +90,7 @@ public class AlertsHandler {
                 PARAM_THIN);
         queryParamValidationMap.put(FIND_ALERTS, new HashSet<>(ALERTS_CRITERIA));
         queryParamValidationMap.get(FIND_ALERTS).addAll(Arrays.asList(ResponseUtil.PARAMS_PAGING));
+        queryParamValidationMap.get(FIND_ALERTS).add(PARAM_SUMMARY);
         queryParamValidationMap.put(WATCH_ALERTS, new HashSet<>(ALERTS_CRITERIA));
         queryParamValidationMap.get(WATCH_ALERTS).add(PARAM_WATCH_INTERVAL);
         queryParamValidationMap.put(DELETE_ALERTS, new HashSet<>(ALERTS_CRITERIA));
@@ -163,7 +166,9 @@ public class AlertsHandler {
                     description = "Filter out alerts with some lifecycle after this time.",
                     allowableValues = "Timestamp in millisecond since epoch."),
             @DocParameter(name = "thin", type = Boolean.class,
-                    description = "Return only thin alerts, do not include: evalSets, resolvedEvalSets.")
+                    description = "Return only thin alerts, do not include: evalSets, resolvedEvalSets."),
+            @DocParameter(name = "summary", type = Boolean.class,
+                    description = "Return only alert summaries read from the index. Only sorted by alertId or ctime.")
     })
     @DocResponses(value = {
             @DocResponse(code = 200, message = "Successfully fetched list of alerts.", response = Alert.class, responseContainer = "List"),
@@ -179,6 +184,14 @@ public class AlertsHandler {
                         ResponseUtil.checkForUnknownQueryParams(routing.request().params(), queryParamValidationMap.get(FIND_ALERTS));
                         Pager pager = ResponseUtil.extractPaging(routing.request().params());
                         AlertsCriteria criteria = buildCriteria(routing.request().params());
+                        if (Boolean.parseBoolean(routing.request().params().get(PARAM_SUMMARY))) {
+                            Page<EventSummary> summaryPage;
+                            try (Scope ignored = tracer.buildSpan("getAlertSummaries").asChildOf(serverSpan).startActive(true)) {
+                                summaryPage = alertsService.getAlertSummaries(tenantId, criteria, pager);
+                            }
+                            future.complete(summaryPage);
+                            return;
+                        }
                         Page<Alert> alertPage;
                         try (Scope ignored = tracer.buildSpan("getAlerts").asChildOf(serverSpan).startActive(true)) {
                             alertPage = alertsService.getAlerts(tenantId, criteria, pager);
@@ -46,6 +46,7 @@ public class EventsHandler {
     private static final String PARAM_TAGS = "tags";
     private static final String PARAM_TAG_QUERY = "tagQuery";
     private static final String PARAM_THIN = "thin";
+    private static final String PARAM_SUMMARY = "summary";
     private static final String PARAM_WATCH_INTERVAL = "watchInterval";
     private static final String PARAM_TAG_NAMES = "tagNames";
     private static final String PARAM_EVENT_TYPE = "eventType";
@@ -66,6 +67,7 @@ public class EventsHandler {
                 PARAM_THIN);
         queryParamValidationMap.put(FIND_EVENTS, new HashSet<>(EVENTS_CRITERIA));
         queryParamValidationMap.get(FIND_EVENTS).addAll(Arrays.asList(PARAMS_PAGING));
+        queryParamValidationMap.get(FIND_EVENTS).add(PARAM_SUMMARY);
         queryParamValidationMap.put(WATCH_EVENTS, new HashSet<>(EVENTS_CRITERIA));
         queryParamValidationMap.get(WATCH_EVENTS).add(PARAM_WATCH_INTERVAL);
         queryParamValidationMap.put(DELETE_EVENTS, new HashSet<>(EVENTS_CRITERIA));
@@ -334,7 +336,9 @@ public class EventsHandler {
                     description = "Filter out events for unspecified tags.",
                     allowableValues = "A tag query expression."),
             @DocParameter(name = "thin",
-                    description = "Return only thin events, do not include: evalSets.")
+                    description = "Return only thin events, do not include: evalSets."),
+            @DocParameter(name = "summary", type = Boolean.class,
+                    description = "Return only event summaries read from the index. Only sorted by id or ctime.")
     })
     @DocResponses(value = {
             @DocResponse(code = 200, message = "Successfully fetched list of events.", response = Event.class, responseContainer = "List"),
@@ -349,6 +353,10 @@ public class EventsHandler {
                         checkForUnknownQueryParams(routing.request().params(), queryParamValidationMap.get(FIND_EVENTS));
                         Pager pager = ResponseUtil.extractPaging(routing.request().params());
                         EventsCriteria criteria = buildCriteria(routing.request().params());
+                        if (Boolean.parseBoolean(routing.request().params().get(PARAM_SUMMARY))) {
+                            future.complete(alertsService.getEventSummaries(tenantId, criteria, pager));
+                            return;
+                        }
                         Page<Event> eventPage = alertsService.getEvents(tenantId, criteria, pager);
                         // log.debugf(Events: %s", eventPage);
                         future.complete(eventPage);
@@ -14,6 +14,7 @@ import org.hawkular.alerts.api.exception.NotFoundException;
 import org.hawkular.alerts.api.json.GroupConditionsInfo;
 import org.hawkular.alerts.api.json.GroupMemberInfo;
 import org.hawkular.alerts.api.json.UnorphanMemberInfo;
+import org.hawkular.alerts.api.model.Lifecycle;
 import org.hawkular.alerts.api.model.Note;
 import org.hawkular.alerts.api.model.condition.Condition;
 import org.hawkular.alerts.api.model.dampening.Dampening;
@@ -55,6 +56,8 @@ public class TriggersHandler {
     private static final String PARAM_THIN = "thin";
     private static final String PARAM_QUERY = "query";
     private static final String PARAM_ENABLED = "enabled";
+    private static final String PARAM_START_TIME = "startTime";
+    private static final String PARAM_END_TIME = "endTime";
 
     private static final String FIND_TRIGGERS = "findTriggers";
     private static final Map<String, Set<String>> queryParamValidationMap = new HashMap<>();
@@ -90,6 +93,7 @@ public class TriggersHandler {
         router.get(path + "/trigger/:triggerId").handler(this::getFullTrigger);
         router.get(path + "/:triggerId/dampenings").handler(this::getTriggerDampenings);
         router.get(path + "/:triggerId/conditions").handler(this::getTriggerConditions);
+        router.get(path + "/:triggerId/lifecycle").handler(this::getTriggerLifecycle);
         router.post(path + "/groups/members").handler(BodyHandler.create()).handler(this::createGroupMember);
         router.post(path + "/:triggerId/dampenings").handler(BodyHandler.create()).handler(this::createDampening);
         router.put(path + "/groups/enabled").handler(this::setGroupTriggersEnabled);
@@ -834,6 +838,47 @@ public class TriggersHandler {
                 }, res -> ResponseUtil.result(routing, res));
     }
 
+    @DocPath(method = GET,
+            path = "/{triggerId}/lifecycle",
+            name = "Get the lifecycle history of a trigger.",
+            notes = "The trigger only carries its latest lifecycle events, the history is kept for a limited time.")
+    @DocParameters(value = {
+            @DocParameter(name = "triggerId", required = true, path = true,
+                    description = "Trigger definition id to be retrieved."),
+            @DocParameter(name = "startTime",
+                    description = "Filter out lifecycle events before this time.",
+                    allowableValues = "Timestamp in millisecond since epoch."),
+            @DocParameter(name = "endTime",
+                    description = "Filter out lifecycle events after this time.",
+                    allowableValues = "Timestamp in millisecond since epoch.")
+    })
+    @DocResponses(value = {
+            @DocResponse(code = 200, message = "Successfully fetched list of lifecycle events.", response = Lifecycle.class, responseContainer = "List"),
+            @DocResponse(code = 400, message = "Bad Request/Invalid Parameters.", response = ResponseUtil.ApiError.class),
+            @DocResponse(code = 500, message = "Internal server error.", response = ResponseUtil.ApiError.class)
+    })
+    public void getTriggerLifecycle(RoutingContext routing) {
+        routing.vertx()
+                .executeBlocking(future -> {
+                    String tenantId = ResponseUtil.checkTenant(routing);
+                    String triggerId = routing.request().getParam("triggerId");
+                    String startTime = routing.request().getParam(PARAM_START_TIME);
+                    String endTime = routing.request().getParam(PARAM_END_TIME);
+                    try {
+                        long start = startTime != null ? Long.parseLong(startTime) : 0L;
+                        long end = endTime != null ? Long.parseLong(endTime) : System.currentTimeMillis();
+                        List<Lifecycle> lifecycle = definitionsService.getTriggerLifecycle(tenantId, triggerId, start, end);
+                        log.debugf("Lifecycle: %s", lifecycle);
+                        future.complete(lifecycle);
+                    } catch (IllegalArgumentException e) {
+                        throw new ResponseUtil.BadRequestException("Bad arguments: " + e.getMessage());
+                    } catch (Exception e) {
+                        log.debug(e.getMessage(), e);
+                        throw new ResponseUtil.InternalServerException(e.toString());
+                    }
+                }, res -> ResponseUtil.result(routing, res));
+    }
+
     @DocPath(method = GET,
             path = "/{triggerId}/dampenings",
             name = "Get all Dampenings for a Trigger (1 Dampening per mode).")
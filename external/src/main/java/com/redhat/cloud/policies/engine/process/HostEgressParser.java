@@ -0,0 +1,280 @@
+package com.redhat.cloud.policies.engine.process;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming parser of the host-egress messages.
+ *
+ * The payload is read token by token: the message is rejected as soon as its type or its reporter is known to be
+ * invalid, and only the system profile entries whose keys are referenced by some EventCondition are built. The
+ * values built are of the same types as a Vert.x JsonObject map: Map, List, String, Integer, Long, Double and Boolean.
+ */
+class HostEgressParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String HOST_FIELD = "host";
+    private static final String TYPE_FIELD = "type";
+    private static final String REPORTER_FIELD = "reporter";
+    private static final String HOST_ID = "id";
+    private static final String TENANT_ID_FIELD = "account";
+    private static final String DISPLAY_NAME_FIELD = "display_name";
+    private static final String FQDN_NAME_FIELD = "fqdn";
+    private static final String UPDATED = "updated";
+    private static final String SYSTEM_PROFILE_FIELD = "system_profile";
+    private static final String NETWORK_INTERFACES_FIELD = "network_interfaces";
+    private static final String YUM_REPOS_FIELD = "yum_repos";
+    private static final String NAME_FIELD = "name";
+    private static final String TAGS_FIELD = "tags";
+    private static final String TAGS_KEY_FIELD = "key";
+    private static final String TAGS_VALUE_FIELD = "value";
+
+    enum Rejection {
+        TYPE, NO_HOST, REPORTER
+    }
+
+    static class Host {
+        Rejection rejection;
+        String type;
+        String id;
+        String tenantId;
+        String displayName;
+        String fqdn;
+        String updated;
+        Multimap<String, String> tags;
+        Map<String, Object> systemProfile;
+    }
+
+    private final Set<String> acceptedTypes;
+    private final Set<String> acceptedReporters;
+
+    HostEgressParser(Set<String> acceptedTypes, Set<String> acceptedReporters) {
+        this.acceptedTypes = acceptedTypes;
+        this.acceptedReporters = acceptedReporters;
+    }
+
+    /**
+     * @param payload the host-egress message
+     * @param factKeys the system profile keys to keep, null to keep all of them
+     * @return the parsed host, check {@link Host#rejection} before using it
+     * @throws IOException if the payload is not a valid JSON object
+     */
+    Host parse(String payload, Set<String> factKeys) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            Host host = null;
+            boolean rejectedReporter = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (TYPE_FIELD.equals(field)) {
+                    String type = scalar(parser, token);
+                    if (!acceptedTypes.contains(type)) {
+                        Host rejected = rejected(Rejection.TYPE);
+                        rejected.type = type;
+                        return rejected;
+                    }
+                } else if (HOST_FIELD.equals(field) && token == JsonToken.START_OBJECT && !rejectedReporter) {
+                    host = parseHost(parser, factKeys);
+                    // Keep reading for the type, it takes precedence over the reporter
+                    rejectedReporter = host == null;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (rejectedReporter) {
+                return rejected(Rejection.REPORTER);
+            }
+            if (host == null) {
+                return rejected(Rejection.NO_HOST);
+            }
+            return host;
+        }
+    }
+
+    // Returns null if the reporter is rejected, the parser is then at the end of the host object
+    private Host parseHost(JsonParser parser, Set<String> factKeys) throws IOException {
+        Host host = new Host();
+        host.tags = MultimapBuilder.hashKeys().hashSetValues().build();
+        host.systemProfile = new HashMap<>();
+        String reporter = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case REPORTER_FIELD:
+                    reporter = scalar(parser, token);
+                    if (!acceptedReporters.contains(reporter)) {
+                        skipObject(parser);
+                        return null;
+                    }
+                    break;
+                case HOST_ID:
+                    host.id = scalar(parser, token);
+                    break;
+                case TENANT_ID_FIELD:
+                    host.tenantId = scalar(parser, token);
+                    break;
+                case DISPLAY_NAME_FIELD:
+                    host.displayName = scalar(parser, token);
+                    break;
+                case FQDN_NAME_FIELD:
+                    host.fqdn = scalar(parser, token);
+                    break;
+                case UPDATED:
+                    host.updated = scalar(parser, token);
+                    break;
+                case TAGS_FIELD:
+                    parseTags(parser, token, host.tags);
+                    break;
+                case SYSTEM_PROFILE_FIELD:
+                    parseSystemProfile(parser, token, factKeys, host.systemProfile);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (!acceptedReporters.contains(reporter)) {
+            return null;
+        }
+        return host;
+    }
+
+    private static void parseTags(JsonParser parser, JsonToken token, Multimap<String, String> tags)
+            throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String key = null;
+            String value = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                token = parser.nextToken();
+                if (TAGS_KEY_FIELD.equals(field)) {
+                    key = scalar(parser, token);
+                } else if (TAGS_VALUE_FIELD.equals(field)) {
+                    value = scalar(parser, token);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (key != null) {
+                tags.put(key.toLowerCase(), value);
+            }
+        }
+    }
+
+    private static void parseSystemProfile(JsonParser parser, JsonToken token, Set<String> factKeys,
+                                           Map<String, Object> facts) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            if (factKeys != null && !factKeys.contains(field)) {
+                parser.skipChildren();
+                continue;
+            }
+            if ((NETWORK_INTERFACES_FIELD.equals(field) || YUM_REPOS_FIELD.equals(field))
+                    && token == JsonToken.START_ARRAY) {
+                facts.put(field, namedObjectsToMap(parser));
+            } else {
+                facts.put(field, value(parser, token));
+            }
+        }
+    }
+
+    // Objects of an array keyed by their name, the objects without a name are dropped
+    private static Map<String, Object> namedObjectsToMap(JsonParser parser) throws IOException {
+        Map<String, Object> arrayObjectKey = new HashMap<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> object = (Map<String, Object>) value(parser, token);
+            Object name = object.get(NAME_FIELD);
+            if (!(name instanceof String) || ((String) name).isEmpty()) {
+                continue;
+            }
+            arrayObjectKey.put((String) name, object);
+        }
+        return arrayObjectKey;
+    }
+
+    private static Object value(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    map.put(field, value(parser, parser.nextToken()));
+                }
+                return map;
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    list.add(value(parser, token));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    // The text of a scalar value, null for null, objects and arrays
+    private static String scalar(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static void skipObject(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+
+    private static Host rejected(Rejection rejection) {
+        Host host = new Host();
+        host.rejection = rejection;
+        return host;
+    }
+}
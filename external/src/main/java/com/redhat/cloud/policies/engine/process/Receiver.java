@@ -1,11 +1,8 @@
 package com.redhat.cloud.policies.engine.process;
 
 import com.google.common.collect.Multimap;
-import com.google.common.collect.MultimapBuilder;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
-import io.vertx.core.json.JsonArray;
-import io.vertx.core.json.JsonObject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.metrics.Counter;
 import org.eclipse.microprofile.metrics.annotation.Metric;
@@ -14,18 +11,27 @@ import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.engine.cache.FactKeysCacheManager;
 import org.hawkular.alerts.log.MsgLogger;
 import org.hawkular.alerts.log.MsgLogging;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.hawkular.alerts.api.util.Util.isEmpty;
 
@@ -60,25 +66,23 @@ public class Receiver {
     public static final String FQDN_NAME_FIELD = "fqdn";
     public static final String UPDATED = "updated";
 
-    private static final String HOST_FIELD = "host";
-    private static final String TYPE_FIELD = "type";
-    private static final String REPORTER_FIELD = "reporter";
-    private static final String TENANT_ID_FIELD = "account";
-    private static final String SYSTEM_PROFILE_FIELD = "system_profile";
-    private static final String NETWORK_INTERFACES_FIELD = "network_interfaces";
-    private static final String YUM_REPOS_FIELD = "yum_repos";
-    private static final String NAME_FIELD = "name";
-    private static final String TAGS_FIELD = "tags";
-    private static final String TAGS_KEY_FIELD = "key";
-    private static final String TAGS_VALUE_FIELD = "value";
     private static final String CHECK_IN_FIELD = "check_in";
 
     @ConfigProperty(name = "engine.receiver.store-events")
     boolean storeEvents;
 
+    @ConfigProperty(name = "engine.receiver.batch-size")
+    int batchSize;
+
+    @ConfigProperty(name = "engine.receiver.batch-linger")
+    long batchLinger;
+
     @Inject
     AlertsService alertsService;
 
+    @Inject
+    FactKeysCacheManager factKeysCacheManager;
+
     @Inject
     @Metric(absolute = true, name = "engine.input.processed", tags = {"queue=host-egress"})
     Counter incomingMessagesCount;
@@ -107,6 +111,37 @@ public class Receiver {
     @Metric(absolute = true, name = "engine.input.processed.errors", tags = {"queue=host-egress"})
     Counter processingErrors;
 
+    private final HostEgressParser parser = new HostEgressParser(ACCEPTED_TYPES, ACCEPTED_REPORTERS);
+
+    private final Object batchSync = new Object();
+    private List<Message<String>> batch = new ArrayList<>();
+    private ScheduledFuture<?> lingerFlush;
+    private ScheduledExecutorService lingerExecutor;
+
+    @PostConstruct
+    void init() {
+        if (batchSize > 1) {
+            lingerExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Receiver-Linger");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (lingerExecutor != null) {
+            lingerExecutor.shutdown();
+        }
+    }
+
+    /*
+        Messages are accumulated and handed off to the engine in batches of batchSize. The message completing a
+        batch carries the hand-off, so the connector is back-pressured by the engine as before. A partial batch is
+        handed off by the linger executor after batchLinger ms. Messages are acked once their batch is handed off, and
+        all of them are nacked if the hand-off fails.
+     */
     @Incoming("events")
     @Acknowledgment(Acknowledgment.Strategy.MANUAL)
     public Uni<Void> processAsync(Message<String> input) {
@@ -114,138 +149,161 @@ public class Receiver {
         if (log.isTraceEnabled()) {
             log.tracef("Received message, input payload: %s", input.getPayload());
         }
-        JsonObject json;
-        try {
-            json = new JsonObject(input.getPayload());
-        } catch(Exception e) {
-            processingErrors.inc();
-            return ack(input);
+        if (lingerExecutor == null) {
+            return processBatch(Collections.singletonList(input));
         }
-        if (json.containsKey(TYPE_FIELD)) {
-            String eventType = json.getString(TYPE_FIELD);
-            if(!ACCEPTED_TYPES.contains(eventType)) {
-                if (log.isDebugEnabled()) {
-                    log.debugf("Got a request with type='%s', ignoring ", eventType);
-                }
-                rejectedCount.inc();
-                rejectedCountType.inc();
-                return ack(input);
+
+        List<Message<String>> fullBatch = null;
+        synchronized (batchSync) {
+            batch.add(input);
+            if (batch.size() >= batchSize) {
+                fullBatch = takeBatch();
+            } else if (lingerFlush == null) {
+                lingerFlush = lingerExecutor.schedule(this::flushLinger, batchLinger, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            return processBatch(fullBatch);
+        }
+        return Uni.createFrom().nullItem();
+    }
+
+    // Must be called holding batchSync
+    private List<Message<String>> takeBatch() {
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        List<Message<String>> result = batch;
+        batch = new ArrayList<>(batchSize);
+        return result;
+    }
+
+    private void flushLinger() {
+        List<Message<String>> partialBatch;
+        synchronized (batchSync) {
+            lingerFlush = null;
+            if (batch.isEmpty()) {
+                return;
             }
+            partialBatch = takeBatch();
         }
+        processBatch(partialBatch).subscribe().with(ignored -> { },
+                t -> log.errorf(t, "Failed to process a batch of [%s] messages", partialBatch.size()));
+    }
 
-        if (json.containsKey(HOST_FIELD)) {
-            json = json.getJsonObject(HOST_FIELD);
-        } else {
-            rejectedCount.inc();
-            rejectedCountHost.inc();
-            return ack(input);
+    /**
+     * Parse and filter a batch of host-egress messages, hand the resulting events to the engine in a single call and
+     * ack all the messages once the hand-off is done. If the hand-off fails, all the messages are nacked.
+     */
+    public Uni<Void> processBatch(List<Message<String>> inputs) {
+        Uni<Void> handOff;
+        try {
+            // The stored events keep the whole system profile, the engine only reads the facts of the conditions
+            Set<String> factKeys = !storeEvents && factKeysCacheManager != null
+                    ? factKeysCacheManager.getFactKeys(INSIGHTS_REPORT_DATA_ID) : null;
+            List<Event> eventList = new ArrayList<>(inputs.size());
+            for (Message<String> input : inputs) {
+                Event event = parseEvent(input.getPayload(), factKeys);
+                if (event != null) {
+                    eventList.add(event);
+                }
+            }
+            if (eventList.isEmpty()) {
+                return ack(inputs);
+            }
+
+            if (storeEvents) {
+                handOff = alertsService.addEvents(eventList)
+                        .replaceWith(ack(inputs))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+            } else {
+                handOff = alertsService.sendEvents(eventList)
+                        .replaceWith(ack(inputs))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+            }
+        } catch (Exception e) {
+            handOff = Uni.createFrom().failure(e);
         }
+        return handOff.onFailure().invoke(t -> inputs.forEach(m -> m.nack(t)));
+    }
 
-        // Verify host.reporter (not platform_metadata.metadata.reporter!) is one of the accepted values
-        String reporter = json.getString(REPORTER_FIELD);
-        if(!ACCEPTED_REPORTERS.contains(reporter)) {
+    /**
+     * @return the Event for the payload or null if the payload is invalid or rejected
+     */
+    private Event parseEvent(String payload, Set<String> factKeys) {
+        HostEgressParser.Host host;
+        try {
+            host = parser.parse(payload, factKeys);
+        } catch(Exception e) {
+            processingErrors.inc();
+            return null;
+        }
+        if (host.rejection != null) {
             rejectedCount.inc();
-            rejectedCountReporter.inc();
-            return ack(input);
+            switch (host.rejection) {
+                case TYPE:
+                    if (log.isDebugEnabled()) {
+                        log.debugf("Got a request with type='%s', ignoring ", host.type);
+                    }
+                    rejectedCountType.inc();
+                    break;
+                case NO_HOST:
+                    rejectedCountHost.inc();
+                    break;
+                case REPORTER:
+                    // Verify host.reporter (not platform_metadata.metadata.reporter!) is one of the accepted values
+                    rejectedCountReporter.inc();
+                    break;
+            }
+            return null;
         }
 
-        String inventoryId = json.getString(HOST_ID);
+        String inventoryId = host.id;
 
         if (isEmpty(inventoryId)) {
             rejectedCount.inc();
             rejectedCountId.inc();
-            return ack(input);
+            return null;
         }
 
-        String tenantId = json.getString(TENANT_ID_FIELD);
-        String displayName = json.getString(DISPLAY_NAME_FIELD);
+        String tenantId = host.tenantId;
+        String displayName = host.displayName;
         String text = String.format("host-egress report %s for %s", inventoryId, displayName);
 
         Event event = new Event(tenantId, UUID.randomUUID().toString(), INSIGHTS_REPORT_DATA_ID, CATEGORY_NAME, text);
         // Indexed searchable events
-        Multimap<String, String> tagsMap = parseTags(json.getJsonArray(TAGS_FIELD));
+        Multimap<String, String> tagsMap = host.tags;
         tagsMap.put(DISPLAY_NAME_FIELD, displayName);
-        tagsMap.put(INVENTORY_ID_FIELD, json.getString(HOST_ID));
+        tagsMap.put(INVENTORY_ID_FIELD, inventoryId);
         event.setTags(tagsMap);
 
         // Additional context for processing
         Map<String, String> contextMap = new HashMap<>();
         contextMap.put(INVENTORY_ID_FIELD, inventoryId);
-        contextMap.put(CHECK_IN_FIELD, json.getString(UPDATED));
+        contextMap.put(CHECK_IN_FIELD, host.updated);
         event.setContext(contextMap);
 
-        JsonObject sp = json.getJsonObject(SYSTEM_PROFILE_FIELD);
-        Map<String, Object> systemProfile = parseSystemProfile(sp);
+        // Only the system profile entries referenced by the conditions are parsed, unless the events are stored
+        Map<String, Object> systemProfile = host.systemProfile;
 
-        systemProfile.put(FQDN_NAME_FIELD, json.getString(FQDN_NAME_FIELD));
+        systemProfile.put(FQDN_NAME_FIELD, host.fqdn);
 
         event.setFacts(systemProfile);
-
-        try {
-            List<Event> eventList = new ArrayList<>(1);
-            eventList.add(event);
-            if (storeEvents) {
-                return alertsService.addEvents(eventList)
-                        .replaceWith(ack(input))
-                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
-            } else {
-                return alertsService.sendEvents(eventList)
-                        .replaceWith(ack(input))
-                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return event;
     }
 
-    private Uni<Void> ack(Message<String> input) {
-        return Uni.createFrom().completionStage(() -> input.ack());
-    }
-
-    /**
-     * parseSystemProfile extracts certain parts of the input JSON and modifies them for easier use
-     */
-    static Map<String, Object> parseSystemProfile(JsonObject json) {
-        if (json == null) {
-            return new HashMap<>();
-        }
-        Map<String, Object> facts = json.getMap();
-
-        JsonArray networkInterfaces = json.getJsonArray(NETWORK_INTERFACES_FIELD);
-        if (networkInterfaces != null) {
-            facts.put(NETWORK_INTERFACES_FIELD, namedObjectsToMap(networkInterfaces));
-        }
-
-        JsonArray yumRepos = json.getJsonArray(YUM_REPOS_FIELD);
-        if (yumRepos != null) {
-            facts.put(YUM_REPOS_FIELD, namedObjectsToMap(yumRepos));
+    private Uni<Void> ack(List<Message<String>> inputs) {
+        if (inputs.size() == 1) {
+            Message<String> input = inputs.get(0);
+            return Uni.createFrom().completionStage(() -> input.ack());
         }
-
-        return facts;
-    }
-
-    static Map<String, Object> namedObjectsToMap(JsonArray objectArray) {
-        Map<String, Object> arrayObjectKey = new HashMap<>();
-        for (Object o : objectArray) {
-            JsonObject json = (JsonObject) o;
-            String name = json.getString(NAME_FIELD);
-            if (name == null || name.isEmpty()) {
-                continue;
+        return Uni.createFrom().completionStage(() -> {
+            CompletableFuture<?>[] acks = new CompletableFuture[inputs.size()];
+            for (int i = 0; i < acks.length; i++) {
+                acks[i] = inputs.get(i).ack().toCompletableFuture();
             }
-            arrayObjectKey.put(name, json.getMap());
-        }
-        return arrayObjectKey;
-    }
-
-    static Multimap<String, String> parseTags(JsonArray tagsInput) {
-        Multimap<String, String> tagsMap = MultimapBuilder.hashKeys().hashSetValues().build();
-        for (Object o : tagsInput) {
-            JsonObject json = (JsonObject) o;
-            String key = json.getString(TAGS_KEY_FIELD).toLowerCase();
-            String value = json.getString(TAGS_VALUE_FIELD);
-            tagsMap.put(key, value);
-        }
-
-        return tagsMap;
+            return CompletableFuture.allOf(acks);
+        });
     }
 }
@@ -1,13 +1,17 @@
 package org.hawkular.alerts;
 
 import com.redhat.cloud.policies.engine.actions.QuarkusActionPluginRegister;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.runtime.LaunchMode;
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.StatusService;
+import org.hawkular.alerts.engine.cache.ActionDefinitionsCacheManager;
 import org.hawkular.alerts.engine.cache.ActionsCacheManager;
+import org.hawkular.alerts.engine.cache.FactKeysCacheManager;
+import org.hawkular.alerts.engine.cache.LastEvaluationCacheManager;
 import org.hawkular.alerts.engine.cache.IspnCacheManager;
 import org.hawkular.alerts.engine.cache.PublishCacheManager;
 import org.hawkular.alerts.engine.impl.AlertsContext;
@@ -52,9 +56,13 @@ public class AlertsStandalone {
     @Inject
     QuarkusActionPluginRegister pluginRegister;
 
+    @Inject
+    MeterRegistry meterRegistry;
+
     //    @ConfigProperty(name = "engine.backend.ispn.reindex", defaultValue = "false")
     private boolean ispnReindex;
 
+    private ActionDefinitionsCacheManager actionDefinitionsCacheManager;
     private ActionsCacheManager actionsCacheManager;
     private AlertsContext alertsContext;
     private AlertsEngineImpl engine;
@@ -63,10 +71,12 @@ public class AlertsStandalone {
     private DroolsRulesEngineImpl rules;
     private EmbeddedCacheManager cacheManager;
     private ExtensionsServiceImpl extensions;
+    private FactKeysCacheManager factKeysCacheManager;
     private IncomingDataManagerImpl incoming;
     private IspnActionsServiceImpl ispnActions;
     private IspnAlertsServiceImpl ispnAlerts;
     private IspnDefinitionsServiceImpl ispnDefinitions;
+    private LastEvaluationCacheManager lastEvaluationCacheManager;
     private StatusServiceImpl status;
     private PartitionManagerImpl partitionManager;
     private PublishCacheManager publishCacheManager;
@@ -95,7 +105,10 @@ public class AlertsStandalone {
         dataDrivenGroupCacheManager = new DataDrivenGroupCacheManager();
         incoming = new IncomingDataManagerImpl();
         actionsCacheManager = new ActionsCacheManager();
+        actionDefinitionsCacheManager = new ActionDefinitionsCacheManager();
         publishCacheManager = new PublishCacheManager();
+        factKeysCacheManager = new FactKeysCacheManager();
+        lastEvaluationCacheManager = new LastEvaluationCacheManager();
         adminService = new IspnAdminService();
 
         ispnReindex = ConfigProvider.getConfig().getValue("engine.backend.ispn.reindex", Boolean.class);
@@ -104,6 +117,7 @@ public class AlertsStandalone {
         ispnAlerts = new IspnAlertsServiceImpl();
         ispnDefinitions = new IspnDefinitionsServiceImpl();
 
+        ispnActions.setActionDefinitionsCacheManager(actionDefinitionsCacheManager);
         ispnActions.setActionsCacheManager(actionsCacheManager);
         ispnActions.setAlertsContext(alertsContext);
         ispnActions.setDefinitions(ispnDefinitions);
@@ -115,7 +129,10 @@ public class AlertsStandalone {
 
         ispnDefinitions.setAlertsEngine(engine);
         ispnDefinitions.setAlertsContext(alertsContext);
+        ispnDefinitions.setLastEvaluationCacheManager(lastEvaluationCacheManager);
+
 
+        actionDefinitionsCacheManager.setDefinitions(ispnDefinitions);
 
         actionsCacheManager.setDefinitions(ispnDefinitions);
         actionsCacheManager.setGlobalActionsCache(cacheManager.getCache("globalActions"));
@@ -128,11 +145,14 @@ public class AlertsStandalone {
 
         engine.setActions(ispnActions);
         engine.setAlertsService(ispnAlerts);
+        engine.setCheckpointCache(cacheManager.getCache("checkpoint"));
         engine.setDefinitions(ispnDefinitions);
         engine.setExecutor(executor);
         engine.setExtensionsService(extensions);
+        engine.setLastEvaluationCacheManager(lastEvaluationCacheManager);
         engine.setPartitionManager(partitionManager);
         engine.setRules(rules);
+        engine.setStatusService(status);
 
         incoming.setAlertsEngine(engine);
         incoming.setDataDrivenGroupCacheManager(dataDrivenGroupCacheManager);
@@ -146,10 +166,15 @@ public class AlertsStandalone {
         actionsCacheManager.setDefinitions(ispnDefinitions);
         actionsCacheManager.setGlobalActionsCache(cacheManager.getCache("globalActions"));
 
+        publishCacheManager.setDataIdCache(dataIdCache);
         publishCacheManager.setDefinitions(ispnDefinitions);
         publishCacheManager.setPublishCache(cacheManager.getCache("publish"));
         publishCacheManager.setPublishDataIdsCache(cacheManager.getCache("dataIds"));
 
+        factKeysCacheManager.setDefinitions(ispnDefinitions);
+
+        lastEvaluationCacheManager.setDefinitions(ispnDefinitions);
+
         status.setPartitionManager(partitionManager);
     }
 
@@ -168,23 +193,47 @@ public class AlertsStandalone {
             ispnReindex = false;
             status.setReindexing(false);
         }
+        engine.setMeterRegistry(meterRegistry);
+        actionDefinitionsCacheManager.setMeterRegistry(meterRegistry);
+        ispnActions.setMeterRegistry(meterRegistry);
+        ispnAlerts.setMeterRegistry(meterRegistry);
+        dataIdCache.setMeterRegistry(meterRegistry);
+        dataDrivenGroupCacheManager.setMeterRegistry(meterRegistry);
+        ispnDefinitions.setMeterRegistry(meterRegistry);
+
         // Initialization needs order and needs to be done after reindexing
         ispnAlerts.init();
         ispnDefinitions.init();
         ispnActions.init();
         adminService.init();
+        if (!adminService.isEncodingMigrated()) {
+            // Entries stored by Java serialization are still readable, they are rewritten in the background
+            executor.submit(() -> {
+                try {
+                    adminService.migrateEncoding();
+                } catch (Exception e) {
+                    log.error("Failed to rewrite the entries of Infinispan [backend]", e);
+                }
+            });
+        }
 
         partitionManager.init();
         alertsContext.init();
         dataDrivenGroupCacheManager.init();
         actionsCacheManager.init();
+        actionDefinitionsCacheManager.init();
         publishCacheManager.init();
+        factKeysCacheManager.init();
+        lastEvaluationCacheManager.init();
         extensions.init();
         engine.initServices();
     }
 
     public void stop() {
             engine.shutdown();
+            ispnActions.shutdown();
+            ispnAlerts.shutdown();
+            lastEvaluationCacheManager.shutdown();
             partitionManager.shutdown();
             IspnCacheManager.stop();
     }
@@ -211,6 +260,11 @@ public class AlertsStandalone {
         return adminService;
     }
 
+    @Produces
+    public FactKeysCacheManager getFactKeysCacheManager() {
+        return factKeysCacheManager;
+    }
+
     public boolean isReindexing() {
         return ispnReindex;
     }
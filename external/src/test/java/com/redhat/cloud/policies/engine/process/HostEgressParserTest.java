@@ -0,0 +1,87 @@
+package com.redhat.cloud.policies.engine.process;
+
+import io.vertx.core.json.JsonObject;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HostEgressParserTest {
+
+    private final HostEgressParser parser = new HostEgressParser(new HashSet<>(Arrays.asList("created", "updated")),
+            Collections.singleton("puptoo"));
+
+    private String readInput(String name) throws IOException {
+        InputStream is = getClass().getClassLoader().getResourceAsStream(name);
+        return IOUtils.toString(is, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSameFactsAsJsonObject() throws IOException {
+        for (String input : Arrays.asList("input/host.json", "input/thomas-host.json")) {
+            String inputJson = readInput(input);
+            JsonObject host = new JsonObject(inputJson).getJsonObject("host");
+            Map<String, Object> expected = SystemProfileFacts.parseSystemProfile(host.getJsonObject("system_profile"));
+
+            HostEgressParser.Host parsed = parser.parse(inputJson, null);
+
+            assertNull(parsed.rejection);
+            assertEquals(expected, parsed.systemProfile, input);
+            assertEquals(host.getString("id"), parsed.id);
+            assertEquals(host.getString("account"), parsed.tenantId);
+            assertEquals(host.getString("display_name"), parsed.displayName);
+            assertEquals(host.getString("fqdn"), parsed.fqdn);
+            assertEquals(host.getString("updated"), parsed.updated);
+            assertEquals(host.getJsonArray("tags").size(), parsed.tags.size());
+        }
+    }
+
+    @Test
+    public void testOnlyReferencedFacts() throws IOException {
+        Set<String> factKeys = new HashSet<>(Arrays.asList("arch", "network_interfaces", "not_in_profile"));
+
+        HostEgressParser.Host parsed = parser.parse(readInput("input/host.json"), factKeys);
+
+        assertEquals(new HashSet<>(Arrays.asList("arch", "network_interfaces")), parsed.systemProfile.keySet());
+        Map<?, ?> networkInterfaces = (Map<?, ?>) parsed.systemProfile.get("network_interfaces");
+        assertTrue(networkInterfaces.containsKey("eth0"));
+
+        parsed = parser.parse(readInput("input/host.json"), Collections.emptySet());
+        assertTrue(parsed.systemProfile.isEmpty());
+    }
+
+    @Test
+    public void testRejections() throws IOException {
+        JsonObject json = new JsonObject(readInput("input/host.json"));
+
+        json.put("type", "deleted");
+        assertEquals(HostEgressParser.Rejection.TYPE, parser.parse(json.toString(), null).rejection);
+
+        json.put("type", "created");
+        json.getJsonObject("host").put("reporter", "rhsm-conduit");
+        assertEquals(HostEgressParser.Rejection.REPORTER, parser.parse(json.toString(), null).rejection);
+
+        json.getJsonObject("host").remove("reporter");
+        assertEquals(HostEgressParser.Rejection.REPORTER, parser.parse(json.toString(), null).rejection);
+
+        // The type is checked first, even if it comes after the host
+        String typeLast = "{\"host\": {\"reporter\": \"rhsm-conduit\"}, \"type\": \"deleted\"}";
+        assertEquals(HostEgressParser.Rejection.TYPE, parser.parse(typeLast, null).rejection);
+
+        assertEquals(HostEgressParser.Rejection.NO_HOST, parser.parse("{\"type\": \"created\"}", null).rejection);
+
+        assertThrows(IOException.class, () -> parser.parse("{ \"json\": ", null));
+    }
+}
@@ -5,6 +5,7 @@ import org.hawkular.alerts.api.model.condition.ConditionEval;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.event.EventSummary;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.services.AlertsCriteria;
@@ -16,6 +17,7 @@ import java.util.*;
 public class MockedAlertsService implements AlertsService {
 
     private List<Event> pushedEvents;
+    private int pushCount;
 
     public MockedAlertsService() {
         pushedEvents = new ArrayList<>();
@@ -40,6 +42,7 @@ public class MockedAlertsService implements AlertsService {
     public Uni<Void> addEvents(Collection<Event> events) throws Exception {
         return Uni.createFrom().item(() -> {
             pushedEvents.addAll(events);
+            pushCount++;
             return null;
         });
     }
@@ -99,6 +102,16 @@ public class MockedAlertsService implements AlertsService {
         return null;
     }
 
+    @Override
+    public Page<EventSummary> getAlertSummaries(String tenantId, AlertsCriteria criteria, Pager pager) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Page<EventSummary> getEventSummaries(String tenantId, EventsCriteria criteria, Pager pager) throws Exception {
+        return null;
+    }
+
     @Override
     public void removeAlertTags(String tenantId, Collection<String> alertIds, Collection<String> tags) throws Exception {
 
@@ -133,6 +146,7 @@ public class MockedAlertsService implements AlertsService {
     public Uni<Void> sendEvents(Collection<Event> events) throws Exception {
         return Uni.createFrom().item(() -> {
             pushedEvents.addAll(events);
+            pushCount++;
             return null;
         });
     }
@@ -146,7 +160,12 @@ public class MockedAlertsService implements AlertsService {
         return pushedEvents;
     }
 
+    public int getPushCount() {
+        return pushCount;
+    }
+
     public void clearEvents() {
         pushedEvents.clear();
+        pushCount = 0;
     }
 }
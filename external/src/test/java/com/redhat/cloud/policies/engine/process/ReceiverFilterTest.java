@@ -11,6 +11,11 @@ import org.junit.jupiter.api.TestInstance;
 
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -125,6 +130,28 @@ public class ReceiverFilterTest {
         assertEquals(1, rejectedCountType.getCount());
     }
 
+    @Test
+    public void testBatchIsHandedOffOnce() throws Exception {
+        InputStream is = getClass().getClassLoader().getResourceAsStream("input/host.json");
+        String inputJson = IOUtils.toString(is, StandardCharsets.UTF_8);
+
+        AtomicInteger acked = new AtomicInteger();
+        List<Message<String>> batch = new ArrayList<>();
+        for (String payload : Arrays.asList(inputJson, "{ \"json\": ", inputJson)) {
+            batch.add(Message.of(payload, () -> {
+                acked.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }));
+        }
+
+        receiver.processBatch(batch).await().indefinitely();
+
+        assertEquals(2, mockedAlertsService.getPushedEvents().size());
+        assertEquals(1, mockedAlertsService.getPushCount());
+        assertEquals(1, processingErrors.getCount());
+        assertEquals(3, acked.get());
+    }
+
 
     public static class InternalCounter implements Counter {
 
@@ -19,8 +19,8 @@ import org.hawkular.alerts.api.model.action.ActionDefinition;
 import org.hawkular.alerts.api.model.condition.Condition;
 import org.hawkular.alerts.api.model.condition.EventCondition;
 import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.model.event.EventType;
-import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
@@ -28,6 +28,7 @@ import org.hawkular.alerts.api.model.trigger.TriggerAction;
 import org.hawkular.alerts.api.services.AlertsCriteria;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.api.services.EventsCriteria;
 import org.hawkular.alerts.api.services.StatusService;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -191,10 +192,17 @@ public class ReceiverTest {
         // Verify the alert includes the tags from the event
         AlertsCriteria criteria = new AlertsCriteria();
         criteria.setTagQuery("tags.display_name = 'VM'");
-        Page<Alert> alerts = alertsService.getAlerts(TENANT_ID, criteria, null);
 
-        // 4, because we have two triggers and we send the correct input twice
-        assertEquals(4, alerts.size());
+        // 4, because we have two triggers and we send the correct input twice. The alerts are stored asynchronously
+        await().until(() -> alertsService.getAlerts(TENANT_ID, criteria, null).size() == 4);
+
+        // The stored events keep the whole system profile, not only the facts read by the conditions
+        EventsCriteria eventsCriteria = new EventsCriteria();
+        eventsCriteria.setCategory(Receiver.CATEGORY_NAME);
+        await().until(() -> !alertsService.getEvents(TENANT_ID, eventsCriteria, null).isEmpty());
+        Event event = alertsService.getEvents(TENANT_ID, eventsCriteria, null).get(0);
+        assertEquals("string", event.getFacts().get("arch"));
+        assertTrue(event.getFacts().containsKey("yum_repos"));
 
         definitionsService.removeTrigger(TENANT_ID, TRIGGER_ID + "2");
     }
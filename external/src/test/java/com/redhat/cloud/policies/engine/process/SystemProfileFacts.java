@@ -0,0 +1,53 @@
+package com.redhat.cloud.policies.engine.process;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Facts of a system profile built from a Vert.x JsonObject, as the Receiver did before the {@link HostEgressParser}.
+ * It is the reference the facts of the streaming parser are compared to.
+ */
+public class SystemProfileFacts {
+
+    private static final String NETWORK_INTERFACES_FIELD = "network_interfaces";
+    private static final String YUM_REPOS_FIELD = "yum_repos";
+    private static final String NAME_FIELD = "name";
+
+    /**
+     * parseSystemProfile extracts certain parts of the input JSON and modifies them for easier use
+     */
+    public static Map<String, Object> parseSystemProfile(JsonObject json) {
+        if (json == null) {
+            return new HashMap<>();
+        }
+        Map<String, Object> facts = json.getMap();
+
+        JsonArray networkInterfaces = json.getJsonArray(NETWORK_INTERFACES_FIELD);
+        if (networkInterfaces != null) {
+            facts.put(NETWORK_INTERFACES_FIELD, namedObjectsToMap(networkInterfaces));
+        }
+
+        JsonArray yumRepos = json.getJsonArray(YUM_REPOS_FIELD);
+        if (yumRepos != null) {
+            facts.put(YUM_REPOS_FIELD, namedObjectsToMap(yumRepos));
+        }
+
+        return facts;
+    }
+
+    static Map<String, Object> namedObjectsToMap(JsonArray objectArray) {
+        Map<String, Object> arrayObjectKey = new HashMap<>();
+        for (Object o : objectArray) {
+            JsonObject json = (JsonObject) o;
+            String name = json.getString(NAME_FIELD);
+            if (name == null || name.isEmpty()) {
+                continue;
+            }
+            arrayObjectKey.put(name, json.getMap());
+        }
+        return arrayObjectKey;
+    }
+}